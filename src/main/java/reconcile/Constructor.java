@@ -17,7 +17,6 @@ package reconcile;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 import reconcile.classifiers.Classifier;
@@ -149,13 +148,22 @@ public static Clusterer createClusterer(String name, double threshold)
 }
 
 
-@SuppressWarnings("unchecked")
 public static Feature createFeature(String name)
 {
-  if (AllFeatures.featMap == null) {
-    AllFeatures.featMap = new HashMap<String, Feature>();
+  // features look each other up during feature generation, so the common case must not lock
+  Feature feat = AllFeatures.featMap.get(name);
+  if (feat == null) {
+    feat = createNewFeature(name);
   }
+  return feat;
+}
 
+/*
+ * Instantiate a feature the first time it is asked for and give it the next free ordinal
+ */
+@SuppressWarnings("unchecked")
+private static synchronized Feature createNewFeature(String name)
+{
   Feature feat = AllFeatures.featMap.get(name);
   if (feat == null) {
     try {
@@ -166,6 +174,7 @@ public static Feature createFeature(String name)
 
       Class featClass = Class.forName(className);
       feat = (Feature) featClass.newInstance();
+      feat.setOrdinal(AllFeatures.featMap.size());
       AllFeatures.featMap.put(name, feat);
     }
     catch (Exception e) {
@@ -0,0 +1,227 @@
+package reconcile;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reconcile.data.Document;
+
+/**
+ * Runs a per-document task over a corpus using a fixed number of worker threads. Documents are independent, so each one
+ * is handed to a worker as a unit; at most <code>queueSize</code> documents are in flight at any time, and results are
+ * handed back on the calling thread in corpus order, so the output of a parallel run is ordered exactly like the serial
+ * one. A failure in one document is reported to the handler and does not stop the rest of the corpus.
+ * <p>
+ * Tasks that need per-worker state (annotators, pair generators, classifiers) should keep it in a {@link ThreadLocal}.
+ * With a single worker the tasks run directly on the calling thread.
+ *
+ * @author David Buttler
+ *
+ */
+public class CorpusExecutor {
+
+/**
+ * Config key for the number of documents processed concurrently
+ */
+public static final String NUM_WORKERS = "NUM_WORKERS";
+
+/**
+ * Config key for the maximum number of documents queued or in flight
+ */
+public static final String QUEUE_SIZE = "WORKER_QUEUE_SIZE";
+
+/**
+ * A unit of work applied to a single document
+ */
+public interface DocumentTask<T> {
+
+T run(Document doc, int docNum)
+    throws Exception;
+}
+
+/**
+ * Receives the outcome of each document, in corpus order, on the thread that called {@link CorpusExecutor#run}.
+ * Exactly one of <code>result</code> and <code>error</code> is meaningful.
+ */
+public interface ResultHandler<T> {
+
+void handle(Document doc, int docNum, T result, Throwable error);
+}
+
+private int numWorkers;
+private int queueSize;
+
+public CorpusExecutor(int numWorkers, int queueSize) {
+  this.numWorkers = Math.max(1, numWorkers);
+  this.queueSize = Math.max(this.numWorkers, queueSize);
+}
+
+public CorpusExecutor(int numWorkers) {
+  this(numWorkers, 2 * numWorkers);
+}
+
+public CorpusExecutor(SystemConfig cfg) {
+  this(getNumWorkers(cfg), cfg.getInt(QUEUE_SIZE, 2 * getNumWorkers(cfg)));
+}
+
+public static int getNumWorkers(SystemConfig cfg)
+{
+  return Math.max(1, cfg.getInt(NUM_WORKERS, 1));
+}
+
+public int getNumWorkers()
+{
+  return numWorkers;
+}
+
+public boolean isParallel()
+{
+  return numWorkers > 1;
+}
+
+/**
+ * Run the task on every document in the corpus
+ *
+ * @return the number of documents that failed
+ */
+public <T> int run(Iterable<Document> docs, DocumentTask<T> task, ResultHandler<T> handler)
+{
+  if (!isParallel()) return runSerial(docs, task, handler);
+
+  ExecutorService pool = Executors.newFixedThreadPool(numWorkers, new WorkerThreadFactory());
+  LinkedList<Pending<T>> inFlight = new LinkedList<Pending<T>>();
+  int failures = 0;
+  try {
+    int docNum = 0;
+    for (Document doc : docs) {
+      Future<T> f = pool.submit(new TaskCallable<T>(task, doc, docNum));
+      inFlight.add(new Pending<T>(doc, docNum, f));
+      docNum++;
+      while (inFlight.size() >= queueSize) {
+        failures += complete(inFlight.removeFirst(), handler);
+      }
+    }
+    while (!inFlight.isEmpty()) {
+      failures += complete(inFlight.removeFirst(), handler);
+    }
+  }
+  finally {
+    for (Pending<T> p : inFlight) {
+      p.future.cancel(true);
+    }
+    pool.shutdown();
+  }
+  return failures;
+}
+
+private <T> int runSerial(Iterable<Document> docs, DocumentTask<T> task, ResultHandler<T> handler)
+{
+  int failures = 0;
+  int docNum = 0;
+  for (Document doc : docs) {
+    T result = null;
+    Throwable error = null;
+    try {
+      result = task.run(doc, docNum);
+    }
+    catch (Throwable t) {
+      error = t;
+      failures++;
+    }
+    handle(handler, doc, docNum, result, error);
+    docNum++;
+  }
+  return failures;
+}
+
+private <T> int complete(Pending<T> p, ResultHandler<T> handler)
+{
+  T result = null;
+  Throwable error = null;
+  try {
+    result = p.future.get();
+  }
+  catch (ExecutionException e) {
+    error = e.getCause();
+  }
+  catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    throw new RuntimeException(e);
+  }
+  handle(handler, p.doc, p.docNum, result, error);
+  return error == null ? 0 : 1;
+}
+
+private static <T> void handle(ResultHandler<T> handler, Document doc, int docNum, T result, Throwable error)
+{
+  if (handler != null) {
+    handler.handle(doc, docNum, result, error);
+  }
+  else if (error != null) {
+    reportFailure(doc, error);
+  }
+}
+
+/**
+ * Default treatment of a failed document: log it and move on
+ */
+public static void reportFailure(Document doc, Throwable error)
+{
+  System.err.println("Failed to process document " + doc.getDocumentId() + ": " + error);
+  error.printStackTrace();
+}
+
+private static class Pending<T> {
+
+Document doc;
+int docNum;
+Future<T> future;
+
+Pending(Document doc, int docNum, Future<T> future) {
+  this.doc = doc;
+  this.docNum = docNum;
+  this.future = future;
+}
+}
+
+private static class TaskCallable<T>
+    implements Callable<T> {
+
+private DocumentTask<T> task;
+private Document doc;
+private int docNum;
+
+TaskCallable(DocumentTask<T> task, Document doc, int docNum) {
+  this.task = task;
+  this.doc = doc;
+  this.docNum = docNum;
+}
+
+public T call()
+    throws Exception
+{
+  return task.run(doc, docNum);
+}
+}
+
+private static class WorkerThreadFactory
+    implements ThreadFactory {
+
+private static final AtomicInteger poolNum = new AtomicInteger(0);
+private final AtomicInteger threadNum = new AtomicInteger(0);
+private final String prefix = "reconcile-" + poolNum.incrementAndGet() + "-worker-";
+
+public Thread newThread(Runnable r)
+{
+  Thread t = new Thread(r, prefix + threadNum.incrementAndGet());
+  t.setDaemon(true);
+  return t;
+}
+}
+
+}
@@ -5,21 +5,43 @@ import gov.llnl.text.util.LineIterable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import reconcile.data.CorpusPacked;
 import reconcile.data.Document;
 import reconcile.general.Utils;
 import reconcile.util.File2DocIterable;
 import reconcile.validation.CrossValidator;
 import reconcile.validation.Randomizer;
 
+import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 
 public class Driver {
 
+/** Config key for the number of cross validation folds trained at the same time */
+public static final String FOLD_WORKERS = "FOLD_WORKERS";
+
+/**
+ * Config key for the layout of the corpora: "file" (the default) for a directory per document, or "packed" for the
+ * stores of {@link CorpusPacked}. For packed corpora the train, validation and test directories are the directories of
+ * the stores, and the file lists name the documents in them.
+ */
+public static final String CORPUS_TYPE = "CORPUS_TYPE";
+
+private Map<String, CorpusPacked> packedCorpora = Maps.newHashMap();
+
 private SystemConfig cfg;
 
 /**
@@ -74,24 +96,15 @@ public void runSystem()
   //should the system only worry about the test files?
   boolean testOnly = cfg.testOnly();
 
-  List<File> trainFileNames = null;
-  List<File> validFileNames = null;
-  
-  if(!testOnly) { 
-	  trainFileNames = getTrainingFiles();
-	  validFileNames = getValidFiles();
-  }
-  List<File> testFileNames = getTestingFiles();
-
   Iterable<Document> trainNames = null;
   Iterable<Document> validNames = null;
   
   if(!testOnly) { 
-	  trainNames = new File2DocIterable(trainFileNames);
-	  validNames = new File2DocIterable(validFileNames);
+	  trainNames = getDocuments(cfg.getTrDir(), cfg.getTrLst());
+	  validNames = getDocuments(cfg.getValidDir(), cfg.getValidLst());
   }
   
-  Iterable<Document> testNames = new File2DocIterable(testFileNames);
+  Iterable<Document> testNames = getDocuments(cfg.getTestDir(), cfg.getTestLst());
   Iterable<Document> allFilenames;
 
   // System.out.println("Read from "+validDirectory+" - "+validFiles+" "+validNames.length+" files");
@@ -249,6 +262,7 @@ public void runSystem()
 
   rec.commitRecord();
 
+  closePackedCorpora();
   long totalTime = System.currentTimeMillis() - systemTime;
   System.out.println("The system ran in " + Long.toString(totalTime / 1000) + " seconds");
 
@@ -290,12 +304,76 @@ public List<File> getTrainingFiles()
   }
 }
 
+/**
+ * @return the documents named in a file list, under the given root (see {@link #CORPUS_TYPE}); an empty list if either
+ *         is not given
+ */
+public Iterable<Document> getDocuments(String root, String fileListFileName)
+{
+  if (root == null || fileListFileName == null) return Lists.newArrayList();
+  if (!"packed".equals(cfg.getString(CORPUS_TYPE, "file"))) return new File2DocIterable(getFiles(root, fileListFileName));
+
+  final CorpusPacked corpus = getPackedCorpus(root);
+  List<String> ids = Lists.newArrayList();
+  try {
+    for (String id : LineIterable.iterateOverCommentedLines(new File(fileListFileName))) {
+      id = id.trim();
+      if (id.length() > 0) {
+        ids.add(id);
+      }
+    }
+  }
+  catch (Exception e) {
+    throw new RuntimeException(e);
+  }
+  for (String id : ids) {
+    if (!corpus.containsDocument(id)) throw new RuntimeException("Document " + id + " is not in " + root);
+  }
+  return Iterables.transform(ids, new Function<String, Document>() {
+
+    public Document apply(String id)
+    {
+      return corpus.getDocument(id);
+    }
+  });
+}
+
+private CorpusPacked getPackedCorpus(String root)
+{
+  CorpusPacked corpus = packedCorpora.get(root);
+  if (corpus == null) {
+    try {
+      corpus = new CorpusPacked(new File(root));
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    packedCorpora.put(root, corpus);
+  }
+  return corpus;
+}
+
+/**
+ * Close the packed corpora that were opened, so that their indexes are written
+ */
+private void closePackedCorpora()
+{
+  try {
+    for (CorpusPacked corpus : packedCorpora.values()) {
+      corpus.close();
+    }
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+  packedCorpora.clear();
+}
+
 public void runResolution()
 {
   long systemTime = System.currentTimeMillis();
 
-  List<File> testFiles = getTestingFiles();
-  Iterable<Document> testNames = new File2DocIterable(testFiles);
+  Iterable<Document> testNames = getDocuments(cfg.getTestDir(), cfg.getTestLst());
   int length = Iterables.size(testNames);
 
   // Should the system overwrite existing files
@@ -337,6 +415,7 @@ public void runResolution()
 
   endStage("test", time);
 
+  closePackedCorpora();
   long totalTime = System.currentTimeMillis() - systemTime;
   System.out.println("The system ran in " + Long.toString(totalTime / 1000) + " seconds");
 
@@ -347,10 +426,8 @@ public void crossValidate()
   long systemTime = System.currentTimeMillis();
   // ExperimentRecord rec = new ExperimentRecord();
 
-  List<File> trainFiles = getTrainingFiles();
-  Iterable<Document> trainNames = new File2DocIterable(trainFiles);
-  List<File> testFiles = getTestingFiles();
-  Iterable<Document> testNames = new File2DocIterable(testFiles);
+  Iterable<Document> trainNames = getDocuments(cfg.getTrDir(), cfg.getTrLst());
+  Iterable<Document> testNames = getDocuments(cfg.getTestDir(), cfg.getTestLst());
 
   Iterable<Document> filenames = Iterables.concat(trainNames, testNames);
   int length = Iterables.size(filenames);
@@ -384,24 +461,38 @@ public void crossValidate()
   System.out.println("Running cross validation with " + numFolds + " folds.");
 
   filenames = Randomizer.shuffleArray(filenames, 10);
+  int foldWorkers = Math.max(1, cfg.getInt(FOLD_WORKERS, 1));
+  if (foldWorkers > 1) {
+    long time = startStage("train", "Training " + numFolds + " folds, " + foldWorkers + " at a time");
+    trainFolds(filenames, numFolds, DATASET, featSetName, foldWorkers);
+    endStage("train", time);
+  }
   CrossValidator cv = CrossValidator.createCrossValidator();
   for (int i = 1; i <= numFolds; i++) {
 
     Iterable<Document>[] foldFiles = splitFoldValidation(filenames, numFolds, i);
     Iterable<Document> foldTrain = foldFiles[0], foldValid = foldFiles[1], foldTest = foldFiles[2];
     System.out.println("----------------- Fold #" + i + " -------------------");
-    long time = startStage("train", "Training on " + Iterables.size(foldTrain) + " files; Validating on "
-        + Iterables.size(foldValid) + " files.");
-    File trainFeatures = formTrainFeatFilenameCV(DATASET, featSetName, i);
-
-    try {
-      FeatureMerger.combine(new FileOutputStream(trainFeatures), foldTrain);
+    long time;
+    if (foldWorkers > 1) {
+      time = startStage("validate", "Validating on " + Iterables.size(foldValid) + " files.");
+      cv.validateFold(foldValid, cv.getFoldModelFile(i).getAbsolutePath());
+      endStage("validate", time);
     }
-    catch (FileNotFoundException e) {
-      throw new RuntimeException(e);
+    else {
+      time = startStage("train", "Training on " + Iterables.size(foldTrain) + " files; Validating on "
+          + Iterables.size(foldValid) + " files.");
+      File trainFeatures = formTrainFeatFilenameCV(DATASET, featSetName, i);
+
+      try {
+        FeatureMerger.combine(new FileOutputStream(trainFeatures), foldTrain);
+      }
+      catch (FileNotFoundException e) {
+        throw new RuntimeException(e);
+      }
+      cv.trainAndValidateFold(foldValid, trainFeatures, i);
+      endStage("train", time);
     }
-    cv.trainAndValidateFold(foldValid, trainFeatures, i);
-    endStage("train", time);
     time = startStage("classify", "Classifying " + Iterables.size(foldTest) + " files");
     cv.classifyFold(foldTest, i);
     endStage("classify", time);
@@ -432,6 +523,7 @@ public void crossValidate()
     endStage("test", time);
   }
 
+  closePackedCorpora();
   long totalTime = System.currentTimeMillis() - systemTime;
   System.out.println("The system ran in " + Long.toString(totalTime / 1000) + " seconds");
 
@@ -459,6 +551,49 @@ public Iterable<Document>[] splitFold(Iterable<Document> filenames, int numFolds
   return result;
 }
 
+/**
+ * Train the model of every fold, the given number of folds at a time. Only the training is done in parallel: a fold's
+ * validation documents are the test documents of the fold before it, and they share the prediction files, so the
+ * validation and classification are left to the folds in turn.
+ */
+private void trainFolds(final Iterable<Document> filenames, final int numFolds, final String DATASET,
+    final String featSetName, int foldWorkers)
+{
+  ExecutorService pool = Executors.newFixedThreadPool(Math.min(foldWorkers, numFolds));
+  try {
+    List<Future<Object>> futures = Lists.newArrayList();
+    for (int i = 1; i <= numFolds; i++) {
+      final int foldNum = i;
+      futures.add(pool.submit(new Callable<Object>() {
+
+        public Object call()
+            throws Exception
+        {
+          Iterable<Document> foldTrain = splitFoldValidation(filenames, numFolds, foldNum)[0];
+          File trainFeatures = formTrainFeatFilenameCV(DATASET, featSetName, foldNum);
+          FeatureMerger.combine(new FileOutputStream(trainFeatures), foldTrain);
+          CrossValidator.createCrossValidator().trainFold(trainFeatures, foldNum);
+          System.out.println("Trained fold #" + foldNum + " on " + Iterables.size(foldTrain) + " files.");
+          return null;
+        }
+      }));
+    }
+    for (Future<Object> f : futures) {
+      f.get();
+    }
+  }
+  catch (ExecutionException e) {
+    throw new RuntimeException(e.getCause());
+  }
+  catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    throw new RuntimeException(e);
+  }
+  finally {
+    pool.shutdownNow();
+  }
+}
+
 @SuppressWarnings("unchecked")
 public Iterable<Document>[] splitFoldValidation(Iterable<Document> filenames, int numFolds, int foldNum)
 {
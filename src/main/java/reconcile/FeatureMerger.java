@@ -4,6 +4,7 @@ import gov.llnl.text.util.FileUtils;
 import gov.llnl.text.util.InputStreamLineIterable;
 import gov.llnl.text.util.LineIterator;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -15,6 +16,8 @@ import java.util.Iterator;
 import java.util.regex.Pattern;
 
 import reconcile.data.Document;
+import reconcile.featureVector.BinaryFeatureReader;
+import reconcile.featureVector.FeatureWriterBinary;
 import reconcile.general.Utils;
 import reconcile.util.Doc2InputStreamIterable;
 import reconcile.util.FeatureFileExtractor;
@@ -110,9 +113,19 @@ public static void combine(OutputStream output, Iterator<InputStream> fileNames,
     System.out.println("merging...");
     boolean first = true;
     while (fileNames.hasNext()) {
-      InputStream f = fileNames.next();
+      InputStream f = new BufferedInputStream(fileNames.next());
             
-      if (first) {
+      if (FeatureWriterBinary.isBinary(f)) {
+        // the learners train on ARFF, so binary feature files are merged as text
+        BinaryFeatureReader reader = new BinaryFeatureReader(f);
+        if (first) {
+          reader.printArffHeader(out);
+        }
+        reader.printArffData(out);
+        reader.close();
+        out.flush();
+      }
+      else if (first) {
         // write everything
         FileUtils.write(out, new InputStreamReader(f));
         out.flush();
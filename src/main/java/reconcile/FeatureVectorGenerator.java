@@ -10,18 +10,26 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import reconcile.classifiers.PairScorer;
+import reconcile.clusterers.ScoredEdges;
 import reconcile.data.Annotation;
 import reconcile.data.AnnotationComparatorNestedLast;
 import reconcile.data.AnnotationSet;
 import reconcile.data.Document;
+import reconcile.featureVector.AllFeatures;
 import reconcile.featureVector.Feature;
+import reconcile.featureVector.FeatureVector;
 import reconcile.featureVector.FeatureWriter;
 import reconcile.featureVector.FeatureWriterARFF;
 import reconcile.featureVector.FeatureWriterARFFBinarized;
+import reconcile.featureVector.FeatureWriterBinary;
 import reconcile.featureVector.individualFeature.DocNo;
+import reconcile.features.properties.Mention;
 import reconcile.features.properties.Property;
 import reconcile.filter.PairGenerator;
 import reconcile.general.Constants;
+import reconcile.general.LatencyHistogram;
+import reconcile.general.Metrics;
 import reconcile.general.Utils;
 import reconcile.scorers.Matcher;
 
@@ -29,9 +37,20 @@ import com.google.common.collect.Maps;
 
 public class FeatureVectorGenerator {
 
-static HashMap<Feature, Long> runTimes;
-private static List<Feature> mFeatures;
-private static PairGenerator mPairGen;
+private static volatile List<Feature> mFeatures;
+
+/**
+ * Pair generators keep per-document iteration state, so every worker thread gets its own
+ */
+private static final ThreadLocal<PairGenerator> mPairGen = new ThreadLocal<PairGenerator>() {
+
+  @Override
+  protected PairGenerator initialValue()
+  {
+    String pairGenName = Utils.getConfig().getPairGenName();
+    return Constructor.makePairGenClass(pairGenName);
+  }
+};
 
 public static HashMap<Feature, String> makeVector(Annotation np1, Annotation np2, List<Feature> featureList,
     Document doc)
@@ -46,12 +65,26 @@ public static HashMap<Feature, String> makeVector(Annotation np1, Annotation np2
   return result;
 }
 
-public static void initializeTimingStructure(List<Feature> feats)
+/**
+ * Fill a reusable vector with the feature values of a pair. The vector is reset first, so the same one can be passed in
+ * for every pair of a document.
+ */
+public static FeatureVector makeVector(Annotation np1, Annotation np2, List<Feature> featureList, Document doc,
+    FeatureVector result)
 {
-  runTimes = new HashMap<Feature, Long>();
-  for (Feature f : feats) {
-    runTimes.put(f, 0L);
+  result.reset();
+  for (Feature feat : featureList) {
+    feat.getValue(np1, np2, doc, result);
   }
+  return result;
+}
+
+/**
+ * Clear the feature timings (see {@link Metrics})
+ */
+public static void initializeTimingStructure(List<Feature> feats)
+{
+  Metrics.reset(Metrics.FEATURE);
 }
 
 public static void numberAnnotations(AnnotationSet an)
@@ -69,10 +102,9 @@ public static HashMap<Feature, String> makeVectorTimed(Annotation np1, Annotatio
 {
   HashMap<Feature, String> result = new HashMap<Feature, String>();
   for (Feature feat : featureList) {
-    long stTime = System.currentTimeMillis();
+    long stTime = Metrics.start();
     feat.getValue(np1, np2, doc, result);
-    long elapsedTime = System.currentTimeMillis() - stTime;
-    runTimes.put(feat, runTimes.get(feat) + elapsedTime);
+    Metrics.stop(Metrics.FEATURE, feat.getName(), stTime);
     
     /*
     if (feat.getName() == "class") {
@@ -83,17 +115,41 @@ public static HashMap<Feature, String> makeVectorTimed(Annotation np1, Annotatio
   return result;
 }
 
+/**
+ * Timed version of {@link #makeVector(Annotation, Annotation, List, Document, FeatureVector)}
+ */
+public static FeatureVector makeVectorTimed(Annotation np1, Annotation np2, List<Feature> featureList, Document doc,
+    FeatureVector result)
+{
+  if (!Metrics.isEnabled()) return makeVector(np1, np2, featureList, doc, result);
+  result.reset();
+  for (Feature feat : featureList) {
+    long stTime = Metrics.start();
+    feat.getValue(np1, np2, doc, result);
+    Metrics.stop(Metrics.FEATURE, feat.getName(), stTime);
+  }
+  return result;
+}
+
+/**
+ * Print the total time and the median and 99th percentile time per pair of each feature, slowest first. The times are
+ * only recorded when {@link Metrics} are on.
+ */
 public static void printFeatTiming()
 {
+  if (!Metrics.isEnabled()) return;
   System.out.println("\nRuntime broken down by feature:");
+  Map<String, LatencyHistogram> times = Metrics.getHistograms(Metrics.FEATURE);
   TreeMap<Long, List<String>> q = new TreeMap<Long, List<String>>();
-  for (Feature f : runTimes.keySet()) {
-    MapUtil.addToMapList(q, runTimes.get(f).longValue(), f.getName());
+  for (String name : times.keySet()) {
+    MapUtil.addToMapList(q, times.get(name).getTotal(), name);
   }
-  for (Long time : q.keySet()) {
+  for (Long time : q.descendingKeySet()) {
     TreeSet<String> set = new TreeSet<String>(q.get(time));
     for (String name : set) {
-      System.out.printf("%s: %2.1f\n", name, (time.longValue() / (float) 1000));
+      LatencyHistogram h = times.get(name);
+      System.out.printf("%s: %2.1f s (p50 %d ns, p99 %d ns)\n", name, time.longValue() / 1e9, h.getPercentile(50),
+          h.getPercentile(99));
     }
   }
 
@@ -192,35 +248,69 @@ private static void outputMatchedKey(Document doc, AnnotationSet gs)
  * @param files
  *          - an array of the directories containing the raw text
  */
-public static void makeFeatures(Iterable<Document> docs, String[] featureNames, boolean training, ExperimentRecord rec)
+public static void makeFeatures(Iterable<Document> docs, String[] featureNames, final boolean training, ExperimentRecord rec)
 {
-  List<Feature> featureList = Constructor.createFeatures(featureNames);
+  final List<Feature> featureList = Constructor.createFeatures(featureNames);
   initializeTimingStructure(featureList);
-  int numNPs = 0;
+  final int[] numNPs = new int[1];
+  final boolean releaseAnnotationSets = Utils.getConfig().getBoolean(Document.ANNOTATION_RESIDENCY, false);
 
-  // Create the pair (instance) generator
-  String pairGenName = Utils.getConfig().getPairGenName();
-  PairGenerator pairGen = Constructor.makePairGenClass(pairGenName);
-  int i = 0;
+  // Create the pair (instance) generator; one per worker since they hold per-document state
+  final String pairGenName = Utils.getConfig().getPairGenName();
+  final ThreadLocal<PairGenerator> pairGens = new ThreadLocal<PairGenerator>() {
 
-  for (Document doc : docs) {
+    @Override
+    protected PairGenerator initialValue()
+    {
+      return Constructor.makePairGenClass(pairGenName);
+    }
+  };
+
+  CorpusExecutor executor = new CorpusExecutor(Utils.getConfig());
+  int failures = executor.run(docs, new CorpusExecutor.DocumentTask<AnnotationSet>() {
+
+    public AnnotationSet run(Document doc, int i)
+    {
+      long stTime = System.currentTimeMillis();
+      doc.loadAnnotationSets(i);
+      if (releaseAnnotationSets) {
+        // the sets are read back when a feature asks for them, so loading all of them need not go over the budget
+        doc.releaseOverBudget();
+      }
+      AnnotationSet basenp = makeFeatures(training, featureList, pairGens.get(), i + 1, doc);
+      if (releaseAnnotationSets) {
+        // the features are written, so the sets they were computed from are no longer needed
+        doc.releaseAnnotationSets();
+      }
+      long elapsedTime = System.currentTimeMillis() - stTime;
+      System.out.println("Finished: " + doc.getAbsolutePath() + " in " + Long.toString(elapsedTime / 1000)
+          + " seconds.");
+      return basenp;
+    }
+  }, new CorpusExecutor.ResultHandler<AnnotationSet>() {
 
-    long stTime = System.currentTimeMillis();
-    doc.loadAnnotationSets(i++);
-    AnnotationSet basenp = makeFeatures(training, featureList, pairGen, i, doc);
-    long elapsedTime = System.currentTimeMillis() - stTime;
-    System.out.println("Finished: " + doc.getAbsolutePath() + " in " + Long.toString(elapsedTime / 1000) + " seconds.");
-    numNPs += basenp.size();
-  }
+    public void handle(Document doc, int docNum, AnnotationSet basenp, Throwable error)
+    {
+      if (error != null) {
+        CorpusExecutor.reportFailure(doc, error);
+      }
+      else {
+        numNPs[0] += basenp.size();
+      }
+    }
+  });
 
   printFeatTiming();
-  System.out.println("Markables: " + numNPs + " found, -- " + Matcher.totalNPsMatched + " matched");
+  if (failures > 0) {
+    System.out.println("Feature generation failed for " + failures + " documents");
+  }
+  System.out.println("Markables: " + numNPs[0] + " found, -- " + Matcher.totalNPsMatched + " matched");
   System.out.println("Markables: " + Matcher.totalKey + " in key, -- " + Matcher.numMatchedKey + " matched");
   System.out.println("Markables: " + Matcher.doubleMatches + " double matches.");
 
   if (rec != null) {
     PrintWriter recOut = rec.getOutput();
-    recOut.println("Markables: " + numNPs + " found, -- " + Matcher.totalNPsMatched + " matched");
+    recOut.println("Markables: " + numNPs[0] + " found, -- " + Matcher.totalNPsMatched + " matched");
     recOut.println("Markables: " + Matcher.totalKey + " in key, -- " + Matcher.numMatchedKey + " matched");
     recOut.println("Markables: " + Matcher.doubleMatches + " double matches.");
   }
@@ -243,9 +333,7 @@ public static void makeFeatures(Iterable<Document> docs, String[] featureNames,
 public static AnnotationSet makeFeatures(Document doc, boolean training)
 {
   List<Feature> featureList = getFeatures();
-  if (runTimes == null) initializeTimingStructure(featureList);
   PairGenerator pairGen = getPairGenerator();
-  initializeTimingStructure(featureList);
 
   return makeFeatures(training, featureList, pairGen, 0, doc);
 }
@@ -253,30 +341,23 @@ public static AnnotationSet makeFeatures(Document doc, boolean training)
 public static AnnotationSet makeFeatures(Document doc)
 {
   List<Feature> featureList = getFeatures();
-  if (runTimes == null) initializeTimingStructure(featureList);
   PairGenerator pairGen = getPairGenerator();
-  initializeTimingStructure(featureList);
 
   return makeFeatures(false, featureList, pairGen, 0, doc);
 }
 
 /**
- * @return
+ * @return the pair generator belonging to the calling thread
  */
 private static PairGenerator getPairGenerator()
 {
-  if (mPairGen == null) {
-    // Create the pair (instance) generator
-    String pairGenName = Utils.getConfig().getPairGenName();
-    mPairGen = Constructor.makePairGenClass(pairGenName);
-  }
-  return mPairGen;
+  return mPairGen.get();
 }
 
 /**
- * @return
+ * @return the features named in the configuration
  */
-private static List<Feature> getFeatures()
+public static synchronized List<Feature> getFeatures()
 {
   if (mFeatures == null) {
     String[] featureNames = Utils.getConfig().getFeatureNames();
@@ -290,22 +371,17 @@ private static AnnotationSet makeFeatures(boolean training, List<Feature> featur
   OutputStream output = doc.writeFeatureFile();
   boolean write_binary = Utils.getConfig().getBoolean("WRITE_BINARIZED_FEATURE_FILE", true);
   FeatureWriter writer;
-  if (write_binary) {
+  if (FeatureWriterBinary.FORMAT.equals(Document.getFeatureFormat())) {
+    writer = new FeatureWriterBinary(featureList, output, write_binary);
+  }
+  else if (write_binary) {
     writer = new FeatureWriterARFFBinarized(featureList, output);
   }
   else {
     writer = new FeatureWriterARFF(featureList, output);
   }
 
-  AnnotationSet docNo = doc.getAnnotationSet(DocNo.ID);
-  if (docNo == null || docNo.size() == 0) {
-    docNo = new AnnotationSet(DocNo.ID);
-    Map<String, String> features = Maps.newHashMap();
-    features.put(DocNo.ID, String.valueOf(i));
-    docNo.add(0, doc.length(), DocNo.ID, features);
-    // don't write to disk
-    doc.addAnnotationSet(docNo, DocNo.ID, false);
-  }
+  addDocNo(doc, i);
 
   writer.printHeader();
   AnnotationSet basenp = doc.getAnnotationSet(Constants.NP);
@@ -322,15 +398,21 @@ private static AnnotationSet makeFeatures(boolean training, List<Feature> featur
     	} 
   */
 
+  // the per-np facts the features share, so the pair loop only looks them up
+  Mention.precompute(basenpArray, doc);
+
   // Initialize the pair generator with the new document
   pairGen.initialize(basenpArray, doc, training);
   
+  // one vector for the whole document, reset for every pair
+  FeatureVector values = new FeatureVector(AllFeatures.featMap.size());
   while (pairGen.hasNext()) {
     Annotation[] pair = pairGen.nextPair();
     Annotation np1 = pair[0], np2 = pair[1];
-    HashMap<Feature, String> values = makeVectorTimed(np1, np2, featureList, doc);
+    makeVectorTimed(np1, np2, featureList, doc, values);
     writer.printInstanceVector(values);
   }
+  writer.close();
 
   // for (int j = basenpArray.length - 1; j >= 0; j--) {
   // Annotation np2 = basenpArray[j];
@@ -348,4 +430,55 @@ private static AnnotationSet makeFeatures(boolean training, List<Feature> featur
   return basenp;
 }
 
+/**
+ * Score the np pairs of a document as they are generated, handing every feature vector straight to the classifier
+ * instead of writing a feature file, and collect the scores for the clusterer. Nothing is written to disk.
+ * 
+ * @param scorer
+ *          the classifier's scorer, built for {@link #getFeatures()}
+ * @param edges
+ *          where the scores go
+ */
+public static void scorePairs(Document doc, PairScorer scorer, ScoredEdges edges)
+{
+  List<Feature> featureList = getFeatures();
+  PairGenerator pairGen = getPairGenerator();
+
+  addDocNo(doc, 0);
+  AnnotationSet basenp = doc.getAnnotationSet(Constants.NP);
+  Annotation[] basenpArray = basenp.toArray();
+  System.out.println("Document: " + doc.getAbsolutePath() + " (" + basenpArray.length + " nps)");
+
+  Mention.precompute(basenpArray, doc);
+  pairGen.initialize(basenpArray, doc, false);
+  FeatureVector values = new FeatureVector(AllFeatures.featMap.size());
+  while (pairGen.hasNext()) {
+    Annotation[] pair = pairGen.nextPair();
+    Annotation np1 = pair[0], np2 = pair[1];
+    makeVectorTimed(np1, np2, featureList, doc, values);
+    int id1 = Integer.parseInt(np1.getAttribute(Constants.CE_ID));
+    int id2 = Integer.parseInt(np2.getAttribute(Constants.CE_ID));
+    long stTime = Metrics.start();
+    double score = scorer.score(values);
+    Metrics.stop(Metrics.CLASSIFIER, "PairScorer", stTime);
+    edges.addEdge(id1, id2, score);
+  }
+}
+
+/**
+ * Give the document a document number annotation if it does not have one yet. It is only kept in memory.
+ */
+private static void addDocNo(Document doc, int i)
+{
+  AnnotationSet docNo = doc.getAnnotationSet(DocNo.ID);
+  if (docNo == null || docNo.size() == 0) {
+    docNo = new AnnotationSet(DocNo.ID);
+    Map<String, String> features = Maps.newHashMap();
+    features.put(DocNo.ID, String.valueOf(i));
+    docNo.add(0, doc.length(), DocNo.ID, features);
+    // don't write to disk
+    doc.addAnnotationSet(docNo, DocNo.ID, false);
+  }
+}
+
 }
@@ -1,15 +1,20 @@
 package reconcile;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import reconcile.data.Document;
 import reconcile.featureExtractor.Annotator;
+import reconcile.featureExtractor.ModelRegistry;
+import reconcile.general.Metrics;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 
 public class Preprocessor {
@@ -17,9 +22,23 @@ public class Preprocessor {
 private Map<String, Annotator> mElements;
 private SystemConfig config;
 private boolean verbose = true;
+private boolean releaseAnnotationSets;
 
 public Preprocessor(SystemConfig systemConfig) {
   config = systemConfig;
+  releaseAnnotationSets = config.getBoolean(Document.ANNOTATION_RESIDENCY, false);
+  if (config.getBoolean(ModelRegistry.WARM_UP_MODELS, false)) {
+    warmUp();
+  }
+}
+
+/**
+ * Load the models of the configured preprocessing elements now instead of when the first document is preprocessed.
+ * Models are loaded once per process (see {@link ModelRegistry}), so only the first call does any work.
+ */
+public void warmUp()
+{
+  ModelRegistry.warmUp(config.getPreprocessingElements());
 }
 
 public void setVerbose(boolean v)
@@ -83,7 +102,7 @@ private Map<String, Annotator> getElements(List<String> elNames)
   for (String el : elNames) {
     Annotator a = mElements.get(el);
     if (a == null) {
-      a = Constructor.createInternalAnnotator(el);
+      a = ModelRegistry.createAnnotator(el);
       mElements.put(el, a);
     }
   }
@@ -106,15 +125,7 @@ private Map<String, Annotator> getElements()
 public void preprocess(Iterable<Document> corpus, String annotator, boolean overwrite)
 {
   ArrayList<String> elNames = Lists.newArrayList(annotator);
-  HashMap<String, String[]> elSetNames = config.getPreprocessingElSetNames();
-
-  // Initialize the element
-  Map<String, Annotator> elements = getElements(elNames);
-
-  int i = 0;
-  for (Document doc : corpus) {
-    preprocessDoc(overwrite, elNames, elSetNames, elements, doc, i++);
-  }
+  preprocessCorpus(corpus, elNames, overwrite);
 }
 
 /**
@@ -123,15 +134,7 @@ public void preprocess(Iterable<Document> corpus, String annotator, boolean over
  */
 public void preprocess(Iterable<Document> corpus, List<String> elNames, boolean overwrite)
 {
-  HashMap<String, String[]> elSetNames = config.getPreprocessingElSetNames();
-
-  // Initialize the element
-  Map<String, Annotator> elements = getElements(elNames);
-
-  int i = 0;
-  for (Document doc : corpus) {
-    preprocessDoc(overwrite, elNames, elSetNames, elements, doc, i++);
-  }
+  preprocessCorpus(corpus, elNames, overwrite);
 }
 
 /**
@@ -141,14 +144,47 @@ public void preprocess(Iterable<Document> corpus, List<String> elNames, boolean
 public void preprocess(Iterable<Document> corpus, boolean overwrite)
 {
   ArrayList<String> elNames = config.getPreprocessingElements();
-  HashMap<String, String[]> elSetNames = config.getPreprocessingElSetNames();
+  preprocessCorpus(corpus, elNames, overwrite);
+}
+
+/**
+ * Run the preprocessing elements over the corpus, using up to NUM_WORKERS threads. Annotators are not thread safe, so
+ * every worker thread gets its own preprocessor (and therefore its own annotator instances, which share their models
+ * through the {@link ModelRegistry}); the calling thread uses this one.
+ */
+private void preprocessCorpus(Iterable<Document> corpus, final List<String> elNames, final boolean overwrite)
+{
+  final HashMap<String, String[]> elSetNames = config.getPreprocessingElSetNames();
 
   // Initialize the element
-  Map<String, Annotator> elements = getElements(elNames);
+  getElements(elNames);
+
+  final Thread caller = Thread.currentThread();
+  final ThreadLocal<Preprocessor> workers = new ThreadLocal<Preprocessor>() {
+
+    @Override
+    protected Preprocessor initialValue()
+    {
+      if (Thread.currentThread() == caller) return Preprocessor.this;
+      Preprocessor p = new Preprocessor(config);
+      p.setVerbose(verbose);
+      return p;
+    }
+  };
+
+  CorpusExecutor executor = new CorpusExecutor(config);
+  int failures = executor.run(corpus, new CorpusExecutor.DocumentTask<Document>() {
 
-  int i = 0;
-  for (Document doc : corpus) {
-    preprocessDoc(overwrite, elNames, elSetNames, elements, doc, i++);
+    public Document run(Document doc, int docNum)
+    {
+      Preprocessor p = workers.get();
+      p.preprocessDoc(overwrite, elNames, elSetNames, p.getElements(elNames), doc, docNum);
+      return doc;
+    }
+  }, null);
+
+  if (failures > 0) {
+    System.out.println("Preprocessing failed for " + failures + " documents");
   }
 }
 
@@ -166,7 +202,13 @@ private void preprocessDoc(boolean overwrite, List<String> elNames, HashMap<Stri
     if (verbose) {
       opTime = preprocessingStepStart(name, doc);
     }
+    long stTime = Metrics.start();
     element.run(doc, elSetNames.get(name), overwrite);
+    Metrics.stop(Metrics.ANNOTATOR, name, stTime);
+    if (releaseAnnotationSets) {
+      releaseUnneeded(doc, elNames, j + 1, elements);
+      doc.releaseOverBudget();
+    }
     if (verbose) {
       preprocessingStepEnd(name, opTime);
     }
@@ -179,4 +221,19 @@ private void preprocessDoc(boolean overwrite, List<String> elNames, HashMap<Stri
   }
 }
 
+/**
+ * Release the annotation sets of the document that none of the elements still to run over it reads. If one of them
+ * does not declare what it reads, nothing is released; after the last element, everything is.
+ */
+private static void releaseUnneeded(Document doc, List<String> elNames, int next, Map<String, Annotator> elements)
+{
+  Set<String> needed = Sets.newHashSet();
+  for (int k = next; k < elNames.size(); k++) {
+    String[] required = elements.get(elNames.get(k)).getRequiredAnnotationSets();
+    if (required == null) return;
+    needed.addAll(Arrays.asList(required));
+  }
+  doc.retainAnnotationSets(needed);
+}
+
 }
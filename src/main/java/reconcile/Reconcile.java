@@ -27,7 +27,9 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import reconcile.classifiers.Classifier;
+import reconcile.classifiers.PairScorer;
 import reconcile.clusterers.Clusterer;
+import reconcile.clusterers.ScoredEdges;
 import reconcile.data.Annotation;
 import reconcile.data.AnnotationSet;
 import reconcile.data.Corpus;
@@ -35,6 +37,8 @@ import reconcile.data.CorpusFile;
 import reconcile.data.Document;
 import reconcile.drivers.CorefAnnotator;
 import reconcile.general.Constants;
+import reconcile.general.LatencyHistogram;
+import reconcile.general.Metrics;
 import reconcile.general.Utils;
 
 /**
@@ -54,6 +58,14 @@ Clusterer clusterer;
 // annotator
 CorefAnnotator annotator;
 
+/**
+ * whether to resolve documents without writing feature, prediction and cluster files
+ */
+private boolean resolveInMemory;
+
+// the classifier's in-memory scorer, made the first time it is needed
+private PairScorer scorer;
+
 /**
  * whether or not to overwrite existing annotations
  */
@@ -63,6 +75,8 @@ private SystemConfig config;
 
 private Preprocessor preprocessor;
 
+private String modelFile;
+
 public static final String CONFIG_ARG = "--config=";
 public static final String MODEL_ARG = "--model=";
 public static final String DEBUG_MODE_ARG = "--debug";
@@ -128,38 +142,25 @@ public static void main(String[] args)
       reconcile = new Reconcile(cfg, new File(modelFile));
     }
 
-    Timer t = new Timer();
-    for (Document d : testCorpus) {
-      t.increment();
-      // get the coreference annotations
-      AnnotationSet corefAnnots = null;
-      if (!reconcile.overwrite && d.existsAnnotationSetFile(Constants.RESPONSE_NPS)) {
-        corefAnnots = d.getAnnotationSet(Constants.RESPONSE_NPS);
-      }
-      else {
-        corefAnnots = reconcile.process(d);
-      }
-      System.out.println("corefernt annotations for "+d.getDocumentId());
-      Map<String, Set<Annotation>> chains = computeChains(corefAnnots);
-      Set<Set<Annotation>> doneSet = new HashSet<Set<Annotation>>();
-      for (String id: chains.keySet()) {
-        Set<Annotation> chain = chains.get(id);
-        if (doneSet.contains(chain)) {
-          continue;
+    final Timer t = new Timer();
+    reconcile.process(testCorpus, new CorpusExecutor.ResultHandler<AnnotationSet>() {
+
+      public void handle(Document d, int docNum, AnnotationSet corefAnnots, Throwable error)
+      {
+        t.increment();
+        if (error != null) {
+          CorpusExecutor.reportFailure(d, error);
         }
         else {
-          doneSet.add(chain);
+          printChains(d, corefAnnots);
         }
-        System.out.println("id:"+id);
-        for (Annotation a:chain) {
-          System.out.println("\t" + a.getStartOffset() + ", " + a.getEndOffset() + ":" + d.getAnnotText(a));
-        }
-        System.out.println("----------------------");
+        d.close();
       }
-    }
+    });
     if (debug) {
       FeatureVectorGenerator.printFeatTiming();
     }
+    reconcile.writeMetrics();
     t.end();
   }
   catch (IOException e) {
@@ -167,6 +168,27 @@ public static void main(String[] args)
   }
 }
 
+private static void printChains(Document d, AnnotationSet corefAnnots)
+{
+  System.out.println("corefernt annotations for " + d.getDocumentId());
+  Map<String, Set<Annotation>> chains = computeChains(corefAnnots);
+  Set<Set<Annotation>> doneSet = new HashSet<Set<Annotation>>();
+  for (String id : chains.keySet()) {
+    Set<Annotation> chain = chains.get(id);
+    if (doneSet.contains(chain)) {
+      continue;
+    }
+    else {
+      doneSet.add(chain);
+    }
+    System.out.println("id:" + id);
+    for (Annotation a : chain) {
+      System.out.println("\t" + a.getStartOffset() + ", " + a.getEndOffset() + ":" + d.getAnnotText(a));
+    }
+    System.out.println("----------------------");
+  }
+}
+
 /**
  * Construct a reconcile pipeline using the default model name in the default working directory
  */
@@ -188,6 +210,7 @@ public Reconcile(SystemConfig systemConfig, File model) {
 
 private void init(String model) {
 
+  modelFile = model;
   preprocessor = new Preprocessor(config);
 
   // classifier reqs
@@ -201,7 +224,70 @@ private void init(String model) {
   annotator = new CorefAnnotator();
 
   overwrite = config.getBoolean("OVERWRITE_FILES");
+  resolveInMemory = config.getBoolean("RESOLVE_IN_MEMORY", false);
+  if (debug) {
+    Metrics.setEnabled(true);
+  }
 }
+
+/**
+ * @return the latency histograms recorded so far by category (feature, property, annotator, classifier, clusterer) and
+ *         component name; empty unless METRICS is on
+ */
+public Map<String, Map<String, LatencyHistogram>> getMetrics()
+{
+  return Metrics.getHistograms();
+}
+
+/**
+ * Write the recorded latencies to the file named by METRICS_REPORT (CSV if it ends in .csv, JSON otherwise), if
+ * metrics are on and a file is named
+ */
+public void writeMetrics()
+    throws IOException
+{
+  String report = config.getString("METRICS_REPORT");
+  if (!Metrics.isEnabled() || report == null || report.length() == 0) return;
+  Metrics.writeReport(new File(report));
+  System.out.println("metrics written to " + report);
+}
+/**
+ * Resolve every document in the corpus, handing the coreference annotations of each document to the handler in corpus
+ * order. Up to NUM_WORKERS documents are processed at the same time; every worker thread gets its own pipeline
+ * (preprocessor, classifier and clusterer) built from the same configuration and model, and the calling thread uses
+ * this one. Existing coreference annotations are reused unless overwrite is set.
+ *
+ * @return the number of documents that failed
+ */
+public int process(Iterable<Document> corpus, CorpusExecutor.ResultHandler<AnnotationSet> handler)
+{
+  final Thread caller = Thread.currentThread();
+  final ThreadLocal<Reconcile> workers = new ThreadLocal<Reconcile>() {
+
+    @Override
+    protected Reconcile initialValue()
+    {
+      if (Thread.currentThread() == caller) return Reconcile.this;
+      Reconcile worker = new Reconcile(config, new File(modelFile));
+      worker.setOverwrite(overwrite);
+      return worker;
+    }
+  };
+
+  CorpusExecutor executor = new CorpusExecutor(config);
+  return executor.run(corpus, new CorpusExecutor.DocumentTask<AnnotationSet>() {
+
+    public AnnotationSet run(Document d, int docNum)
+        throws IOException
+    {
+      Reconcile worker = workers.get();
+      if (!worker.overwrite && d.existsAnnotationSetFile(Constants.RESPONSE_NPS))
+        return d.getAnnotationSet(Constants.RESPONSE_NPS);
+      return worker.process(d, docNum);
+    }
+  }, handler);
+}
+
 /**
  * @param d
  * @return
@@ -218,6 +304,7 @@ public AnnotationSet process(Document d) throws IOException
  */
 public AnnotationSet process(Document d, int docNum) throws IOException
 {
+  if (resolveInMemory && getPairScorer() != null) return processInMemory(d);
   try {
     // preprocessing steps (parsing and ner)
     preprocessor.preprocess(d, overwrite);
@@ -247,6 +334,35 @@ public AnnotationSet process(Document d, int docNum) throws IOException
   }
 }
 
+/**
+ * Resolve a document without intermediate files: the feature vector of each pair is scored as soon as it is made and
+ * the scores go straight to the clusterer
+ */
+private AnnotationSet processInMemory(Document d)
+{
+  preprocessor.preprocess(d, overwrite);
+  ScoredEdges edges = new ScoredEdges();
+  FeatureVectorGenerator.scorePairs(d, scorer, edges);
+  AnnotationSet clustering = clusterer.cluster(d, edges);
+  if (clustering == null) return new AnnotationSet(Constants.RESPONSE_NPS);
+  return annotator.annotate(d, clustering, Constants.RESPONSE_NPS, false);
+}
+
+/**
+ * @return the classifier's in-memory scorer, or null if the classifier cannot score pairs in memory
+ */
+private PairScorer getPairScorer()
+{
+  if (scorer == null) {
+    scorer = classifier.getPairScorer(FeatureVectorGenerator.getFeatures());
+    if (scorer == null) {
+      System.out.println(classifier.getClass().getSimpleName() + " cannot score pairs in memory; using files");
+      resolveInMemory = false;
+    }
+  }
+  return scorer;
+}
+
 /**
  * Given a string, return the annotation set that defines the coreference annotations
  * @param documentText
@@ -86,7 +86,7 @@ public static void main(String[] args)
 	} catch (FileNotFoundException e) {
 		throw new RuntimeException(e);
 	}
-
+	doc.close();
   }
   endStage("test", time);
 
@@ -1,7 +1,7 @@
 package reconcile;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
@@ -75,9 +75,9 @@ public static void score(boolean printIndividualScores, Iterable<Document> files
     for (Document doc : files) {
       AnnotationSet keyAnnots = doc.getAnnotationSet(Constants.GS_NP);
 
-      File responseName = doc.getClusterFile();
-      AnnotationSet responseAnnots = (new AnnotationReaderBytespan()).read(new FileInputStream(responseName),
-          "resp_ces");
+      InputStream response = doc.readClusterFile();
+      if (response == null) throw new FileNotFoundException("No cluster file for " + doc.getDocumentId());
+      AnnotationSet responseAnnots = (new AnnotationReaderBytespan()).read(response, "resp_ces");
       // We have to match key and response CEs.
       if (cfg.getAnnotationSetName(Constants.GS_NP).equals(cfg.getAnnotationSetName(Constants.NP))) {
         // Case 1: key and response are the same set of CEs
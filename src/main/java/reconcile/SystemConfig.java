@@ -15,6 +15,7 @@ import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 
 import reconcile.general.Constants;
+import reconcile.general.Metrics;
 import reconcile.general.Utils;
 
 
@@ -151,6 +152,7 @@ private void init()
   FEATURE_NAMES = getStringArray("FEATURE_NAMES");
   MUC6 = getBoolean("MUC6", MUC6);
   VERBOSE = getBoolean("VERBOSE", VERBOSE);
+  Metrics.setEnabled(getBoolean("METRICS", Metrics.isEnabled()));
   CLASSIFIER = getString("CLASSIFIER");
   MODEL_NAME = getString("MODEL_NAME");
   MUC_SCORER_PATH = getString("MUC_SCORER_PATH");
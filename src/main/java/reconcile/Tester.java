@@ -1,7 +1,5 @@
 package reconcile;
 
-import java.io.File;
-import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -49,7 +47,7 @@ public static void classify(Iterable<Document> testFilenames, boolean inMemory)
 		 if(inMemory)
 			 learner.test(doc.getFeatureReader(), doc.getPredictionWriter(), options);
 		 else
-			 learner.test(doc.getFeatureFile(), doc.getPredictionFile(), fullModelFN, options);
+			 learner.test(doc, fullModelFN, options);
     }
   }
 }
@@ -76,15 +74,11 @@ public static void cluster(Iterable<Document> testFilenames, boolean inMemory)
   for (Document doc : testFilenames) {
     AnnotationSet result = clusterer.cluster(doc, clustOptions);
     doc.writeAnnotationSet(result);
-	if(!inMemory)
-      try {
-        File out = doc.getClusterFile();
-        PrintWriter outWriter = new PrintWriter(out);
-        new AnnotationWriterBytespan().write(result, outWriter);
-      }
-      catch (IOException ioe) {
-        throw new RuntimeException(ioe);
-      }
+	if(!inMemory) {
+      PrintWriter outWriter = new PrintWriter(doc.writeClusterFile());
+      new AnnotationWriterBytespan().write(result, outWriter);
+      outWriter.close();
+	}
   }
 }
 
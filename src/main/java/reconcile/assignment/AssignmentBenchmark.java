@@ -0,0 +1,248 @@
+package reconcile.assignment;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks {@link JonkerVolgenantAlgorithm} and {@link SparseAssignment} against {@link HungarianAlgorithm} on random
+ * problems (comparing the costs, as ties may be broken either way), then times the three on the alignment of the
+ * chains of random documents, as CEAF does.
+ *
+ * Usage: AssignmentBenchmark [numChains [numTrials]]
+ */
+public class AssignmentBenchmark {
+
+public static void main(String[] args)
+{
+  int numChains = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+  int numTrials = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+  Random rand = new Random(0);
+
+  int failures = 0;
+  for (int trial = 0; trial < numTrials; trial++) {
+    int numRows = 1 + rand.nextInt(12), numCols = 1 + rand.nextInt(12);
+    // small integer costs make for many ties
+    boolean ties = trial % 2 == 0;
+    double[][] costs = new double[numRows][numCols];
+    for (int i = 0; i < numRows; i++) {
+      for (int j = 0; j < numCols; j++) {
+        costs[i][j] = ties ? rand.nextInt(5) : rand.nextDouble() * 50;
+      }
+    }
+    // the reductions of HungarianAlgorithm assume a square matrix, so it is given the matrix padded with zeros
+    int size = Math.max(numRows, numCols);
+    double[][] square = new double[size][size];
+    for (int i = 0; i < numRows; i++) {
+      System.arraycopy(costs[i], 0, square[i], 0, numCols);
+    }
+    double hungarian = cost(square, new HungarianAlgorithm().computeAssignments(copy(square)));
+    int[][] jv = new JonkerVolgenantAlgorithm().computeAssignments(copy(costs));
+    if (!isAssignment(jv, numRows, numCols) || Math.abs(cost(costs, jv) - hungarian) > 1e-9) {
+      System.out.println("dense mismatch on a " + numRows + "x" + numCols + " matrix: " + cost(costs, jv) + " vs "
+          + hungarian);
+      failures++;
+    }
+
+    int[][] cells = new int[numRows][];
+    double[][] weights = new double[numRows][];
+    randomCells(rand, numRows, numCols, 1 + rand.nextInt(3), ties, cells, weights);
+    double[][] padded = padded(numRows, numCols, cells, weights);
+    double max = max(weights);
+    double expected = 0;
+    int[][] solution = new HungarianAlgorithm().computeAssignments(copy(padded));
+    for (int[] s : solution) {
+      if (s[0] >= 0) {
+        expected += max - padded[s[0]][s[1]];
+      }
+    }
+    double sparse = weight(SparseAssignment.maxWeightMatching(numRows, numCols, cells, weights), cells, weights);
+    if (Math.abs(sparse - expected) > 1e-9) {
+      System.out.println("sparse mismatch on a " + numRows + "x" + numCols + " table: " + sparse + " vs " + expected);
+      failures++;
+    }
+  }
+  System.out.println(numTrials + " random problems, " + failures + " mismatches");
+
+  // the chains of a document of five nps a chain against those of a response that moves a fifth of the nps
+  int numNps = numChains * 5;
+  int[] key = new int[numNps], response = new int[numNps];
+  for (int np = 0; np < numNps; np++) {
+    key[np] = rand.nextInt(numChains);
+    response[np] = rand.nextDouble() < 0.2 ? rand.nextInt(numChains) : key[np];
+  }
+  int[][] cells = new int[numChains][];
+  double[][] weights = new double[numChains][];
+  chainCells(key, response, numChains, cells, weights);
+  double[][] padded = padded(numChains, numChains, cells, weights);
+  double max = max(weights);
+
+  long start = System.currentTimeMillis();
+  double sparse = weight(SparseAssignment.maxWeightMatching(numChains, numChains, cells, weights), cells, weights);
+  long sparseTime = System.currentTimeMillis() - start;
+
+  start = System.currentTimeMillis();
+  double jv = numChains * max - cost(padded, new JonkerVolgenantAlgorithm().computeAssignments(copy(padded)));
+  long jvTime = System.currentTimeMillis() - start;
+
+  start = System.currentTimeMillis();
+  double hungarian = numChains * max - cost(padded, new HungarianAlgorithm().computeAssignments(copy(padded)));
+  long hungarianTime = System.currentTimeMillis() - start;
+
+  System.out.println(numChains + " chains, " + numNps + " nps");
+  System.out.println("sparse:            " + sparse + " in " + sparseTime + " ms");
+  System.out.println("Jonker-Volgenant:  " + jv + " in " + jvTime + " ms");
+  System.out.println("Hungarian:         " + hungarian + " in " + hungarianTime + " ms");
+}
+
+/**
+ * Random cells, about perRow a row, over a band of the columns so that the rows fall into several groups
+ */
+private static void randomCells(Random rand, int numRows, int numCols, int perRow, boolean ties, int[][] cells,
+    double[][] weights)
+{
+  for (int i = 0; i < numRows; i++) {
+    boolean[] used = new boolean[numCols];
+    int start = rand.nextInt(numCols), n = 0;
+    for (int k = 0; k < perRow; k++) {
+      int j = (start + rand.nextInt(3)) % numCols;
+      if (!used[j]) {
+        used[j] = true;
+        n++;
+      }
+    }
+    cells[i] = new int[n];
+    weights[i] = new double[n];
+    for (int j = 0, t = 0; j < numCols; j++) {
+      if (used[j]) {
+        cells[i][t] = j;
+        weights[i][t++] = ties ? 1 + rand.nextInt(3) : rand.nextDouble();
+      }
+    }
+  }
+}
+
+/**
+ * The cells of the key chains against the response chains, weighted by the entity based similarity of CEAF
+ */
+private static void chainCells(int[] key, int[] response, int numChains, int[][] cells, double[][] weights)
+{
+  int[] keySizes = new int[numChains], responseSizes = new int[numChains];
+  int[][] counts = new int[numChains][];
+  for (int np = 0; np < key.length; np++) {
+    keySizes[key[np]]++;
+    responseSizes[response[np]]++;
+  }
+  for (int c = 0; c < numChains; c++) {
+    counts[c] = new int[0];
+  }
+  int[][] cols = new int[numChains][];
+  for (int c = 0; c < numChains; c++) {
+    cols[c] = new int[0];
+  }
+  for (int np = 0; np < key.length; np++) {
+    int r = key[np], c = response[np];
+    int t = Arrays.binarySearch(cols[r], c);
+    if (t < 0) {
+      t = -t - 1;
+      cols[r] = insert(cols[r], t, c);
+      counts[r] = insert(counts[r], t, 0);
+    }
+    counts[r][t]++;
+  }
+  for (int r = 0; r < numChains; r++) {
+    cells[r] = cols[r];
+    weights[r] = new double[cols[r].length];
+    for (int t = 0; t < cols[r].length; t++) {
+      weights[r][t] = 2 * counts[r][t] / (double) (keySizes[r] + responseSizes[cols[r][t]]);
+    }
+  }
+}
+
+private static int[] insert(int[] a, int index, int value)
+{
+  int[] b = new int[a.length + 1];
+  System.arraycopy(a, 0, b, 0, index);
+  b[index] = value;
+  System.arraycopy(a, index, b, index + 1, a.length - index);
+  return b;
+}
+
+/**
+ * The square cost matrix CEAF used to build: the largest weight less the weight, padded with the largest weight
+ */
+private static double[][] padded(int numRows, int numCols, int[][] cells, double[][] weights)
+{
+  int size = Math.max(numRows, numCols);
+  double max = max(weights);
+  double[][] costs = new double[size][size];
+  for (double[] row : costs) {
+    Arrays.fill(row, max);
+  }
+  for (int i = 0; i < numRows; i++) {
+    for (int t = 0; t < cells[i].length; t++) {
+      costs[i][cells[i][t]] = max - weights[i][t];
+    }
+  }
+  return costs;
+}
+
+private static double max(double[][] weights)
+{
+  double max = 0;
+  for (double[] row : weights) {
+    for (double w : row) {
+      max = Math.max(max, w);
+    }
+  }
+  return max;
+}
+
+private static double weight(int[] assignment, int[][] cells, double[][] weights)
+{
+  double total = 0;
+  for (int i = 0; i < assignment.length; i++) {
+    if (assignment[i] >= 0) {
+      total += weights[i][Arrays.binarySearch(cells[i], assignment[i])];
+    }
+  }
+  return total;
+}
+
+private static double cost(double[][] costs, int[][] solution)
+{
+  double total = 0;
+  for (int[] s : solution) {
+    if (s[0] >= 0) {
+      total += costs[s[0]][s[1]];
+    }
+  }
+  return total;
+}
+
+/**
+ * Every row is assigned once if there are no more rows than columns, every column otherwise
+ */
+private static boolean isAssignment(int[][] solution, int numRows, int numCols)
+{
+  boolean[] rows = new boolean[numRows];
+  int assigned = 0;
+  for (int[] s : solution) {
+    if (s[0] >= 0) {
+      if (rows[s[0]]) return false;
+      rows[s[0]] = true;
+      assigned++;
+    }
+  }
+  return assigned == Math.min(numRows, numCols);
+}
+
+private static double[][] copy(double[][] matrix)
+{
+  double[][] copy = new double[matrix.length][];
+  for (int i = 0; i < matrix.length; i++) {
+    copy[i] = matrix[i].clone();
+  }
+  return copy;
+}
+
+}
@@ -0,0 +1,152 @@
+package reconcile.assignment;
+
+import java.util.Arrays;
+
+/**
+ * The Jonker-Volgenant algorithm for the assignment problem: a shortest augmenting path method that is O(n^3) at
+ * worst, where the cover based {@link HungarianAlgorithm} keeps rescanning the whole matrix. For a square matrix the
+ * columns are first reduced and given to their cheapest rows while those are free (the initialization of Jonker and
+ * Volgenant). Every row that is left is then assigned along the shortest path of reduced costs from it to a free
+ * column, found by a Dijkstra search over the columns, and the row and column potentials are updated so that the
+ * reduced costs stay non negative (as in Crouse, "On implementing 2D rectangular assignment algorithms", 2016).
+ *
+ * The matrix may be rectangular. The result is in the format of {@link HungarianAlgorithm}: for every column, the row
+ * assigned to it (-1 if there is none) and the column.
+ */
+public class JonkerVolgenantAlgorithm
+    implements AssignmentAlgorithm {
+
+public int[][] computeAssignments(double[][] matrix)
+{
+  int numRows = matrix.length, numCols = matrix[0].length;
+  int[] colRows;
+  if (numRows <= numCols) {
+    colRows = solve(matrix, numRows, numCols, false)[1];
+  }
+  else {
+    // assign every column to a row instead
+    colRows = solve(matrix, numCols, numRows, true)[0];
+  }
+
+  int[][] retval = new int[numCols][];
+  for (int j = 0; j < numCols; j++) {
+    retval[j] = new int[] { colRows[j], j };
+  }
+  return retval;
+}
+
+/**
+ * Assign every one of the n rows to a different one of the m columns, n <= m; the matrix is read transposed if so
+ * asked
+ *
+ * @return the column of every row, and the row of every column (-1 if none)
+ */
+private static int[][] solve(double[][] matrix, int n, int m, boolean transposed)
+{
+  double[] u = new double[n], v = new double[m];
+  int[] rowCol = new int[n], colRow = new int[m];
+  Arrays.fill(rowCol, -1);
+  Arrays.fill(colRow, -1);
+
+  if (n == m) {
+    // column reduction; a column that is left free has a potential above 0, which only a square problem allows
+    for (int j = m - 1; j >= 0; j--) {
+      int best = 0;
+      double min = cost(matrix, transposed, 0, j);
+      for (int i = 1; i < n; i++) {
+        double c = cost(matrix, transposed, i, j);
+        if (c < min) {
+          min = c;
+          best = i;
+        }
+      }
+      v[j] = min;
+      if (rowCol[best] < 0) {
+        rowCol[best] = j;
+        colRow[j] = best;
+      }
+    }
+  }
+
+  double[] shortest = new double[m];
+  int[] path = new int[m];
+  int[] remaining = new int[m];
+  boolean[] scannedRows = new boolean[n];
+  boolean[] scannedCols = new boolean[m];
+  for (int cur = 0; cur < n; cur++) {
+    if (rowCol[cur] >= 0) {
+      continue;
+    }
+    Arrays.fill(shortest, Double.POSITIVE_INFINITY);
+    Arrays.fill(scannedRows, false);
+    Arrays.fill(scannedCols, false);
+    for (int j = 0; j < m; j++) {
+      remaining[j] = j;
+    }
+    int numRemaining = m;
+    double minVal = 0;
+    int i = cur, sink = -1;
+    while (sink < 0) {
+      scannedRows[i] = true;
+      int index = -1;
+      double lowest = Double.POSITIVE_INFINITY;
+      for (int k = 0; k < numRemaining; k++) {
+        int j = remaining[k];
+        double r = minVal + cost(matrix, transposed, i, j) - u[i] - v[j];
+        if (r < shortest[j]) {
+          path[j] = i;
+          shortest[j] = r;
+        }
+        // among the closest columns, prefer a free one
+        if (index < 0 || shortest[j] < lowest || (shortest[j] == lowest && colRow[j] < 0)) {
+          lowest = shortest[j];
+          index = k;
+        }
+      }
+      minVal = lowest;
+      int j = remaining[index];
+      scannedCols[j] = true;
+      remaining[index] = remaining[--numRemaining];
+      if (colRow[j] < 0) {
+        sink = j;
+      }
+      else {
+        i = colRow[j];
+      }
+    }
+
+    // update the potentials
+    u[cur] += minVal;
+    for (int r = 0; r < n; r++) {
+      if (scannedRows[r] && r != cur) {
+        u[r] += minVal - shortest[rowCol[r]];
+      }
+    }
+    for (int j = 0; j < m; j++) {
+      if (scannedCols[j]) {
+        v[j] -= minVal - shortest[j];
+      }
+    }
+
+    // augment along the path
+    int j = sink;
+    while (true) {
+      int r = path[j];
+      colRow[j] = r;
+      int previous = rowCol[r];
+      rowCol[r] = j;
+      if (r == cur) {
+        break;
+      }
+      j = previous;
+    }
+  }
+  return new int[][] { rowCol, colRow };
+}
+
+private static double cost(double[][] matrix, boolean transposed, int i, int j)
+{
+  return transposed ? matrix[j][i] : matrix[i][j];
+}
+
+}
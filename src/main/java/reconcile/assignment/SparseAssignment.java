@@ -0,0 +1,220 @@
+package reconcile.assignment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The assignment of rows to columns with the largest total weight, when only a few of the pairs have a weight and the
+ * others are worth nothing, as when the chains of two clusterings are aligned by the nps they share. A row or a column
+ * may be left unassigned. Only the pairs with a weight are looked at: the rows and columns are split into the groups
+ * that are connected by such pairs, and every group is solved on its own by the shortest augmenting path method of
+ * {@link JonkerVolgenantAlgorithm}, with a heap instead of a scan over all the columns. Leaving a row unassigned is a
+ * column of its own for the row, so the costs are those of the square matrix padded with "no overlap".
+ */
+public class SparseAssignment {
+
+/**
+ * @param cols
+ *          the columns each row has a weight for
+ * @param weights
+ *          the weights, in the order of cols
+ * @return the column assigned to each row, or -1
+ */
+public static int[] maxWeightMatching(int numRows, int numCols, int[][] cols, double[][] weights)
+{
+  // union find over the rows, then the columns
+  int[] parent = new int[numRows + numCols];
+  for (int i = 0; i < parent.length; i++) {
+    parent[i] = i;
+  }
+  for (int r = 0; r < numRows; r++) {
+    for (int c : cols[r]) {
+      int a = find(parent, r), b = find(parent, numRows + c);
+      if (a != b) {
+        parent[b] = a;
+      }
+    }
+  }
+  Map<Integer, List<Integer>> components = new HashMap<Integer, List<Integer>>();
+  for (int r = 0; r < numRows; r++) {
+    if (cols[r].length == 0) {
+      continue;
+    }
+    int root = find(parent, r);
+    List<Integer> rows = components.get(root);
+    if (rows == null) {
+      rows = new ArrayList<Integer>();
+      components.put(root, rows);
+    }
+    rows.add(r);
+  }
+
+  int[] result = new int[numRows];
+  Arrays.fill(result, -1);
+  for (List<Integer> rows : components.values()) {
+    if (rows.size() == 1 && cols[rows.get(0)].length == 1) {
+      // the most common group: a row and a column that only have a weight with each other
+      int r = rows.get(0);
+      if (weights[r][0] > 0) {
+        result[r] = cols[r][0];
+      }
+    }
+    else {
+      solveComponent(rows, cols, weights, result);
+    }
+  }
+  return result;
+}
+
+private static int find(int[] parent, int i)
+{
+  while (parent[i] != i) {
+    parent[i] = parent[parent[i]];
+    i = parent[i];
+  }
+  return i;
+}
+
+private static class Entry
+    implements Comparable<Entry> {
+
+final double dist;
+final int col;
+
+Entry(double dist, int col) {
+  this.dist = dist;
+  this.col = col;
+}
+
+public int compareTo(Entry o)
+{
+  return Double.compare(dist, o.dist);
+}
+}
+
+/**
+ * Solve one group. The columns of the group are numbered from 0 in the order they are met, followed by one column per
+ * row for leaving it unassigned; a pair costs the largest weight less its weight, leaving a row unassigned the largest
+ * weight.
+ */
+private static void solveComponent(List<Integer> rows, int[][] cols, double[][] weights, int[] result)
+{
+  int n = rows.size();
+  Map<Integer, Integer> colIndex = new HashMap<Integer, Integer>();
+  List<Integer> colIds = new ArrayList<Integer>();
+  int[][] edges = new int[n][];
+  double max = 0;
+  for (int i = 0; i < n; i++) {
+    int r = rows.get(i);
+    edges[i] = new int[cols[r].length];
+    for (int t = 0; t < cols[r].length; t++) {
+      Integer c = colIndex.get(cols[r][t]);
+      if (c == null) {
+        c = colIds.size();
+        colIndex.put(cols[r][t], c);
+        colIds.add(cols[r][t]);
+      }
+      edges[i][t] = c;
+      max = Math.max(max, weights[r][t]);
+    }
+  }
+  int numReal = colIds.size(), m = numReal + n;
+
+  double[] u = new double[n], v = new double[m];
+  int[] rowCol = new int[n], colRow = new int[m];
+  Arrays.fill(rowCol, -1);
+  Arrays.fill(colRow, -1);
+  double[] shortest = new double[m];
+  Arrays.fill(shortest, Double.POSITIVE_INFINITY);
+  int[] path = new int[m];
+  boolean[] scanned = new boolean[m];
+  List<Integer> scannedRows = new ArrayList<Integer>(), scannedCols = new ArrayList<Integer>();
+  List<Integer> touched = new ArrayList<Integer>();
+  PriorityQueue<Entry> heap = new PriorityQueue<Entry>();
+
+  for (int cur = 0; cur < n; cur++) {
+    double minVal = 0;
+    int i = cur, sink = -1;
+    while (sink < 0) {
+      scannedRows.add(i);
+      int[] rowEdges = edges[i];
+      double[] rowWeights = weights[rows.get(i)];
+      for (int t = 0; t <= rowEdges.length; t++) {
+        // the last one is the column for leaving the row unassigned
+        int j = t < rowEdges.length ? rowEdges[t] : numReal + i;
+        if (scanned[j]) {
+          continue;
+        }
+        double cost = t < rowEdges.length ? max - rowWeights[t] : max;
+        double r = minVal + cost - u[i] - v[j];
+        if (r < shortest[j]) {
+          if (shortest[j] == Double.POSITIVE_INFINITY) {
+            touched.add(j);
+          }
+          shortest[j] = r;
+          path[j] = i;
+          heap.add(new Entry(r, j));
+        }
+      }
+      Entry next = heap.poll();
+      while (scanned[next.col] || next.dist != shortest[next.col]) {
+        next = heap.poll();
+      }
+      int j = next.col;
+      minVal = next.dist;
+      scanned[j] = true;
+      scannedCols.add(j);
+      if (colRow[j] < 0) {
+        sink = j;
+      }
+      else {
+        i = colRow[j];
+      }
+    }
+
+    // update the potentials
+    u[cur] += minVal;
+    for (int r : scannedRows) {
+      if (r != cur) {
+        u[r] += minVal - shortest[rowCol[r]];
+      }
+    }
+    for (int j : scannedCols) {
+      v[j] -= minVal - shortest[j];
+    }
+
+    // augment along the path
+    int j = sink;
+    while (true) {
+      int r = path[j];
+      colRow[j] = r;
+      int previous = rowCol[r];
+      rowCol[r] = j;
+      if (r == cur) {
+        break;
+      }
+      j = previous;
+    }
+
+    for (int t : touched) {
+      shortest[t] = Double.POSITIVE_INFINITY;
+      scanned[t] = false;
+    }
+    touched.clear();
+    scannedRows.clear();
+    scannedCols.clear();
+    heap.clear();
+  }
+
+  for (int i = 0; i < n; i++) {
+    if (rowCol[i] < numReal) {
+      result[rows.get(i)] = colIds.get(rowCol[i]);
+    }
+  }
+}
+
+}
@@ -4,7 +4,10 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
 
+import reconcile.featureVector.Feature;
 import reconcile.weka.core.Attribute;
 import reconcile.weka.core.AttributeShort;
 import reconcile.weka.core.Instance;
@@ -64,6 +67,18 @@ public double[] test(File testFilename, File outputFilename, String[] options)
   }
 }
 
+@Override
+public PairScorer getPairScorer(List<Feature> featureList)
+{
+  return new PairScorer() {
+
+    public double score(Map<Feature, String> vector)
+    {
+      return -1;
+    }
+  };
+}
+
 /**
  * @param options
  *          is a string array containing the strings specified below in the following order: 0) directory containing
@@ -102,9 +117,9 @@ public double[] test(String testFilename, String outputFilename, String modelInp
       AttributeShort id2 = insts.attribute("ID2");
       for (int i = 0; i < insts.numInstances(); i++) {
         InstanceShort cur = insts.instance(i);
-        short curDoc = cur.value(docID);
-        short curID1 = cur.value(id1);
-        short curID2 = cur.value(id2);
+        int curDoc = cur.intValue(docID);
+        int curID1 = cur.intValue(id1);
+        int curID2 = cur.intValue(id2);
         out.println(curDoc + "," + curID1 + "," + curID2 + " -1");
 
       }
@@ -3,7 +3,10 @@ package reconcile.classifiers;
 import java.io.File;
 import java.io.FileReader;
 import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
 
+import reconcile.featureVector.Feature;
 import reconcile.weka.core.AttributeShort;
 import reconcile.weka.core.InstanceShort;
 import reconcile.weka.core.ModifiedInstancesShort;
@@ -43,9 +46,9 @@ public double[] test(File testFilename, File outputFilename, String[] options)
       AttributeShort id2 = insts.attribute("ID2");
       for (int i = 0; i < insts.numInstances(); i++) {
         InstanceShort cur = insts.instance(i);
-        short curDoc = cur.value(docID);
-        short curID1 = cur.value(id1);
-        short curID2 = cur.value(id2);
+        int curDoc = cur.intValue(docID);
+        int curID1 = cur.intValue(id1);
+        int curID2 = cur.intValue(id2);
         out.println(curDoc + "," + curID1 + "," + curID2 + " 1");
 
       }
@@ -68,6 +71,18 @@ public double[] test(File testFilename, File outputFilename, String[] options)
  *          svm_train module 1) complete filename where to save the learned model file 2) any options to pass to the
  *          classifier (may be omitted)
  */
+@Override
+public PairScorer getPairScorer(List<Feature> featureList)
+{
+  return new PairScorer() {
+
+    public double score(Map<Feature, String> vector)
+    {
+      return 1;
+    }
+  };
+}
+
 @Override
 public void train(File trainFilename, String[] options)
 {
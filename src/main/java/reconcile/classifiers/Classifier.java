@@ -6,12 +6,21 @@
 
 package reconcile.classifiers;
 
+import gov.llnl.text.util.FileUtils;
+
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.util.Arrays;
+import java.util.List;
 
 import reconcile.data.Document;
+import reconcile.featureVector.Feature;
+import reconcile.general.Metrics;
 import reconcile.general.Utils;
 
 public abstract class Classifier {
@@ -181,7 +190,9 @@ public double[] test(Reader testFile, Writer outputFile)
  */
 public double[] test(Document doc)
 {
-  double[] score = test(doc.getFeatureFile(), doc.getPredictionFile());
+  long stTime = Metrics.start();
+  double[] score = doc.hasFiles() ? test(doc.getFeatureFile(), doc.getPredictionFile()) : testCopies(doc, null, null);
+  Metrics.stop(Metrics.CLASSIFIER, getClass().getSimpleName(), stTime);
 
   return score;
 
@@ -196,11 +207,97 @@ public double[] test(Document doc)
  */
 public double[] test(Document doc, String[] options)
 {
-  double[] score = test(doc.getFeatureFile(), doc.getPredictionFile(), options);
+  long stTime = Metrics.start();
+  double[] score = doc.hasFiles() ? test(doc.getFeatureFile(), doc.getPredictionFile(), options) : testCopies(doc,
+      null, options);
+  Metrics.stop(Metrics.CLASSIFIER, getClass().getSimpleName(), stTime);
   return score;
 
 }
 
+/**
+ * Classifies the instances located in the feature file for the document with the given model
+ * 
+ * @param doc
+ * @param model
+ *          the model file
+ * @return the minimum and maximum numerical values of the classified instances
+ */
+public double[] test(Document doc, String model, String[] options)
+{
+  long stTime = Metrics.start();
+  double[] score = doc.hasFiles() ? test(doc.getFeatureFile(), doc.getPredictionFile(), model, options) : testCopies(
+      doc, model, options);
+  Metrics.stop(Metrics.CLASSIFIER, getClass().getSimpleName(), stTime);
+  return score;
+}
+
+/**
+ * Classify a document that has no files (see {@link Document#hasFiles()}): its features are copied to a temporary
+ * file, and the predictions written to another are copied back to the document
+ * 
+ * @param model
+ *          the model file, or null for the one the classifier was created with
+ * @param options
+ *          the options, or null for the ones in the config file
+ */
+private double[] testCopies(Document doc, String model, String[] options)
+{
+  try {
+    File features = File.createTempFile("features", ".tmp");
+    File predictions = File.createTempFile("predictions", ".tmp");
+    try {
+      InputStream in = doc.readFeatureFile();
+      if (in == null) throw new IOException("No feature file for " + doc.getDocumentId());
+      FileUtils.write(features, in);
+      double[] score;
+      if (options == null) {
+        score = test(features, predictions);
+      }
+      else if (model == null) {
+        score = test(features, predictions, options);
+      }
+      else {
+        score = test(features, predictions, model, options);
+      }
+      InputStream pred = new FileInputStream(predictions);
+      OutputStream out = doc.writePredictionFile();
+      try {
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = pred.read(buf)) >= 0) {
+          out.write(buf, 0, n);
+        }
+      }
+      finally {
+        pred.close();
+        out.close();
+      }
+      return score;
+    }
+    finally {
+      features.delete();
+      predictions.delete();
+    }
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+/**
+ * Create a scorer that classifies the pairs of a document in memory. The scorer is only valid for vectors of the
+ * given features.
+ * 
+ * @param featureList
+ *          the features of the vectors that will be scored
+ * @return the scorer, or null if this classifier can only classify feature files
+ */
+public PairScorer getPairScorer(List<Feature> featureList)
+{
+  return null;
+}
+
 public String getInfo(String[] options)
 {
   String result = "Classifier " + getClass().getSimpleName() + ".";
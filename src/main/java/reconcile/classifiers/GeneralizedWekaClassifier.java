@@ -23,12 +23,13 @@ import reconcile.weka.core.Instances;
 public class GeneralizedWekaClassifier
     extends Classifier {
 
-private static reconcile.weka.classifiers.Classifier mClassifier = null;
+/*
+ * The model is per instance so that each worker thread can use its own classifier
+ */
+private reconcile.weka.classifiers.Classifier mClassifier = null;
 
 private static WekaAttributeSelection mSelector = new WekaAttributeSelection();
 
-private static Evaluation mEval = null;
-
 /*
  * testFilename = genFeatures file
  * outputFilename = predictions
@@ -68,9 +69,9 @@ public double[] test(File testFilename, File outputFilename, String model, Strin
       mSelector.filterInstances(mData);
     }
 
-    mEval = new Evaluation(mData);
+    Evaluation eval = new Evaluation(mData);
 
-    results = mEval.evaluateModel(mClassifier, mData);
+    results = eval.evaluateModel(mClassifier, mData);
 
     // for (double b : results) System.out.print(b + "   ");
 
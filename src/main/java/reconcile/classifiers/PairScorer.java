@@ -0,0 +1,15 @@
+package reconcile.classifiers;
+
+import java.util.Map;
+
+import reconcile.featureVector.Feature;
+
+/**
+ * Classifies np pairs one feature vector at a time, as they are generated, so that a document can be resolved without
+ * writing a feature file and reading it back. Scores are on the same scale as the ones a classifier writes to its
+ * prediction file.
+ */
+public interface PairScorer {
+
+double score(Map<Feature, String> vector);
+}
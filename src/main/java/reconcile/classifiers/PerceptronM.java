@@ -1,16 +1,26 @@
 package reconcile.classifiers;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.List;
+import java.util.Map;
 
 import reconcile.Driver;
+import reconcile.featureVector.BinaryFeatureReader;
+import reconcile.featureVector.Feature;
+import reconcile.featureVector.FeatureColumns;
+import reconcile.featureVector.FeatureWriterBinary;
+import reconcile.general.Utils;
 import reconcile.weka.classifiers.functions.WeightVectorApplier;
 import reconcile.weka.core.AttributeShort;
 import reconcile.weka.core.InstanceShort;
@@ -25,9 +35,9 @@ public class PerceptronM
     extends Classifier {
 public static double SCALE_A = -10;
 public static double SCALE_B = 0;
-private static double[] weightVector;
-private static String cachedModelName = "no file";
-private static long modelTimestamp = 0;
+private double[] weightVector;
+private String cachedModelName = "no file";
+private long modelTimestamp = 0;
 
 private double[] loadClassifier(String modelInputFile, int numAtts)
 {
@@ -53,7 +63,16 @@ private void readClassifier(String modelInputFile, int numAtts)
 public double[] test(File testFile, File outputFile, String modelInputFile, String[] options)
 {
 	try {
-		return test(new FileReader(testFile),new FileWriter(outputFile), modelInputFile, options);
+		InputStream in = new BufferedInputStream(new FileInputStream(testFile));
+		if (FeatureWriterBinary.isBinary(in)) {
+			BinaryFeatureReader reader = new BinaryFeatureReader(in);
+			try {
+				return test(new ModifiedInstancesShort(reader), new FileWriter(outputFile), modelInputFile);
+			} finally {
+				reader.close();
+			}
+		}
+		return test(new InputStreamReader(in),new FileWriter(outputFile), modelInputFile, options);
 	} catch (FileNotFoundException e) {
 		throw new RuntimeException(e);
 	} catch (IOException e) {
@@ -66,15 +85,22 @@ public double[] test(Reader testFile, Writer outputFile, String[] options)
 	return test(testFile, outputFile, null, options);
 }
 public double[] test(Reader testFile, Writer outputFile, String modelInputFile, String[] options)
+{
+  // System.out.println("Testing "+testFilename+" -- "+outputFilename);
+  try {
+    return test(new ModifiedInstancesShort(new BufferedReader(testFile)), outputFile, modelInputFile);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+private double[] test(ModifiedInstancesShort insts, Writer outputFile, String modelInputFile)
 {
   double min = Double.MAX_VALUE;
   double max = Double.MIN_VALUE;
-  ModifiedInstancesShort insts;
   PrintWriter out = null;
-  ;
-  // System.out.println("Testing "+testFilename+" -- "+outputFilename);
   try {
-    insts = new ModifiedInstancesShort(new BufferedReader(testFile));
     insts.setClass(insts.attribute("class"));
     if (insts.numInstances() > 0)
  insts.cleanUpValuesAndSetWeight(0);
@@ -90,18 +116,15 @@ public double[] test(Reader testFile, Writer outputFile, String modelInputFile,
 
   for (int i = 0; i < insts.numInstances(); i++) {
     InstanceShort cur = insts.instance(i);
-    short curDoc = cur.value(docID);
-    short curID1 = cur.value(id1);
-    short curID2 = cur.value(id2);
+    int curDoc = cur.intValue(docID);
+    int curID1 = cur.intValue(id1);
+    int curID2 = cur.intValue(id2);
     double value = plattScale(res[i], SCALE_A, SCALE_B);
     min = min < value ? min : value;
     max = max > value ? max : value;
     out.println(curDoc + "," + curID1 + "," + curID2 + " " + value);
   }
   }
-  catch (IOException e) {
-    throw new RuntimeException(e);
-  }
   finally {
     if (out != null) {
       out.flush();
@@ -112,6 +135,49 @@ public double[] test(Reader testFile, Writer outputFile, String modelInputFile,
   return result;
 }
 
+/**
+ * Score pairs straight from their feature vectors the way {@link WeightVectorApplier#getDistance} scores the rows of a
+ * feature file: the normalized inner product of the weights and the feature columns, platt scaled. Missing values
+ * count as 0.
+ */
+@Override
+public PairScorer getPairScorer(List<Feature> featureList)
+{
+  final FeatureColumns columns = new FeatureColumns(featureList, Utils.getConfig().getBoolean(
+      "WRITE_BINARIZED_FEATURE_FILE", true));
+  final double[] w = loadClassifier(null, columns.numColumns());
+  final boolean[] isFeature = new boolean[columns.numColumns()];
+  for (int i = 0; i < isFeature.length; i++) {
+    isFeature[i] = columns.getType(i) != FeatureColumns.STRING && new AttributeShort(columns.getName(i)).isFeature();
+  }
+  return new PairScorer() {
+
+    public double score(Map<Feature, String> vector)
+    {
+      double result = 0;
+      double twoNorm = 0;
+      for (int i = 0; i < isFeature.length; i++) {
+        if (!isFeature[i]) {
+          continue;
+        }
+        double value;
+        if (columns.getType(i) == FeatureColumns.NOMINAL) {
+          value = Math.max(0, columns.nominalValue(i, vector));
+        }
+        else {
+          value = columns.numericValue(i, vector);
+          if (Double.isNaN(value)) {
+            value = 0;
+          }
+        }
+        result += value * w[i];
+        twoNorm += value * value;
+      }
+      return plattScale(result / Math.sqrt(twoNorm), SCALE_A, SCALE_B);
+    }
+  };
+}
+
 @Override
 public void train(File trainFilename, File modelOutputFilename, String[] options)
 {
@@ -6,34 +6,319 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import reconcile.featureVector.BinaryFeatureReader;
+import reconcile.featureVector.Feature;
+import reconcile.featureVector.FeatureColumns;
 import reconcile.general.Utils;
+import reconcile.weka.core.Attribute;
+import reconcile.weka.core.AttributeShort;
+import reconcile.weka.core.Instance;
+import reconcile.weka.core.Instances;
 
 
 /**
  * @author David Golland
- * 
+ *
+ * Trains and applies SVMLight models in process. The feature files (ARFF or binary) are read directly and the model
+ * is read once and kept for the following documents; models written by svm_learn are read as they are. Every attribute
+ * but the ids and the class is a feature, numbered from 1 in the order of the attributes. Linear models are trained in
+ * process (see {@link SVMLightModel#trainLinear}); for the other kernels svm_learn is still run, on a file this class
+ * writes in the SVMLight format.
+ * <p>
+ * Models trained by svm_learn on files formatted by svm_compatabalize.pl number the features as that script does,
+ * which has not been checked against the numbering here. To train or apply such models, set SVM_FORMAT_SCRIPT to true:
+ * the files are then formatted by the script and svm_learn and svm_classify are run as before.
  */
 public class SVMLight
     extends Classifier {
 
+/* when the linear solver stops: the largest violation of its optimality conditions (svm_learn's default for -e),
+ * and the most passes */
+private static final double DEFAULT_EPS = 0.001;
+private static final int MAX_ITERATIONS = 1000;
+
+/* the options of svm_learn the linear solver uses; -t, -v and -m do not change the model it learns */
+private static final List<String> LINEAR_OPTIONS = Arrays.asList("-c", "-j", "-b", "-e", "-t", "-v", "-m");
+
+/* format the feature files with svm_compatabalize.pl and run svm_learn and svm_classify on them */
+public static final String FORMAT_SCRIPT = "SVM_FORMAT_SCRIPT";
+
+private SVMLightModel model;
+private String cachedModelName = "no file";
+private long modelTimestamp = 0;
+
+private static boolean useFormatScript()
+{
+  return Utils.getConfig().getBoolean(FORMAT_SCRIPT, false);
+}
+
+private synchronized SVMLightModel loadModel(String modelInputFile)
+{
+  if (modelInputFile == null) modelInputFile = mModelFile;
+  if (modelInputFile == null) throw new RuntimeException("method not supported: model file is needed");
+  File modelFile = new File(modelInputFile);
+  if (model == null || !cachedModelName.equals(modelInputFile) || modelTimestamp != modelFile.lastModified()) {
+    System.out.println("SVM - Reading model from file " + modelInputFile);
+    try {
+      model = SVMLightModel.read(modelFile);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    cachedModelName = modelInputFile;
+    modelTimestamp = modelFile.lastModified();
+  }
+  return model;
+}
+
+/**
+ * @return the SVMLight feature number of each attribute, or 0 if the attribute is not a feature
+ */
+private static int[] featureNumbers(Instances data)
+{
+  int[] numbers = new int[data.numAttributes()];
+  int count = 0;
+  for (int a = 0; a < numbers.length; a++) {
+    Attribute att = data.attribute(a);
+    if (!att.isString() && new AttributeShort(att.name()).isFeature()) {
+      numbers[a] = ++count;
+    }
+  }
+  return numbers;
+}
+
+/**
+ * Put the feature values of an instance that are not zero (or missing) into indices and values
+ *
+ * @return the number of values
+ */
+private static int getVector(Instance inst, int[] numbers, int[] indices, double[] values)
+{
+  int n = 0;
+  for (int a = 0; a < numbers.length; a++) {
+    if (numbers[a] > 0 && !inst.isMissing(a)) {
+      double v = inst.value(a);
+      if (v != 0) {
+        indices[n] = numbers[a];
+        values[n++] = v;
+      }
+    }
+  }
+  return n;
+}
+
 /**
  * @param options
  *          is a string array containing the strings specified below in the following order: 0) directory containing
- *          svm_classify module 1) any options to pass to the classifier (may be omitted)
+ *          svm_classify module 1) any options to pass to the classifier (may be omitted). Neither is needed any more:
+ *          the model is applied in process.
  */
 @Override
 public double[] test(File testFile, File outputFile, String modelInputFile, String[] options)
+{
+  if (useFormatScript()) return testWithScript(testFile, outputFile, modelInputFile, options);
+  try {
+    System.out.println(outputFile.getAbsolutePath());
+    return test(WekaUtils.readArffFile(testFile), new FileWriter(outputFile), modelInputFile);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+/* (non-Javadoc)
+ * @see reconcile.classifiers.Classifier#test(java.io.Reader, java.io.Writer, java.lang.String[])
+ */
+@Override
+public double[] test(Reader testFile, Writer outputFile, String[] options)
+{
+  if (useFormatScript())
+    throw new RuntimeException("SVMLight: " + FORMAT_SCRIPT + " needs the feature files; turn off in memory testing");
+  try {
+    Instances data = new Instances(new BufferedReader(testFile));
+    data.setClassIndex(data.numAttributes() - 1);
+    return test(data, outputFile, null);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+private double[] test(Instances data, Writer outputFile, String modelInputFile)
+{
+  double min = Double.MAX_VALUE, max = Double.MIN_VALUE;
+  PrintWriter out = new PrintWriter(new BufferedWriter(outputFile));
+  try {
+    SVMLightModel m = loadModel(modelInputFile);
+    int[] numbers = featureNumbers(data);
+    int[] indices = new int[numbers.length];
+    double[] values = new double[numbers.length];
+    Attribute docID = data.attribute("DocNo");
+    Attribute id1 = data.attribute("ID1");
+    Attribute id2 = data.attribute("ID2");
+
+    for (int i = 0; i < data.numInstances(); i++) {
+      Instance cur = data.instance(i);
+      double value = m.classify(indices, values, getVector(cur, numbers, indices, values));
+      min = value < min ? value : min;
+      max = value > max ? value : max;
+      out.println((int) cur.value(docID) + "," + (int) cur.value(id1) + "," + (int) cur.value(id2) + " " + value);
+    }
+  }
+  finally {
+    out.flush();
+    out.close();
+  }
+
+  return new double[] { min, max };
+}
+
+/**
+ * Score pairs straight from their feature vectors, with the feature numbers a feature file of the same features gets.
+ * Missing values count as 0.
+ */
+@Override
+public PairScorer getPairScorer(List<Feature> featureList)
+{
+  if (useFormatScript()) return null;
+  final FeatureColumns columns = new FeatureColumns(featureList, Utils.getConfig().getBoolean(
+      "WRITE_BINARIZED_FEATURE_FILE", true));
+  final SVMLightModel m = loadModel(null);
+  final int[] numbers = new int[columns.numColumns()];
+  int count = 0;
+  for (int i = 0; i < numbers.length; i++) {
+    if (columns.getType(i) != FeatureColumns.STRING && new AttributeShort(columns.getName(i)).isFeature()) {
+      numbers[i] = ++count;
+    }
+  }
+  return new PairScorer() {
+
+    public double score(Map<Feature, String> vector)
+    {
+      int[] indices = new int[numbers.length];
+      double[] values = new double[numbers.length];
+      int n = 0;
+      for (int i = 0; i < numbers.length; i++) {
+        if (numbers[i] == 0) {
+          continue;
+        }
+        double value;
+        if (columns.getType(i) == FeatureColumns.NOMINAL) {
+          value = Math.max(0, columns.nominalValue(i, vector));
+        }
+        else {
+          value = columns.numericValue(i, vector);
+          if (Double.isNaN(value)) {
+            value = 0;
+          }
+        }
+        if (value != 0) {
+          indices[n] = numbers[i];
+          values[n++] = value;
+        }
+      }
+      return m.classify(indices, values, n);
+    }
+  };
+}
+
+/**
+ * @param options
+ *          is a string array containing the strings specified below in the following order: 0) directory containing
+ *          svm_train module 1) any options to pass to the classifier (may be omitted). The directory is only used when
+ *          the options ask for a kernel other than the linear one, or for an option the linear solver does not
+ *          have; it understands -c, -j, -b and -e. Note that unlike svm_learn it regularizes the bias (see
+ *          {@link SVMLightModel#trainLinear}).
+ */
+@Override
+public void train(File trainFile, File modelOutputFile, String[] options)
+{
+  if (options.length < 1)
+    throw new RuntimeException("SVMLight: string[] passed to train incorrect length (got: " + options.length
+        + "; needed: 1)");
+  StringBuilder opts = new StringBuilder();
+  for (int i = 1; i < options.length; i++) {
+    opts.append(" ").append(options[i]);
+  }
+  if (useFormatScript()) {
+    trainWithScript(trainFile, modelOutputFile, options[0], opts.toString());
+    return;
+  }
+  Map<String, String> learnOpts = parseOptions(opts.toString());
+
+  try {
+    Instances data = WekaUtils.readArffFile(trainFile);
+    int[] numbers = featureNumbers(data);
+    String kernel = learnOpts.get("-t");
+    boolean linear = kernel == null || Integer.parseInt(kernel) == SVMLightModel.LINEAR;
+    if (linear && !LINEAR_OPTIONS.containsAll(learnOpts.keySet())) {
+      System.out.println("SVM - options " + learnOpts.keySet() + " need svm_learn");
+      linear = false;
+    }
+    if (!linear) {
+      /** run the SVMlight learner on the file formatted for it **/
+      String formattedTrainFeatures = trainFile.getAbsolutePath() + ".svm";
+      System.out.println("SVM - Formatting train file: " + trainFile.getAbsolutePath());
+      writeSVMLightFile(data, numbers, new File(formattedTrainFeatures));
+      Utils.runExternal(options[0] + Utils.SEPARATOR + "svm_learn" + opts + " " + formattedTrainFeatures + " "
+          + modelOutputFile.getAbsolutePath());
+      return;
+    }
+
+    int positive = data.classAttribute().indexOfValue("+");
+    SVMLightModel.VectorList vectors = new SVMLightModel.VectorList();
+    int[] indices = new int[numbers.length];
+    double[] values = new double[numbers.length];
+    for (int i = 0; i < data.numInstances(); i++) {
+      Instance cur = data.instance(i);
+      int n = getVector(cur, numbers, indices, values);
+      vectors.add(indices, values, n, (int) cur.classValue() == positive);
+    }
+    data = null;
+
+    double c = learnOpts.containsKey("-c") ? Double.parseDouble(learnOpts.get("-c")) : 0;
+    double costFactor = learnOpts.containsKey("-j") ? Double.parseDouble(learnOpts.get("-j")) : 1;
+    boolean biased = !"0".equals(learnOpts.get("-b"));
+    double eps = learnOpts.containsKey("-e") ? Double.parseDouble(learnOpts.get("-e")) : DEFAULT_EPS;
+    SVMLightModel trained = vectors.trainLinear(c, costFactor, biased, eps, MAX_ITERATIONS);
+    trained.write(modelOutputFile);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+  catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    throw new RuntimeException(e);
+  }
+}
+
+/**
+ * Format the test file with svm_compatabalize.pl and run svm_classify on it
+ */
+private static double[] testWithScript(File testFile, File outputFile, String modelInputFile, String[] options)
 {
   String testFilename = testFile.getAbsolutePath();
   String outputFilename = outputFile.getAbsolutePath();
-  String modelInputFilename = modelInputFile;
   try {
 
     /** format the test file so that SVMlight can handle it **/
     String ScriptDir = Utils.getScriptDirectory() + Utils.SEPARATOR;
+    if (WekaUtils.isBinaryFeatureFile(testFile)) {
+      // the formatting script only reads ARFF
+      File arffFile = new File(testFilename + ".arff");
+      BinaryFeatureReader.toArff(testFile, arffFile);
+      testFilename = arffFile.getAbsolutePath();
+    }
     String formattedTestFeatures = testFilename + ".svm";
 
     String svmFormatScript = ScriptDir + "svm_compatabalize.pl";
@@ -47,15 +332,9 @@ public double[] test(File testFile, File outputFile, String modelInputFile, Stri
 
     System.out.println(outputFilename);
 
-    Utils.runExternal(externalClassifierPath + Utils.SEPARATOR + "svm_classify " + opts + " " + formattedTestFeatures + " "
-        + modelInputFilename + " " + outputFilename + ".svm");
-
-    /** format the output of the SVMlight classifier **/
-    // String svmOutputFormatScript = ScriptDir + "svm_formatOutput.pl";
+    Utils.runExternal(externalClassifierPath + Utils.SEPARATOR + "svm_classify " + opts + " " + formattedTestFeatures
+        + " " + modelInputFile + " " + outputFilename + ".svm");
 
-    // Utils.runExternal("perl " + svmOutputFormatScript + " " + formattedTestFeatures + " " + outputFilename + ".svm" +
-    // " " + outputFilename);
-    // double[] result = new double[]{0, 1};
     return formatSVMOutput(formattedTestFeatures, outputFilename + ".svm", outputFilename);
   }
   catch (Exception e) {
@@ -64,23 +343,18 @@ public double[] test(File testFile, File outputFile, String modelInputFile, Stri
 }
 
 /**
- * @param options
- *          is a string array containing the strings specified below in the following order: 0) directory containing
- *          svm_train module 1) any options to pass to the classifier (may be omitted)
+ * Format the train file with svm_compatabalize.pl and run svm_learn on it
  */
-@Override
-public void train(File trainFile, File modelOutputFile, String[] options)
+private static void trainWithScript(File trainFile, File modelOutputFile, String externalClassifierPath, String opts)
 {
   String trainFilename = trainFile.getAbsolutePath();
-  String modelOutputFilename = modelOutputFile.getAbsolutePath();
-
   try {
-    if (options.length < 2)
-      throw new RuntimeException("SVMLight: string[] passed to train incorrect length (got: " + options.length
-          + "; needed: 2)");
-
-    /** format the train file so that SVMlight can handle it **/
     String ScriptDir = Utils.getScriptDirectory() + Utils.SEPARATOR;
+    if (WekaUtils.isBinaryFeatureFile(trainFile)) {
+      File arffFile = new File(trainFilename + ".arff");
+      BinaryFeatureReader.toArff(trainFile, arffFile);
+      trainFilename = arffFile.getAbsolutePath();
+    }
     String formattedTrainFeatures = trainFilename + ".svm";
 
     String svmFormatScript = ScriptDir + "svm_compatabalize.pl";
@@ -88,31 +362,23 @@ public void train(File trainFile, File modelOutputFile, String[] options)
     System.out.println("SVM - Formatting train file: " + trainFilename);
     Utils.runExternal("perl " + svmFormatScript + " " + trainFilename + " " + formattedTrainFeatures);
 
-    /** run the SVMlight learner **/
-    String externalClassifierPath = options[0];
-    String opts = options.length > 1 ? options[2] : "";
-
-    /*
-    for(String s : options) {
-    	System.out.println(s);	
-    }
-    */
-
-    Utils.runExternal(externalClassifierPath + Utils.SEPARATOR + "svm_learn " + opts + " " + formattedTrainFeatures
-        + " " + modelOutputFilename);
+    Utils.runExternal(externalClassifierPath + Utils.SEPARATOR + "svm_learn" + opts + " " + formattedTrainFeatures
+        + " " + modelOutputFile.getAbsolutePath());
   }
   catch (Exception e) {
     throw new RuntimeException(e);
   }
 }
 
+/**
+ * Join the output of svm_classify with the ids in the comments of the formatted test file
+ */
 private static double[] formatSVMOutput(String testFeatures, String predictions, String outputFilename)
 {
   double min = Double.MAX_VALUE, max = Double.MIN_VALUE;
   Pattern p = Pattern.compile(".*# (.*)$");
   BufferedReader testFile = null;
   BufferedReader predFile = null;
-  ;
   BufferedWriter out = null;
   try {
     testFile = new BufferedReader(new FileReader(testFeatures));
@@ -134,7 +400,6 @@ private static double[] formatSVMOutput(String testFeatures, String predictions,
       }
     }
     out.flush();
-    out.close();
   }
   catch (IOException ioe) {
     throw new RuntimeException(ioe);
@@ -143,9 +408,7 @@ private static double[] formatSVMOutput(String testFeatures, String predictions,
     try {
       if (testFile != null) testFile.close();
       if (predFile != null) predFile.close();
-      if (out != null) {
-        out.close();
-      }
+      if (out != null) out.close();
     }
     catch (IOException e) {
       throw new RuntimeException(e);
@@ -155,13 +418,59 @@ private static double[] formatSVMOutput(String testFeatures, String predictions,
   return new double[] { min, max };
 }
 
+/**
+ * @return the options of svm_learn, by flag; like svm_learn, every flag takes a value
+ */
+private static Map<String, String> parseOptions(String opts)
+{
+  Map<String, String> result = new HashMap<String, String>();
+  if (opts.trim().length() == 0) return result;
+  String[] tokens = opts.trim().split("\\s+");
+  for (int i = 0; i < tokens.length; i += 2) {
+    if (!tokens[i].startsWith("-") || i + 1 == tokens.length)
+      throw new RuntimeException("SVMLight: cannot parse svm_learn options '" + opts.trim() + "' at " + tokens[i]);
+    result.put(tokens[i], tokens[i + 1]);
+  }
+  return result;
+}
+
+/**
+ * Write the instances in the input format of svm_learn: the class, the features that are not zero and the ids as a
+ * comment
+ */
+private static void writeSVMLightFile(Instances data, int[] numbers, File out)
+    throws IOException
+{
+  int positive = data.classAttribute().indexOfValue("+");
+  Attribute docID = data.attribute("DocNo");
+  Attribute id1 = data.attribute("ID1");
+  Attribute id2 = data.attribute("ID2");
+  int[] indices = new int[numbers.length];
+  double[] values = new double[numbers.length];
+  PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(out)));
+  try {
+    for (int i = 0; i < data.numInstances(); i++) {
+      Instance cur = data.instance(i);
+      writer.print((int) cur.classValue() == positive ? "+1" : "-1");
+      int n = getVector(cur, numbers, indices, values);
+      for (int k = 0; k < n; k++) {
+        writer.print(" " + indices[k] + ":" + values[k]);
+      }
+      writer.println(" # " + (int) cur.value(docID) + "," + (int) cur.value(id1) + "," + (int) cur.value(id2));
+    }
+  }
+  finally {
+    writer.close();
+  }
+}
+
 /* (non-Javadoc)
  * @see reconcile.classifiers.Classifier#test(java.io.File, java.io.File, java.lang.String[])
  */
 @Override
 public double[] test(File testFile, File outputFile, String[] options)
 {
-  throw new RuntimeException("method not supported: model file is needed");
+  return test(testFile, outputFile, null, options);
 }
 
 
@@ -0,0 +1,425 @@
+package reconcile.classifiers;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A model in the format svm_learn writes, held in memory so that vectors can be classified without running
+ * svm_classify. Vectors are sparse: the feature numbers (from 1, increasing) of the values that are not zero, and the
+ * values. A vector is classified as svm_classify does it:
+ *
+ * <pre>
+ *   sum over the support vectors of alpha_i * y_i * K(sv_i, x) - b
+ * </pre>
+ *
+ * For the linear kernel the support vectors are added up into a single weight vector when the model is read.
+ */
+public class SVMLightModel {
+
+public static final int LINEAR = 0;
+public static final int POLYNOMIAL = 1;
+public static final int RBF = 2;
+public static final int SIGMOID = 3;
+
+private static final String VERSION = "SVM-light Version V6.02";
+
+private int kernelType = LINEAR;
+/* the kernel parameters -d, -g, -s, -r and -u of svm_learn */
+private int degree = 3;
+private double gamma = 1;
+private double coefLin = 1;
+private double coefConst = 1;
+private String custom = "empty";
+
+private int maxFeature;
+private int numTrainDocs;
+private double threshold;
+
+/* the support vectors, with their alpha * y */
+private int[][] svIndices;
+private double[][] svValues;
+private double[] svAlphas;
+private double[] svNorms;
+
+/* the weights of a linear model, indexed by feature number */
+private double[] weights;
+
+private SVMLightModel() {
+}
+
+/**
+ * Read a model written by svm_learn (or by {@link #write(File)})
+ */
+public static SVMLightModel read(File modelFile)
+    throws IOException
+{
+  BufferedReader in = new BufferedReader(new FileReader(modelFile));
+  try {
+    String version = in.readLine();
+    if (version == null || !version.startsWith("SVM-light Version"))
+      throw new IOException("Not an SVMLight model file: " + modelFile);
+    SVMLightModel model = new SVMLightModel();
+    model.kernelType = Integer.parseInt(headerValue(in));
+    model.degree = Integer.parseInt(headerValue(in));
+    model.gamma = Double.parseDouble(headerValue(in));
+    model.coefLin = Double.parseDouble(headerValue(in));
+    model.coefConst = Double.parseDouble(headerValue(in));
+    model.custom = headerValue(in);
+    model.maxFeature = Integer.parseInt(headerValue(in));
+    model.numTrainDocs = Integer.parseInt(headerValue(in));
+    int numSV = Integer.parseInt(headerValue(in)) - 1;
+    model.threshold = Double.parseDouble(headerValue(in));
+    if (model.kernelType < LINEAR || model.kernelType > SIGMOID)
+      throw new IOException("Unsupported kernel type " + model.kernelType + " in " + modelFile);
+
+    model.svIndices = new int[numSV][];
+    model.svValues = new double[numSV][];
+    model.svAlphas = new double[numSV];
+    for (int i = 0; i < numSV; i++) {
+      String line = in.readLine();
+      if (line == null) throw new IOException("Expected " + numSV + " support vectors in " + modelFile);
+      model.readSupportVector(i, line);
+    }
+    model.prepare();
+    return model;
+  }
+  finally {
+    in.close();
+  }
+}
+
+/**
+ * @return the value of a header line: the text before the comment
+ */
+private static String headerValue(BufferedReader in)
+    throws IOException
+{
+  String line = in.readLine();
+  if (line == null) throw new IOException("SVMLight model file ends in the header");
+  int comment = line.indexOf('#');
+  return (comment < 0 ? line : line.substring(0, comment)).trim();
+}
+
+private void readSupportVector(int sv, String line)
+    throws IOException
+{
+  int comment = line.indexOf('#');
+  String[] tokens = (comment < 0 ? line : line.substring(0, comment)).trim().split("\\s+");
+  svAlphas[sv] = Double.parseDouble(tokens[0]);
+  int[] indices = new int[tokens.length - 1];
+  double[] values = new double[tokens.length - 1];
+  int n = 0;
+  for (int t = 1; t < tokens.length; t++) {
+    int colon = tokens[t].indexOf(':');
+    if (colon < 0 || tokens[t].startsWith("qid:")) {
+      continue;
+    }
+    indices[n] = Integer.parseInt(tokens[t].substring(0, colon));
+    values[n] = Double.parseDouble(tokens[t].substring(colon + 1));
+    if (n > 0 && indices[n] <= indices[n - 1])
+      throw new IOException("Feature numbers out of order in support vector " + (sv + 1));
+    n++;
+  }
+  svIndices[sv] = new int[n];
+  svValues[sv] = new double[n];
+  System.arraycopy(indices, 0, svIndices[sv], 0, n);
+  System.arraycopy(values, 0, svValues[sv], 0, n);
+}
+
+/**
+ * Fold a linear model into its weight vector; work out the norms of the support vectors for the RBF kernel
+ */
+private void prepare()
+{
+  for (int[] sv : svIndices) {
+    if (sv.length > 0 && sv[sv.length - 1] > maxFeature) {
+      maxFeature = sv[sv.length - 1];
+    }
+  }
+  if (kernelType == LINEAR) {
+    weights = new double[maxFeature + 1];
+    for (int i = 0; i < svIndices.length; i++) {
+      for (int k = 0; k < svIndices[i].length; k++) {
+        weights[svIndices[i][k]] += svAlphas[i] * svValues[i][k];
+      }
+    }
+  }
+  else if (kernelType == RBF) {
+    svNorms = new double[svIndices.length];
+    for (int i = 0; i < svIndices.length; i++) {
+      svNorms[i] = dot(svIndices[i], svValues[i], svIndices[i], svValues[i]);
+    }
+  }
+}
+
+public int getKernelType()
+{
+  return kernelType;
+}
+
+public int getMaxFeature()
+{
+  return maxFeature;
+}
+
+/**
+ * @param indices
+ *          the feature numbers of the values that are not zero, increasing
+ * @return the value of the decision function; positive for the positive class
+ */
+public double classify(int[] indices, double[] values, int length)
+{
+  double sum = 0;
+  if (kernelType == LINEAR) {
+    for (int k = 0; k < length; k++) {
+      if (indices[k] < weights.length) {
+        sum += weights[indices[k]] * values[k];
+      }
+    }
+    return sum - threshold;
+  }
+  double xNorm = kernelType == RBF ? dot(indices, values, length, indices, values, length) : 0;
+  for (int i = 0; i < svIndices.length; i++) {
+    double d = dot(svIndices[i], svValues[i], svIndices[i].length, indices, values, length);
+    double k;
+    switch (kernelType) {
+      case POLYNOMIAL:
+        k = Math.pow(coefLin * d + coefConst, degree);
+        break;
+      case RBF:
+        k = Math.exp(-gamma * (svNorms[i] - 2 * d + xNorm));
+        break;
+      default:
+        k = Math.tanh(coefLin * d + coefConst);
+    }
+    sum += svAlphas[i] * k;
+  }
+  return sum - threshold;
+}
+
+private static double dot(int[] i1, double[] v1, int[] i2, double[] v2)
+{
+  return dot(i1, v1, i1.length, i2, v2, i2.length);
+}
+
+private static double dot(int[] i1, double[] v1, int n1, int[] i2, double[] v2, int n2)
+{
+  double sum = 0;
+  for (int a = 0, b = 0; a < n1 && b < n2;) {
+    if (i1[a] == i2[b]) {
+      sum += v1[a++] * v2[b++];
+    }
+    else if (i1[a] < i2[b]) {
+      a++;
+    }
+    else {
+      b++;
+    }
+  }
+  return sum;
+}
+
+/**
+ * Write the model in the format of svm_learn, so that svm_classify can still use it. A linear model is written as a
+ * single support vector, its weight vector, with an alpha of 1.
+ */
+public void write(File modelFile)
+    throws IOException
+{
+  PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(modelFile)));
+  try {
+    out.println(VERSION);
+    out.println(kernelType + " # kernel type");
+    out.println(degree + " # kernel parameter -d ");
+    out.println(gamma + " # kernel parameter -g ");
+    out.println(coefLin + " # kernel parameter -s ");
+    out.println(coefConst + " # kernel parameter -r ");
+    out.println(custom + "# kernel parameter -u ");
+    out.println(maxFeature + " # highest feature index ");
+    out.println(numTrainDocs + " # number of training documents ");
+    out.println((svIndices.length + 1) + " # number of support vectors plus 1 ");
+    out.println(threshold + " # threshold b, each following line is a SV (starting with alpha*y)");
+    for (int i = 0; i < svIndices.length; i++) {
+      out.print(svAlphas[i]);
+      for (int k = 0; k < svIndices[i].length; k++) {
+        out.print(" " + svIndices[i][k] + ":" + svValues[i][k]);
+      }
+      out.println(" #");
+    }
+  }
+  finally {
+    out.close();
+  }
+}
+
+/**
+ * Train a linear SVM by dual coordinate descent (Hsieh et al., ICML 2008): the alpha of one vector at a time is set to
+ * its best value with the others fixed, until no alpha is more than eps from its best value. The bias is learned as the
+ * weight of an extra feature that is always 1, so unlike svm_learn it is regularized too: the bias is pulled towards
+ * 0, which matters when the classes are unbalanced and C is small. Train with svm_learn (any kernel other than the
+ * linear one, or an option this solver does not have) where the models have to be the same.
+ *
+ * @param c
+ *          the trade-off between the margin and the training error; if not positive, svm_learn's default of 1 / the
+ *          mean of x * x, over the features only
+ * @param costFactor
+ *          the factor the errors on the positive vectors cost more than the ones on the negative vectors (-j)
+ * @param biased
+ *          whether the hyperplane has a bias (-b)
+ */
+public static SVMLightModel trainLinear(List<int[]> indices, List<double[]> values, boolean[] positive, double c,
+    double costFactor, boolean biased, double eps, int maxIterations)
+{
+  int n = indices.size();
+  int maxFeature = 0;
+  double[] qii = new double[n];
+  double sumNorms = 0;
+  for (int i = 0; i < n; i++) {
+    int[] idx = indices.get(i);
+    if (idx.length > 0 && idx[idx.length - 1] > maxFeature) {
+      maxFeature = idx[idx.length - 1];
+    }
+    double[] val = values.get(i);
+    for (double v : val) {
+      qii[i] += v * v;
+    }
+    sumNorms += qii[i];
+    if (biased) {
+      qii[i] += 1;
+    }
+  }
+  if (c <= 0) {
+    c = n == 0 || sumNorms == 0 ? 1 : n / sumNorms;
+  }
+
+  double[] w = new double[maxFeature + 1];
+  double bias = 0;
+  double[] alpha = new double[n];
+  int[] order = new int[n];
+  for (int i = 0; i < n; i++) {
+    order[i] = i;
+  }
+  Random random = new Random(0);
+  int iter;
+  for (iter = 0; iter < maxIterations; iter++) {
+    for (int i = n - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      int tmp = order[i];
+      order[i] = order[j];
+      order[j] = tmp;
+    }
+    double maxPG = Double.NEGATIVE_INFINITY, minPG = Double.POSITIVE_INFINITY;
+    for (int s = 0; s < n; s++) {
+      int i = order[s];
+      if (qii[i] == 0) {
+        continue;
+      }
+      int[] idx = indices.get(i);
+      double[] val = values.get(i);
+      double y = positive[i] ? 1 : -1;
+      double upper = positive[i] ? c * costFactor : c;
+      double wx = bias;
+      for (int k = 0; k < idx.length; k++) {
+        wx += w[idx[k]] * val[k];
+      }
+      double g = y * wx - 1;
+      double pg = g;
+      if (alpha[i] == 0) {
+        pg = Math.min(g, 0);
+      }
+      else if (alpha[i] == upper) {
+        pg = Math.max(g, 0);
+      }
+      maxPG = Math.max(maxPG, pg);
+      minPG = Math.min(minPG, pg);
+      if (pg != 0) {
+        double old = alpha[i];
+        alpha[i] = Math.min(Math.max(old - g / qii[i], 0), upper);
+        double d = (alpha[i] - old) * y;
+        for (int k = 0; k < idx.length; k++) {
+          w[idx[k]] += d * val[k];
+        }
+        if (biased) {
+          bias += d;
+        }
+      }
+    }
+    if (maxPG - minPG <= eps) {
+      break;
+    }
+  }
+  System.out.println("SVM - linear model trained in " + Math.min(iter + 1, maxIterations) + " passes over " + n
+      + " vectors, C=" + c);
+
+  SVMLightModel model = new SVMLightModel();
+  model.maxFeature = maxFeature;
+  model.numTrainDocs = n;
+  model.threshold = -bias;
+  int nonZero = 0;
+  for (double v : w) {
+    if (v != 0) {
+      nonZero++;
+    }
+  }
+  int[] svIdx = new int[nonZero];
+  double[] svVal = new double[nonZero];
+  for (int f = 0, k = 0; f < w.length; f++) {
+    if (w[f] != 0) {
+      svIdx[k] = f;
+      svVal[k++] = w[f];
+    }
+  }
+  model.svIndices = new int[][] { svIdx };
+  model.svValues = new double[][] { svVal };
+  model.svAlphas = new double[] { 1 };
+  model.prepare();
+  return model;
+}
+
+/**
+ * Collects sparse vectors for {@link SVMLightModel#trainLinear}
+ */
+public static class VectorList {
+
+private List<int[]> indices = new ArrayList<int[]>();
+private List<double[]> values = new ArrayList<double[]>();
+private boolean[] positive = new boolean[16];
+
+public void add(int[] idx, double[] val, int length, boolean pos)
+{
+  int[] i = new int[length];
+  double[] v = new double[length];
+  System.arraycopy(idx, 0, i, 0, length);
+  System.arraycopy(val, 0, v, 0, length);
+  if (indices.size() == positive.length) {
+    boolean[] p = new boolean[2 * positive.length];
+    System.arraycopy(positive, 0, p, 0, positive.length);
+    positive = p;
+  }
+  positive[indices.size()] = pos;
+  indices.add(i);
+  values.add(v);
+}
+
+public int size()
+{
+  return indices.size();
+}
+
+public SVMLightModel trainLinear(double c, double costFactor, boolean biased, double eps, int maxIterations)
+{
+  boolean[] pos = new boolean[indices.size()];
+  System.arraycopy(positive, 0, pos, 0, pos.length);
+  return SVMLightModel.trainLinear(indices, values, pos, c, costFactor, biased, eps, maxIterations);
+}
+}
+
+}
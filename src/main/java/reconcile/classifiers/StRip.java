@@ -42,9 +42,9 @@ public double[] test(File testFilename, File outputFilename, String modelInputFi
     AttributeShort id2 = insts.attribute("ID2");
     for (int i = 0; i < insts.numInstances(); i++) {
       InstanceShort cur = insts.instance(i);
-      short curDoc = cur.value(docID);
-      short curID1 = cur.value(id1);
-      short curID2 = cur.value(id2);
+      int curDoc = cur.intValue(docID);
+      int curID1 = cur.intValue(id1);
+      int curID2 = cur.intValue(id2);
       double res = classifier.classifyInstance(cur);
       min = min < res ? min : res;
       max = max > res ? max : res;
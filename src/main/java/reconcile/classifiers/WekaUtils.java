@@ -2,8 +2,10 @@ package reconcile.classifiers;
 
 import gov.llnl.text.util.FileUtils;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
@@ -11,6 +13,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import reconcile.SystemConfig;
+import reconcile.featureVector.BinaryFeatureReader;
+import reconcile.featureVector.FeatureWriterBinary;
 import reconcile.general.Utils;
 import reconcile.weka.core.Instances;
 import reconcile.weka.filters.Filter;
@@ -91,7 +95,9 @@ public static Instances filterAttributes(Instances data, Set<String> ex)
 public static Instances readArffFile(InputStream fn)
     throws IOException
 {
-  String indata = FileUtils.readFile(fn);
+  BufferedInputStream in = new BufferedInputStream(fn);
+  if (FeatureWriterBinary.isBinary(in)) return readBinaryFile(in);
+  String indata = FileUtils.readFile(in);
 //  printStartEnd(indata);
   Instances data = null;
 //  data = new Instances(new BufferedReader(new InputStreamReader(fn)));
@@ -105,6 +111,7 @@ public static Instances readArffFile(InputStream fn)
 public static Instances readArffFile(File fn)
     throws IOException
 {
+  if (isBinaryFeatureFile(fn)) return readBinaryFile(new BufferedInputStream(new FileInputStream(fn)));
   String indata = FileUtils.readFile(fn);
 //  printStartEnd(indata);
   Instances data = null;
@@ -114,6 +121,35 @@ public static Instances readArffFile(File fn)
   return data;
 }
 
+/*
+* Reads in a binary feature file (see FeatureWriterBinary), and returns the Instances
+*/
+public static Instances readBinaryFile(InputStream fn)
+    throws IOException
+{
+  BinaryFeatureReader reader = new BinaryFeatureReader(fn);
+  try {
+    Instances data = new Instances(reader);
+    data.setClassIndex(data.numAttributes() - 1);
+    return data;
+  }
+  finally {
+    reader.close();
+  }
+}
+
+public static boolean isBinaryFeatureFile(File fn)
+    throws IOException
+{
+  InputStream in = new BufferedInputStream(new FileInputStream(fn));
+  try {
+    return FeatureWriterBinary.isBinary(in);
+  }
+  finally {
+    in.close();
+  }
+}
+
 //private static void printStartEnd(String indata)
 //{
 //  int count = 0;
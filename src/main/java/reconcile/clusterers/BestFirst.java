@@ -1,9 +1,5 @@
 package reconcile.clusterers;
 
-import java.io.Reader;
-import java.util.HashMap;
-import java.util.HashSet;
-
 import reconcile.data.AnnotationSet;
 import reconcile.general.UnionFind;
 
@@ -14,48 +10,41 @@ public class BestFirst
 /**
  * Does clustering using a best-first, threshold approach.
  * 
- * @param in
- *          - filename of the "edges" file defining similarities between NPs.
- * @param out
- *          - filename where to write the resulting cluster
+ * @param scores
+ *          - the similarities between NPs.
  * @param options
  *          - a String[] containing a single string representing the threshold
  */
 @Override
-public AnnotationSet cluster(AnnotationSet ces, Reader in, String[] options)
+public AnnotationSet cluster(AnnotationSet ces, ScoredEdges scores, String[] options)
 {
   try {
-    /** load in the edges file and construct an internal data structure **/
-    edges = new HashMap<Integer, HashMap<Integer, Double>>();
-    HashSet<Integer> npIDs = new HashSet<Integer>();
-
-    int maxNpID = readClusterFile(in, npIDs, edges);
+    int maxNpID = scores.getMaxNpID();
 
     if (maxNpID > Integer.MIN_VALUE) {
       /** perform the clustering by checking all edges against the threshold **/
+      EdgeGraph graph = scores.getGraph();
       // creates datastructure with capacity maxNpID
       UnionFind uf = new UnionFind(maxNpID);
       double mxWeight;
-      int currentHigh = 0;
+      int currentHigh = -1;
       double weight = 0.0;
 
-      for (int i = 0; i <= maxNpID; i++) {
+      for (int i : graph.getNodes()) {
         mxWeight = Integer.MIN_VALUE;
-        currentHigh = i;
-
-        // find the highest scoring edge of np i
-        for (int j = 0; j <= maxNpID; j++) {
-          if (hasEdge(i, j)) {
-            weight = getWeight(i, j);
-            if ((weight > mxWeight) && (weight > threshold)) {
-              currentHigh = j;
-              mxWeight = getWeight(i, j);
-            }
+        currentHigh = -1;
+
+        // find the highest scoring edge of np i; ties go to the lowest target
+        for (int e = graph.start(i); e < graph.end(i); e++) {
+          weight = graph.weight(e);
+          if ((weight > mxWeight) && (weight > threshold)) {
+            currentHigh = graph.target(e);
+            mxWeight = weight;
           }
         }
 
         // actually do the clustering
-        if (hasEdge(i, currentHigh)) {
+        if (currentHigh >= 0) {
           uf.merge(i, currentHigh);
         }
       }
@@ -18,6 +18,7 @@ import reconcile.data.Annotation;
 import reconcile.data.AnnotationSet;
 import reconcile.data.Document;
 import reconcile.general.Constants;
+import reconcile.general.Metrics;
 import reconcile.general.UnionFind;
 import reconcile.general.Utils;
 import reconcile.scorers.DocumentPair;
@@ -97,6 +98,27 @@ public static int readClusterFile(Reader in, HashSet<Integer> npIDs, Map<Integer
   return maxNpID;
 }
 
+/**
+ * Read a cluster file into a set of scored edges
+ * 
+ * @return the largest np id
+ */
+public static int readClusterFile(Reader in, ScoredEdges scores)
+    throws IOException
+{
+  BufferedReader bf = new BufferedReader(in);
+  String line;
+  while ((line = bf.readLine()) != null) {
+    Matcher m = p.matcher(line);
+    if (m.matches()) {
+      scores.addEdge(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)), Double.parseDouble(m.group(3)));
+    }
+  }
+
+  bf.close();
+  return scores.getMaxNpID();
+}
+
 /**
  * Sets the weight of the edge between nodes i and j
  */
@@ -110,9 +132,25 @@ public static void setWeight(int i, int j, double d, Map<Integer, HashMap<Intege
   step1.put(j, d);
 }
 
-protected HashMap<Integer, HashMap<Integer, Double>> edges;
+/**
+ * Cluster the nps given a prediction file
+ */
+public AnnotationSet cluster(AnnotationSet ces, Reader in, String[] options)
+{
+  ScoredEdges scores = new ScoredEdges();
+  try {
+    readClusterFile(in, scores);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+  return cluster(ces, scores, options);
+}
 
-public abstract AnnotationSet cluster(AnnotationSet ces, Reader in, String[] options);
+/**
+ * Cluster the nps given the scores of the np pairs
+ */
+public abstract AnnotationSet cluster(AnnotationSet ces, ScoredEdges scores, String[] options);
 
 /**
  * @param d
@@ -133,10 +171,31 @@ public AnnotationSet cluster(Document d)
  */
 public AnnotationSet cluster(Document doc, String[] options)
 {
+  long stTime = Metrics.start();
   Reader in = doc.getPredictionReader();
   AnnotationSet ces = doc.getAnnotationSet(Constants.NP);
   AnnotationSet result = cluster(ces, in, options);
   result.setName(Constants.RESPONSE_NPS);
+  Metrics.stop(Metrics.CLUSTERER, getClass().getSimpleName(), stTime);
+  return result;
+}
+
+/**
+ * Cluster the nps in a document given the scores of the np pairs, without going through a prediction file
+ * 
+ * @return the clustering, or null if there were no scored pairs
+ */
+public AnnotationSet cluster(Document doc, ScoredEdges scores)
+{
+  SystemConfig cfg = Utils.getConfig();
+  String[] clustOptions = cfg.getStringArray("ClustOptions." + this.getClass().getName());
+  long stTime = Metrics.start();
+  AnnotationSet ces = doc.getAnnotationSet(Constants.NP);
+  AnnotationSet result = cluster(ces, scores, clustOptions);
+  if (result != null) {
+    result.setName(Constants.RESPONSE_NPS);
+  }
+  Metrics.stop(Metrics.CLUSTERER, getClass().getSimpleName(), stTime);
   return result;
 }
 
@@ -151,33 +210,4 @@ public String getInfo(String[] options)
   return result;
 }
 
-/**
- * Returns the weight of the edge between nodes i and j. If no edge exists, returns null.
- */
-protected Double getWeight(int i, int j)
-{
-  HashMap<Integer, Double> step1 = edges.get(i);
-  if (step1 != null) return step1.get(j);
-  return null;
-}
-
-protected boolean hasEdge(int i, int j)
-{
-  HashMap<Integer, Double> step1 = edges.get(i);
-  return (step1 != null && step1.get(j) != null);
-}
-
-/**
- * Sets the weight of the edge between nodes i and j
- */
-protected void setWeight(int i, int j, double d)
-{
-  HashMap<Integer, Double> step1 = edges.get(i);
-  if (null == step1) {
-    step1 = new HashMap<Integer, Double>();
-    edges.put(i, step1);
-  }
-  step1.put(j, d);
-}
-
 }
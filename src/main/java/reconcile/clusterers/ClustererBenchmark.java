@@ -0,0 +1,192 @@
+package reconcile.clusterers;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import reconcile.data.Annotation;
+import reconcile.data.AnnotationSet;
+import reconcile.general.Constants;
+import reconcile.general.UnionFind;
+
+/**
+ * Benchmark of the clusterers on synthetic documents, comparing the edge graph the clusterers use against the
+ * <code>HashMap&lt;Integer,HashMap&lt;Integer,Double&gt;&gt;</code> scans they used to do. Every np is paired with the
+ * nps in a window before it (the whole document if the window is 0) and the pairs get random scores. The clusterings
+ * of both versions are checked to be the same partition.
+ * <p>
+ * Usage: ClustererBenchmark [numMentions] [window] [threshold] [numDocs]
+ */
+public class ClustererBenchmark {
+
+private static final String[] CLUSTERERS = { "SingleLink", "BestFirst", "MostRecentFirst" };
+
+public static void main(String[] args)
+{
+  int numMentions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+  int window = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+  double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.98;
+  int numDocs = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+  Random rand = new Random(42);
+  int[][] sources = new int[numDocs][];
+  int[][] targets = new int[numDocs][];
+  double[][] weights = new double[numDocs][];
+  for (int d = 0; d < numDocs; d++) {
+    makeDocument(numMentions, window, rand, d, sources, targets, weights);
+  }
+  System.out.println(numDocs + " documents, " + numMentions + " mentions, " + sources[0].length
+      + " scored pairs per document, threshold " + threshold);
+
+  for (String name : CLUSTERERS) {
+    ThresholdClusterer clusterer = name.equals("SingleLink") ? new SingleLink()
+        : name.equals("BestFirst") ? new BestFirst() : new MostRecentFirst();
+    clusterer.setThreshold(threshold);
+    for (int round = 0; round < 3; round++) {
+      long mapTime = 0, graphTime = 0;
+      for (int d = 0; d < numDocs; d++) {
+        long st = System.nanoTime();
+        UnionFind expected = clusterWithMap(name, sources[d], targets[d], weights[d], threshold);
+        mapTime += System.nanoTime() - st;
+
+        AnnotationSet ces = makeMentions(numMentions);
+        st = System.nanoTime();
+        ScoredEdges scores = new ScoredEdges();
+        for (int e = 0; e < sources[d].length; e++) {
+          scores.addEdge(sources[d][e], targets[d][e], weights[d][e]);
+        }
+        AnnotationSet result = clusterer.cluster(ces, scores, null);
+        graphTime += System.nanoTime() - st;
+
+        checkSamePartition(name, expected, result, numMentions);
+      }
+      System.out.printf("%s round %d: map %.2f ms/doc, graph %.2f ms/doc (%.1fx)\n", name, round, mapTime / 1e6
+          / numDocs, graphTime / 1e6 / numDocs, mapTime / (double) graphTime);
+    }
+  }
+}
+
+private static void makeDocument(int numMentions, int window, Random rand, int d, int[][] sources, int[][] targets,
+    double[][] weights)
+{
+  int numPairs = 0;
+  for (int j = 1; j < numMentions; j++) {
+    numPairs += window > 0 ? Math.min(window, j) : j;
+  }
+  sources[d] = new int[numPairs];
+  targets[d] = new int[numPairs];
+  weights[d] = new double[numPairs];
+  int e = 0;
+  for (int j = 1; j < numMentions; j++) {
+    int first = window > 0 ? Math.max(0, j - window) : 0;
+    for (int i = first; i < j; i++) {
+      // pairs are scored as (antecedent, anaphor) like the pair generators produce them
+      sources[d][e] = i;
+      targets[d][e] = j;
+      weights[d][e] = rand.nextDouble();
+      e++;
+    }
+  }
+}
+
+private static AnnotationSet makeMentions(int numMentions)
+{
+  AnnotationSet ces = new AnnotationSet(Constants.NP);
+  for (int i = 0; i < numMentions; i++) {
+    Map<String, String> features = new TreeMap<String, String>();
+    features.put(Constants.CE_ID, Integer.toString(i));
+    ces.add(i, 10 * i, 10 * i + 5, Constants.NP, features);
+  }
+  return ces;
+}
+
+/**
+ * The clusterers as they were written against the edge map
+ */
+private static UnionFind clusterWithMap(String name, int[] sources, int[] targets, double[] weights,
+    double threshold)
+{
+  HashMap<Integer, HashMap<Integer, Double>> edges = new HashMap<Integer, HashMap<Integer, Double>>();
+  HashSet<Integer> npIDs = new HashSet<Integer>();
+  int maxNpID = Integer.MIN_VALUE;
+  for (int e = 0; e < sources.length; e++) {
+    Clusterer.setWeight(sources[e], targets[e], weights[e], edges);
+    npIDs.add(sources[e]);
+    npIDs.add(targets[e]);
+    maxNpID = Math.max(maxNpID, Math.max(sources[e], targets[e]));
+  }
+
+  UnionFind uf = new UnionFind(maxNpID);
+  if (name.equals("SingleLink")) {
+    for (int i : npIDs) {
+      for (int j : npIDs) {
+        if (hasEdge(edges, i, j) && getWeight(edges, i, j) > threshold) {
+          uf.merge(i, j);
+        }
+      }
+    }
+  }
+  else if (name.equals("BestFirst")) {
+    for (int i = 0; i <= maxNpID; i++) {
+      double mxWeight = Integer.MIN_VALUE;
+      int currentHigh = i;
+      for (int j = 0; j <= maxNpID; j++) {
+        if (hasEdge(edges, i, j)) {
+          double weight = getWeight(edges, i, j);
+          if ((weight > mxWeight) && (weight > threshold)) {
+            currentHigh = j;
+            mxWeight = weight;
+          }
+        }
+      }
+      if (hasEdge(edges, i, currentHigh)) {
+        uf.merge(i, currentHigh);
+      }
+    }
+  }
+  else {
+    for (int i = 0; i <= maxNpID; i++) {
+      for (int j = 0; j <= maxNpID; j++) {
+        if (hasEdge(edges, i, j) && getWeight(edges, i, j) > threshold) {
+          uf.merge(i, j);
+          break;
+        }
+      }
+    }
+  }
+  return uf;
+}
+
+private static boolean hasEdge(HashMap<Integer, HashMap<Integer, Double>> edges, int i, int j)
+{
+  HashMap<Integer, Double> step1 = edges.get(i);
+  return (step1 != null && step1.get(j) != null);
+}
+
+private static double getWeight(HashMap<Integer, HashMap<Integer, Double>> edges, int i, int j)
+{
+  return edges.get(i).get(j);
+}
+
+private static void checkSamePartition(String name, UnionFind expected, AnnotationSet result, int numMentions)
+{
+  // two clusterings are the same partition if the nps map one to one onto each other's cluster ids
+  Map<Integer, String> expectedToResult = new HashMap<Integer, String>();
+  Map<String, Integer> resultToExpected = new HashMap<String, Integer>();
+  for (Annotation a : result) {
+    int id = Integer.parseInt(a.getAttribute(Constants.CE_ID));
+    int expectedCluster = expected.find(id);
+    String resultCluster = a.getAttribute(Constants.CLUSTER_ID);
+    String r = expectedToResult.get(expectedCluster);
+    Integer x = resultToExpected.get(resultCluster);
+    if ((r != null && !r.equals(resultCluster)) || (x != null && x.intValue() != expectedCluster))
+      throw new RuntimeException(name + " clusterings differ at np " + id);
+    expectedToResult.put(expectedCluster, resultCluster);
+    resultToExpected.put(resultCluster, expectedCluster);
+  }
+  if (result.size() != numMentions) throw new RuntimeException(name + " lost nps");
+}
+
+}
@@ -0,0 +1,199 @@
+package reconcile.clusterers;
+
+/**
+ * The scored np pairs of a document in compressed sparse row form: the edges leaving np i are
+ * <code>start(i) .. end(i)-1</code>, sorted by target, and their targets and weights are read with
+ * {@link #target(int)} and {@link #weight(int)}. The clusterers walk the rows instead of probing every (i, j) of
+ * 0..maxNpID, so a clustering costs time proportional to the number of scored pairs.
+ */
+public class EdgeGraph {
+
+/*
+ * offsets[i] is the first edge of np i; offsets[numNodes] the number of edges
+ */
+private int[] offsets;
+private int[] targets;
+private double[] weights;
+private int[] nodes;
+
+/**
+ * @param sources
+ *          the source of every edge
+ * @param targets
+ *          the target of every edge
+ * @param weights
+ *          the weight of every edge
+ * @param numEdges
+ *          the number of edges in the arrays
+ * @param maxNode
+ *          the largest np id, -1 if there are no edges
+ */
+public EdgeGraph(int[] sources, int[] targets, double[] weights, int numEdges, int maxNode) {
+  int numNodes = maxNode + 1;
+
+  // two stable counting sorts, by target then by source, leave the edges ordered by (source, target) with repeated
+  // pairs in the order they were added
+  int[] byTarget = countingSort(targets, identity(numEdges), numNodes);
+  int[] order = countingSort(sources, byTarget, numNodes);
+
+  offsets = new int[numNodes + 1];
+  this.targets = new int[numEdges];
+  this.weights = new double[numEdges];
+  boolean[] seen = new boolean[numNodes];
+  int numUnique = 0;
+  for (int k = 0; k < numEdges; k++) {
+    int e = order[k];
+    int s = sources[e];
+    int t = targets[e];
+    if (k + 1 < numEdges) {
+      int next = order[k + 1];
+      // the last score of a repeated pair counts
+      if (sources[next] == s && targets[next] == t) {
+        continue;
+      }
+    }
+    this.targets[numUnique] = t;
+    this.weights[numUnique] = weights[e];
+    numUnique++;
+    offsets[s + 1]++;
+    seen[s] = true;
+    seen[t] = true;
+  }
+  for (int i = 0; i < numNodes; i++) {
+    offsets[i + 1] += offsets[i];
+  }
+  if (numUnique < numEdges) {
+    int[] t = new int[numUnique];
+    double[] w = new double[numUnique];
+    System.arraycopy(this.targets, 0, t, 0, numUnique);
+    System.arraycopy(this.weights, 0, w, 0, numUnique);
+    this.targets = t;
+    this.weights = w;
+  }
+
+  int count = 0;
+  for (boolean b : seen) {
+    if (b) {
+      count++;
+    }
+  }
+  nodes = new int[count];
+  count = 0;
+  for (int i = 0; i < numNodes; i++) {
+    if (seen[i]) {
+      nodes[count++] = i;
+    }
+  }
+}
+
+private static int[] identity(int n)
+{
+  int[] result = new int[n];
+  for (int i = 0; i < n; i++) {
+    result[i] = i;
+  }
+  return result;
+}
+
+/**
+ * Stable sort of the edge indices in order by key[index]
+ */
+private static int[] countingSort(int[] key, int[] order, int numKeys)
+{
+  int[] count = new int[numKeys + 1];
+  for (int e : order) {
+    count[key[e] + 1]++;
+  }
+  for (int i = 0; i < numKeys; i++) {
+    count[i + 1] += count[i];
+  }
+  int[] result = new int[order.length];
+  for (int e : order) {
+    result[count[key[e]]++] = e;
+  }
+  return result;
+}
+
+/**
+ * @return the number of node slots, i.e. the largest np id + 1
+ */
+public int numNodes()
+{
+  return offsets.length - 1;
+}
+
+/**
+ * @return the np ids that are in at least one edge, in increasing order
+ */
+public int[] getNodes()
+{
+  return nodes;
+}
+
+public int numEdges()
+{
+  return targets.length;
+}
+
+/**
+ * @return the index of the first edge leaving np i
+ */
+public int start(int i)
+{
+  return i < numNodes() ? offsets[i] : targets.length;
+}
+
+/**
+ * @return one past the index of the last edge leaving np i
+ */
+public int end(int i)
+{
+  return i < numNodes() ? offsets[i + 1] : targets.length;
+}
+
+public int target(int edge)
+{
+  return targets[edge];
+}
+
+public double weight(int edge)
+{
+  return weights[edge];
+}
+
+/**
+ * @return the index of the edge from i to j, or -1 if there is none
+ */
+public int find(int i, int j)
+{
+  int lo = start(i);
+  int hi = end(i) - 1;
+  while (lo <= hi) {
+    int mid = (lo + hi) >>> 1;
+    if (targets[mid] < j) {
+      lo = mid + 1;
+    }
+    else if (targets[mid] > j) {
+      hi = mid - 1;
+    }
+    else
+      return mid;
+  }
+  return -1;
+}
+
+public boolean hasEdge(int i, int j)
+{
+  return find(i, j) >= 0;
+}
+
+/**
+ * @return the weight of the edge from i to j, or NaN if there is none
+ */
+public double getWeight(int i, int j)
+{
+  int edge = find(i, j);
+  return edge < 0 ? Double.NaN : weights[edge];
+}
+
+}
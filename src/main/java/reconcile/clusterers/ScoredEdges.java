@@ -0,0 +1,92 @@
+package reconcile.clusterers;
+
+/**
+ * The scored np pairs of one document, in the form the clusterers work on. Filled either from a prediction file (see
+ * {@link Clusterer#readClusterFile(java.io.Reader, ScoredEdges)}) or directly by the classifier while the feature
+ * vectors are generated, so that the scores do not have to go through a file. The edges are kept in primitive arrays
+ * in the order they were added; the clusterers walk them through {@link #getGraph()}.
+ */
+public class ScoredEdges {
+
+private static final int INITIAL_CAPACITY = 256;
+
+private int[] sources;
+private int[] targets;
+private double[] weights;
+private int numEdges;
+private int maxNpID;
+private EdgeGraph graph;
+
+public ScoredEdges() {
+  sources = new int[INITIAL_CAPACITY];
+  targets = new int[INITIAL_CAPACITY];
+  weights = new double[INITIAL_CAPACITY];
+  numEdges = 0;
+  maxNpID = Integer.MIN_VALUE;
+}
+
+/**
+ * Add the score of the pair np1, np2. If the pair is added more than once the last score counts.
+ */
+public void addEdge(int np1, int np2, double weight)
+{
+  if (np1 < 0 || np2 < 0) throw new RuntimeException("Negative np id in pair " + np1 + "," + np2);
+  if (numEdges == sources.length) {
+    grow();
+  }
+  sources[numEdges] = np1;
+  targets[numEdges] = np2;
+  weights[numEdges] = weight;
+  numEdges++;
+  graph = null;
+
+  if (np1 > maxNpID) {
+    maxNpID = np1;
+  }
+  if (np2 > maxNpID) {
+    maxNpID = np2;
+  }
+}
+
+private void grow()
+{
+  int capacity = 2 * sources.length;
+  int[] newSources = new int[capacity];
+  int[] newTargets = new int[capacity];
+  double[] newWeights = new double[capacity];
+  System.arraycopy(sources, 0, newSources, 0, numEdges);
+  System.arraycopy(targets, 0, newTargets, 0, numEdges);
+  System.arraycopy(weights, 0, newWeights, 0, numEdges);
+  sources = newSources;
+  targets = newTargets;
+  weights = newWeights;
+}
+
+/**
+ * @return the number of edges added, counting repeated pairs
+ */
+public int numEdges()
+{
+  return numEdges;
+}
+
+/**
+ * @return the largest np id, or Integer.MIN_VALUE if there are no edges
+ */
+public int getMaxNpID()
+{
+  return maxNpID;
+}
+
+/**
+ * @return the edges as a graph; built on the first call after an edge was added
+ */
+public EdgeGraph getGraph()
+{
+  if (graph == null) {
+    graph = new EdgeGraph(sources, targets, weights, numEdges, Math.max(maxNpID, -1));
+  }
+  return graph;
+}
+
+}
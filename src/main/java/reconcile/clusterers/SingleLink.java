@@ -1,9 +1,5 @@
 package reconcile.clusterers;
 
-import java.io.Reader;
-import java.util.HashMap;
-import java.util.HashSet;
-
 import reconcile.data.AnnotationSet;
 import reconcile.general.Constants;
 import reconcile.general.UnionFind;
@@ -16,15 +12,13 @@ public class SingleLink
 /**
  * Does clustering using a single link, threshold approach.
  * 
- * @param in
- *          - filename of the "edges" file defining similarities between NPs.
- * @param out
- *          - filename where to write the resulting cluster
+ * @param scores
+ *          - the similarities between NPs.
  * @param options
  *          - a String[] containing a single string representing the threshold
  */
 @Override
-public AnnotationSet cluster(AnnotationSet ces, Reader in, String[] options)
+public AnnotationSet cluster(AnnotationSet ces, ScoredEdges scores, String[] options)
 {
   if (ces.size() == 1) {
     ces.getFirst().setAttribute(Constants.CLUSTER_ID, "1");
@@ -32,23 +26,18 @@ public AnnotationSet cluster(AnnotationSet ces, Reader in, String[] options)
   }
   if (ces.size() < 1) return ces;
   try {
-    /** load in the edges file and construct an internal data structure **/
-    edges = new HashMap<Integer, HashMap<Integer, Double>>();
-    HashSet<Integer> npIDs = new HashSet<Integer>();
-
-    int maxNpID = readClusterFile(in, npIDs, edges);
+    int maxNpID = scores.getMaxNpID();
 
     if (maxNpID > Integer.MIN_VALUE) {
       /** perform the clustering by checking all edges against the threshold **/
+      EdgeGraph graph = scores.getGraph();
 
       UnionFind uf = new UnionFind(maxNpID);
 
-      for (int i : npIDs) {
-        for (int j : npIDs) {
-          if (hasEdge(i, j)) {
-            if (getWeight(i, j) > threshold) {
-              uf.merge(i, j);
-            }
+      for (int i : graph.getNodes()) {
+        for (int e = graph.start(i); e < graph.end(i); e++) {
+          if (graph.weight(e) > threshold) {
+            uf.merge(i, graph.target(e));
           }
         }
       }
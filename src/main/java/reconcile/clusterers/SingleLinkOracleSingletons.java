@@ -2,7 +2,6 @@ package reconcile.clusterers;
 
 import java.io.File;
 import java.io.Reader;
-import java.util.HashMap;
 import java.util.HashSet;
 
 import reconcile.data.Annotation;
@@ -34,6 +33,10 @@ public class SingleLinkOracleSingletons
 public AnnotationSet cluster(AnnotationSet ces, Reader in, String[] options){
 	throw new RuntimeException("Not implemented");
 }
+@Override
+public AnnotationSet cluster(AnnotationSet ces, ScoredEdges scores, String[] options){
+	throw new RuntimeException("Not implemented");
+}
 public AnnotationSet cluster(Document odoc, String[] options){
   File in = odoc.getPredictionFile();
   AnnotationSet ces = odoc.getAnnotationSet(Constants.NP);
@@ -65,23 +68,25 @@ public AnnotationSet cluster(Document odoc, String[] options){
   }
   try {
     /** load in the edges file and construct an internal data structure **/
-    edges = new HashMap<Integer, HashMap<Integer, Double>>();
-    HashSet<Integer> npIDs = new HashSet<Integer>();
+    ScoredEdges scores = new ScoredEdges();
 
-    int maxNpID = Clusterer.readClusterFile(odoc.getPredictionReader(), npIDs, edges);
+    int maxNpID = Clusterer.readClusterFile(odoc.getPredictionReader(), scores);
 
     if (maxNpID > Integer.MIN_VALUE) {
       /** perform the clustering by checking all edges against the threshold **/
+      EdgeGraph graph = scores.getGraph();
 
       UnionFind uf = new UnionFind(maxNpID);
 
-      for (int i : npIDs) {
-        for (int j : npIDs) {
-          if (!singletons.contains(i) && !singletons.contains(j) && hasEdge(i, j)) {
-            if (getWeight(i, j) > threshold) {
-              // System.out.println("Merging ("+i+","+j+") w: "+getWeight(i, j));
-              uf.merge(i, j);
-            }
+      for (int i : graph.getNodes()) {
+        if (singletons.contains(i)) {
+          continue;
+        }
+        for (int e = graph.start(i); e < graph.end(i); e++) {
+          int j = graph.target(e);
+          if (!singletons.contains(j) && graph.weight(e) > threshold) {
+            // System.out.println("Merging ("+i+","+j+") w: "+graph.weight(e));
+            uf.merge(i, j);
           }
         }
       }
@@ -18,7 +18,6 @@ import java.util.TreeSet;
 import reconcile.features.properties.Property;
 
 import com.google.common.base.Objects;
-import com.google.common.collect.Maps;
 
 
 /**
@@ -47,8 +46,8 @@ String type;
 /** The features */
 Map<String, String> features;
 
-/** Properties (used mostly for processing annotations) */
-transient Map<Property, Object> properties;
+/** Properties (used mostly for processing annotations); shared with copies of this annotation */
+transient PropertyValues properties;
 
 /** The start offset */
 int start;
@@ -67,7 +66,7 @@ String[] words = null;
 private static Annotation nullAnnot;
 
 private Annotation() {
-  properties = Maps.newHashMap();
+  properties = new PropertyValues();
 }
 /** Constructor. */
 public Annotation(int id, int start, int end, String type) {
@@ -76,7 +75,7 @@ public Annotation(int id, int start, int end, String type) {
 
 /** Constructor. */
 public Annotation(int id, int start, int end, String type, Map<String, String> features) {
-  this(id, start, end, type, features, new HashMap<Property, Object>());
+  this(id, start, end, type, features, null);
 }
 
 public Annotation(int id, int start, int end, String type, Map<String, String> features,
@@ -88,13 +87,18 @@ public Annotation(int id, int start, int end, String type, Map<String, String> f
   this.type = type;
   this.features = features;
   if (properties != null) {
-    this.properties = properties;
+    this.properties = new PropertyValues(properties);
   }
 } // AnnotationImpl
 
+/**
+ * A copy of this annotation that shares its features and cached properties
+ */
 public Annotation copy()
 {
-  return new Annotation(id, start, end, type, features, properties);
+  Annotation result = new Annotation(id, start, end, type, features);
+  result.properties = properties;
+  return result;
 }
 
 /** The ID of the annotation. */
@@ -206,13 +210,14 @@ public boolean equals(Object obj)
 
   if (end >= 0) if (other.getEndOffset() != end) return false;
 
+  // compare ids before features so lazily read features are not decoded for annotations with different ids
+  if (id != other.id) return false;
+
   // If their featureMaps are not equals then return false
   if ((features == null) ^ (other.getFeatures() == null)) return false;
 
   if (features != null && (!features.equals(other.getFeatures()))) return false;
 
-  if (id != other.id) return false;
-
   return true;
 }// equals
 
@@ -225,13 +230,14 @@ public void setFeatures(Map<String, String> features)
 /** Set the property set. */
 public void setProperties(Map<Property, Object> props)
 {
-  this.properties = props;
+  this.properties = new PropertyValues(props);
 }
 
-/** Get the property set. */
+/** Get a snapshot of the property set. */
 public Map<Property, Object> getProperties()
 {
-  return this.properties;
+  if (properties == null) return new HashMap<Property, Object>();
+  return properties.asMap();
 }
 
 /** This method tells if <b>this</b> and annotation A overlap. */
@@ -420,9 +426,10 @@ public Object getProperty(Property p)
 public void setProperty(Property p, Object o)
 {
   if (properties == null) {
-    properties = new HashMap<Property, Object>();
+    // only after deserialization
+    properties = new PropertyValues();
   }
-  properties.put(p, o);
+  properties.set(p, o);
 }
 
 /*
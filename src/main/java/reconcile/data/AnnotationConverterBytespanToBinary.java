@@ -0,0 +1,100 @@
+package reconcile.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Stack;
+
+import reconcile.general.Constants;
+
+/**
+ * Converts the bytespan annotation files of existing document directories to the binary format of
+ * {@link AnnotationWriterBinary}. Every directory under the given ones that is named like a document's annotation
+ * directory is converted: each bytespan file gets a binary copy next to it, which {@link Document#getAnnotationSet}
+ * reads from then on. The bytespan files are kept for the tools that read them directly. Every copy is read back and
+ * compared with the bytespan file before the next one is written.
+ * <p>
+ * Usage: AnnotationConverterBytespanToBinary dir...
+ */
+public class AnnotationConverterBytespanToBinary {
+
+public static void main(String[] args)
+{
+  if (args.length == 0) {
+    System.out.println("Please provide the directories to convert");
+    return;
+  }
+  AnnotationReader reader = new AnnotationReaderBytespan();
+  AnnotationReaderBinary binaryReader = new AnnotationReaderBinary();
+  AnnotationWriterBinary writer = new AnnotationWriterBinary();
+
+  int numFiles = 0;
+  long textBytes = 0, binaryBytes = 0;
+  Stack<File> dirs = new Stack<File>();
+  for (String arg : args) {
+    dirs.push(new File(arg));
+  }
+  while (!dirs.isEmpty()) {
+    File dir = dirs.pop();
+    File[] files = dir.listFiles();
+    if (files == null) {
+      continue;
+    }
+    boolean annotationDir = dir.getName().equals(Constants.ANNOT_DIR_NAME);
+    for (File f : files) {
+      if (f.isDirectory()) {
+        dirs.push(f);
+      }
+      else if (annotationDir && !f.getName().endsWith(AnnotationWriterBinary.SUFFIX)) {
+        try {
+          String name = f.getName();
+          AnnotationSet set = reader.read(new FileInputStream(f), name);
+          File bin = new File(dir, name + AnnotationWriterBinary.SUFFIX);
+          writer.write(set, bin);
+          String diff = difference(set, binaryReader.read(bin, name));
+          if (diff != null) {
+            bin.delete();
+            throw new RuntimeException("Binary copy of " + f + " differs: " + diff);
+          }
+          numFiles++;
+          textBytes += f.length();
+          binaryBytes += bin.length();
+        }
+        catch (FileNotFoundException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+  }
+  System.out.println("Converted " + numFiles + " annotation files, " + textBytes + " bytes to " + binaryBytes);
+}
+
+/**
+ * Compare two annotation sets annotation by annotation: ids, offsets, types and features.
+ *
+ * @return a description of the first difference, or null if the sets are the same
+ */
+public static String difference(AnnotationSet expected, AnnotationSet actual)
+{
+  if (expected.size() != actual.size())
+    return "sizes " + expected.size() + " and " + actual.size();
+  Iterator<Annotation> e = expected.iterator();
+  Iterator<Annotation> a = actual.iterator();
+  while (e.hasNext()) {
+    Annotation x = e.next();
+    Annotation y = a.next();
+    if (x.getId() != y.getId() || x.getStartOffset() != y.getStartOffset() || x.getEndOffset() != y.getEndOffset()
+        || !x.getType().equals(y.getType())) return "annotations " + x + " and " + y;
+    Map<String, String> xf = x.getFeatures();
+    Map<String, String> yf = y.getFeatures();
+    if (xf.size() != yf.size()) return "features of " + x + " and " + y;
+    for (Map.Entry<String, String> feat : xf.entrySet()) {
+      if (!feat.getValue().equals(yf.get(feat.getKey()))) return "feature " + feat.getKey() + " of " + x + " and " + y;
+    }
+  }
+  return null;
+}
+
+}
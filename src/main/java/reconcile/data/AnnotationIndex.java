@@ -0,0 +1,126 @@
+package reconcile.data;
+
+import java.util.Collection;
+
+/**
+ * An immutable interval index over the annotations of an {@link AnnotationSet}. The annotations are kept in an array
+ * in offset order, which is read as an implicit balanced binary tree (the root of a range is its middle element); each
+ * node also stores the largest and smallest end offset in its subtree, so the span queries skip the subtrees that
+ * cannot hold a match and run in O(log n + k). Matches are reported in offset order.
+ */
+class AnnotationIndex {
+
+private final Annotation[] annots;
+private final int[] starts;
+private final int[] ends;
+/*
+ * the largest and smallest end offset in the subtree rooted at each position
+ */
+private final int[] maxEnd;
+private final int[] minEnd;
+
+AnnotationIndex(Collection<Annotation> ordered) {
+  int n = ordered.size();
+  annots = ordered.toArray(new Annotation[n]);
+  starts = new int[n];
+  ends = new int[n];
+  for (int i = 0; i < n; i++) {
+    starts[i] = annots[i].getStartOffset();
+    ends[i] = annots[i].getEndOffset();
+  }
+  maxEnd = new int[n];
+  minEnd = new int[n];
+  build(0, n);
+}
+
+private void build(int lo, int hi)
+{
+  if (lo >= hi) return;
+  int mid = (lo + hi) >>> 1;
+  build(lo, mid);
+  build(mid + 1, hi);
+  int max = ends[mid], min = ends[mid];
+  if (lo < mid) {
+    int left = (lo + mid) >>> 1;
+    max = Math.max(max, maxEnd[left]);
+    min = Math.min(min, minEnd[left]);
+  }
+  if (mid + 1 < hi) {
+    int right = (mid + 1 + hi) >>> 1;
+    max = Math.max(max, maxEnd[right]);
+    min = Math.min(min, minEnd[right]);
+  }
+  maxEnd[mid] = max;
+  minEnd[mid] = min;
+}
+
+int size()
+{
+  return annots.length;
+}
+
+/**
+ * Visit the annotations with start < end and end > start (see {@link Annotation#overlaps(int, int)})
+ */
+void overlapping(int start, int end, AnnotationVisitor v)
+{
+  if (start < 0 || end < 0) return;
+  overlapping(0, annots.length, start, end, v);
+}
+
+private boolean overlapping(int lo, int hi, int start, int end, AnnotationVisitor v)
+{
+  if (lo >= hi) return true;
+  int mid = (lo + hi) >>> 1;
+  // nothing in this subtree ends after the start
+  if (maxEnd[mid] <= start) return true;
+  if (!overlapping(lo, mid, start, end, v)) return false;
+  // this node and everything to its right starts at or after the end
+  if (starts[mid] >= end) return true;
+  if (ends[mid] > start && !v.visit(annots[mid])) return false;
+  return overlapping(mid + 1, hi, start, end, v);
+}
+
+/**
+ * Visit the annotations that lie within start..end
+ */
+void contained(int start, int end, AnnotationVisitor v)
+{
+  contained(0, annots.length, start, end, v);
+}
+
+private boolean contained(int lo, int hi, int start, int end, AnnotationVisitor v)
+{
+  if (lo >= hi) return true;
+  int mid = (lo + hi) >>> 1;
+  // everything in this subtree ends after the end
+  if (minEnd[mid] > end) return true;
+  // the left subtree only starts before the start if this node does
+  if (starts[mid] >= start && !contained(lo, mid, start, end, v)) return false;
+  if (starts[mid] > end) return true;
+  if (starts[mid] >= start && ends[mid] <= end && !v.visit(annots[mid])) return false;
+  return contained(mid + 1, hi, start, end, v);
+}
+
+/**
+ * Visit the annotations that cover start..end (see {@link Annotation#covers(int, int)})
+ */
+void covering(int start, int end, AnnotationVisitor v)
+{
+  if (start < 0 || end < 0) return;
+  covering(0, annots.length, start, end, v);
+}
+
+private boolean covering(int lo, int hi, int start, int end, AnnotationVisitor v)
+{
+  if (lo >= hi) return true;
+  int mid = (lo + hi) >>> 1;
+  // nothing in this subtree reaches the end
+  if (maxEnd[mid] < end) return true;
+  if (!covering(lo, mid, start, end, v)) return false;
+  if (starts[mid] > start) return true;
+  if (ends[mid] >= end && !v.visit(annots[mid])) return false;
+  return covering(mid + 1, hi, start, end, v);
+}
+
+}
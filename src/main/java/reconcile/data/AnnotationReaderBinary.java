@@ -0,0 +1,101 @@
+package reconcile.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This is an implementation of the AnnotationReader interface. Reads annotations saved by
+ * {@link AnnotationWriterBinary}. Files are mapped into memory; the ids, offsets and types are decoded right away, but
+ * the features of an annotation are only decoded the first time one of them is asked for (see {@link LazyFeatureMap}).
+ */
+public class AnnotationReaderBinary
+    implements AnnotationReader {
+
+/** Read in the annotations from a stream */
+public AnnotationSet read(InputStream in, String annSetName)
+{
+  if (in == null) {
+    System.out.println("input stream is null for: " + annSetName);
+    return new AnnotationSet(annSetName);
+  }
+  try {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buf = new byte[8192];
+    int n;
+    while ((n = in.read(buf)) >= 0) {
+      bytes.write(buf, 0, n);
+    }
+    in.close();
+    return read(ByteBuffer.wrap(bytes.toByteArray()), annSetName);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+/** Map a file into memory and read the annotations in it */
+public AnnotationSet read(File file, String annSetName)
+{
+  try {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      // the mapping stays valid after the file is closed
+      return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), annSetName);
+    }
+    finally {
+      raf.close();
+    }
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+/** Read the annotations in a buffer holding a binary annotation file */
+public AnnotationSet read(ByteBuffer buffer, String annSetName)
+{
+  ByteBuffer in = buffer.duplicate();
+  if (in.remaining() < 8 || in.getInt() != AnnotationWriterBinary.MAGIC)
+    throw new RuntimeException("Not a binary annotation file: " + annSetName);
+  int version = in.getInt();
+  if (version != AnnotationWriterBinary.VERSION)
+    throw new RuntimeException("Unknown binary annotation file version " + version + ": " + annSetName);
+
+  String[] strings = new String[in.getInt()];
+  for (int i = 0; i < strings.length; i++) {
+    strings[i] = LazyFeatureMap.readValue(in);
+  }
+
+  int numAnnotations = in.getInt();
+  IntBuffer records = in.asIntBuffer();
+  int featureSection = in.position() + numAnnotations * AnnotationWriterBinary.RECORD_INTS * 4;
+
+  AnnotationSet result = new AnnotationSet(annSetName);
+  for (int i = 0; i < numAnnotations; i++) {
+    int id = records.get();
+    int start = records.get();
+    int end = records.get();
+    String type = strings[records.get()];
+    int featureOffset = records.get();
+    int numFeatures = records.get();
+    LazyFeatureMap features = new LazyFeatureMap(buffer, strings, featureSection + featureOffset, numFeatures);
+
+    // the same id handling as the bytespan reader
+    if (id >= 0 && result.get(id) == null) {
+      result.add(id, start, end, type, features);
+    }
+    else {
+      result.add(start, end, type, features);
+    }
+  }
+  return result;
+}
+
+}
@@ -0,0 +1,118 @@
+package reconcile.data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Round trip check of the binary annotation format against the bytespan format. Random annotation sets are written
+ * with {@link AnnotationWriterBytespan} and {@link AnnotationWriterBinary}; the bytespan file read back by
+ * {@link AnnotationReaderBytespan} must equal the binary file read back by {@link AnnotationReaderBinary}, both mapped
+ * and from a stream, and reading the binary file must not decode any features. Also prints the read times of both
+ * formats.
+ * <p>
+ * Usage: AnnotationRoundTripCheck [numAnnotations] [numSets]
+ */
+public class AnnotationRoundTripCheck {
+
+private static final String[] TYPES = { "np", "token", "sentence", "parse", "ne" };
+private static final String[] NAMES = { "CE_ID", "CorefID", "HEAD_START", "HEAD_END", "NPType", "parent",
+    "Category", "GRAMMATICAL_ROLE" };
+
+public static void main(String[] args)
+    throws IOException
+{
+  int numAnnots = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+  int numSets = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+  Random rand = new Random(42);
+  File dir = File.createTempFile("annotations", "");
+  dir.delete();
+  dir.mkdir();
+  try {
+    long textTime = 0, binTime = 0, textBytes = 0, binBytes = 0;
+    for (int s = 0; s < numSets; s++) {
+      AnnotationSet set = makeSet("set" + s, s == 0 ? 0 : numAnnots, rand);
+      File text = new File(dir, set.getName());
+      PrintWriter out = new PrintWriter(text);
+      new AnnotationWriterBytespan().write(set, out);
+      File bin = new File(dir, set.getName() + AnnotationWriterBinary.SUFFIX);
+      new AnnotationWriterBinary().write(set, bin);
+      textBytes += text.length();
+      binBytes += bin.length();
+
+      long st = System.nanoTime();
+      AnnotationSet expected = new AnnotationReaderBytespan().read(new FileInputStream(text), set.getName());
+      textTime += System.nanoTime() - st;
+      st = System.nanoTime();
+      AnnotationSet mapped = new AnnotationReaderBinary().read(bin, set.getName());
+      binTime += System.nanoTime() - st;
+
+      for (Annotation a : mapped) {
+        if (((LazyFeatureMap) a.getFeatures()).isDecoded())
+          throw new RuntimeException("features decoded on read: " + set.getName());
+      }
+      check(set.getName() + " mapped", AnnotationConverterBytespanToBinary.difference(expected, mapped));
+      AnnotationSet streamed = new AnnotationReaderBinary().read(new FileInputStream(bin), set.getName());
+      check(set.getName() + " streamed", AnnotationConverterBytespanToBinary.difference(expected, streamed));
+      check(set.getName() + " original", AnnotationConverterBytespanToBinary.difference(set, streamed));
+
+      // features still behave like a map once decoded
+      for (Annotation a : streamed) {
+        a.setAttribute("extra", "1");
+        if (!"1".equals(a.getAttribute("extra"))) throw new RuntimeException("lost a feature: " + a);
+      }
+    }
+    System.out.printf("%d sets of %d annotations: bytespan %d bytes, %.2f ms/set; binary %d bytes, %.2f ms/set\n",
+        numSets, numAnnots, textBytes, textTime / 1e6 / numSets, binBytes, binTime / 1e6 / numSets);
+    System.out.println("OK");
+  }
+  finally {
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+}
+
+private static AnnotationSet makeSet(String name, int numAnnots, Random rand)
+{
+  AnnotationSet set = new AnnotationSet(name);
+  for (int i = 0; i < numAnnots; i++) {
+    int start = rand.nextInt(100000);
+    int end = start + rand.nextInt(50);
+    Map<String, String> features = new HashMap<String, String>();
+    int numFeatures = rand.nextInt(NAMES.length);
+    for (int f = 0; f < numFeatures; f++) {
+      features.put(NAMES[rand.nextInt(NAMES.length)], value(rand));
+    }
+    set.add(i, start, end, TYPES[rand.nextInt(TYPES.length)], features);
+  }
+  return set;
+}
+
+/**
+ * A random value the bytespan format can hold: no quotes, backslashes or newlines, and only ASCII since the bytespan
+ * files are written in the platform encoding
+ */
+private static String value(Random rand)
+{
+  StringBuilder sb = new StringBuilder();
+  int length = rand.nextInt(20);
+  for (int i = 0; i < length; i++) {
+    int c = rand.nextInt(10);
+    sb.append(c == 0 ? ' ' : c == 1 ? (char) ('0' + rand.nextInt(10)) : (char) ('a' + rand.nextInt(26)));
+  }
+  return sb.toString();
+}
+
+private static void check(String what, String diff)
+{
+  if (diff != null) throw new RuntimeException(what + ": " + diff);
+}
+
+}
@@ -7,13 +7,16 @@
 package reconcile.data;
 
 import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
@@ -59,6 +62,12 @@ private HashMap<String, Integer> types;
 
 private boolean ALLOW_CROSSING_ANNOTS = true;
 
+/** Interval index for the span queries; built on the first query after the set changes */
+private transient volatile AnnotationIndex index = null;
+
+/** Index of the trees the annotations encode in a parent feature; built on first use after the set changes */
+private transient volatile TreeIndex treeIndex = null;
+
 
 /** Constructor from name. */
 public AnnotationSet(String name) {
@@ -100,6 +109,8 @@ public boolean remove(Object o)
   }
 
   if (!orderedAnnotations.remove(myA)) return false;
+  index = null;
+  treeIndex = null;
   annotations.remove(myA.getId());
   String type = myA.getType();
   removeType(type);
@@ -182,14 +193,7 @@ public AnnotationSet get(String[] types)
 public AnnotationSet getOverlapping(int start, int end)
 {
   AnnotationSet resultSet = new AnnotationSet(this.getName());
-  Iterator<Annotation> annotsIter = iterator();
-  while (annotsIter.hasNext()) {
-    Annotation currentAnnot = annotsIter.next();
-    if (currentAnnot.overlaps(start, end)) {
-      resultSet.addRef(currentAnnot);
-    }
-  }
-
+  visitOverlapping(start, end, resultSet.collector());
   return resultSet;
 }// getOverlapping(start, end)
 
@@ -198,6 +202,58 @@ public AnnotationSet getOverlapping(Annotation an)
   return getOverlapping(an.getStartOffset(), an.getEndOffset());
 }
 
+/**
+ * Visit the annotations that overlap the specified offsets, in order, without building a new annotation set
+ */
+public void visitOverlapping(int start, int end, AnnotationVisitor visitor)
+{
+  getIndex().overlapping(start, end, visitor);
+}
+
+public void visitOverlapping(Annotation an, AnnotationVisitor visitor)
+{
+  visitOverlapping(an.getStartOffset(), an.getEndOffset(), visitor);
+}
+
+/**
+ * Select the annotations that include the given offset
+ */
+public AnnotationSet getStabbing(int offset)
+{
+  return getOverlapping(offset, offset + 1);
+}
+
+/**
+ * Visit the annotations that include the given offset, in order
+ */
+public void visitStabbing(int offset, AnnotationVisitor visitor)
+{
+  visitOverlapping(offset, offset + 1, visitor);
+}
+
+/**
+ * Select the annotations that cover the whole span start..end
+ */
+public AnnotationSet getCovering(int start, int end)
+{
+  AnnotationSet resultSet = new AnnotationSet(this.getName());
+  visitCovering(start, end, resultSet.collector());
+  return resultSet;
+}
+
+public AnnotationSet getCovering(Annotation an)
+{
+  return getCovering(an.getStartOffset(), an.getEndOffset());
+}
+
+/**
+ * Visit the annotations that cover the whole span start..end, in order
+ */
+public void visitCovering(int start, int end, AnnotationVisitor visitor)
+{
+  getIndex().covering(start, end, visitor);
+}
+
 public Annotation getFirst()
 {
   if (orderedAnnotations == null || orderedAnnotations.isEmpty()) return null;
@@ -237,21 +293,68 @@ public AnnotationSet getContained(int start, int end)
   // the result will include all the annotations that both:
   // start at a position between the start and end before the end offsets
   if (start > end) return null;
-  Annotation lowerBound = new Annotation(Integer.MIN_VALUE, start, start, "", null, null);
-  Annotation upperBound = new Annotation(Integer.MAX_VALUE, end, end, "", null, null);
-  SortedSet<Annotation> subset = orderedAnnotations.subSet(lowerBound, upperBound);
-  // System.err.println("Retrieved "+subset);
   AnnotationSet resultSet = new AnnotationSet(getName());
-  for (Annotation annot : subset) {
-    if (annot.getEndOffset() <= end) {
-      resultSet.addRef(annot);
-    }
-  }
-
+  visitContained(start, end, resultSet.collector());
   return resultSet;
 
 }// getContained(start, end)
 
+/**
+ * Visit the annotations that lie within start..end, in order, without building a new annotation set
+ */
+public void visitContained(int start, int end, AnnotationVisitor visitor)
+{
+  if (start > end) return;
+  getIndex().contained(start, end, visitor);
+}
+
+public void visitContained(Annotation an, AnnotationVisitor visitor)
+{
+  visitContained(an.getStartOffset(), an.getEndOffset(), visitor);
+}
+
+/**
+ * @return the interval index over the current annotations
+ */
+private AnnotationIndex getIndex()
+{
+  AnnotationIndex idx = index;
+  if (idx == null) {
+    idx = new AnnotationIndex(orderedAnnotations);
+    index = idx;
+  }
+  return idx;
+}
+
+/**
+ * @return the index of the trees the annotations of this set encode by keeping the id of their parent in the given
+ *         feature (e.g. "parent" for parse trees, "GOV_ID" for dependencies)
+ */
+public TreeIndex getTreeIndex(String parentFeature)
+{
+  TreeIndex idx = treeIndex;
+  if (idx == null || !idx.getParentFeature().equals(parentFeature)) {
+    idx = new TreeIndex(this, parentFeature);
+    treeIndex = idx;
+  }
+  return idx;
+}
+
+/**
+ * @return a visitor that adds the annotations it visits to this set by reference
+ */
+private AnnotationVisitor collector()
+{
+  return new AnnotationVisitor() {
+
+    public boolean visit(Annotation a)
+    {
+      addRef(a);
+      return true;
+    }
+  };
+}
+
 /*
  * Returns an annotation set that contains all annotations that exactly match the span
  * of the given annotation.
@@ -329,8 +432,8 @@ public boolean add(Annotation A)
   if (!ALLOW_CROSSING_ANNOTS && (an = getCrossing(A)) != null)
     throw new RuntimeException("Trying to add crossing annotation: " + A + " and: " + an);
   if (annotations.containsKey(A.getId())) {
-    A = new Annotation(getNextAnnotationId(), A.getStartOffset(), A.getEndOffset(), A.getType(), A.getFeatures(), A
-        .getProperties());
+    A = A.copy();
+    A.setId(getNextAnnotationId());
   }
   else {
     A = A.copy();
@@ -340,6 +443,8 @@ public boolean add(Annotation A)
   }
   boolean added = orderedAnnotations.add(A);
   if (added) {
+    index = null;
+    treeIndex = null;
     annotations.put(A.getId(), A);
     addType(A);
   }
@@ -349,6 +454,127 @@ public boolean add(Annotation A)
   return added;
 } // add(A)
 
+/**
+ * Add annotations in one go: the same as calling add(start, end, type) for each of the first length spans in turn, ids
+ * included. When the set is empty, as it is for an annotator filling a new set, and crossing annotations are allowed,
+ * the ordered set is built from the sorted annotations in linear time instead of by one tree insertion each.
+ */
+public void addSpans(int[] starts, int[] ends, String[] spanTypes, int length)
+{
+  if (!ALLOW_CROSSING_ANNOTS || !orderedAnnotations.isEmpty()) {
+    for (int i = 0; i < length; i++) {
+      add(starts[i], ends[i], spanTypes[i]);
+    }
+    return;
+  }
+
+  Annotation[] batch = new Annotation[length];
+  for (int i = 0; i < length; i++) {
+    batch[i] = new Annotation(getNextAnnotationId(), starts[i], ends[i], spanTypes[i], new TreeMap<String, String>(),
+        null);
+  }
+  Annotation[] sorted = batch.clone();
+  Comparator<? super Annotation> c = orderedAnnotations.comparator();
+  Arrays.sort(sorted, c);
+  for (int i = 1; i < length; i++) {
+    if (c.compare(sorted[i - 1], sorted[i]) >= 0) {
+      // not a strict order; fall back to adding them one at a time
+      for (Annotation a : batch) {
+        addRef(a);
+      }
+      return;
+    }
+  }
+
+  index = null;
+  treeIndex = null;
+  orderedAnnotations.addAll(new SortedArray(sorted, c));
+  for (Annotation a : batch) {
+    annotations.put(a.getId(), a);
+    addType(a);
+  }
+}
+
+/**
+ * A sorted array (in the strict order of its comparator) seen as a sorted set, which lets TreeSet.addAll build the tree
+ * without comparisons
+ */
+private static class SortedArray
+    extends AbstractSet<Annotation>
+    implements SortedSet<Annotation> {
+
+private final Annotation[] sorted;
+private final Comparator<? super Annotation> comparator;
+
+SortedArray(Annotation[] sorted, Comparator<? super Annotation> comparator) {
+  this.sorted = sorted;
+  this.comparator = comparator;
+}
+
+@Override
+public Iterator<Annotation> iterator()
+{
+  return Arrays.asList(sorted).iterator();
+}
+
+@Override
+public int size()
+{
+  return sorted.length;
+}
+
+public Comparator<? super Annotation> comparator()
+{
+  return comparator;
+}
+
+public Annotation first()
+{
+  if (sorted.length == 0) throw new NoSuchElementException();
+  return sorted[0];
+}
+
+public Annotation last()
+{
+  if (sorted.length == 0) throw new NoSuchElementException();
+  return sorted[sorted.length - 1];
+}
+
+public SortedSet<Annotation> subSet(Annotation fromElement, Annotation toElement)
+{
+  if (comparator.compare(fromElement, toElement) > 0)
+    throw new IllegalArgumentException("fromElement is after toElement");
+  return range(indexOf(fromElement), indexOf(toElement));
+}
+
+public SortedSet<Annotation> headSet(Annotation toElement)
+{
+  return range(0, indexOf(toElement));
+}
+
+public SortedSet<Annotation> tailSet(Annotation fromElement)
+{
+  return range(indexOf(fromElement), sorted.length);
+}
+
+/*
+ * The index of the first element not before the given one
+ */
+private int indexOf(Annotation a)
+{
+  int i = Arrays.binarySearch(sorted, a, comparator);
+  return i >= 0 ? i : -i - 1;
+}
+
+/*
+ * A copy of elements from .. to - 1
+ */
+private SortedSet<Annotation> range(int from, int to)
+{
+  return new SortedArray(Arrays.copyOfRange(sorted, from, to), comparator);
+}
+}
+
 /**
  * Add an existing annotation and keep the id. Returns true when the set is modified.
  * 
@@ -369,6 +595,8 @@ public boolean addKeepID(Annotation A)
   if (annotations.containsKey(A.getId())) {
     orderedAnnotations.remove(annotations.get(A.getId()));
   }
+  index = null;
+  treeIndex = null;
   boolean added = orderedAnnotations.add(A);
   if (added) {
     annotations.put(A.getId(), A);
@@ -400,6 +628,8 @@ public boolean addRef(Annotation A)
   if (annotations.containsKey(A.getId())) {
     orderedAnnotations.remove(annotations.get(A.getId()));
   }
+  index = null;
+  treeIndex = null;
   boolean added = orderedAnnotations.add(A);
   if (added) {
     annotations.put(A.getId(), A);
@@ -530,6 +760,8 @@ public Annotation[] toArray()
 
 public void clear()
 {
+  index = null;
+  treeIndex = null;
   annotations.clear();
   orderedAnnotations.clear();
   types.clear();
@@ -545,32 +777,52 @@ public boolean containsSpan(Annotation a)
   return containsSpan(a.getStartOffset(), a.getEndOffset());
 }
 
-public boolean containsSpan(int start, int end)
+public boolean containsSpan(final int start, final int end)
 {
+  final boolean[] found = { false };
+  visitOverlapping(start, end, new AnnotationVisitor() {
 
-  AnnotationSet ans = this.getOverlapping(start, end);
-
-  for (Annotation an : ans) {
-    if (an.getStartOffset() == start && an.getEndOffset() == end) return true;
-  }
+    public boolean visit(Annotation an)
+    {
+      found[0] = an.getStartOffset() == start && an.getEndOffset() == end;
+      return !found[0];
+    }
+  });
 
-  return false;
+  return found[0];
 }
 
 public Annotation getCrossing(Annotation a)
 {
-  int start1 = a.getStartOffset();
-  int end1 = a.getEndOffset();
-  AnnotationSet ans = this.getOverlapping(a);
+  final int start1 = a.getStartOffset();
+  final int end1 = a.getEndOffset();
+  final Annotation[] crossing = { null };
+  AnnotationVisitor visitor = new AnnotationVisitor() {
+
+    public boolean visit(Annotation an)
+    {
+      int start2 = an.getStartOffset();
+      int end2 = an.getEndOffset();
+      if ((start1 < start2 && end1 > start2 && end1 < end2) || (start1 > start2 && start1 < end2 && end1 > end2)) {
+        crossing[0] = an;
+      }
+      return crossing[0] == null;
+    }
+  };
 
-  for (Annotation an : ans) {
-    int start2 = an.getStartOffset();
-    int end2 = an.getEndOffset();
-    if (start1 < start2 && end1 > start2 && end1 < end2) return an;
-    if (start1 > start2 && start1 < end2 && end1 > end2) return an;
+  if (index != null) {
+    visitOverlapping(a, visitor);
+  }
+  else {
+    // called for every add when crossing annotations are not allowed; don't rebuild the index each time
+    for (Annotation an : orderedAnnotations) {
+      if (an.overlaps(start1, end1) && !visitor.visit(an)) {
+        break;
+      }
+    }
   }
 
-  return null;
+  return crossing[0];
 }
 
 public Annotation checkForCrossingAnnotations()
@@ -597,15 +849,19 @@ public void checkForCrossingWordBoundaries(Document doc)
   }
 }
 
-public boolean coversSpan(int start, int end)
+public boolean coversSpan(final int start, final int end)
 {
-  AnnotationSet ans = this.getOverlapping(start, end);
+  final boolean[] found = { false };
+  visitOverlapping(start, end, new AnnotationVisitor() {
 
-  for (Annotation an : ans) {
-    if (an.covers(start, end)) return true;
-  }
+    public boolean visit(Annotation an)
+    {
+      found[0] = an.covers(start, end);
+      return !found[0];
+    }
+  });
 
-  return false;
+  return found[0];
 }
 
 public boolean coversSpan(Annotation a)
@@ -0,0 +1,14 @@
+package reconcile.data;
+
+/**
+ * Callback for the visit methods of {@link AnnotationSet}, which hand the annotations matching a span query to the
+ * visitor one at a time, in offset order, instead of collecting them in a new annotation set.
+ */
+public interface AnnotationVisitor {
+
+/**
+ * @return false to stop the visit
+ */
+public boolean visit(Annotation a);
+
+}
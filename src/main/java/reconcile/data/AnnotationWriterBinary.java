@@ -0,0 +1,157 @@
+package reconcile.data;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes out annotations in a binary format that
+ * {@link AnnotationReaderBinary} maps into memory: the offsets and types of all the annotations are fixed-width
+ * records at the front of the file and the features follow in a separate section, so a reader can build the
+ * annotation set without touching the features. Types and feature names are written once, in a string table.
+ * <p>
+ * Layout:
+ * <code>MAGIC, VERSION, numStrings, {length, UTF-8 bytes}..., numAnnotations, {id, start, end, type, featureOffset, numFeatures}...,
+ * {name, length, UTF-8 bytes}...</code>, where types and names are indexes into the string table and feature offsets
+ * are relative to the start of the feature section. All numbers are ints.
+ * <p>
+ * The format is not text, so unlike the other writers this one does not write to a PrintWriter and is not an
+ * {@link AnnotationWriter}.
+ */
+public class AnnotationWriterBinary {
+
+/**
+ * The value of ANNOTATION_FORMAT that selects this format
+ */
+public static final String FORMAT = "bin";
+
+/**
+ * Binary annotation sets are stored next to the bytespan files, under the set name with this suffix
+ */
+public static final String SUFFIX = ".bin";
+
+public static final int MAGIC = 0x5243414e; // "RCAN"
+public static final int VERSION = 1;
+
+/**
+ * The number of ints in an annotation record
+ */
+static final int RECORD_INTS = 6;
+
+public void write(AnnotationSet anns, String dirName)
+{
+  write(anns, new File(dirName, anns.getName() + SUFFIX));
+}
+
+/** Comments are not kept in the binary format */
+public void write(AnnotationSet anns, String dirName, String comment)
+{
+  write(anns, dirName);
+}
+
+/**
+ * Write out an annotation set to a file. The set is written to a temporary file next to it, which then replaces it: the
+ * features of a set that was read from the file are decoded from a mapping of it, which truncating the file in place
+ * would pull out from under them.
+ */
+public void write(AnnotationSet anns, File file)
+{
+  try {
+    File tmp = File.createTempFile(file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile());
+    try {
+      write(anns, new FileOutputStream(tmp));
+      if (!tmp.renameTo(file)) {
+        // renaming over an existing file fails on some platforms
+        if ((file.exists() && !file.delete()) || !tmp.renameTo(file))
+          throw new IOException("could not replace " + file + " with " + tmp);
+      }
+    }
+    finally {
+      if (tmp.exists()) {
+        tmp.delete();
+      }
+    }
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+/** Write out an annotation set; the stream is closed */
+public void write(AnnotationSet anns, OutputStream output)
+{
+  try {
+    Map<String, Integer> stringIds = new HashMap<String, Integer>();
+    ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+    DataOutputStream stringTable = new DataOutputStream(stringBytes);
+    ByteArrayOutputStream featureBytes = new ByteArrayOutputStream();
+    DataOutputStream featureSection = new DataOutputStream(featureBytes);
+    int[] records = new int[anns.size() * RECORD_INTS];
+
+    int r = 0;
+    for (Annotation a : anns) {
+      records[r++] = a.getId();
+      records[r++] = a.getStartOffset();
+      records[r++] = a.getEndOffset();
+      records[r++] = stringId(a.getType(), stringIds, stringTable);
+      records[r++] = featureSection.size();
+      int numFeatures = 0;
+      Map<String, String> features = a.getFeatures();
+      if (features != null) {
+        for (Map.Entry<String, String> feat : features.entrySet()) {
+          // like the bytespan format, missing values are dropped
+          if (feat.getValue() == null) {
+            continue;
+          }
+          featureSection.writeInt(stringId(feat.getKey(), stringIds, stringTable));
+          writeValue(feat.getValue(), featureSection);
+          numFeatures++;
+        }
+      }
+      records[r++] = numFeatures;
+    }
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(stringIds.size());
+    stringBytes.writeTo(out);
+    out.writeInt(anns.size());
+    for (int v : records) {
+      out.writeInt(v);
+    }
+    featureBytes.writeTo(out);
+    out.close();
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+private static int stringId(String s, Map<String, Integer> stringIds, DataOutputStream stringTable)
+    throws IOException
+{
+  Integer id = stringIds.get(s);
+  if (id == null) {
+    id = stringIds.size();
+    stringIds.put(s, id);
+    writeValue(s, stringTable);
+  }
+  return id;
+}
+
+static void writeValue(String s, DataOutputStream out)
+    throws IOException
+{
+  byte[] bytes = s.getBytes(LazyFeatureMap.UTF8);
+  out.writeInt(bytes.length);
+  out.write(bytes);
+}
+
+}
@@ -0,0 +1,316 @@
+package reconcile.data;
+
+import gov.llnl.text.util.FileUtils;
+import gov.llnl.text.util.RecursiveFileIterable;
+import gov.llnl.text.util.Timer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import reconcile.general.Constants;
+import reconcile.util.Filters;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * A corpus whose documents are packed into the segment files of a {@link SegmentStore} in the root directory, instead
+ * of each having a directory of files (see {@link CorpusFile}). Documents are named by the path of their directory
+ * relative to the root of the corpus they were imported from, and are listed in the order they were added.
+ * <p>
+ * {@link #importCorpus(File)} packs a corpus in the directory layout and {@link #exportCorpus(File)} unpacks one into
+ * it, for the components that need the documents' files (see {@link PackedDocument}). The store has to be closed, so
+ * that the next opening does not have to scan the segments for the index.
+ *
+ * Usage: CorpusPacked import &lt;corpusDir&gt; &lt;packedDir&gt; | export &lt;packedDir&gt; &lt;corpusDir&gt;
+ */
+public class CorpusPacked
+    extends Corpus {
+
+private SegmentStore mStore;
+private File mFileMetaDataDir;
+
+/**
+ * Open the packed corpus in the given directory, creating it if needed. Note that this assumes that the system has
+ * already been configured or is using the default config
+ *
+ * @param rootDir
+ * @throws IOException
+ */
+public CorpusPacked(File rootDir)
+    throws IOException {
+  mRootDir = rootDir;
+  mStore = new SegmentStore(rootDir);
+}
+
+public SegmentStore getStore()
+{
+  return mStore;
+}
+
+@Override
+public Iterable<Document> iterable()
+    throws IOException
+{
+  if (mIterable != null) return mIterable;
+  return Iterables.transform(mStore.documentIds(), new Function<String, Document>() {
+
+    public Document apply(String docId)
+    {
+      return new PackedDocument(mStore, docId);
+    }
+  });
+}
+
+/**
+ * @return the document with the given id; it is created on the first write if the store does not have it yet
+ */
+public PackedDocument getDocument(String docId)
+{
+  return new PackedDocument(mStore, docId);
+}
+
+public boolean containsDocument(String docId)
+{
+  return mStore.containsDocument(docId);
+}
+
+public int size()
+{
+  return mStore.numDocuments();
+}
+
+/**
+ * Given a corpus of text, add each file to the store as the raw text of a document, named by the path of the file
+ * relative to the original directory
+ *
+ * @param originalDir
+ * @throws IOException
+ */
+@Override
+public void reformatCorpus(File originalDir)
+    throws IOException
+{
+  Iterable<File> originalCorpus = RecursiveFileIterable.iterate(originalDir);
+
+  Timer t = new Timer(10);
+  for (File f : originalCorpus) {
+    if (f.length() < 5) {
+      continue;
+    }
+
+    Document doc = getDocument(relativePath(originalDir, f));
+    doc.setRawText(FileUtils.readFile(f));
+    t.increment();
+
+  }
+  t.end();
+  mStore.checkpoint();
+}
+
+/**
+ * Pack the documents of a corpus in the directory layout: every directory with a raw.txt file under the given root
+ * becomes a document, and every file under it an entry. A document that is already in the store is replaced, all of
+ * its files in one write.
+ *
+ * @param corpusDir
+ *          the root of the corpus to import
+ * @return the number of documents imported
+ * @throws IOException
+ */
+public int importCorpus(File corpusDir)
+    throws IOException
+{
+  Timer t = new Timer(10);
+  int count = 0;
+  for (File raw : RecursiveFileIterable.iterate(corpusDir, Filters.rawFileFilter)) {
+    if (raw.isDirectory()) {
+      continue;
+    }
+    File docDir = raw.getParentFile();
+    String docId = relativePath(corpusDir, docDir);
+    Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    for (String name : mStore.entryNames(docId)) {
+      entries.put(name, null);
+    }
+    addFiles(docDir, "", entries);
+    dropStaleAnnotations(docDir, entries);
+    mStore.write(docId, entries);
+    count++;
+    t.increment();
+  }
+  t.end();
+  mStore.checkpoint();
+  return count;
+}
+
+private static void addFiles(File dir, String prefix, Map<String, byte[]> entries)
+    throws IOException
+{
+  File[] files = dir.listFiles();
+  if (files == null) return;
+  for (File f : files) {
+    String name = prefix + f.getName();
+    if (f.isDirectory()) {
+      addFiles(f, name + "/", entries);
+    }
+    else {
+      entries.put(name, SegmentStore.readFully(new FileInputStream(f)));
+    }
+  }
+}
+
+/**
+ * A packed document keeps one copy of an annotation set, so of a bytespan file and its binary copy only the one that
+ * {@link Document#getAnnotationSet(String)} would read is kept
+ */
+private static void dropStaleAnnotations(File docDir, Map<String, byte[]> entries)
+{
+  File annDir = new File(docDir, Constants.ANNOT_DIR_NAME);
+  String prefix = Constants.ANNOT_DIR_NAME + "/";
+  List<String> names = Lists.newArrayList(entries.keySet());
+  for (String name : names) {
+    if (!name.startsWith(prefix) || !name.endsWith(AnnotationWriterBinary.SUFFIX) || entries.get(name) == null) {
+      continue;
+    }
+    String annName = name.substring(0, name.length() - AnnotationWriterBinary.SUFFIX.length());
+    if (entries.get(annName) == null) {
+      continue;
+    }
+    File annFile = new File(annDir, annName.substring(prefix.length()));
+    File binFile = new File(annDir, name.substring(prefix.length()));
+    if (binFile.lastModified() >= annFile.lastModified()) {
+      entries.put(annName, null);
+    }
+    else {
+      entries.put(name, null);
+    }
+  }
+}
+
+/**
+ * Unpack the documents into the directory layout under the given root, each in the directory named by its id
+ *
+ * @param corpusDir
+ *          the root of the corpus to write
+ * @return the number of documents exported
+ * @throws IOException
+ */
+public int exportCorpus(File corpusDir)
+    throws IOException
+{
+  Timer t = new Timer(10);
+  int count = 0;
+  for (String docId : mStore.documentIds()) {
+    File docDir = new File(corpusDir, docId);
+    for (String name : mStore.entryNames(docId)) {
+      byte[] content = mStore.read(docId, name);
+      if (content == null) {
+        continue;
+      }
+      File f = new File(docDir, name);
+      mkdir(f.getParentFile());
+      OutputStream out = new FileOutputStream(f);
+      try {
+        out.write(content);
+      }
+      finally {
+        out.close();
+      }
+    }
+    count++;
+    t.increment();
+  }
+  t.end();
+  return count;
+}
+
+/**
+ * @return the path of a file relative to a directory above it, with '/' between the names
+ */
+private static String relativePath(File root, File f)
+{
+  String rootPath = root.getAbsoluteFile().toURI().getPath();
+  String path = f.getAbsoluteFile().toURI().getPath();
+  if (!path.startsWith(rootPath)) throw new IllegalArgumentException(f + " is not under " + root);
+  path = path.substring(rootPath.length());
+  return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+}
+
+/**
+ * Write a snapshot of the index of the store
+ *
+ * @throws IOException
+ */
+public void checkpoint()
+    throws IOException
+{
+  mStore.checkpoint();
+}
+
+public void close()
+    throws IOException
+{
+  mStore.close();
+}
+
+/**
+ * @param string
+ * @return
+ */
+@Override
+public File getDataFile(String fileName)
+{
+  File f = new File(getFileMetadataDir(), fileName);
+  return f;
+}
+
+/**
+ * @return
+ */
+private File getFileMetadataDir()
+{
+  try {
+    if (mFileMetaDataDir == null) {
+      mFileMetaDataDir = new File(mRootDir, "fileMetaData");
+      if (!mFileMetaDataDir.exists()) {
+        mkdir(mFileMetaDataDir);
+      }
+    }
+    return mFileMetaDataDir;
+  }
+  catch (IOException e) {
+    e.printStackTrace();
+  }
+  return null;
+}
+
+public static void main(String[] args)
+    throws IOException
+{
+  if (args.length != 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+    System.out.println("Usage: CorpusPacked import <corpusDir> <packedDir> | export <packedDir> <corpusDir>");
+    return;
+  }
+  if (args[0].equals("import")) {
+    CorpusPacked corpus = new CorpusPacked(new File(args[2]));
+    int count = corpus.importCorpus(new File(args[1]));
+    corpus.close();
+    System.out.println("imported " + count + " documents into " + args[2]);
+  }
+  else {
+    CorpusPacked corpus = new CorpusPacked(new File(args[1]));
+    int count = corpus.exportCorpus(new File(args[2]));
+    corpus.close();
+    System.out.println("exported " + count + " documents to " + args[2]);
+  }
+}
+
+}
@@ -3,6 +3,7 @@ package reconcile.data;
 import gov.llnl.text.util.FileUtils;
 import gov.llnl.text.util.InputStreamLineIterable;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -10,20 +11,32 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
 import reconcile.SystemConfig;
+import reconcile.featureVector.BinaryFeatureReader;
+import reconcile.featureVector.FeatureWriterBinary;
 import reconcile.featureVector.individualFeature.DocNo;
 import reconcile.general.Constants;
+import reconcile.general.Metrics;
 import reconcile.general.Utils;
 
 import com.google.common.collect.ImmutableSet;
@@ -43,9 +56,49 @@ public final static String RAW_TXT = "raw.txt";
 public static final String METADATA_FILE = "metadata.csv";
 protected static boolean DEBUG = Constants.DEBUG;
 protected static final String FEATURE_FORMAT = "FEATURE_FORMAT";
+protected static final String ANNOTATION_FORMAT = "ANNOTATION_FORMAT";
+
+/**
+ * Config option: release the annotation sets a pipeline stage is done with (see
+ * {@link #retainAnnotationSets(Collection)}); off by default
+ */
+public static final String ANNOTATION_RESIDENCY = "ANNOTATION_RESIDENCY";
+
+/**
+ * Config option: the megabytes of annotation sets a document may keep in memory before the least recently used ones are
+ * released, between pipeline stages (see {@link #releaseOverBudget()}); 0 (the default) for no limit. Only used when
+ * ANNOTATION_RESIDENCY is on.
+ */
+public static final String ANNOTATION_HEAP_BUDGET = "ANNOTATION_HEAP_BUDGET";
+
+/* a rough size of an annotation in memory, with its feature and property maps */
+private static final long ANNOTATION_BYTES = 256;
+
+/* the document number sets, which the stages that read them make again, so they are dropped rather than spilled */
+private static final Set<String> REGENERATED = ImmutableSet.of(DocNo.ID, "docNo");
+
+/*
+ * The spilled sets of the documents that are not closed; when such a document is garbage collected, its files are
+ * deleted the next time a set is spilled
+ */
+private static final ReferenceQueue<Document> sDropped = new ReferenceQueue<Document>();
+private static final Set<SpillFiles> sSpillFiles = Collections.synchronizedSet(new HashSet<SpillFiles>());
+
+private static class SpillFiles
+    extends WeakReference<Document> {
+
+private Map<String, File> mFiles;
+
+SpillFiles(Document doc, Map<String, File> files) {
+  super(doc, sDropped);
+  mFiles = files;
+}
+}
 
 public static final AnnotationReaderBytespan AnReader = new AnnotationReaderBytespan();
 public static final AnnotationWriterBytespan AnWriter = new AnnotationWriterBytespan();
+public static final AnnotationReaderBinary AnBinaryReader = new AnnotationReaderBinary();
+public static final AnnotationWriterBinary AnBinaryWriter = new AnnotationWriterBinary();
 
 public static String getText(String dirName)
 {
@@ -76,6 +129,21 @@ protected String mDocId;
 protected Map<String, AnnotationSet> mAnnotationSets;
 protected String mId;
 
+/*
+ * Residency of the annotation sets: the sets in memory that match their copy on disk (the others are spilled to a
+ * temporary file when they are released), the spilled sets, the sets that have been released and not read back, the
+ * sets the current stage needs, and when each set in memory was last asked for
+ */
+private Set<String> mPersisted = new HashSet<String>();
+private Map<String, File> mSpilled = new HashMap<String, File>();
+private SpillFiles mSpillFiles;
+private Set<String> mReleased = new HashSet<String>();
+private Set<String> mPinned = new HashSet<String>();
+private Map<String, Long> mLastUse = new HashMap<String, Long>();
+private long mUseCount = 0;
+private int mEvictions = 0;
+private int mReloads = 0;
+
 /**
  * This constructor is dangerous because it does not initialize the underlying directory. So, if a subclass is needed,
  * it had better override every method that accesses the mDir member variable.
@@ -128,17 +196,24 @@ public void addAnnotationSet(AnnotationSet set, String annotationSetName, boolea
   try {
     String annSetName = getCannonicalAnnotationSetName(annotationSetName);
     if (write) {
-      File f = new File(getAnnotationDir(), annSetName);
+      boolean binary = AnnotationWriterBinary.FORMAT.equals(getAnnotationFormat());
+      File f = binary ? getBinaryAnnotationSetFile(annSetName) : new File(getAnnotationDir(), annSetName);
       if (DEBUG) {
         System.out.println("Document.addAnnotationSet: " + f);
       }
 
-      PrintWriter out = new PrintWriter(f);
-      AnWriter.write(set, out);
-      out.flush();
-      out.close();
+      if (binary) {
+        AnBinaryWriter.write(set, f);
+      }
+      else {
+        PrintWriter out = new PrintWriter(f);
+        AnWriter.write(set, out);
+        out.flush();
+        out.close();
+        deleteBinaryAnnotationSetFile(annSetName);
+      }
     }
-    mAnnotationSets.put(annSetName, set);
+    cacheAnnotationSet(annSetName, set, write);
   }
   catch (IOException e) {
     throw new RuntimeException(e);
@@ -194,6 +269,18 @@ public void deleteAnnotation(String name)
   catch (IOException e) {
     e.printStackTrace();
   }
+  deleteBinaryAnnotationSetFile(canName);
+}
+
+/**
+ * Delete the binary copy of an annotation set, which would otherwise shadow a newer bytespan file
+ */
+private void deleteBinaryAnnotationSetFile(String annotationSetName)
+{
+  File bin = getBinaryAnnotationSetFile(annotationSetName);
+  if (bin.exists() && !bin.delete()) {
+    System.out.println("Could not delete " + bin);
+  }
 }
 
 /**
@@ -231,7 +318,7 @@ public boolean existsAnnotationSetFile(String asName)
 {
   String name = getCannonicalAnnotationSetName(asName);
   File dir = getAnnotationSetFile(name);
-  return dir.exists();
+  return dir.exists() || getBinaryAnnotationSetFile(name).exists();
 }
 
 public boolean existsClusterFile()
@@ -306,16 +393,32 @@ public AnnotationSet getAnnotationSet(String annotationSetName)
   try {
     String annSetName = getCannonicalAnnotationSetName(annotationSetName);
     AnnotationSet set = mAnnotationSets.get(annSetName);
-    if (set == null) {
+    if (set != null) {
+      touchAnnotationSet(annSetName);
+      return set;
+    }
+    long start = System.nanoTime();
+    set = readSpilledAnnotationSet(annSetName);
+    if (set != null) {
+      loadedAnnotationSet(annSetName, set, false, start);
+    }
+    else {
       File annFile = new File(getAnnotationDir(), annSetName);
-      if (!annFile.exists()) {
-        return null;
-        // throw new RuntimeException("Annotation file does not exist: " + annFile.getAbsolutePath());
+      File binFile = getBinaryAnnotationSetFile(annSetName);
+      // a binary copy is read in place of the bytespan file, unless it is older
+      if (binFile.exists() && (!annFile.exists() || binFile.lastModified() >= annFile.lastModified())) {
+        set = AnBinaryReader.read(binFile, annSetName);
+      }
+      else {
+        if (!annFile.exists()) {
+          return null;
+          // throw new RuntimeException("Annotation file does not exist: " + annFile.getAbsolutePath());
+        }
+        FileInputStream in = new FileInputStream(annFile);
+//        set = clean(Reader.read(in, annSetName));
+        set = AnReader.read(in, annSetName);
       }
-      FileInputStream in = new FileInputStream(annFile);
-//      set = clean(Reader.read(in, annSetName));
-      set = AnReader.read(in, annSetName);
-      mAnnotationSets.put(annSetName, set);
+      loadedAnnotationSet(annSetName, set, true, start);
     }
     return set;
   }
@@ -341,11 +444,277 @@ public File getAnnotationSetFile(String annotationSetName)
     return annFile;
 }
 
+/**
+ * Returns the file path for the binary copy of an annotation set (see {@link AnnotationWriterBinary}), which is read
+ * instead of the bytespan file when it exists.
+ * 
+ * @param annotationSetName
+ * @return File
+ */
+public File getBinaryAnnotationSetFile(String annotationSetName)
+{
+  String annSetName = getCannonicalAnnotationSetName(annotationSetName);
+  return new File(getAnnotationDir(), annSetName + AnnotationWriterBinary.SUFFIX);
+}
+
+/**
+ * @return the configured format annotation sets are written in; "bytespan" (the default) or "bin" for the binary
+ *         format
+ */
+public static String getAnnotationFormat()
+{
+  return Utils.getConfig().getString(ANNOTATION_FORMAT, "bytespan");
+}
+
 public Set<String> getAnnotationSetNames()
 {
   return mAnnotationSets.keySet();
 }
 
+/**
+ * Keep an annotation set in memory
+ * 
+ * @param persisted
+ *          whether the set is the same as its copy on disk, so that releasing it need not spill it
+ */
+protected void cacheAnnotationSet(String annSetName, AnnotationSet set, boolean persisted)
+{
+  mAnnotationSets.put(annSetName, set);
+  if (persisted) {
+    mPersisted.add(annSetName);
+  }
+  else {
+    mPersisted.remove(annSetName);
+  }
+  mReleased.remove(annSetName);
+  File spilled = mSpilled.remove(annSetName);
+  if (spilled != null) {
+    spilled.delete();
+  }
+  touchAnnotationSet(annSetName);
+}
+
+/**
+ * Keep an annotation set that was read back in memory, counting it as a reload if it had been released
+ * 
+ * @param start
+ *          the System.nanoTime() at which the reading started
+ */
+protected void loadedAnnotationSet(String annSetName, AnnotationSet set, boolean persisted, long start)
+{
+  if (mReleased.contains(annSetName)) {
+    mReloads++;
+    Metrics.record(Metrics.ANNOTATION_SET, "reload " + annSetName, System.nanoTime() - start);
+  }
+  cacheAnnotationSet(annSetName, set, persisted);
+}
+
+/**
+ * @return the spilled copy of a released annotation set, or null if it was not spilled; the copy is removed
+ */
+protected AnnotationSet readSpilledAnnotationSet(String annSetName)
+{
+  File f = mSpilled.remove(annSetName);
+  if (f == null) return null;
+  try {
+    // read through a stream, so that the file is not mapped and can be deleted
+    AnnotationSet set = AnBinaryReader.read(new FileInputStream(f), annSetName);
+    f.delete();
+    return set;
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+/**
+ * Note that an annotation set in memory was asked for, for the choice of the sets to release over the heap budget
+ */
+protected void touchAnnotationSet(String annSetName)
+{
+  mLastUse.put(annSetName, ++mUseCount);
+}
+
+/**
+ * Release the annotation sets in memory other than the given ones, which are kept and, until the next call, are not
+ * released to stay under the heap budget. A pipeline stage calls this with the sets the rest of the stage needs.
+ * <p>
+ * A released set that matches its copy on disk is dropped, as is the document number set; any other set (one added
+ * without being written) is spilled to a temporary file, until it is read back or the document is closed (see
+ * {@link #close()}). Either way it is read back by
+ * {@link #getAnnotationSet(String)}, as a new object: changes made to a set since it was last written are lost when it
+ * is dropped, and changes made after it was released are lost altogether, just as when a new Document is made for the
+ * directory. The properties cached in the annotations are not kept.
+ * 
+ * @param annotationSetNames
+ *          the sets to keep
+ */
+public void retainAnnotationSets(Collection<String> annotationSetNames)
+{
+  Set<String> keep = new HashSet<String>();
+  for (String name : annotationSetNames) {
+    keep.add(getCannonicalAnnotationSetName(name));
+  }
+  mPinned = keep;
+  for (String name : new ArrayList<String>(mAnnotationSets.keySet())) {
+    if (!keep.contains(name)) {
+      release(name);
+    }
+  }
+}
+
+/**
+ * Release all the annotation sets in memory (see {@link #retainAnnotationSets(Collection)})
+ */
+public void releaseAnnotationSets()
+{
+  retainAnnotationSets(Collections.<String> emptySet());
+}
+
+/**
+ * Release an annotation set (see {@link #retainAnnotationSets(Collection)})
+ */
+public void releaseAnnotationSet(String annotationSetName)
+{
+  String annSetName = getCannonicalAnnotationSetName(annotationSetName);
+  mPinned.remove(annSetName);
+  release(annSetName);
+}
+
+private void release(String annSetName)
+{
+  AnnotationSet set = mAnnotationSets.remove(annSetName);
+  if (set == null) return;
+  long start = System.nanoTime();
+  if (!mPersisted.remove(annSetName) && !REGENERATED.contains(annSetName)) {
+    deleteDroppedSpills();
+    try {
+      File f = File.createTempFile("annotations", AnnotationWriterBinary.SUFFIX);
+      AnBinaryWriter.write(set, f);
+      mSpilled.put(annSetName, f);
+      if (mSpillFiles == null) {
+        mSpillFiles = new SpillFiles(this, mSpilled);
+        sSpillFiles.add(mSpillFiles);
+      }
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+  mLastUse.remove(annSetName);
+  mReleased.add(annSetName);
+  mEvictions++;
+  Metrics.record(Metrics.ANNOTATION_SET, "evict " + annSetName, System.nanoTime() - start);
+}
+
+/**
+ * Delete the spilled sets of the documents that were garbage collected without being closed
+ */
+private static void deleteDroppedSpills()
+{
+  Reference<? extends Document> ref;
+  while ((ref = sDropped.poll()) != null) {
+    SpillFiles files = (SpillFiles) ref;
+    sSpillFiles.remove(files);
+    for (File f : files.mFiles.values()) {
+      f.delete();
+    }
+  }
+}
+
+/**
+ * Done with the document: drop the annotation sets in memory and delete the spilled ones. The sets on disk are read
+ * again if the document is used after this; the others are lost.
+ */
+public void close()
+{
+  for (File f : mSpilled.values()) {
+    f.delete();
+  }
+  mSpilled.clear();
+  if (mSpillFiles != null) {
+    sSpillFiles.remove(mSpillFiles);
+    mSpillFiles.clear();
+    mSpillFiles = null;
+  }
+  mAnnotationSets.clear();
+  mPersisted.clear();
+  mReleased.clear();
+  mPinned.clear();
+  mLastUse.clear();
+}
+
+/**
+ * Release the least recently used annotation sets until the sets in memory fit in the heap budget. The sets the
+ * current stage needs (see {@link #retainAnnotationSets(Collection)}) are kept. A set that is released is read back as
+ * a new object, so this is only called between stages, when no one holds on to the sets, and, as released sets lose
+ * the changes made since they were written, only when ANNOTATION_RESIDENCY is on.
+ */
+public void releaseOverBudget()
+{
+  long budget = getAnnotationHeapBudget();
+  if (budget <= 0) return;
+  long size = getResidentAnnotationSize();
+  while (size > budget) {
+    String oldest = null;
+    long oldestUse = Long.MAX_VALUE;
+    for (String name : mAnnotationSets.keySet()) {
+      if (mPinned.contains(name)) {
+        continue;
+      }
+      Long use = mLastUse.get(name);
+      if (use == null || use < oldestUse) {
+        oldest = name;
+        oldestUse = use == null ? 0 : use;
+      }
+    }
+    if (oldest == null) return;
+    size -= estimateSize(mAnnotationSets.get(oldest));
+    release(oldest);
+  }
+}
+
+/**
+ * @return the configured heap budget for the annotation sets of a document, in bytes; 0 for no limit
+ */
+public static long getAnnotationHeapBudget()
+{
+  return Utils.getConfig().getInt(ANNOTATION_HEAP_BUDGET, 0) * 1024L * 1024L;
+}
+
+private static long estimateSize(AnnotationSet set)
+{
+  return set.size() * ANNOTATION_BYTES;
+}
+
+/**
+ * @return a rough estimate of the bytes taken by the annotation sets in memory
+ */
+public long getResidentAnnotationSize()
+{
+  long size = 0;
+  for (AnnotationSet set : mAnnotationSets.values()) {
+    size += estimateSize(set);
+  }
+  return size;
+}
+
+/**
+ * @return the number of times an annotation set of this document was released
+ */
+public int getEvictionCount()
+{
+  return mEvictions;
+}
+
+/**
+ * @return the number of times a released annotation set of this document was read back
+ */
+public int getReloadCount()
+{
+  return mReloads;
+}
+
 public String getAnnotString(Annotation a)
 {
   if (a.strContent == null) {
@@ -421,10 +790,8 @@ public String getCannonicalAnnotationSetName(String annotationSetName)
 File getClusterDir()
 {
   if (mClusterSubDir == null) {
-    SystemConfig cfg = Utils.getConfig();
-    String clName = cfg.getClusterer();
     File predDir = getPredictionDir();
-    mClusterSubDir = new File(predDir, clName);
+    mClusterSubDir = new File(predDir, getClusterDirName());
     if (!mClusterSubDir.exists()) {
       try {
         FileUtils.mkdir(mClusterSubDir);
@@ -466,9 +833,7 @@ public String getClusterName()
 File getFeatureDir()
 {
   if (mFeatureDir == null) {
-    SystemConfig cfg = Utils.getConfig();
-    String featSetName = cfg.getFeatSetName();
-    mFeatureDir = new File(mDir, Constants.FEAT_DIR_NAME + "." + featSetName);
+    mFeatureDir = new File(mDir, getFeatureDirName());
     if (!mFeatureDir.exists()) {
       try {
         FileUtils.mkdir(mFeatureDir);
@@ -481,33 +846,98 @@ File getFeatureDir()
   return mFeatureDir;
 }
 
+/**
+ * @return the name of the feature directory of the configured feature set, relative to the document directory
+ */
+protected static String getFeatureDirName()
+{
+  SystemConfig cfg = Utils.getConfig();
+  return Constants.FEAT_DIR_NAME + "." + cfg.getFeatSetName();
+}
+
+/**
+ * @return the name of the prediction directory of the configured classifier and model, relative to the feature directory
+ */
+protected static String getPredictionDirName()
+{
+  SystemConfig cfg = Utils.getConfig();
+  return Constants.PRED_DIR_NAME + "." + cfg.getClassifier() + "." + cfg.getModelName();
+}
+
+/**
+ * @return the name of the cluster directory of the configured clusterer, relative to the prediction directory
+ */
+protected static String getClusterDirName()
+{
+  return Utils.getConfig().getClusterer();
+}
+
 public File getFeatureFile()
 {
   if (mFeatureFile == null) {
     File dir = getFeatureDir();
-    SystemConfig cfg = Utils.getConfig();
-    String featureFormat = cfg.getString(FEATURE_FORMAT, "arff");
-
-    mFeatureFile = new File(dir, Constants.FEAT_FILE_NAME + "." + featureFormat);
+    mFeatureFile = new File(dir, Constants.FEAT_FILE_NAME + "." + getFeatureFormat());
   }
   return mFeatureFile;
 }
+
+/**
+ * @return the configured feature file format; "arff" for text ARFF (the default) or "bin" for the binary format
+ */
+public static String getFeatureFormat()
+{
+  return Utils.getConfig().getString(FEATURE_FORMAT, "arff");
+}
+/**
+ * @return whether the files of the document are real files, so that the methods returning a File can be used; if not,
+ *         only the stream, Reader and Writer methods work
+ */
+public boolean hasFiles()
+{
+  return true;
+}
+
+/**
+ * @return the features as ARFF text, which is what the learners read; a binary feature file is converted
+ */
 public Reader getFeatureReader(){
 	try {
-		return new java.io.FileReader(getFeatureFile());
-	} catch (FileNotFoundException e) {
+		return featureReader(new FileInputStream(getFeatureFile()));
+	} catch (IOException e) {
 		throw new RuntimeException(e);
 	}
 }
 
+/**
+ * Open a stream of features as ARFF text, converting it first if it was written by {@link FeatureWriterBinary}
+ */
+protected static Reader featureReader(InputStream in)
+    throws IOException
+{
+  if (!in.markSupported()) {
+    in = new BufferedInputStream(in);
+  }
+  if (!FeatureWriterBinary.isBinary(in)) return new InputStreamReader(in);
+
+  BinaryFeatureReader reader = new BinaryFeatureReader(in);
+  StringWriter arff = new StringWriter();
+  PrintWriter out = new PrintWriter(arff);
+  try {
+    reader.printArffHeader(out);
+    reader.printArffData(out);
+  }
+  finally {
+    reader.close();
+  }
+  out.flush();
+  return new StringReader(arff.toString());
+}
+
 File getPredictionDir()
 {
   if (mPredictionDir == null) {
-    SystemConfig cfg = Utils.getConfig();
-    String classifierName = cfg.getClassifier();
-    String modelName = cfg.getModelName();
     File featDir = getFeatureDir();
-    mPredictionDir = new File(featDir, Constants.PRED_DIR_NAME + "." + classifierName + "." + modelName);
+    mPredictionDir = new File(featDir, getPredictionDirName());
     if (!mPredictionDir.exists()) {
       try {
         FileUtils.mkdir(mPredictionDir);
@@ -850,6 +1280,7 @@ public OutputStream writeAnnotationDirFile(String filename)
 {
   try {
     File f = getAnnotationSetFile(filename);
+    deleteBinaryAnnotationSetFile(filename);
     return new FileOutputStream(f);
   }
   catch (IOException e) {
@@ -864,6 +1295,7 @@ public OutputStream writeAnnotationDirFile(String filename)
 public void writeAnnotationDirFile(String filename, String content)
 {
   File f = getAnnotationSetFile(filename);
+  deleteBinaryAnnotationSetFile(filename);
   writeFile(f, content);
 }
 
@@ -1107,7 +1539,7 @@ public synchronized void addMetaData(Map<String, String> data)
  * @throws FileNotFoundException
  * 
  */
-private void writeMetaData()
+protected void writeMetaData()
     throws IOException
 {
   File metadataFile = new File(mDir, METADATA_FILE);
@@ -0,0 +1,159 @@
+package reconcile.data;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The features of an annotation read by {@link AnnotationReaderBinary}. The map only remembers where its features are
+ * in the annotation file and decodes them the first time they are asked for, so annotations whose features are never
+ * looked at cost nothing but their offsets and type. After that it behaves like the <code>HashMap</code> the bytespan
+ * reader builds.
+ */
+class LazyFeatureMap
+    extends AbstractMap<String, String>
+    implements Serializable {
+
+private static final long serialVersionUID = 1L;
+
+static final Charset UTF8 = Charset.forName("UTF-8");
+
+private ByteBuffer buffer;
+private String[] strings;
+private int position;
+private final int size;
+
+private Map<String, String> features;
+
+/**
+ * @param buffer
+ *          the annotation file
+ * @param strings
+ *          its string table
+ * @param position
+ *          where the features start in the buffer
+ * @param size
+ *          the number of features
+ */
+LazyFeatureMap(ByteBuffer buffer, String[] strings, int position, int size) {
+  this.buffer = buffer;
+  this.strings = strings;
+  this.position = position;
+  this.size = size;
+}
+
+private synchronized Map<String, String> features()
+{
+  if (features == null) {
+    Map<String, String> result = new HashMap<String, String>(Math.max(4, size * 4 / 3 + 1));
+    ByteBuffer in = buffer.duplicate();
+    in.position(position);
+    for (int i = 0; i < size; i++) {
+      String name = strings[in.getInt()];
+      result.put(name, readValue(in));
+    }
+    features = result;
+    // the file is not needed any more
+    buffer = null;
+    strings = null;
+  }
+  return features;
+}
+
+/**
+ * Read a value written by {@link AnnotationWriterBinary#writeValue}
+ */
+static String readValue(ByteBuffer in)
+{
+  byte[] bytes = new byte[in.getInt()];
+  in.get(bytes);
+  return new String(bytes, UTF8);
+}
+
+/**
+ * @return whether the features have been decoded yet
+ */
+synchronized boolean isDecoded()
+{
+  return features != null;
+}
+
+@Override
+public int size()
+{
+  synchronized (this) {
+    if (features == null) return size;
+  }
+  return features().size();
+}
+
+@Override
+public boolean isEmpty()
+{
+  return size() == 0;
+}
+
+@Override
+public String get(Object key)
+{
+  return features().get(key);
+}
+
+@Override
+public boolean containsKey(Object key)
+{
+  return features().containsKey(key);
+}
+
+@Override
+public String put(String key, String value)
+{
+  return features().put(key, value);
+}
+
+@Override
+public String remove(Object key)
+{
+  return features().remove(key);
+}
+
+@Override
+public void clear()
+{
+  features().clear();
+}
+
+@Override
+public Set<String> keySet()
+{
+  return features().keySet();
+}
+
+@Override
+public Collection<String> values()
+{
+  return features().values();
+}
+
+@Override
+public Set<Map.Entry<String, String>> entrySet()
+{
+  return features().entrySet();
+}
+
+/**
+ * Serialize as the plain map; the buffer cannot be
+ */
+private Object writeReplace()
+    throws ObjectStreamException
+{
+  return new HashMap<String, String>(features());
+}
+
+}
@@ -0,0 +1,656 @@
+package reconcile.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import reconcile.general.Constants;
+
+import com.google.common.collect.Maps;
+
+/**
+ * A document whose files live in a {@link SegmentStore} rather than in a directory of its own. The files keep the
+ * names they have in a document directory (raw.txt, annotations/tokens, features.<set>/features.arff, ...), so a
+ * document can be moved between the two layouts unchanged (see {@link CorpusPacked}).
+ * <p>
+ * Writing an annotation set is atomic: the set and the removal of its copy in the other format are one write to the
+ * store. A stream returned by one of the write methods is added to the store when it is closed.
+ * <p>
+ * There is no directory behind the document, so the methods that return a File throw an
+ * UnsupportedOperationException; components that need real files have to run on an exported corpus.
+ */
+public class PackedDocument
+    extends Document {
+
+private SegmentStore mStore;
+
+public PackedDocument(SegmentStore store, String docId) {
+  mStore = store;
+  mId = docId;
+  init();
+}
+
+@Override
+protected void init()
+{
+  mAnnotationSets = Maps.newHashMap();
+  mMetaData = Maps.newHashMap();
+  // the super class constructor calls this before the store is set
+  if (mStore == null) return;
+  InputStream in = read(METADATA_FILE);
+  if (in != null) {
+    try {
+      readMetaData(in, mMetaData);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
+
+public SegmentStore getStore()
+{
+  return mStore;
+}
+
+/*
+ * The names of the entries, as paths relative to the directory of the document
+ */
+
+private String annotationEntry(String annotationSetName)
+{
+  return Constants.ANNOT_DIR_NAME + "/" + getCannonicalAnnotationSetName(annotationSetName);
+}
+
+private String binaryAnnotationEntry(String annotationSetName)
+{
+  return annotationEntry(annotationSetName) + AnnotationWriterBinary.SUFFIX;
+}
+
+private static String featureEntry(String fileName)
+{
+  return getFeatureDirName() + "/" + fileName;
+}
+
+private static String predictionEntry(String fileName)
+{
+  return featureEntry(getPredictionDirName() + "/" + fileName);
+}
+
+private static String clusterEntry(String fileName)
+{
+  return predictionEntry(getClusterDirName() + "/" + fileName);
+}
+
+private static String featureFileName()
+{
+  return Constants.FEAT_FILE_NAME + "." + getFeatureFormat();
+}
+
+private InputStream read(String entry)
+{
+  try {
+    byte[] content = mStore.read(mId, entry);
+    return content == null ? null : new ByteArrayInputStream(content);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+private InputStream readExisting(String entry)
+{
+  InputStream in = read(entry);
+  if (in == null) throw new RuntimeException(new FileNotFoundException(mId + "/" + entry));
+  return in;
+}
+
+private void write(String entry, byte[] content)
+{
+  try {
+    mStore.write(mId, entry, content);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+private void write(Map<String, byte[]> entries)
+{
+  try {
+    mStore.write(mId, entries);
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+private void delete(String entry)
+{
+  if (mStore.exists(mId, entry)) {
+    write(entry, null);
+  }
+}
+
+/**
+ * Buffers what is written and adds it to the store on close, along with the removal of any other entries given
+ */
+private class EntryOutputStream
+    extends ByteArrayOutputStream {
+
+private final String mEntry;
+private final String[] mDeleted;
+private boolean mClosed = false;
+
+EntryOutputStream(String entry, String... deleted) {
+  mEntry = entry;
+  mDeleted = deleted;
+}
+
+@Override
+public void close()
+    throws IOException
+{
+  if (mClosed) return;
+  mClosed = true;
+  Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+  entries.put(mEntry, toByteArray());
+  for (String deleted : mDeleted) {
+    if (mStore.exists(mId, deleted)) {
+      entries.put(deleted, null);
+    }
+  }
+  mStore.write(mId, entries);
+}
+}
+
+@Override
+public void addAnnotationSet(AnnotationSet set, String annotationSetName, boolean write)
+{
+  String annSetName = getCannonicalAnnotationSetName(annotationSetName);
+  if (write) {
+    boolean binary = AnnotationWriterBinary.FORMAT.equals(getAnnotationFormat());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    if (binary) {
+      AnBinaryWriter.write(set, bytes);
+    }
+    else {
+      PrintWriter out = new PrintWriter(bytes);
+      AnWriter.write(set, out);
+      out.flush();
+    }
+    // the set replaces its copy in the other format in the same write
+    Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    entries.put(binary ? binaryAnnotationEntry(annSetName) : annotationEntry(annSetName), bytes.toByteArray());
+    String other = binary ? annotationEntry(annSetName) : binaryAnnotationEntry(annSetName);
+    if (mStore.exists(mId, other)) {
+      entries.put(other, null);
+    }
+    write(entries);
+  }
+  cacheAnnotationSet(annSetName, set, write);
+}
+
+@Override
+public AnnotationSet getAnnotationSet(String annotationSetName)
+{
+  String annSetName = getCannonicalAnnotationSetName(annotationSetName);
+  AnnotationSet set = mAnnotationSets.get(annSetName);
+  if (set != null) {
+    touchAnnotationSet(annSetName);
+    return set;
+  }
+  long start = System.nanoTime();
+  set = readSpilledAnnotationSet(annSetName);
+  if (set != null) {
+    loadedAnnotationSet(annSetName, set, false, start);
+    return set;
+  }
+  try {
+    // only one of the two copies is kept, so there are no dates to compare
+    byte[] content = mStore.read(mId, binaryAnnotationEntry(annSetName));
+    if (content != null) {
+      set = AnBinaryReader.read(ByteBuffer.wrap(content), annSetName);
+    }
+    else {
+      InputStream in = read(annotationEntry(annSetName));
+      if (in == null) return null;
+      set = AnReader.read(in, annSetName);
+    }
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+  loadedAnnotationSet(annSetName, set, true, start);
+  return set;
+}
+
+@Override
+public void deleteAnnotation(String name)
+    throws IOException
+{
+  Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+  for (String entry : new String[] { annotationEntry(name), binaryAnnotationEntry(name) }) {
+    if (mStore.exists(mId, entry)) {
+      entries.put(entry, null);
+    }
+  }
+  if (!entries.isEmpty()) {
+    mStore.write(mId, entries);
+  }
+}
+
+@Override
+public boolean existsAnnotationSetFile(String asName)
+{
+  return mStore.exists(mId, annotationEntry(asName)) || mStore.exists(mId, binaryAnnotationEntry(asName));
+}
+
+@Override
+public List<String> listAnnotationTypes()
+{
+  String prefix = Constants.ANNOT_DIR_NAME + "/";
+  List<String> result = new ArrayList<String>();
+  for (String entry : mStore.entryNames(mId)) {
+    if (entry.startsWith(prefix)) {
+      result.add(entry.substring(prefix.length()));
+    }
+  }
+  return result;
+}
+
+/**
+ * Delete the annotations and everything in the feature directory, which holds the predictions and clusters
+ */
+@Override
+public int clean()
+{
+  String[] prefixes = { Constants.ANNOT_DIR_NAME + "/", getFeatureDirName() + "/" };
+  Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+  for (String entry : mStore.entryNames(mId)) {
+    for (String prefix : prefixes) {
+      if (entry.startsWith(prefix)) {
+        entries.put(entry, null);
+      }
+    }
+  }
+  if (!entries.isEmpty()) {
+    write(entries);
+  }
+  return entries.size();
+}
+
+@Override
+public void deleteClusterFile()
+{
+  delete(clusterEntry(Constants.CLUSTER_FILE_NAME));
+}
+
+@Override
+public void deleteFeatureFile()
+{
+  delete(featureEntry(featureFileName()));
+}
+
+@Override
+public void deletePredictionFile()
+{
+  delete(predictionEntry(Constants.PRED_FILE_NAME));
+}
+
+@Override
+public boolean existsClusterFile()
+{
+  return mStore.exists(mId, clusterEntry(Constants.CLUSTER_FILE_NAME));
+}
+
+@Override
+public boolean existsFeatureFile()
+{
+  return mStore.exists(mId, featureEntry(featureFileName()));
+}
+
+@Override
+public boolean existsFile(String name)
+{
+  return mStore.exists(mId, name);
+}
+
+@Override
+public boolean existsPredictionFile()
+{
+  return mStore.exists(mId, predictionEntry(Constants.PRED_FILE_NAME));
+}
+
+@Override
+public String getAbsolutePath()
+{
+  return new File(mStore.getDir(), mId).getAbsolutePath();
+}
+
+@Override
+public String getDocumentId()
+{
+  return mId;
+}
+
+@Override
+public String getText()
+{
+  if (mText == null) {
+    try {
+      byte[] content = mStore.read(mId, RAW_TXT);
+      if (content == null) throw new FileNotFoundException(getAbsolutePath() + "/" + RAW_TXT);
+      mText = new String(content);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    if (mText.length() == 0)
+      throw new RuntimeException("raw.txt file is of length 0.  This will cause all sorts of problems. document: "
+          + getAbsolutePath());
+  }
+  return mText;
+}
+
+@Override
+public void setRawText(File inputTextFile)
+    throws IOException
+{
+  write(RAW_TXT, SegmentStore.readFully(new FileInputStream(inputTextFile)));
+  mText = null;
+}
+
+@Override
+public void setRawText(String text)
+{
+  write(RAW_TXT, text.getBytes());
+  mText = null;
+}
+
+@Override
+protected void writeMetaData()
+    throws IOException
+{
+  ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  writeMetaData(bytes, mMetaData);
+  mStore.write(mId, METADATA_FILE, bytes.toByteArray());
+}
+
+/*
+ * Streams over the entries
+ */
+
+@Override
+public InputStream readAnnotationDirFile(String filename)
+{
+  return readExisting(annotationEntry(filename));
+}
+
+@Override
+public InputStream readClusterDirFile(String fileName)
+{
+  return readExisting(clusterEntry(fileName));
+}
+
+@Override
+public InputStream readClusterFile()
+{
+  return read(clusterEntry(Constants.CLUSTER_FILE_NAME));
+}
+
+@Override
+public InputStream readFeatureDirFile(String filename)
+{
+  return read(featureEntry(filename));
+}
+
+@Override
+public InputStream readFeatureFile()
+{
+  return read(featureEntry(featureFileName()));
+}
+
+@Override
+public InputStream readFile(String name)
+{
+  return read(name);
+}
+
+@Override
+public InputStream readPredictionDirFile(String fileName)
+{
+  return read(predictionEntry(fileName));
+}
+
+@Override
+public InputStream readPredictionFile()
+{
+  return read(predictionEntry(Constants.PRED_FILE_NAME));
+}
+
+@Override
+public Reader getFeatureReader()
+{
+  try {
+    return featureReader(readExisting(featureEntry(featureFileName())));
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+@Override
+public Reader getPredictionReader()
+{
+  return new InputStreamReader(readExisting(predictionEntry(Constants.PRED_FILE_NAME)));
+}
+
+@Override
+public Writer getPredictionWriter()
+{
+  return new OutputStreamWriter(writePredictionFile());
+}
+
+@Override
+public OutputStream writeAnnotationDirFile(String filename)
+{
+  mAnnotationSets.remove(getCannonicalAnnotationSetName(filename));
+  return new EntryOutputStream(annotationEntry(filename), binaryAnnotationEntry(filename));
+}
+
+@Override
+public void writeAnnotationDirFile(String filename, String content)
+{
+  try {
+    OutputStream out = writeAnnotationDirFile(filename);
+    out.write(content.getBytes());
+    out.close();
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+@Override
+public OutputStream writeClusterDirFile(String fileName)
+{
+  return new EntryOutputStream(clusterEntry(fileName));
+}
+
+@Override
+public void writeClusterDirFile(String fileName, String content)
+{
+  write(clusterEntry(fileName), content.getBytes());
+}
+
+@Override
+public OutputStream writeClusterFile()
+{
+  return new EntryOutputStream(clusterEntry(Constants.CLUSTER_FILE_NAME));
+}
+
+@Override
+public void writeClusterFile(String content)
+{
+  write(clusterEntry(Constants.CLUSTER_FILE_NAME), content.getBytes());
+}
+
+@Override
+public OutputStream writeFeatureDirFile(String filename)
+{
+  return new EntryOutputStream(featureEntry(filename));
+}
+
+@Override
+public void writeFeatureDirFile(String filename, String content)
+{
+  write(featureEntry(filename), content.getBytes());
+}
+
+@Override
+public OutputStream writeFeatureFile()
+{
+  return new EntryOutputStream(featureEntry(featureFileName()));
+}
+
+@Override
+public void writeFeatureFile(String content)
+{
+  write(featureEntry(featureFileName()), content.getBytes());
+}
+
+@Override
+public OutputStream writeFile(String name)
+{
+  return new EntryOutputStream(name);
+}
+
+@Override
+public void writeFile(String name, String content)
+{
+  write(name, content.getBytes());
+}
+
+@Override
+public OutputStream writePredictionDirFile(String fileName)
+{
+  return new EntryOutputStream(predictionEntry(fileName));
+}
+
+@Override
+public void writePredictionDirFile(String fileName, String content)
+{
+  write(predictionEntry(fileName), content.getBytes());
+}
+
+@Override
+public OutputStream writePredictionFile()
+{
+  return new EntryOutputStream(predictionEntry(Constants.PRED_FILE_NAME));
+}
+
+@Override
+public void writePredictionFile(String content)
+{
+  write(predictionEntry(Constants.PRED_FILE_NAME), content.getBytes());
+}
+
+/*
+ * There are no files behind a packed document
+ */
+
+private UnsupportedOperationException noFiles()
+{
+  return new UnsupportedOperationException("document " + mId + " is packed in " + mStore.getDir()
+      + "; export the corpus to work on its files");
+}
+
+@Override
+File getAnnotationDir()
+{
+  throw noFiles();
+}
+
+@Override
+File getClusterDir()
+{
+  throw noFiles();
+}
+
+@Override
+File getFeatureDir()
+{
+  throw noFiles();
+}
+
+@Override
+File getPredictionDir()
+{
+  throw noFiles();
+}
+
+@Override
+public File getAnnotationSetFile(String annotationSetName)
+{
+  throw noFiles();
+}
+
+@Override
+public File getBinaryAnnotationSetFile(String annotationSetName)
+{
+  throw noFiles();
+}
+
+@Override
+public boolean hasFiles()
+{
+  return false;
+}
+
+@Override
+public File getClusterFile()
+{
+  throw noFiles();
+}
+
+@Override
+public File getFeatureFile()
+{
+  throw noFiles();
+}
+
+@Override
+public File getPredictionFile()
+{
+  throw noFiles();
+}
+
+@Override
+public File getRawFile()
+{
+  throw noFiles();
+}
+
+@Override
+public File getRootDir()
+{
+  throw noFiles();
+}
+
+}
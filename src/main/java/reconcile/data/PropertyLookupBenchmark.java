@@ -0,0 +1,113 @@
+package reconcile.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import reconcile.features.properties.EmptyProperty;
+import reconcile.features.properties.Property;
+
+/**
+ * Microbenchmark comparing cached property lookups in the per-annotation slot array against the
+ * <code>HashMap&lt;Property,Object&gt;</code> annotations used to keep.
+ * <p>
+ * Usage: PropertyLookupBenchmark [numAnnotations] [numProperties] [numLookups] [numThreads]
+ */
+public class PropertyLookupBenchmark {
+
+public static void main(String[] args)
+    throws InterruptedException
+{
+  int numAnnots = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+  int numProps = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+  int numLookups = args.length > 2 ? Integer.parseInt(args[2]) : 20000000;
+  int numThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+  Property[] props = new Property[numProps];
+  for (int i = 0; i < numProps; i++) {
+    props[i] = new EmptyProperty("bench" + i, false, true);
+  }
+
+  final Random rand = new Random(42);
+  final Annotation[] annots = new Annotation[numAnnots];
+  final Map<Property, Object>[] maps = newMapArray(numAnnots);
+  for (int i = 0; i < numAnnots; i++) {
+    annots[i] = new Annotation(i, i, i + 1, "np");
+    maps[i] = new HashMap<Property, Object>();
+    for (Property p : props) {
+      Integer value = Integer.valueOf(rand.nextInt());
+      annots[i].setProperty(p, value);
+      maps[i].put(p, value);
+    }
+  }
+
+  // the same random access pattern for both structures
+  final int[] annotIdx = new int[numLookups];
+  final Property[] propIdx = new Property[numLookups];
+  for (int i = 0; i < numLookups; i++) {
+    annotIdx[i] = rand.nextInt(numAnnots);
+    propIdx[i] = props[rand.nextInt(numProps)];
+  }
+
+  System.out.println(numAnnots + " annotations, " + numProps + " properties, " + numLookups + " lookups");
+  for (int round = 0; round < 5; round++) {
+    long st = System.nanoTime();
+    long sum = lookupMap(maps, annotIdx, propIdx);
+    long mapTime = System.nanoTime() - st;
+
+    st = System.nanoTime();
+    sum -= lookupSlots(annots, annotIdx, propIdx);
+    long slotTime = System.nanoTime() - st;
+
+    if (sum != 0) throw new RuntimeException("slot and map lookups disagree");
+    System.out.printf("round %d: map %.2f ns/lookup, slots %.2f ns/lookup (%.1fx)\n", round, mapTime
+        / (double) numLookups, slotTime / (double) numLookups, mapTime / (double) slotTime);
+  }
+
+  // concurrent readers sharing the same annotations
+  Thread[] threads = new Thread[numThreads];
+  long st = System.nanoTime();
+  for (int t = 0; t < numThreads; t++) {
+    threads[t] = new Thread() {
+
+      @Override
+      public void run()
+      {
+        lookupSlots(annots, annotIdx, propIdx);
+      }
+    };
+    threads[t].start();
+  }
+  for (Thread t : threads) {
+    t.join();
+  }
+  long elapsed = System.nanoTime() - st;
+  System.out.printf("%d threads sharing annotations: %.2f ns/lookup per thread\n", numThreads, elapsed
+      / (double) numLookups);
+}
+
+private static long lookupMap(Map<Property, Object>[] maps, int[] annotIdx, Property[] propIdx)
+{
+  long sum = 0;
+  for (int i = 0; i < annotIdx.length; i++) {
+    sum += ((Integer) maps[annotIdx[i]].get(propIdx[i])).intValue();
+  }
+  return sum;
+}
+
+private static long lookupSlots(Annotation[] annots, int[] annotIdx, Property[] propIdx)
+{
+  long sum = 0;
+  for (int i = 0; i < annotIdx.length; i++) {
+    sum += ((Integer) annots[annotIdx[i]].getProperty(propIdx[i])).intValue();
+  }
+  return sum;
+}
+
+@SuppressWarnings({ "unchecked", "rawtypes" })
+private static Map<Property, Object>[] newMapArray(int size)
+{
+  return new Map[size];
+}
+
+}
@@ -0,0 +1,89 @@
+package reconcile.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import reconcile.features.properties.Property;
+
+/**
+ * The cached property values of an annotation, kept in an array indexed by {@link Property#getSlot()}.
+ * <p>
+ * A lookup is a volatile read and an array index. A write copies the array, sets the slot and installs the copy with a
+ * compare-and-set, so values are always safely published and no write is lost, and annotations can be shared between
+ * threads without locking. Each property is normally written once per annotation, so the copying is cheap compared to
+ * the lookups.
+ */
+public class PropertyValues {
+
+private static final Object[] EMPTY = new Object[0];
+
+/*
+ * Marks a property that was explicitly set to null, so that it still shows up in asMap()
+ */
+private static final Object NULL_VALUE = new Object();
+
+private static final AtomicReferenceFieldUpdater<PropertyValues, Object[]> SLOTS = AtomicReferenceFieldUpdater
+    .newUpdater(PropertyValues.class, Object[].class, "slots");
+
+private volatile Object[] slots = EMPTY;
+
+public PropertyValues() {
+}
+
+public PropertyValues(Map<Property, Object> values) {
+  if (values != null) {
+    for (Property p : values.keySet()) {
+      set(p, values.get(p));
+    }
+  }
+}
+
+public Object get(Property p)
+{
+  Object[] s = slots;
+  int slot = p.getSlot();
+  if (slot >= s.length) return null;
+  Object value = s[slot];
+  return value == NULL_VALUE ? null : value;
+}
+
+public void set(Property p, Object value)
+{
+  int slot = p.getSlot();
+  Object stored = value == null ? NULL_VALUE : value;
+  for (;;) {
+    Object[] cur = slots;
+    // size the array for every property known so far so that it rarely has to grow again
+    int len = slot < cur.length ? cur.length : Math.max(slot + 1, Property.numSlots());
+    Object[] next = new Object[len];
+    System.arraycopy(cur, 0, next, 0, cur.length);
+    next[slot] = stored;
+    if (SLOTS.compareAndSet(this, cur, next)) return;
+  }
+}
+
+public boolean isEmpty()
+{
+  for (Object o : slots) {
+    if (o != null) return false;
+  }
+  return true;
+}
+
+/**
+ * @return a snapshot of the properties that have been set and their values
+ */
+public Map<Property, Object> asMap()
+{
+  Object[] s = slots;
+  Map<Property, Object> result = new HashMap<Property, Object>();
+  for (int i = 0; i < s.length; i++) {
+    if (s[i] != null) {
+      result.put(Property.forSlot(i), s[i] == NULL_VALUE ? null : s[i]);
+    }
+  }
+  return result;
+}
+
+}
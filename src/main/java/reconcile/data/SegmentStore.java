@@ -0,0 +1,455 @@
+package reconcile.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * The files of many documents packed into a few large, append only segment files, so that a corpus does not need a
+ * directory and a handful of files for every document. Every file of a document is an entry, named by its path
+ * relative to the document's directory (raw.txt, annotations/tokens, ...).
+ * <p>
+ * Each write of a document's entries is appended as a single record with a checksum, so a document's entries change
+ * together or not at all: a record cut short by a crash fails its checksum and is dropped when the store is opened
+ * again. Changed entries are not rewritten in place; the index simply points at their latest copy.
+ * <p>
+ * The index, from document and entry name to the segment, offset and length of the entry's bytes, is kept in memory. A
+ * snapshot of it is written on {@link #checkpoint()} and {@link #close()}, and on opening only the records appended
+ * after the snapshot are scanned. Documents are listed in the order they were first written, which is their order on
+ * disk, so that a scan in that order reads the segments sequentially.
+ */
+public class SegmentStore {
+
+public static final String SEGMENT_PREFIX = "segment-";
+public static final String SEGMENT_SUFFIX = ".seg";
+public static final String INDEX_FILE = "segments.index";
+
+/* one gigabyte a segment, unless asked otherwise */
+public static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+private static final int RECORD_MAGIC = 0x52434e53;
+private static final int INDEX_MAGIC = 0x52434e49;
+
+/* the record header: the magic number and the length of the payload */
+private static final int HEADER_SIZE = 8;
+private static final int DELETED = -1;
+
+private static class Location {
+
+final int segment;
+final long offset;
+final int length;
+
+Location(int segment, long offset, int length) {
+  this.segment = segment;
+  this.offset = offset;
+  this.length = length;
+}
+}
+
+private final File mDir;
+private final long mMaxSegmentSize;
+private final boolean mSync;
+
+/* document -> entry name -> the latest copy of the entry */
+private final Map<String, Map<String, Location>> mIndex = new LinkedHashMap<String, Map<String, Location>>();
+private final List<RandomAccessFile> mSegments = new ArrayList<RandomAccessFile>();
+
+/**
+ * Open the store in the given directory, creating it if needed
+ */
+public SegmentStore(File dir)
+    throws IOException {
+  this(dir, DEFAULT_SEGMENT_SIZE, false);
+}
+
+/**
+ * @param maxSegmentSize
+ *          a new segment is started once a record would take the current one past this size
+ * @param sync
+ *          force every record to disk before the write returns
+ */
+public SegmentStore(File dir, long maxSegmentSize, boolean sync)
+    throws IOException {
+  mDir = dir;
+  mMaxSegmentSize = maxSegmentSize;
+  mSync = sync;
+  Corpus.mkdir(dir);
+  for (int i = 0; segmentFile(i).exists(); i++) {
+    mSegments.add(new RandomAccessFile(segmentFile(i), "rw"));
+  }
+  long[] indexed = readIndex();
+  for (int i = 0; i < mSegments.size(); i++) {
+    scan(i, i < indexed.length ? indexed[i] : 0);
+  }
+}
+
+public File getDir()
+{
+  return mDir;
+}
+
+private File segmentFile(int segment)
+{
+  return new File(mDir, SEGMENT_PREFIX + String.format("%05d", segment) + SEGMENT_SUFFIX);
+}
+
+public synchronized boolean containsDocument(String docId)
+{
+  return mIndex.containsKey(docId);
+}
+
+/**
+ * @return the ids of the documents, in the order they were first written
+ */
+public synchronized List<String> documentIds()
+{
+  return new ArrayList<String>(mIndex.keySet());
+}
+
+public synchronized int numDocuments()
+{
+  return mIndex.size();
+}
+
+/**
+ * @return the names of the entries of a document, sorted; empty if there is no such document
+ */
+public synchronized Set<String> entryNames(String docId)
+{
+  Map<String, Location> entries = mIndex.get(docId);
+  if (entries == null) return Collections.emptySet();
+  return new TreeSet<String>(entries.keySet());
+}
+
+public synchronized boolean exists(String docId, String name)
+{
+  Map<String, Location> entries = mIndex.get(docId);
+  return entries != null && entries.containsKey(name);
+}
+
+/**
+ * @return the content of an entry, or null if there is none
+ */
+public byte[] read(String docId, String name)
+    throws IOException
+{
+  Location loc;
+  FileChannel channel;
+  synchronized (this) {
+    Map<String, Location> entries = mIndex.get(docId);
+    loc = entries == null ? null : entries.get(name);
+    if (loc == null) return null;
+    channel = mSegments.get(loc.segment).getChannel();
+  }
+  // positional reads do not move the channel, so readers need not wait for each other
+  ByteBuffer buffer = ByteBuffer.allocate(loc.length);
+  long position = loc.offset;
+  while (buffer.hasRemaining()) {
+    int n = channel.read(buffer, position);
+    if (n < 0) throw new EOFException("segment " + loc.segment + " ends inside " + docId + "/" + name);
+    position += n;
+  }
+  return buffer.array();
+}
+
+public void write(String docId, String name, byte[] content)
+    throws IOException
+{
+  write(docId, Collections.singletonMap(name, content));
+}
+
+public void delete(String docId, String name)
+    throws IOException
+{
+  write(docId, Collections.singletonMap(name, (byte[]) null));
+}
+
+/**
+ * Remove a document and all of its entries
+ */
+public synchronized void deleteDocument(String docId)
+    throws IOException
+{
+  Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+  for (String name : entryNames(docId)) {
+    entries.put(name, null);
+  }
+  if (!entries.isEmpty()) {
+    write(docId, entries);
+  }
+}
+
+/**
+ * Write several entries of a document at once: either all of them are in the store afterwards or, if the write is
+ * interrupted, none of them.
+ *
+ * @param entries
+ *          the content of each entry; null to delete the entry
+ */
+public synchronized void write(String docId, Map<String, byte[]> entries)
+    throws IOException
+{
+  ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  DataOutputStream out = new DataOutputStream(bytes);
+  out.writeInt(RECORD_MAGIC);
+  out.writeInt(0);
+  out.writeUTF(docId);
+  out.writeInt(entries.size());
+  int[] offsets = new int[entries.size()];
+  int k = 0;
+  for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+    out.writeUTF(entry.getKey());
+    byte[] content = entry.getValue();
+    out.writeInt(content == null ? DELETED : content.length);
+    offsets[k++] = out.size();
+    if (content != null) {
+      out.write(content);
+    }
+  }
+  out.flush();
+  byte[] record = Arrays.copyOf(bytes.toByteArray(), bytes.size() + 4);
+  int payloadLength = record.length - HEADER_SIZE - 4;
+  ByteBuffer buffer = ByteBuffer.wrap(record);
+  buffer.putInt(4, payloadLength);
+  CRC32 crc = new CRC32();
+  crc.update(record, HEADER_SIZE, payloadLength);
+  buffer.putInt(record.length - 4, (int) crc.getValue());
+
+  int segment = mSegments.size() - 1;
+  if (segment < 0 || (mSegments.get(segment).length() > 0 && mSegments.get(segment).length() + record.length > mMaxSegmentSize)) {
+    segment++;
+    mSegments.add(new RandomAccessFile(segmentFile(segment), "rw"));
+  }
+  RandomAccessFile file = mSegments.get(segment);
+  long start = file.length();
+  file.seek(start);
+  file.write(record);
+  if (mSync) {
+    file.getFD().sync();
+  }
+
+  k = 0;
+  for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+    byte[] content = entry.getValue();
+    apply(docId, entry.getKey(), content == null ? null : new Location(segment, start + offsets[k], content.length));
+    k++;
+  }
+}
+
+private void apply(String docId, String name, Location loc)
+{
+  Map<String, Location> entries = mIndex.get(docId);
+  if (loc == null) {
+    if (entries != null) {
+      entries.remove(name);
+      if (entries.isEmpty()) {
+        mIndex.remove(docId);
+      }
+    }
+    return;
+  }
+  if (entries == null) {
+    entries = new LinkedHashMap<String, Location>();
+    mIndex.put(docId, entries);
+  }
+  entries.put(name, loc);
+}
+
+/**
+ * Add the records of a segment from the given offset on to the index. A record that is cut short or fails its
+ * checksum ends the last segment, which is truncated there; anywhere else it means the store is corrupt.
+ */
+private void scan(int segment, long from)
+    throws IOException
+{
+  RandomAccessFile file = mSegments.get(segment);
+  long length = file.length();
+  long position = from;
+  FileInputStream fileIn = new FileInputStream(segmentFile(segment));
+  DataInputStream in = new DataInputStream(new BufferedInputStream(fileIn, 1 << 16));
+  try {
+    fileIn.getChannel().position(from);
+    while (position < length) {
+      if (length - position < HEADER_SIZE + 4 || in.readInt() != RECORD_MAGIC) {
+        break;
+      }
+      int payloadLength = in.readInt();
+      if (payloadLength < 0 || position + HEADER_SIZE + payloadLength + 4 > length) {
+        break;
+      }
+      byte[] payload = new byte[payloadLength];
+      in.readFully(payload);
+      CRC32 crc = new CRC32();
+      crc.update(payload);
+      if (in.readInt() != (int) crc.getValue()) {
+        break;
+      }
+      DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+      String docId = record.readUTF();
+      int numEntries = record.readInt();
+      for (int k = 0; k < numEntries; k++) {
+        String name = record.readUTF();
+        int entryLength = record.readInt();
+        long offset = position + HEADER_SIZE + (payloadLength - record.available());
+        if (entryLength == DELETED) {
+          apply(docId, name, null);
+        }
+        else {
+          apply(docId, name, new Location(segment, offset, entryLength));
+          record.skipBytes(entryLength);
+        }
+      }
+      position += HEADER_SIZE + payloadLength + 4;
+    }
+  }
+  finally {
+    in.close();
+  }
+  if (position < length) {
+    if (segment < mSegments.size() - 1)
+      throw new IOException("corrupt record in " + segmentFile(segment) + " at " + position);
+    System.out.println("SegmentStore: dropping " + (length - position) + " bytes of an incomplete record at the end of "
+        + segmentFile(segment));
+    file.setLength(position);
+  }
+}
+
+/**
+ * Read the snapshot of the index, if it matches the segments
+ *
+ * @return the length of each segment that the snapshot covers
+ */
+private long[] readIndex()
+    throws IOException
+{
+  File indexFile = new File(mDir, INDEX_FILE);
+  if (!indexFile.exists()) return new long[0];
+  DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 1 << 16));
+  try {
+    if (in.readInt() != INDEX_MAGIC) return new long[0];
+    long[] lengths = new long[in.readInt()];
+    for (int i = 0; i < lengths.length; i++) {
+      lengths[i] = in.readLong();
+      // a segment that is shorter than the snapshot says lost records the snapshot points at
+      if (i >= mSegments.size() || mSegments.get(i).length() < lengths[i]) {
+        System.out.println("SegmentStore: index snapshot is out of date, scanning " + mDir);
+        return new long[0];
+      }
+    }
+    int numDocs = in.readInt();
+    for (int d = 0; d < numDocs; d++) {
+      String docId = in.readUTF();
+      int numEntries = in.readInt();
+      for (int k = 0; k < numEntries; k++) {
+        String name = in.readUTF();
+        apply(docId, name, new Location(in.readInt(), in.readLong(), in.readInt()));
+      }
+    }
+    return lengths;
+  }
+  catch (EOFException e) {
+    mIndex.clear();
+    return new long[0];
+  }
+  finally {
+    in.close();
+  }
+}
+
+/**
+ * Write a snapshot of the index, so that opening the store again does not have to scan the segments
+ */
+public synchronized void checkpoint()
+    throws IOException
+{
+  File tmp = new File(mDir, INDEX_FILE + ".tmp");
+  FileOutputStream fileOut = new FileOutputStream(tmp);
+  DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+  try {
+    out.writeInt(INDEX_MAGIC);
+    out.writeInt(mSegments.size());
+    for (RandomAccessFile segment : mSegments) {
+      if (!mSync) {
+        segment.getFD().sync();
+      }
+      out.writeLong(segment.length());
+    }
+    out.writeInt(mIndex.size());
+    for (Map.Entry<String, Map<String, Location>> doc : mIndex.entrySet()) {
+      out.writeUTF(doc.getKey());
+      out.writeInt(doc.getValue().size());
+      for (Map.Entry<String, Location> entry : doc.getValue().entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.writeInt(entry.getValue().segment);
+        out.writeLong(entry.getValue().offset);
+        out.writeInt(entry.getValue().length);
+      }
+    }
+    out.flush();
+    fileOut.getFD().sync();
+  }
+  finally {
+    out.close();
+  }
+  File indexFile = new File(mDir, INDEX_FILE);
+  if (!tmp.renameTo(indexFile)) {
+    // renaming over an existing file fails on some platforms
+    Corpus.delete(indexFile);
+    if (!tmp.renameTo(indexFile)) throw new IOException("could not write " + indexFile);
+  }
+}
+
+public synchronized void close()
+    throws IOException
+{
+  checkpoint();
+  for (RandomAccessFile segment : mSegments) {
+    segment.close();
+  }
+  mSegments.clear();
+  mIndex.clear();
+}
+
+/**
+ * Read a whole stream, e.g. a file to be added to the store
+ */
+public static byte[] readFully(InputStream in)
+    throws IOException
+{
+  try {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1 << 16];
+    int n;
+    while ((n = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+  finally {
+    in.close();
+  }
+}
+
+}
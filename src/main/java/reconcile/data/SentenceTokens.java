@@ -0,0 +1,113 @@
+package reconcile.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The tokens of each sentence of a document, found in one pass over the token set. A sentence has the same tokens, in
+ * the same order, as tokSet.getContained(sentence) would give, without building an annotation set per sentence.
+ */
+public class SentenceTokens {
+
+private final Annotation[] sentences;
+private final Annotation[] tokens;
+
+/** The token indices of the sentences, one sentence after the other */
+private final int[] index;
+
+/** The tokens of sentence s are index[offsets[s]] .. index[offsets[s + 1] - 1] */
+private final int[] offsets;
+
+public SentenceTokens(AnnotationSet sentSet, AnnotationSet tokSet) {
+  sentences = sentSet.toArray();
+  tokens = tokSet.toArray();
+  offsets = new int[sentences.length + 1];
+  int[] idx = new int[tokens.length];
+  int n = 0;
+  // both are ordered by start offset, so the first token of a sentence is never before the first of the previous one
+  int first = 0;
+  for (int s = 0; s < sentences.length; s++) {
+    offsets[s] = n;
+    int start = sentences[s].getStartOffset();
+    int end = sentences[s].getEndOffset();
+    while (first < tokens.length && tokens[first].getStartOffset() < start) {
+      first++;
+    }
+    for (int t = first; t < tokens.length && tokens[t].getStartOffset() <= end; t++) {
+      if (tokens[t].getEndOffset() <= end) {
+        if (n == idx.length) {
+          idx = Arrays.copyOf(idx, 2 * n + 1);
+        }
+        idx[n++] = t;
+      }
+    }
+  }
+  offsets[sentences.length] = n;
+  index = idx;
+}
+
+/**
+ * @return the number of sentences
+ */
+public int size()
+{
+  return sentences.length;
+}
+
+public Annotation getSentence(int s)
+{
+  return sentences[s];
+}
+
+/**
+ * @return the number of tokens in sentence s
+ */
+public int getNumTokens(int s)
+{
+  return offsets[s + 1] - offsets[s];
+}
+
+/**
+ * @return the number of tokens in all the sentences together
+ */
+public int getNumTokens()
+{
+  return offsets[sentences.length];
+}
+
+/**
+ * @return token i of sentence s
+ */
+public Annotation getToken(int s, int i)
+{
+  return tokens[index[offsets[s] + i]];
+}
+
+/**
+ * @return the tokens of sentence s
+ */
+public Annotation[] getTokens(int s)
+{
+  Annotation[] result = new Annotation[getNumTokens(s)];
+  for (int i = 0; i < result.length; i++) {
+    result[i] = getToken(s, i);
+  }
+  return result;
+}
+
+/**
+ * Put the text of the tokens of sentence s in a list, replacing what it held
+ *
+ * @return the list
+ */
+public List<String> getWords(int s, String text, List<String> words)
+{
+  words.clear();
+  for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+    Annotation tok = tokens[index[i]];
+    words.add(text.substring(tok.getStartOffset(), tok.getEndOffset()));
+  }
+  return words;
+}
+
+}
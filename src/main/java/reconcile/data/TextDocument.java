@@ -2,6 +2,7 @@ package reconcile.data;
 
 import gov.llnl.text.util.FileUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -73,7 +74,7 @@ public void addAnnotationSet(AnnotationSet set, String annotationSetName, boolea
 //      out.flush();
 //      out.close();
     }
-    mAnnotationSets.put(annSetName, set);
+    cacheAnnotationSet(annSetName, set, false);
   }
   catch (Exception e) {
     throw new RuntimeException(e);
@@ -106,7 +107,17 @@ public AnnotationSet getAnnotationSet(String annotationSetName)
 {
   String annSetName = getCannonicalAnnotationSetName(annotationSetName);
   AnnotationSet set = mAnnotationSets.get(annSetName);
-  if (set == null) {
+  if (set != null) {
+    touchAnnotationSet(annSetName);
+    return set;
+  }
+  // the sets of a text document are never written, so a released set was spilled
+  long start = System.nanoTime();
+  set = readSpilledAnnotationSet(annSetName);
+  if (set != null) {
+    loadedAnnotationSet(annSetName, set, false, start);
+  }
+  else {
    throw new RuntimeException("Annotation file does not exist: " + annSetName+"("+annotationSetName+")");
 }
 return set;
@@ -123,8 +134,14 @@ public OutputStream writeFeatureFile()
 }
 public Reader getFeatureReader()
 {
-  if(features==null&&out!=null)
-	  features = out.toString();
+  if (features == null && out != null) {
+    try {
+      return featureReader(new ByteArrayInputStream(out.toByteArray()));
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
   return new StringReader(features);
 }
 
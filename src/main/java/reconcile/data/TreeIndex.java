@@ -0,0 +1,284 @@
+package reconcile.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Array based index of the trees an annotation set encodes by keeping the id of each annotation's parent in a feature:
+ * the parse trees (the "parent" feature) and the dependency trees ("GOV_ID"). The parent links are decoded once, so
+ * parent, children and depth queries are array lookups. Lowest common ancestor queries use an Euler tour of the trees
+ * with a sparse table over it, which is only built for the first such query.
+ * <p>
+ * Nodes are numbered by the order of their annotations in the set, so the children of a node are in offset order.
+ * Annotations whose parent is missing, negative or not in the set are roots. Annotations on a cycle of parent links
+ * (not reachable from a root) have depth -1 and no common ancestor with anything.
+ * <p>
+ * Get the index of a set with {@link AnnotationSet#getTreeIndex(String)}; it is rebuilt after annotations are added to
+ * or removed from the set, but not after a parent feature is changed in place.
+ */
+public class TreeIndex {
+
+private final String parentFeature;
+private final Annotation[] nodes;
+
+/** Node number by annotation id, or null if the ids are too sparse for an array */
+private final int[] idToNode;
+private final Map<Integer, Integer> idMap;
+
+private final int[] parent;
+
+/** The children of node i are children[childStart[i]] .. children[childStart[i + 1] - 1] */
+private final int[] childStart;
+private final int[] children;
+
+private final int[] depth;
+
+/** The root of the tree of each node, or -1 on a cycle */
+private final int[] root;
+
+// Euler tour, built for the first common ancestor query
+private int[] first;
+private volatile int[][] sparse;
+
+TreeIndex(AnnotationSet set, String parentFeature) {
+  this.parentFeature = parentFeature;
+  nodes = set.toArray();
+  int n = nodes.length;
+
+  int maxId = -1;
+  for (Annotation a : nodes) {
+    maxId = Math.max(maxId, a.getId());
+  }
+  if (maxId < 4 * n + 64) {
+    idToNode = new int[maxId + 1];
+    Arrays.fill(idToNode, -1);
+    for (int i = 0; i < n; i++) {
+      if (nodes[i].getId() >= 0) {
+        idToNode[nodes[i].getId()] = i;
+      }
+    }
+    idMap = null;
+  }
+  else {
+    idToNode = null;
+    idMap = new HashMap<Integer, Integer>();
+    for (int i = 0; i < n; i++) {
+      idMap.put(nodes[i].getId(), i);
+    }
+  }
+
+  parent = new int[n];
+  int[] numChildren = new int[n + 1];
+  for (int i = 0; i < n; i++) {
+    String par = nodes[i].getAttribute(parentFeature);
+    parent[i] = par == null ? -1 : nodeOfId(Integer.parseInt(par));
+    if (parent[i] >= 0) {
+      numChildren[parent[i]]++;
+    }
+  }
+
+  childStart = new int[n + 1];
+  for (int i = 0; i < n; i++) {
+    childStart[i + 1] = childStart[i] + numChildren[i];
+  }
+  children = new int[childStart[n]];
+  int[] fill = Arrays.copyOf(childStart, n);
+  for (int i = 0; i < n; i++) {
+    if (parent[i] >= 0) {
+      children[fill[parent[i]]++] = i;
+    }
+  }
+
+  // depths and roots, walking down from the roots
+  depth = new int[n];
+  root = new int[n];
+  Arrays.fill(depth, -1);
+  Arrays.fill(root, -1);
+  int[] stack = new int[n];
+  for (int r = 0; r < n; r++) {
+    if (parent[r] >= 0) {
+      continue;
+    }
+    int top = 0;
+    stack[top++] = r;
+    depth[r] = 0;
+    root[r] = r;
+    while (top > 0) {
+      int node = stack[--top];
+      for (int c = childStart[node]; c < childStart[node + 1]; c++) {
+        int child = children[c];
+        depth[child] = depth[node] + 1;
+        root[child] = r;
+        stack[top++] = child;
+      }
+    }
+  }
+}
+
+private int nodeOfId(int id)
+{
+  if (id < 0) return -1;
+  if (idToNode != null) return id < idToNode.length ? idToNode[id] : -1;
+  Integer node = idMap.get(id);
+  return node == null ? -1 : node;
+}
+
+/**
+ * @return the feature holding the parent ids
+ */
+public String getParentFeature()
+{
+  return parentFeature;
+}
+
+/**
+ * @return the number of nodes
+ */
+public int size()
+{
+  return nodes.length;
+}
+
+public Annotation get(int node)
+{
+  return nodes[node];
+}
+
+/**
+ * @return the node of an annotation of the set (or of a copy of one), or -1 if it is not in the set
+ */
+public int indexOf(Annotation a)
+{
+  if (a == null) return -1;
+  int node = nodeOfId(a.getId());
+  if (node < 0) return -1;
+  return nodes[node] == a || nodes[node].equals(a) ? node : -1;
+}
+
+/**
+ * @return the parent of a node, or -1 for a root
+ */
+public int getParent(int node)
+{
+  return parent[node];
+}
+
+public int getNumChildren(int node)
+{
+  return childStart[node + 1] - childStart[node];
+}
+
+/**
+ * @return child i of a node, in offset order
+ */
+public int getChild(int node, int i)
+{
+  return children[childStart[node] + i];
+}
+
+/**
+ * @return the annotations of the children of a node, in offset order, as a read only view of the index
+ */
+public List<Annotation> getChildren(final int node)
+{
+  return new AbstractList<Annotation>() {
+
+    @Override
+    public Annotation get(int i)
+    {
+      if (i < 0 || i >= size()) throw new IndexOutOfBoundsException(Integer.toString(i));
+      return nodes[getChild(node, i)];
+    }
+
+    @Override
+    public int size()
+    {
+      return getNumChildren(node);
+    }
+  };
+}
+
+/**
+ * @return the number of links between a node and its root, or -1 if it is on a cycle
+ */
+public int getDepth(int node)
+{
+  return depth[node];
+}
+
+/**
+ * @return the lowest common ancestor of two nodes, or -1 if they are in different trees
+ */
+public int getCommonAncestor(int node1, int node2)
+{
+  if (root[node1] < 0 || root[node1] != root[node2]) return -1;
+  if (sparse == null) {
+    buildEulerTour();
+  }
+  int from = Math.min(first[node1], first[node2]);
+  int to = Math.max(first[node1], first[node2]);
+  int level = 31 - Integer.numberOfLeadingZeros(to - from + 1);
+  int a = sparse[level][from];
+  int b = sparse[level][to - (1 << level) + 1];
+  return depth[a] <= depth[b] ? a : b;
+}
+
+private synchronized void buildEulerTour()
+{
+  if (sparse != null) return;
+  int n = nodes.length;
+  int[] tour = new int[Math.max(1, 2 * n)];
+  int[] firstSeen = new int[n];
+  int len = 0;
+
+  // iterative depth first walk; next[node] is the next child to visit
+  int[] next = new int[n];
+  int[] stack = new int[n];
+  for (int r = 0; r < n; r++) {
+    if (parent[r] >= 0) {
+      continue;
+    }
+    int top = 0;
+    stack[top++] = r;
+    firstSeen[r] = len;
+    tour[len++] = r;
+    while (top > 0) {
+      int node = stack[top - 1];
+      if (next[node] < getNumChildren(node)) {
+        int child = getChild(node, next[node]++);
+        stack[top++] = child;
+        firstSeen[child] = len;
+        tour[len++] = child;
+      }
+      else {
+        top--;
+        if (top > 0) {
+          tour[len++] = stack[top - 1];
+        }
+      }
+    }
+  }
+
+  // sparse table of the shallowest node over every power of two long range of the tour
+  int levels = 32 - Integer.numberOfLeadingZeros(Math.max(1, len));
+  int[][] table = new int[levels][];
+  table[0] = Arrays.copyOf(tour, len);
+  for (int k = 1; k < levels; k++) {
+    int[] prev = table[k - 1];
+    int half = 1 << (k - 1);
+    int[] cur = new int[len - (1 << k) + 1];
+    for (int i = 0; i < cur.length; i++) {
+      int a = prev[i];
+      int b = prev[i + half];
+      cur[i] = depth[a] <= depth[b] ? a : b;
+    }
+    table[k] = cur;
+  }
+  first = firstSeen;
+  sparse = table;
+}
+
+}
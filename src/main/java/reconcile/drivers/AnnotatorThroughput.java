@@ -0,0 +1,74 @@
+package reconcile.drivers;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+
+import org.apache.commons.configuration.ConfigurationException;
+
+import reconcile.SystemConfig;
+import reconcile.data.Corpus;
+import reconcile.data.CorpusFile;
+import reconcile.data.Document;
+import reconcile.featureExtractor.Annotator;
+import reconcile.featureExtractor.ModelRegistry;
+import reconcile.general.Constants;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Measures the throughput, in tokens per second, of preprocessing annotators over a corpus that already has its
+ * sentences and tokens. The models are loaded before the clock starts. Each annotator is timed on its own over every
+ * document and writes its annotation sets as preprocessing would. Running it on the same corpus before and after a
+ * change gives comparable numbers.
+ */
+public class AnnotatorThroughput {
+
+public static void usage()
+{
+  System.out.println("Usage:");
+  String use = AnnotatorThroughput.class.getName() + ": <corpus> <annotator>+" + " [" + DriverUtils.CONFIG_ARG
+      + "<name>]* " + "[" + DriverUtils.HELP_ARG + "]";
+
+  System.out.println(use);
+  System.exit(0);
+}
+
+public static void main(String[] args)
+{
+  if (args.length < 2) {
+    usage();
+  }
+
+  try {
+    SystemConfig cfg = DriverUtils.configure(args);
+    Corpus corpus = new CorpusFile(new File(args[0]), cfg);
+    List<String> annotators = Lists.newArrayList();
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].startsWith("-")) break;
+      annotators.add(args[i]);
+    }
+    HashMap<String, String[]> elSetNames = cfg.getPreprocessingElSetNames();
+
+    ModelRegistry.warmUp(annotators);
+    for (String name : annotators) {
+      Annotator annotator = ModelRegistry.createAnnotator(name);
+      long numTokens = 0, time = 0;
+      int numDocs = 0;
+      for (Document doc : corpus) {
+        numTokens += doc.getAnnotationSet(Constants.TOKEN).size();
+        long st = System.nanoTime();
+        annotator.run(doc, elSetNames.get(name), true);
+        time += System.nanoTime() - st;
+        numDocs++;
+      }
+      System.out.printf("%s: %d documents, %d tokens in %.2f s, %.0f tokens/s\n", name, numDocs, numTokens, time / 1e9,
+          numTokens / (time / 1e9));
+    }
+  }
+  catch (ConfigurationException e) {
+    e.printStackTrace();
+  }
+}
+
+}
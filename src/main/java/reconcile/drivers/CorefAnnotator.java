@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import reconcile.clusterers.Clusterer;
 import reconcile.data.Annotation;
@@ -84,15 +85,47 @@ public void annotate(Document doc, String outputAnnotationSetName)
 {
   Clusterer.printClusteringAsAnnotationSet(doc, doc.readClusterFile(), outputAnnotationSetName);
 
-  // remove singletons
   AnnotationSet coref = doc.getAnnotationSet(outputAnnotationSetName);
+  removeSingletons(coref);
+  doc.writeAnnotationSet(coref);
+}
+
+/**
+ * Create the coref annotations for a document from a clustering the clusterer returned, without going through the
+ * cluster file
+ * 
+ * @param clustering
+ *          the nps, each with its CE_ID and CLUSTER_ID set
+ * @param write
+ *          whether to also write the annotations to the document directory
+ * @return the coref annotations
+ */
+public AnnotationSet annotate(Document doc, AnnotationSet clustering, String outputAnnotationSetName, boolean write)
+{
+  AnnotationSet coref = new AnnotationSet(outputAnnotationSetName);
+  for (Annotation r : clustering) {
+    Map<String, String> features = new TreeMap<String, String>();
+    features.put(Constants.CE_ID, r.getAttribute(Constants.CE_ID));
+    features.put(Constants.CLUSTER_ID, r.getAttribute(Constants.CLUSTER_ID));
+    coref.add(r.getId(), r.getStartOffset(), r.getEndOffset(), r.getType(), features);
+  }
+  removeSingletons(coref);
+  doc.addAnnotationSet(coref, outputAnnotationSetName, write);
+  return coref;
+}
+
+/**
+ * Remove the nps that are alone in their cluster
+ */
+private void removeSingletons(AnnotationSet coref)
+{
   Map<String, Set<String>> map = new HashMap<String, Set<String>>();
   Map<String, Annotation> aMap = new HashMap<String, Annotation>();
   for (Annotation a : coref) {
     String key = a.getAttribute(Constants.CLUSTER_ID);
     String val = a.getAttribute(Constants.CE_ID);
     MapUtil.addToMapSet(map, key, val);
-    aMap.put(key, a);
+    aMap.put(val, a);
   }
   for (String key : map.keySet()) {
     Set<String> vals = map.get(key);
@@ -105,7 +138,6 @@ public void annotate(Document doc, String outputAnnotationSetName)
       }
     }
   }
-  doc.writeAnnotationSet(coref);
 }
 
 public static void main(String[] args)
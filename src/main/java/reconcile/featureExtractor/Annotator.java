@@ -37,6 +37,18 @@ public void setName(String n)
  */
 public abstract void run(Document doc, String[] annSetNames);
 
+/**
+ * The annotation sets this annotator reads, so that the preprocessor can release the others before it runs (see
+ * {@link Document#retainAnnotationSets(java.util.Collection)}). A set that is read without being declared is still read
+ * back from disk, only more slowly.
+ * 
+ * @return the names of the sets, or null if the annotator does not say, in which case no set is released before it runs
+ */
+public String[] getRequiredAnnotationSets()
+{
+  return null;
+}
+
 /**
  * Runs the annotator if either the overwrite flag is true or one of the annotation sets does not exist. Generates
  * annotation files.
@@ -782,6 +782,11 @@ public class BaseNPAnnotator extends InternalAnnotator {
 
 	// This method extracts the base NPs that are used in coreference resolution
 	// Uses the MUC definition of NP
+	@Override
+	public String[] getRequiredAnnotationSets() {
+		return new String[] { Constants.PARSE, Constants.POS, Constants.NE };
+	}
+
 	@Override
 	public void run(Document doc, String[] annSetNames) {
 		String annSetName = annSetNames[0];
@@ -596,6 +596,12 @@ public static void pprintMarkables(AnnotationSet basenp, String text, String dir
   fw.close();
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.PARSE, Constants.POS, Constants.NE };
+}
+
 // This method extracts the base NPs that are used in coreference resolution
 // Uses the MUC definition of NP
 @Override
@@ -201,6 +201,12 @@ public void preprocess()
   tempFile.close();
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT, Constants.POS };
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
@@ -27,6 +27,12 @@ private static final Set<String> sBreakSet = Sets.newHashSet( ";", ":", ",", "."
 public LongSentenceSplitter() {
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT, Constants.TOKEN };
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
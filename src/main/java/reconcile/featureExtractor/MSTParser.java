@@ -2,6 +2,9 @@ package reconcile.featureExtractor;
 
 import java.io.FileInputStream;
 import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import mstparser.Alphabet;
 import mstparser.DependencyDecoder;
@@ -24,6 +27,7 @@ private static final String args[] = { "test", "model-name:" + Utils.getDataDire
 private DependencyPipe pipe;
 private DependencyDecoder decoder;
 private Parameters params;
+private SentenceParserPool<MSTParser> pool;
 
 //private GrammaticalStructureFactory gsf;
 
@@ -44,6 +48,14 @@ public MSTParser() {
     pipe.closeAlphabets();
 
     // dp.outputParses();
+    // every parser in the pool has its own pipe and decoder, and they all share the model
+    pool = new SentenceParserPool<MSTParser>(this, new SentenceParserPool.ParserFactory<MSTParser>() {
+
+      public MSTParser newParser()
+      {
+        return new MSTParser();
+      }
+    }, SentenceParserPool.getConfiguredSize());
   }
   catch (Exception e) {
     throw new RuntimeException(e);
@@ -75,21 +87,43 @@ public static void removeConjunctions(AnnotationSet dep)
   }
 }
 
-public void loadModel(String file)
+/**
+ * Load the parameters and alphabets of a model. They are only read while parsing, so every parser in the process
+ * shares the ones loaded the first time the file is asked for.
+ */
+public void loadModel(final String file)
     throws Exception
 {
-  System.out.println("Filename: " + file);
-  ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
-  params.parameters = (double[]) in.readObject();
+  Model model = ModelRegistry.get(file, new ModelRegistry.Loader<Model>() {
+
+    public Model load()
+        throws Exception
+    {
+      System.out.println("Filename: " + file);
+      ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
+      Model m = new Model();
+      m.parameters = (double[]) in.readObject();
+      m.dataAlphabet = (Alphabet) in.readObject();
+      m.typeAlphabet = (Alphabet) in.readObject();
+      in.close();
+      return m;
+    }
+  });
+  params.parameters = model.parameters;
   System.out.println("params: " + params);
 
-  Alphabet a = (Alphabet) in.readObject();
-  pipe.dataAlphabet = a;
-  pipe.typeAlphabet = (Alphabet) in.readObject();
-  in.close();
+  pipe.dataAlphabet = model.dataAlphabet;
+  pipe.typeAlphabet = model.typeAlphabet;
   pipe.closeAlphabets();
 }
 
+private static class Model {
+
+double[] parameters;
+Alphabet dataAlphabet;
+Alphabet typeAlphabet;
+}
+
 public DependencyInstance parseSentence(DependencyInstance instance)
 {
   String[] forms = instance.forms;
@@ -158,6 +192,12 @@ public DependencyInstance parseSentence(DependencyInstance instance)
   return di;
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT, Constants.POS };
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
@@ -176,18 +216,11 @@ public void run(Document doc, String[] annSetNames)
   // System.out.println("Done loading text...");
 
   // loop through sentences
-
-    int numWords = 0;
-  int numSents = 0;
-  int num = 0;
+  List<Annotation[]> sentToks = new ArrayList<Annotation[]>();
+  List<DependencyInstance> instances = new ArrayList<DependencyInstance>();
 
   for (Annotation sentence : sentSet) {
-    num++;
-    numSents++;
     AnnotationSet toks = posSet.getContained(sentence);
-    int len = toks.size();
-    numWords += len;
-    System.out.println("MST:Parsing [sent. " + num + " len. " + len + "] ");// + Utils.getAnnotText(sentence,text));
 
     String[] forms = new String[toks.size() + 1];
     String[] pos = new String[toks.size() + 1];
@@ -229,19 +262,44 @@ public void run(Document doc, String[] annSetNames)
     instance.lemmas = lemmas;
     instance.feats = new String[0][0];
 
-    DependencyInstance parsedInst = parseSentence(instance);
+    sentToks.add(toks.toArray());
+    instances.add(instance);
+  }
+
+  // parse the sentences, in parallel if the pool has more than one parser
+  final int numSents = instances.size();
+  List<DependencyInstance> parsed = pool.parse(instances,
+      new SentenceParserPool.SentenceParse<MSTParser, DependencyInstance, DependencyInstance>() {
+
+        private AtomicInteger num = new AtomicInteger();
+
+        public int length(DependencyInstance sentence)
+        {
+          return sentence.forms.length;
+        }
+
+        public DependencyInstance parse(MSTParser parser, DependencyInstance sentence)
+        {
+          System.out.println("MST:Parsing [sent. " + num.incrementAndGet() + " of " + numSents + " len. "
+              + (sentence.forms.length - 1) + "] ");
+          return parser.parseSentence(sentence);
+        }
+      });
 
-    Annotation[] sentToks = toks.toArray();
+  // add the parses in sentence order
+  for (int s = 0; s < numSents; s++) {
+    DependencyInstance parsedInst = parsed.get(s);
+    Annotation[] toks = sentToks.get(s);
     String[] rels = parsedInst.deprels;
     int[] resHeads = parsedInst.heads;
-    Annotation[] depToks = new Annotation[sentToks.length];
-    for (int i = 0; i < toks.size(); i++) {
-      Annotation depTok = sentToks[i];
+    Annotation[] depToks = new Annotation[toks.length];
+    for (int i = 0; i < toks.length; i++) {
+      Annotation depTok = toks[i];
       int id = depAnnots.add(depTok.getStartOffset(), depTok.getEndOffset(), rels[i]);
       Annotation added = depAnnots.get(id);
       depToks[i] = added;
     }
-    for (int i = 0; i < toks.size(); i++) {
+    for (int i = 0; i < toks.length; i++) {
       Annotation depTok = depToks[i];
       // HashMap<String, String> hm = Maps.newTreeMap();
       if (resHeads[i] > 0) {
@@ -0,0 +1,333 @@
+package reconcile.featureExtractor;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import reconcile.Constructor;
+import reconcile.general.Metrics;
+
+/**
+ * Process wide registry of the models the annotators load, so each model is read from disk once per process instead
+ * of once per annotator instance (and so once per Preprocessor, Reconcile pipeline and worker thread).
+ * <p>
+ * Models come in two kinds. A model that is not changed while it is used (an OpenNLP maxent model, the Berkeley
+ * grammar, the MST parameters) is shared: {@link #get(String, Loader)} loads it the first time and hands every caller
+ * the same instance. A model that keeps state while it is used (a Stanford parser or CRF classifier) is pooled: callers
+ * {@link #borrow(String, Loader)} an instance for the time they use it and {@link #release(String, Object)} it
+ * afterwards, and a new instance is only loaded when all the loaded ones are in use.
+ * <p>
+ * {@link #warmUp(List)} creates the given annotators ahead of time, which loads their models, and keeps the annotators
+ * for the first preprocessors that ask for them (see {@link #createAnnotator(String)}). Loads are made one at a time;
+ * the time each model took to load is kept for {@link #report(PrintStream)}, and when METRICS is on (see
+ * {@link Metrics}) so is the heap it retains, measured after a garbage collection before and after the load.
+ * <p>
+ * Models are keyed by name, usually the resource or file they are read from.
+ */
+public class ModelRegistry {
+
+/**
+ * Config key: load the models of the preprocessing elements when the first preprocessor is made
+ */
+public static final String WARM_UP_MODELS = "WARM_UP_MODELS";
+
+/**
+ * Loads a model
+ */
+public interface Loader<T> {
+
+T load()
+    throws Exception;
+}
+
+/**
+ * What is known about a model: how it is held, how many instances were loaded and what they cost
+ */
+public static class ModelStats {
+
+private final String name;
+private final boolean pooled;
+private int instances;
+private long loadNanos;
+private long retainedBytes;
+private boolean measured;
+
+ModelStats(String name, boolean pooled) {
+  this.name = name;
+  this.pooled = pooled;
+}
+
+public String getName()
+{
+  return name;
+}
+
+/**
+ * @return whether instances are borrowed (rather than shared)
+ */
+public boolean isPooled()
+{
+  return pooled;
+}
+
+public synchronized int getInstances()
+{
+  return instances;
+}
+
+/**
+ * @return the total time spent loading the instances
+ */
+public synchronized long getLoadNanos()
+{
+  return loadNanos;
+}
+
+/**
+ * @return the heap retained by the loaded instances, as measured when they were loaded, or 0 if it was not measured
+ */
+public synchronized long getRetainedBytes()
+{
+  return retainedBytes;
+}
+
+/**
+ * @return whether the retained heap of any instance was measured
+ */
+public synchronized boolean isMeasured()
+{
+  return measured;
+}
+
+/**
+ * @param bytes
+ *          the heap the instance retains, or -1 if it was not measured
+ */
+synchronized void loaded(long nanos, long bytes)
+{
+  instances++;
+  loadNanos += nanos;
+  if (bytes >= 0) {
+    retainedBytes += bytes;
+    measured = true;
+  }
+}
+
+@Override
+public synchronized String toString()
+{
+  String s = String.format("%s: %s, %d instance(s), loaded in %.1f s", name, pooled ? "pooled" : "shared", instances,
+      loadNanos / 1e9);
+  return measured ? String.format("%s, %.1f MB", s, retainedBytes / (1024.0 * 1024.0)) : s;
+}
+}
+
+private static final Object loadLock = new Object();
+private static final ConcurrentMap<String, Object> shared = new ConcurrentHashMap<String, Object>();
+private static final ConcurrentMap<String, ConcurrentLinkedQueue<Object>> idle = new ConcurrentHashMap<String, ConcurrentLinkedQueue<Object>>();
+private static final Map<String, ModelStats> stats = new TreeMap<String, ModelStats>();
+private static final Map<String, LinkedList<InternalAnnotator>> warmAnnotators = new TreeMap<String, LinkedList<InternalAnnotator>>();
+private static final Set<String> warmedUp = new HashSet<String>();
+
+/**
+ * @return the shared instance of the named model, loading it if this is the first time it is asked for
+ */
+@SuppressWarnings("unchecked")
+public static <T> T get(String name, Loader<T> loader)
+{
+  Object model = shared.get(name);
+  if (model == null) {
+    synchronized (loadLock) {
+      model = shared.get(name);
+      if (model == null) {
+        model = load(name, loader, false);
+        shared.put(name, model);
+      }
+    }
+  }
+  return (T) model;
+}
+
+/**
+ * @return an instance of the named model that no one else is using, loading a new one if all of them are in use. Hand
+ *         it back with {@link #release(String, Object)} when done.
+ */
+@SuppressWarnings("unchecked")
+public static <T> T borrow(String name, Loader<T> loader)
+{
+  Object model = getIdle(name).poll();
+  if (model == null) {
+    synchronized (loadLock) {
+      model = load(name, loader, true);
+    }
+  }
+  return (T) model;
+}
+
+/**
+ * Hand back an instance of a model got from {@link #borrow(String, Loader)}
+ */
+public static void release(String name, Object model)
+{
+  if (model != null) {
+    getIdle(name).add(model);
+  }
+}
+
+private static ConcurrentLinkedQueue<Object> getIdle(String name)
+{
+  ConcurrentLinkedQueue<Object> queue = idle.get(name);
+  if (queue == null) {
+    idle.putIfAbsent(name, new ConcurrentLinkedQueue<Object>());
+    queue = idle.get(name);
+  }
+  return queue;
+}
+
+/**
+ * Load a model, timing the load and, when metrics are on, measuring the heap it retains. Called holding the load lock.
+ */
+private static Object load(String name, Loader<?> loader, boolean pooled)
+{
+  System.out.println("Loading model " + name + "...");
+  boolean measure = Metrics.isEnabled();
+  long before = measure ? usedHeap() : 0;
+  long st = System.nanoTime();
+  Object model;
+  try {
+    model = loader.load();
+  }
+  catch (RuntimeException e) {
+    throw e;
+  }
+  catch (Exception e) {
+    throw new RuntimeException(e);
+  }
+  if (model == null) throw new RuntimeException("Failed to load model " + name);
+  long time = System.nanoTime() - st;
+  long bytes = measure ? Math.max(0, usedHeap() - before) : -1;
+
+  ModelStats s;
+  synchronized (stats) {
+    s = stats.get(name);
+    if (s == null) {
+      s = new ModelStats(name, pooled);
+      stats.put(name, s);
+    }
+  }
+  s.loaded(time, bytes);
+  System.out.println("Loaded " + s);
+  return model;
+}
+
+/**
+ * @return the heap in use after a garbage collection; only called when metrics are on, since the collections are
+ *         expensive
+ */
+private static long usedHeap()
+{
+  Runtime rt = Runtime.getRuntime();
+  System.gc();
+  System.gc();
+  return rt.totalMemory() - rt.freeMemory();
+}
+
+/**
+ * Create the named annotators, loading their models, and keep them for {@link #createAnnotator(String)}. Annotators
+ * already warmed up are skipped.
+ */
+public static void warmUp(List<String> elNames)
+{
+  long st = System.currentTimeMillis();
+  for (String el : elNames) {
+    synchronized (warmAnnotators) {
+      if (!warmedUp.add(el)) {
+        continue;
+      }
+    }
+    InternalAnnotator a = Constructor.createInternalAnnotator(el);
+    synchronized (warmAnnotators) {
+      LinkedList<InternalAnnotator> list = warmAnnotators.get(el);
+      if (list == null) {
+        list = new LinkedList<InternalAnnotator>();
+        warmAnnotators.put(el, list);
+      }
+      list.add(a);
+    }
+  }
+  System.out.println("Models warmed up in " + (System.currentTimeMillis() - st) / 1000 + " seconds");
+  report(System.out);
+}
+
+/**
+ * @return an annotator made by {@link #warmUp(List)} if one is left, otherwise a new one (whose models come from the
+ *         registry)
+ */
+public static InternalAnnotator createAnnotator(String elName)
+{
+  synchronized (warmAnnotators) {
+    LinkedList<InternalAnnotator> list = warmAnnotators.get(elName);
+    if (list != null && !list.isEmpty()) return list.removeFirst();
+  }
+  return Constructor.createInternalAnnotator(elName);
+}
+
+/**
+ * @return the statistics of every model loaded so far, by name
+ */
+public static List<ModelStats> getStats()
+{
+  synchronized (stats) {
+    return new ArrayList<ModelStats>(stats.values());
+  }
+}
+
+/**
+ * Print the load time and, if it was measured, the retained heap of every model loaded so far
+ */
+public static void report(PrintStream out)
+{
+  long time = 0, bytes = 0;
+  boolean measured = false;
+  for (ModelStats s : getStats()) {
+    out.println(s);
+    time += s.getLoadNanos();
+    bytes += s.getRetainedBytes();
+    measured |= s.isMeasured();
+  }
+  if (measured) {
+    out.printf("Models: loaded in %.1f s, %.1f MB\n", time / 1e9, bytes / (1024.0 * 1024.0));
+  }
+  else {
+    out.printf("Models: loaded in %.1f s\n", time / 1e9);
+  }
+}
+
+/**
+ * Forget every model and warm annotator so they can be garbage collected. Annotators that already hold a model keep
+ * it; the next ones load their own.
+ */
+public static void clear()
+{
+  synchronized (loadLock) {
+    shared.clear();
+    idle.clear();
+    synchronized (warmAnnotators) {
+      warmAnnotators.clear();
+      warmedUp.clear();
+    }
+    synchronized (stats) {
+      stats.clear();
+    }
+  }
+}
+
+}
@@ -50,26 +50,33 @@ public NamedEntityOpenNLP() {
   finders = new NameFinderME[tagTypes.length];
 
   for (int i = 0; i < tagTypes.length; ++i) {
+    final String modelName = Utils.lowercaseIfNec("OpenNLP") + "/models/" + tagTypes[i] + ".bin.gz";
+
+    // load the model, which is shared by every finder in the process
+    MaxentModel model = ModelRegistry.get(modelName, new ModelRegistry.Loader<MaxentModel>() {
+
+      public MaxentModel load()
+          throws URISyntaxException
+      {
+        URL res = NamedEntityOpenNLP.class.getClassLoader().getResource(modelName);
+        System.out.println("load openNLP named entity model: " + res.toString());
+        File modelFileName = new File(res.toURI());
+        return getModel(modelFileName);
+      }
+    });
 
-    try {
-
-      URL res = this.getClass().getClassLoader().getResource(Utils.lowercaseIfNec("OpenNLP")+"/models/" + tagTypes[i] + ".bin.gz");
-      System.out.println("load openNLP named entity model: " + res.toString());
-      File modelFileName = new File(res.toURI());
-      // load the model
-      MaxentModel model = getModel(modelFileName);
-
-      // create the finder
-      finders[i] = new NameFinderME(model);
-    }
-    catch (URISyntaxException e) {
-      e.printStackTrace();
-      throw new RuntimeException(e);
-    }
+    // create the finder
+    finders[i] = new NameFinderME(model);
   }
 
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT, Constants.TOKEN };
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
@@ -6,10 +6,16 @@ package reconcile.featureExtractor;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.zip.GZIPInputStream;
 
 import reconcile.data.Annotation;
@@ -23,15 +29,24 @@ import com.google.common.collect.Maps;
 
 import edu.stanford.nlp.ie.crf.CRFClassifier;
 import edu.stanford.nlp.util.StringUtils;
+import edu.stanford.nlp.util.Triple;
 
 public class NamedEntityStanford extends InternalAnnotator {
 
-private static Pattern pWord = Pattern.compile("\\w");
-
-List<CRFClassifier> finders;
+/**
+ * The resource names of the models. A classifier keeps state while it tags, so the classifiers are borrowed from the
+ * model registry for each document rather than shared.
+ */
+List<String> finders;
 
 private Map<String, String> mTypeMap = Maps.newHashMap();
 
+/** The annotation types of the entity tags seen so far */
+private Map<String, String> mTypeNames = Maps.newHashMap();
+
+/** Runs the models at the same time when there are several */
+private ExecutorService executor;
+
 private static CRFClassifier getClassifier(InputStream model)
     throws ClassCastException, IOException, ClassNotFoundException
 {
@@ -43,6 +58,19 @@ private static CRFClassifier getClassifier(InputStream model)
   return classifier;
 }
 
+private static CRFClassifier borrowClassifier(final String resource)
+{
+  return ModelRegistry.borrow(resource, new ModelRegistry.Loader<CRFClassifier>() {
+
+    public CRFClassifier load()
+        throws IOException, ClassNotFoundException
+    {
+      InputStream res = NamedEntityStanford.class.getClassLoader().getResourceAsStream(resource);
+      return getClassifier(new GZIPInputStream(res));
+    }
+  });
+}
+
 public NamedEntityStanford() {
   // ////////
   String modelStr = Utils.getConfig().getString("StanfordTaggerModelNames");
@@ -57,23 +85,11 @@ public NamedEntityStanford() {
   finders = Lists.newArrayList();
   for (String modelName : model_names) {
     System.out.println("model name: " + modelName);
-    try {
-      InputStream res = this.getClass().getClassLoader().getResourceAsStream("Stanford/NER/" + modelName + ".ser.gz");
-      if (res != null) {
-        finders.add(getClassifier(new GZIPInputStream(res)));
-      }
-    }
-    catch (IOException e) {
-      e.printStackTrace();
-      throw new RuntimeException(e);
-    }
-    catch (ClassCastException e) {
-      e.printStackTrace();
-      throw new RuntimeException(e);
-    }
-    catch (ClassNotFoundException e) {
-      e.printStackTrace();
-      throw new RuntimeException(e);
+    String resource = "Stanford/NER/" + modelName + ".ser.gz";
+    if (this.getClass().getClassLoader().getResource(resource) != null) {
+      // load the first classifier now
+      ModelRegistry.release(resource, borrowClassifier(resource));
+      finders.add(resource);
     }
   }
 
@@ -85,6 +101,12 @@ public NamedEntityStanford() {
 
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT };
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
@@ -97,14 +119,134 @@ public void run(Document doc, String[] annSetNames)
   // Read in the text from the raw file
   String text = doc.getText();
 
-  for (Annotation sent : sentSet) {
-    String sentText = Utils.getAnnotText(sent, text);
-    parseSentence(sentText, sent.getStartOffset(), namedEntities);
+  // the sentences worth tagging
+  Annotation[] sents = sentSet.toArray();
+  String[] sentTexts = new String[sents.length];
+  for (int s = 0; s < sents.length; s++) {
+    String sentText = Utils.getAnnotText(sents[s], text);
+    if (acceptableSentence(sentText)) {
+      sentTexts[s] = sentText;
+    }
   }
 
+  // tag the whole document with each model
+  List<List<List<Triple<String, Integer, Integer>>>> tagged = tagAll(sentTexts);
+
+  // add the entities sentence by sentence and model by model, as tagging one sentence at a time did
+  int[] starts = new int[64];
+  int[] ends = new int[64];
+  String[] types = new String[64];
+  int n = 0;
+  for (int s = 0; s < sents.length; s++) {
+    if (sentTexts[s] == null) {
+      continue;
+    }
+    int sentStart = sents[s].getStartOffset();
+    for (List<List<Triple<String, Integer, Integer>>> modelTags : tagged) {
+      for (Triple<String, Integer, Integer> tag : modelTags.get(s)) {
+        if (n == starts.length) {
+          starts = Arrays.copyOf(starts, 2 * n);
+          ends = Arrays.copyOf(ends, 2 * n);
+          types = Arrays.copyOf(types, 2 * n);
+        }
+        starts[n] = tag.second() + sentStart;
+        ends[n] = tag.third() + sentStart;
+        types[n++] = getTypeName(tag.first());
+      }
+    }
+  }
+  namedEntities.addSpans(starts, ends, types, n);
+
   addResultSet(doc,namedEntities);
 }
 
+/**
+ * Tag the sentences with every model. When there is more than one model, the models tag at the same time, each on its
+ * own thread.
+ *
+ * @return the tags by model and sentence
+ */
+private List<List<List<Triple<String, Integer, Integer>>>> tagAll(final String[] sentTexts)
+{
+  List<List<List<Triple<String, Integer, Integer>>>> result = Lists.newArrayList();
+  if (finders.size() == 1) {
+    result.add(tag(finders.get(0), sentTexts));
+    return result;
+  }
+
+  List<Future<List<List<Triple<String, Integer, Integer>>>>> futures = Lists.newArrayList();
+  try {
+    for (final String resource : finders) {
+      futures.add(getExecutor().submit(new Callable<List<List<Triple<String, Integer, Integer>>>>() {
+
+        public List<List<Triple<String, Integer, Integer>>> call()
+        {
+          return tag(resource, sentTexts);
+        }
+      }));
+    }
+    for (Future<List<List<Triple<String, Integer, Integer>>>> f : futures) {
+      result.add(f.get());
+    }
+  }
+  catch (ExecutionException e) {
+    if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+    throw new RuntimeException(e.getCause());
+  }
+  catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    throw new RuntimeException(e);
+  }
+  finally {
+    for (Future<?> f : futures) {
+      f.cancel(true);
+    }
+  }
+  return result;
+}
+
+/**
+ * Tag the sentences with one model, skipping the null ones
+ *
+ * @return the tags of each sentence, with character offsets within the sentence
+ */
+private List<List<Triple<String, Integer, Integer>>> tag(String resource, String[] sentTexts)
+{
+  List<List<Triple<String, Integer, Integer>>> result = Lists.newArrayListWithCapacity(sentTexts.length);
+  CRFClassifier findr = borrowClassifier(resource);
+  try {
+    for (String sentText : sentTexts) {
+      if (sentText == null) {
+        result.add(null);
+      }
+      else {
+        List<Triple<String, Integer, Integer>> sentTags = findr.classifyToCharacterOffsets(sentText);
+        result.add(sentTags);
+      }
+    }
+  }
+  finally {
+    ModelRegistry.release(resource, findr);
+  }
+  return result;
+}
+
+private synchronized ExecutorService getExecutor()
+{
+  if (executor == null) {
+    executor = Executors.newFixedThreadPool(finders.size(), new ThreadFactory() {
+
+      public Thread newThread(Runnable r)
+      {
+        Thread t = new Thread(r, "reconcile-ner");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+  return executor;
+}
+
 /**
  * @param sent
  * @param namedEntities
@@ -115,24 +257,41 @@ public void parseSentence(String sentText, int sentStart, AnnotationSet namedEnt
 
   if (!acceptableSentence(sentText)) return;
 
-  for (CRFClassifier findr : finders) {
+  for (String resource : finders) {
     // Tag the sentence
-    List<edu.stanford.nlp.util.Triple<String, Integer, Integer>> sentTags = findr.classifyToCharacterOffsets(sentText);
+    CRFClassifier findr = borrowClassifier(resource);
+    List<Triple<String, Integer, Integer>> sentTags;
+    try {
+      sentTags = findr.classifyToCharacterOffsets(sentText);
+    }
+    finally {
+      ModelRegistry.release(resource, findr);
+    }
 
     // loop through named entity tags
-    for (edu.stanford.nlp.util.Triple<String, Integer, Integer> tag : sentTags) {
-      String entity_type = tag.first();
-
+    for (Triple<String, Integer, Integer> tag : sentTags) {
       int entity_start = tag.second() + sentStart;
       int entity_end = tag.third() + sentStart;
 
-      entity_type = translateTypeName(entity_type);
-      namedEntities.add(entity_start, entity_end, entity_type.toUpperCase());
+      namedEntities.add(entity_start, entity_end, getTypeName(tag.first()));
     }
   }
 
 }
 
+/**
+ * @return the annotation type of an entity tag
+ */
+private String getTypeName(String tag)
+{
+  String type = mTypeNames.get(tag);
+  if (type == null) {
+    type = translateTypeName(tag).toUpperCase();
+    mTypeNames.put(tag, type);
+  }
+  return type;
+}
+
 /**
  * @param entity_type
  * @return
@@ -161,11 +320,15 @@ private String translateTypeName(String entity_type)
  */
 private boolean acceptableSentence(String sentStr)
 {
-  int len = sentStr.length();
-  String nonWord = pWord.matcher(sentStr).replaceAll("");
-  int count = len - nonWord.length();
-  if (count < 5) return false;
-  return true;
+  // count the word characters (\w), stopping at 5
+  int count = 0;
+  for (int i = 0; i < sentStr.length() && count < 5; i++) {
+    char c = sentStr.charAt(i);
+    if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_') {
+      count++;
+    }
+  }
+  return count >= 5;
 }
 
 }
@@ -35,6 +35,12 @@ public NamedEntityTagChunk() {
   models = currentConfig.getNERModels("tagchunkmodels");
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT, Constants.TOKEN };
+}
+
 @Override
 public void run(Document doc, String annSetNames[])
 {
@@ -20,6 +20,12 @@ private final Pattern paragraphRE = Pattern.compile("(\\n\\W*\\n)|(\\n\\t)|(\\n\
 public ParagraphSplitter() {
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] {};
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
@@ -37,27 +37,56 @@ private static final String BERKELEY_PARSER_MODEL = "BerkeleyParser/models/eng_s
 private static final int TOKEN_LIMIT = 100;
 private static final String[] BREAKS = { ";", ":", ",", "." };
 private CoarseToFineMaxRuleParser parser = null;
+private SentenceParserPool<CoarseToFineMaxRuleParser> pool;
+private Grammar grammar;
+private Lexicon lexicon;
 TreebankLanguagePack tlp;
 GrammaticalStructureFactory gsf;
 
 public ParserBerkeleyParser() {
-  InputStream res = this.getClass().getClassLoader().getResourceAsStream(BERKELEY_PARSER_MODEL);
+  // the grammar is only read while parsing, so one copy is shared by every parser in the process
+  ParserData pData = ModelRegistry.get(BERKELEY_PARSER_MODEL, new ModelRegistry.Loader<ParserData>() {
 
-  System.out.println("Reading Berkeley Parser grammar... " + BERKELEY_PARSER_MODEL);
-  ParserData pData = ParserData.Load(res);
+    public ParserData load()
+    {
+      InputStream res = ParserBerkeleyParser.class.getClassLoader().getResourceAsStream(BERKELEY_PARSER_MODEL);
 
-  if (pData == null) {
-    System.out.println("Failed to load grammar from file: " + BERKELEY_PARSER_MODEL + ".");
-    throw new RuntimeException("Failed to load grammar from file: " + BERKELEY_PARSER_MODEL + ".");
-  }
+      System.out.println("Reading Berkeley Parser grammar... " + BERKELEY_PARSER_MODEL);
+      ParserData pData = ParserData.Load(res);
+
+      if (pData == null) {
+        System.out.println("Failed to load grammar from file: " + BERKELEY_PARSER_MODEL + ".");
+        throw new RuntimeException("Failed to load grammar from file: " + BERKELEY_PARSER_MODEL + ".");
+      }
 
-  System.out.println("Done reading grammar...");
+      System.out.println("Done reading grammar...");
+      return pData;
+    }
+  });
 
   // set features
-  Grammar grammar = pData.getGrammar();
-  Lexicon lexicon = pData.getLexicon();
+  grammar = pData.getGrammar();
+  lexicon = pData.getLexicon();
   Numberer.setNumberers(pData.getNumbs());
 
+  // create a parser; the others in the pool share the grammar
+  parser = newParser();
+  pool = new SentenceParserPool<CoarseToFineMaxRuleParser>(parser,
+      new SentenceParserPool.ParserFactory<CoarseToFineMaxRuleParser>() {
+
+        public CoarseToFineMaxRuleParser newParser()
+        {
+          return ParserBerkeleyParser.this.newParser();
+        }
+      }, SentenceParserPool.getConfiguredSize());
+
+  // Some additional components needed for the dependency parse conversions
+  tlp = new PennTreebankLanguagePack();
+  gsf = tlp.grammaticalStructureFactory();
+}
+
+private CoarseToFineMaxRuleParser newParser()
+{
   double threshold = 1.0;
 
   boolean viterbiInsteadOfMaxRule = false;
@@ -65,13 +94,8 @@ public ParserBerkeleyParser() {
   boolean outputInsideScoresOnly = false;
   boolean accuracyOverEfficiency = false;
 
-  // create a parser
-  parser = new CoarseToFineMaxRuleParser(grammar, lexicon, threshold, -1, viterbiInsteadOfMaxRule, outputSubCategories,
+  return new CoarseToFineMaxRuleParser(grammar, lexicon, threshold, -1, viterbiInsteadOfMaxRule, outputSubCategories,
       outputInsideScoresOnly, accuracyOverEfficiency, false, false);
-
-  // Some additional components needed for the dependency parse conversions
-  tlp = new PennTreebankLanguagePack();
-  gsf = tlp.grammaticalStructureFactory();
 }
 
 public static void addChild(Annotation parent, Annotation child)
@@ -155,6 +179,12 @@ public ArrayList<Annotation> splitSentence(AnnotationSet toks, Annotation senten
   return result;
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT, Constants.TOKEN };
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
@@ -177,6 +207,8 @@ public void run(Document doc, String[] annSetNames)
   Iterator<Annotation> sentenceItr = sentSet.iterator();
 
   int sNum = 1;
+  List<Annotation[]> sentToks = new ArrayList<Annotation[]>();
+  List<List<String>> tokLists = new ArrayList<List<String>>();
 
   while (sentenceItr.hasNext()) {
 
@@ -214,28 +246,45 @@ public void run(Document doc, String[] annSetNames)
           tokList.add(Utils.getAnnotText(tok, text));
         }
       }
-
-      // System.out.println("Begin parsing sentence " + (sNum) +"...");
-
-      // parse this sentence
-      Tree<String> parsedTree = parser.getBestConstrainedParse(tokList, null);
-      parsedTree = TreeAnnotations.unAnnotateTree(parsedTree);
-      // System.out.println("Done parsing sentence " + (sNum++) +"...");
-      // System.out.println(parsedTree);
-      edu.stanford.nlp.trees.Tree stTree = reconcile.general.BerkeleyToStanfordTreeConverter.convert(parsedTree);
-      // add each node in tree to the annotation set of parses
-      // System.out.println(parsedTree);
-      // System.out.println(stTree);
-      addSpans(parsedTree, 0, sentTok.toArray(), parses, Annotation.getNullAnnot());
-      
-		GrammaticalStructure gs = gsf.newGrammaticalStructure(stTree);
-      Collection<TypedDependency> dep = gs.typedDependencies();
-      
-		ParserStanfordParser.addDepSpans(dep, sentTok.toArray(), depAnnots);
-      // ParserStanfordParser.removeConjunctions(depAnnots);
+      sentToks.add(sentTok.toArray());
+      tokLists.add(tokList);
     }
   }
 
+  // parse the sentences, in parallel if the pool has more than one parser
+  List<Tree<String>> trees = pool.parse(tokLists,
+      new SentenceParserPool.SentenceParse<CoarseToFineMaxRuleParser, List<String>, Tree<String>>() {
+
+        public int length(List<String> sentence)
+        {
+          return sentence.size();
+        }
+
+        public Tree<String> parse(CoarseToFineMaxRuleParser p, List<String> sentence)
+        {
+          Tree<String> parsedTree = p.getBestConstrainedParse(sentence, null);
+          return TreeAnnotations.unAnnotateTree(parsedTree);
+        }
+      });
+
+  // add the parses in sentence order
+  for (int s = 0; s < trees.size(); s++) {
+    Tree<String> parsedTree = trees.get(s);
+    Annotation[] sentTok = sentToks.get(s);
+    // System.out.println(parsedTree);
+    edu.stanford.nlp.trees.Tree stTree = reconcile.general.BerkeleyToStanfordTreeConverter.convert(parsedTree);
+    // add each node in tree to the annotation set of parses
+    // System.out.println(parsedTree);
+    // System.out.println(stTree);
+    addSpans(parsedTree, 0, sentTok, parses, Annotation.getNullAnnot());
+
+    GrammaticalStructure gs = gsf.newGrammaticalStructure(stTree);
+    Collection<TypedDependency> dep = gs.typedDependencies();
+
+    ParserStanfordParser.addDepSpans(dep, sentTok, depAnnots);
+    // ParserStanfordParser.removeConjunctions(depAnnots);
+  }
+
   addResultSet(doc,parses);
   addResultSet(doc,depAnnots);
 }
@@ -1,6 +1,5 @@
 package reconcile.featureExtractor;
 
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.util.ArrayList;
@@ -8,6 +7,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import reconcile.data.Annotation;
 import reconcile.data.AnnotationSet;
@@ -29,22 +29,39 @@ public class ParserStanfordParser
 public static final String MODEL_NAME = "Stanford/parser/englishFactored.ser.gz";
 
 private static final boolean DEBUG = true;
-private LexicalizedParser lp;
 private GrammaticalStructureFactory gsf;
+private SentenceParserPool<LexicalizedParser> pool;
 
 public ParserStanfordParser() {
   try {
     // set up the parser
-    InputStream in = this.getClass().getClassLoader().getResourceAsStream(MODEL_NAME);
-
     System.out.println("Reading grammar..." + MODEL_NAME);
     Options op = new Options();
     op.doDep = true;
 
-    lp = new LexicalizedParser(new ObjectInputStream(in));
+    // a parser keeps the state of the sentence it parses, so parsers are borrowed from the model registry for each
+    // document rather than shared; borrowing one here loads the first one
+    pool = new SentenceParserPool<LexicalizedParser>(MODEL_NAME,
+        new SentenceParserPool.ParserFactory<LexicalizedParser>() {
+
+          public LexicalizedParser newParser()
+          {
+            return loadParser();
+          }
+        }, SentenceParserPool.getConfiguredSize());
+    LexicalizedParser lp = ModelRegistry.borrow(MODEL_NAME, new ModelRegistry.Loader<LexicalizedParser>() {
 
-    lp.setOptionFlags(new String[] { "-maxLength", "80", "-retainTmpSubcategories" });// ,"-sentences","-tokenized"});
-    gsf = lp.getOp().tlpParams.treebankLanguagePack().grammaticalStructureFactory();
+      public LexicalizedParser load()
+      {
+        return loadParser();
+      }
+    });
+    try {
+      gsf = lp.getOp().tlpParams.treebankLanguagePack().grammaticalStructureFactory();
+    }
+    finally {
+      ModelRegistry.release(MODEL_NAME, lp);
+    }
     if (DEBUG) {
       System.err.println("ParserPack is " + op.tlpParams.getClass().getName());
     }
@@ -55,13 +72,23 @@ public ParserStanfordParser() {
 
     System.out.println("Done reading grammar...");
   }
-  catch (IOException e) {
+  catch (Exception e) {
     throw new RuntimeException(e);
   }
+
+}
+
+private static LexicalizedParser loadParser()
+{
+  try {
+    InputStream in = ParserStanfordParser.class.getClassLoader().getResourceAsStream(MODEL_NAME);
+    LexicalizedParser parser = new LexicalizedParser(new ObjectInputStream(in));
+    parser.setOptionFlags(new String[] { "-maxLength", "80", "-retainTmpSubcategories" });// ,"-sentences","-tokenized"});
+    return parser;
+  }
   catch (Exception e) {
     throw new RuntimeException(e);
   }
-
 }
 
 // recursive method to traverse a tree while adding spans of nodes to the annotset
@@ -159,10 +186,16 @@ public static void removeConjunctions(AnnotationSet dep)
   }
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT, Constants.TOKEN };
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
-  if (lp == null) throw new RuntimeException("Parser not initialized");
+  if (pool == null) throw new RuntimeException("Parser not initialized");
   AnnotationSet parses = new AnnotationSet(annSetNames[0]);
   AnnotationSet depAnnots = new AnnotationSet(annSetNames[1]);
 
@@ -177,24 +210,44 @@ public void run(Document doc, String[] annSetNames)
 
   // System.out.println("Done loading text...");
 
-  // loop through sentences
-  int numWords = 0;
-  int numSents = 0;
-  int num = 0;
+  // collect the words of the sentences
+  List<Annotation[]> sentToks = new ArrayList<Annotation[]>();
+  List<List<String>> sentWords = new ArrayList<List<String>>();
   for (Annotation sentence : sentSet) {
-    num++;
-    numSents++;
     AnnotationSet toks = tokSet.getContained(sentence);
-    int len = toks.size();
-    numWords += len;
-    System.err.println("Parsing [sent. " + num + " len. " + len + "]: " + Utils.getAnnotText(sentence, text));
-
-    List<String> sentWords = new ArrayList<String>();
+    List<String> words = new ArrayList<String>();
     for (Annotation tok : toks) {
-      sentWords.add(Utils.getAnnotText(tok, text));
+      words.add(Utils.getAnnotText(tok, text));
     }
-    Tree ansTree = lp.apply(sentWords);
-    addSpans(ansTree, 0, toks.toArray(), parses, Annotation.getNullAnnot());
+    sentToks.add(toks.toArray());
+    sentWords.add(words);
+  }
+
+  // parse them, in parallel if the pool has more than one parser
+  final int numSents = sentWords.size();
+  List<Tree> trees = pool.parse(sentWords,
+      new SentenceParserPool.SentenceParse<LexicalizedParser, List<String>, Tree>() {
+
+        private AtomicInteger num = new AtomicInteger();
+
+        public int length(List<String> sentence)
+        {
+          return sentence.size();
+        }
+
+        public Tree parse(LexicalizedParser parser, List<String> sentence)
+        {
+          System.err.println("Parsing [sent. " + num.incrementAndGet() + " of " + numSents + " len. "
+              + sentence.size() + "]: " + sentence);
+          return parser.apply(sentence);
+        }
+      });
+
+  // add the parses in sentence order
+  for (int s = 0; s < numSents; s++) {
+    Tree ansTree = trees.get(s);
+    Annotation[] toks = sentToks.get(s);
+    addSpans(ansTree, 0, toks, parses, Annotation.getNullAnnot());
     // Tree depTree = lp.getBestDependencyParse();
     // System.out.println(ansTree);
     // addSpans(depTree, 0, toks.toArray(), parses);
@@ -203,7 +256,7 @@ public void run(Document doc, String[] annSetNames)
     // Add the dependencies
     GrammaticalStructure gs = gsf.newGrammaticalStructure(ansTree);
     Collection<TypedDependency> dep = gs.typedDependencies();
-    addDepSpans(dep, toks.toArray(), depAnnots);
+    addDepSpans(dep, toks, depAnnots);
     // removeConjunctions(depAnnots);
   }
   addResultSet(doc,parses);
@@ -6,7 +6,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
@@ -18,36 +17,40 @@ import opennlp.tools.postag.POSTaggerME;
 import reconcile.data.Annotation;
 import reconcile.data.AnnotationSet;
 import reconcile.data.Document;
+import reconcile.data.SentenceTokens;
 import reconcile.general.Constants;
 
 public class PosTaggerOpenNLP
     extends InternalAnnotator {
 
+private static final String TAG_MODEL = "OpenNLP/models/tag.bin.gz";
+private static final String TAG_DICT = "OpenNLP/models/tagdict";
 private POSTaggerME tagr;
 
 public PosTaggerOpenNLP() {
-  try {
-    // Establish the models for the tagger
-    //InputStream resStream = this.getClass().getClassLoader().getResourceAsStream(Utils.lowercaseIfNec("OpenNLP")+"/models/tag.bin.gz");
-	  InputStream resStream = this.getClass().getClassLoader().getResourceAsStream("OpenNLP/models/tag.bin.gz");
-    DataInputStream dis = new DataInputStream(new GZIPInputStream(resStream));
-    
-
-    //InputStream tagDictRes = this.getClass().getClassLoader().getResourceAsStream(Utils.lowercaseIfNec("OpenNLP")+"/models/tagdict");
-    InputStream tagDictRes = this.getClass().getClassLoader().getResourceAsStream("OpenNLP/models/tagdict");
-    boolean caseSensitive = true;
-
-    tagr = null;
-
-    // set up the POS tagger
-    tagr = new POSTaggerME(getModel(dis), new DefaultPOSContextGenerator(null), new POSDictionary(new BufferedReader(
-        new InputStreamReader(tagDictRes)), caseSensitive));
-  }
-  catch (IOException e) {
-    e.printStackTrace();
-    throw new RuntimeException(e);
-  }
+  // the model and the tag dictionary are only read while tagging, so every tagger in the process shares them
+  MaxentModel model = ModelRegistry.get(TAG_MODEL, new ModelRegistry.Loader<MaxentModel>() {
+
+    public MaxentModel load()
+        throws IOException
+    {
+      InputStream resStream = PosTaggerOpenNLP.class.getClassLoader().getResourceAsStream(TAG_MODEL);
+      return getModel(new DataInputStream(new GZIPInputStream(resStream)));
+    }
+  });
+  POSDictionary tagDict = ModelRegistry.get(TAG_DICT, new ModelRegistry.Loader<POSDictionary>() {
+
+    public POSDictionary load()
+        throws IOException
+    {
+      InputStream tagDictRes = PosTaggerOpenNLP.class.getClassLoader().getResourceAsStream(TAG_DICT);
+      boolean caseSensitive = true;
+      return new POSDictionary(new BufferedReader(new InputStreamReader(tagDictRes)), caseSensitive);
+    }
+  });
 
+  // set up the POS tagger
+  tagr = new POSTaggerME(model, new DefaultPOSContextGenerator(null), tagDict);
 }
 
 private static MaxentModel getModel(DataInputStream in)
@@ -61,6 +64,12 @@ private static MaxentModel getModel(DataInputStream in)
   }
 }
 
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT, Constants.TOKEN };
+}
+
 @Override
 public void run(Document doc, String[] annSetNames)
 {
@@ -74,39 +83,34 @@ public void run(Document doc, String[] annSetNames)
   // Read in the text from the raw file
   String text = doc.getText();
 
-  Iterator<Annotation> sents = sentSet.iterator();
-  while (sents.hasNext()) {
-    Annotation sent = (sents.next());
+  // the tokens that make up each sentence
+  SentenceTokens sentToks = new SentenceTokens(sentSet, tokSet);
 
-    int sentStart = sent.getStartOffset();
-    int sentEnd = sent.getEndOffset();
+  // the tags of the whole document, added to the annotation set at the end
+  int numTokens = sentToks.getNumTokens();
+  int[] starts = new int[numTokens];
+  int[] ends = new int[numTokens];
+  String[] tagNames = new String[numTokens];
+  int n = 0;
 
-    // the tokens that make up this sentence
-    AnnotationSet sentToks = tokSet.getContained(sentStart, sentEnd);
-
-    // list containing text segments that make up each token
-    ArrayList<String> tokenList = new ArrayList<String>(sentToks.size());
-
-    // build the list
-    Iterator<Annotation> sentToksItr = sentToks.iterator();
-    while (sentToksItr.hasNext()) {
-      Annotation tok = (sentToksItr.next());
-      tokenList.add(text.substring(tok.getStartOffset(), tok.getEndOffset()));
-    }
+  // list containing text segments that make up each token, reused for every sentence
+  ArrayList<String> tokenList = new ArrayList<String>();
+  for (int s = 0; s < sentToks.size(); s++) {
+    sentToks.getWords(s, text, tokenList);
 
     // Tag the sentece
     @SuppressWarnings("unchecked")
     List sentTags = tagr.tag(tokenList);
 
-    // reset the iterator
-    sentToksItr = sentToks.iterator();
-
-    // add each tag to the annotation set, looping in parallel with sentToksItr
-    for (Object tag : sentTags) {
-      Annotation tok = (sentToksItr.next());
-      tags.add(tok.getStartOffset(), tok.getEndOffset(), (String) tag);
+    // the tags are in the order of the tokens
+    for (int i = 0; i < sentTags.size(); i++) {
+      Annotation tok = sentToks.getToken(s, i);
+      starts[n] = tok.getStartOffset();
+      ends[n] = tok.getEndOffset();
+      tagNames[n++] = (String) sentTags.get(i);
     }
   }
+  tags.addSpans(starts, ends, tagNames, n);
 
   addResultSet(doc,tags);
 
@@ -0,0 +1,291 @@
+package reconcile.featureExtractor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reconcile.general.Utils;
+
+/**
+ * Parses the sentences of a document in parallel with a bounded pool of parser instances. Parsers keep per-sentence
+ * state, so each thread borrows its own parser from the pool for every sentence; extra parsers are only made the first
+ * time they are needed. Sentences are handed out longest first, so one long sentence does not end up alone at the end
+ * of the run, and the results come back in sentence order: annotators add them to their annotation sets on the calling
+ * thread exactly as the serial loop did, so the annotations and their ids do not depend on the number of threads.
+ * <p>
+ * The pool size is set by PARSER_THREADS (1, the default, parses on the calling thread). Documents processed in
+ * parallel (NUM_WORKERS) each get their own annotators and pools. A pool made with a model name does not keep its
+ * parsers: they are borrowed from the {@link ModelRegistry} when a parse needs them and handed back when it is done, so
+ * pools (and annotators) made one after the other reuse the same parsers.
+ *
+ * @param <P>
+ *          the parser type
+ */
+public class SentenceParserPool<P> {
+
+/**
+ * Config key for the number of parser instances, and threads, per pool
+ */
+public static final String PARSER_THREADS = "PARSER_THREADS";
+
+/**
+ * Makes the additional parsers of a pool
+ */
+public interface ParserFactory<P> {
+
+P newParser();
+}
+
+/**
+ * Parses one sentence
+ *
+ * @param <S>
+ *          the sentence as the parser takes it (e.g. a list of tokens)
+ * @param <R>
+ *          the parse
+ */
+public interface SentenceParse<P, S, R> {
+
+/**
+ * @return a measure of how long the sentence takes to parse, e.g. its number of tokens
+ */
+int length(S sentence);
+
+R parse(P parser, S sentence)
+    throws Exception;
+}
+
+/**
+ * @return the configured pool size
+ */
+public static int getConfiguredSize()
+{
+  return Math.max(1, Utils.getConfig().getInt(PARSER_THREADS, 1));
+}
+
+private final int size;
+private final ParserFactory<P> factory;
+private final String modelName;
+private final LinkedBlockingQueue<P> idle = new LinkedBlockingQueue<P>();
+private int numParsers;
+private ExecutorService executor;
+
+/**
+ * @param first
+ *          the parser the annotator already loaded
+ * @param factory
+ *          makes the other parsers
+ */
+public SentenceParserPool(P first, ParserFactory<P> factory, int size) {
+  this.size = Math.max(1, size);
+  this.factory = factory;
+  modelName = null;
+  idle.add(first);
+  numParsers = 1;
+}
+
+/**
+ * A pool whose parsers are borrowed from the {@link ModelRegistry}
+ *
+ * @param modelName
+ *          the name of the parser model in the registry
+ * @param factory
+ *          loads a parser when the registry has none to spare
+ */
+public SentenceParserPool(String modelName, final ParserFactory<P> factory, int size) {
+  this.size = Math.max(1, size);
+  this.factory = factory;
+  this.modelName = modelName;
+  numParsers = 0;
+}
+
+public int size()
+{
+  return size;
+}
+
+/**
+ * Parse the sentences
+ *
+ * @return the parses, in the order of the sentences
+ */
+public <S, R> List<R> parse(final List<S> sentences, final SentenceParse<P, S, R> parse)
+{
+  try {
+    return parseAll(sentences, parse);
+  }
+  finally {
+    if (modelName != null) {
+      releaseParsers();
+    }
+  }
+}
+
+private <S, R> List<R> parseAll(final List<S> sentences, final SentenceParse<P, S, R> parse)
+{
+  final List<R> results = new ArrayList<R>(sentences.size());
+  for (int i = 0; i < sentences.size(); i++) {
+    results.add(null);
+  }
+  if (size == 1 || sentences.size() <= 1) {
+    for (int i = 0; i < sentences.size(); i++) {
+      results.set(i, parseWithPooledParser(sentences.get(i), parse));
+    }
+    return results;
+  }
+
+  // longest first
+  final int[] lengths = new int[sentences.size()];
+  Integer[] order = new Integer[sentences.size()];
+  for (int i = 0; i < order.length; i++) {
+    lengths[i] = parse.length(sentences.get(i));
+    order[i] = i;
+  }
+  Arrays.sort(order, new Comparator<Integer>() {
+
+    public int compare(Integer o1, Integer o2)
+    {
+      return lengths[o2] - lengths[o1];
+    }
+  });
+
+  ExecutorService exec = getExecutor();
+  List<Future<?>> futures = new ArrayList<Future<?>>(order.length);
+  try {
+    for (final Integer i : order) {
+      futures.add(exec.submit(new Callable<Object>() {
+
+        public Object call()
+        {
+          results.set(i, parseWithPooledParser(sentences.get(i), parse));
+          return null;
+        }
+      }));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+  }
+  catch (ExecutionException e) {
+    if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+    throw new RuntimeException(e.getCause());
+  }
+  catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    throw new RuntimeException(e);
+  }
+  finally {
+    for (Future<?> f : futures) {
+      f.cancel(true);
+    }
+  }
+  return results;
+}
+
+private <S, R> R parseWithPooledParser(S sentence, SentenceParse<P, S, R> parse)
+{
+  P parser = acquire();
+  try {
+    return parse.parse(parser, sentence);
+  }
+  catch (RuntimeException e) {
+    throw e;
+  }
+  catch (Exception e) {
+    throw new RuntimeException(e);
+  }
+  finally {
+    idle.add(parser);
+  }
+}
+
+private P acquire()
+{
+  P parser = idle.poll();
+  if (parser != null) return parser;
+  boolean borrow = false;
+  synchronized (this) {
+    if (numParsers < size) {
+      numParsers++;
+      if (modelName == null) {
+        System.out.println("Creating parser " + numParsers + " of " + size);
+        return factory.newParser();
+      }
+      borrow = true;
+    }
+  }
+  // outside the lock, as the registry may have to load a parser
+  if (borrow) return borrow();
+  try {
+    return idle.take();
+  }
+  catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    throw new RuntimeException(e);
+  }
+}
+
+private P borrow()
+{
+  try {
+    return ModelRegistry.borrow(modelName, new ModelRegistry.Loader<P>() {
+
+      public P load()
+      {
+        return factory.newParser();
+      }
+    });
+  }
+  catch (RuntimeException e) {
+    synchronized (this) {
+      numParsers--;
+    }
+    throw e;
+  }
+}
+
+/**
+ * Hand the idle parsers back to the registry
+ */
+private synchronized void releaseParsers()
+{
+  P parser;
+  while ((parser = idle.poll()) != null) {
+    ModelRegistry.release(modelName, parser);
+    numParsers--;
+  }
+}
+
+private synchronized ExecutorService getExecutor()
+{
+  if (executor == null) {
+    executor = Executors.newFixedThreadPool(size, new ParserThreadFactory());
+  }
+  return executor;
+}
+
+private static class ParserThreadFactory
+    implements ThreadFactory {
+
+private static final AtomicInteger poolNum = new AtomicInteger(0);
+private final AtomicInteger threadNum = new AtomicInteger(0);
+private final String prefix = "reconcile-parser-" + poolNum.incrementAndGet() + "-";
+
+public Thread newThread(Runnable r)
+{
+  Thread t = new Thread(r, prefix + threadNum.incrementAndGet());
+  t.setDaemon(true);
+  return t;
+}
+}
+
+}
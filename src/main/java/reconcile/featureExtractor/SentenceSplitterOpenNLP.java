@@ -7,6 +7,7 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.zip.GZIPInputStream;
 
+import opennlp.maxent.MaxentModel;
 import opennlp.maxent.io.BinaryGISModelReader;
 import opennlp.tools.sentdetect.SentenceDetector;
 import opennlp.tools.sentdetect.SentenceDetectorME;
@@ -19,20 +20,28 @@ import reconcile.general.Utils;
 public class SentenceSplitterOpenNLP
     extends InternalAnnotator {
 
+private static final String SENTENCE_MODEL = "OpenNLP/models/EnglishSD.bin.gz";
 private SentenceDetector sdetector;
 
 public SentenceSplitterOpenNLP() {
-  // set up the sentence splitter
-  try {
-    //InputStream resStream = this.getClass().getClassLoader().getResourceAsStream(Utils.lowercaseIfNec("OpenNLP")+"/models/EnglishSD.bin.gz");
-    InputStream resStream = this.getClass().getClassLoader().getResourceAsStream("OpenNLP/models/EnglishSD.bin.gz");
-    DataInputStream dis = new DataInputStream(new GZIPInputStream(resStream));
-    sdetector = new SentenceDetectorME((new BinaryGISModelReader(dis)).getModel());
+  // set up the sentence splitter; the model is shared by every splitter in the process
+  MaxentModel model = ModelRegistry.get(SENTENCE_MODEL, new ModelRegistry.Loader<MaxentModel>() {
 
-  }
-  catch (IOException e) {
-    e.printStackTrace();
-  }
+    public MaxentModel load()
+        throws IOException
+    {
+      InputStream resStream = SentenceSplitterOpenNLP.class.getClassLoader().getResourceAsStream(SENTENCE_MODEL);
+      DataInputStream dis = new DataInputStream(new GZIPInputStream(resStream));
+      return new BinaryGISModelReader(dis).getModel();
+    }
+  });
+  sdetector = new SentenceDetectorME(model);
+}
+
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.PAR };
 }
 
 @Override
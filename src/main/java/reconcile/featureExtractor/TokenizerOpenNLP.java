@@ -6,6 +6,7 @@ import java.io.InputStream;
 import java.util.Iterator;
 import java.util.zip.GZIPInputStream;
 
+import opennlp.maxent.MaxentModel;
 import opennlp.maxent.io.BinaryGISModelReader;
 import opennlp.tools.tokenize.TokenizerME;
 import opennlp.tools.util.Span;
@@ -22,18 +23,24 @@ private static final String OPEN_NLP_TOKENIZER_MODEL = "OpenNLP/models/EnglishTo
 private TokenizerME tknzr;
 
 public TokenizerOpenNLP() {
-  try {
-    // set up the tokenizer
-    InputStream resStream = this.getClass().getClassLoader().getResourceAsStream(OPEN_NLP_TOKENIZER_MODEL);
-    DataInputStream dis = new DataInputStream(new GZIPInputStream(resStream));
+  // set up the tokenizer; the model is shared by every tokenizer in the process
+  MaxentModel model = ModelRegistry.get(OPEN_NLP_TOKENIZER_MODEL, new ModelRegistry.Loader<MaxentModel>() {
 
-    tknzr = null;
-    tknzr = new TokenizerME((new BinaryGISModelReader(dis)).getModel());
-  }
-  catch (IOException e) {
-    e.printStackTrace();
-    throw new RuntimeException(e);
-  }
+    public MaxentModel load()
+        throws IOException
+    {
+      InputStream resStream = TokenizerOpenNLP.class.getClassLoader().getResourceAsStream(OPEN_NLP_TOKENIZER_MODEL);
+      DataInputStream dis = new DataInputStream(new GZIPInputStream(resStream));
+      return new BinaryGISModelReader(dis).getModel();
+    }
+  });
+  tknzr = new TokenizerME(model);
+}
+
+@Override
+public String[] getRequiredAnnotationSets()
+{
+  return new String[] { Constants.SENT };
 }
 
 @Override
@@ -6,14 +6,15 @@
  */
 package reconcile.featureVector;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AllFeatures {
 
 /*
  * Factory for creating feature objects
  */
-public static HashMap<String, Feature> featMap;
+public static final Map<String, Feature> featMap = new ConcurrentHashMap<String, Feature>();
 
 /*
  * Feature definitions
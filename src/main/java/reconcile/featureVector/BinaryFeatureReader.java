@@ -0,0 +1,234 @@
+package reconcile.featureVector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+
+/**
+ * Reads the feature files written by {@link FeatureWriterBinary}. The schema is read when the reader is created; rows
+ * are then read one at a time with {@link #next()} and their values are available until the next call.
+ */
+public class BinaryFeatureReader {
+
+private DataInputStream in;
+private String relationName;
+private String[] names;
+private byte[] types;
+private String[][] nominalValues;
+
+private double[] rowValues;
+private String[] rowStrings;
+
+public BinaryFeatureReader(InputStream input)
+    throws IOException {
+  in = input instanceof DataInputStream ? (DataInputStream) input : new DataInputStream(
+      input instanceof BufferedInputStream ? input : new BufferedInputStream(input));
+  readHeader();
+}
+
+private void readHeader()
+    throws IOException
+{
+  int magic = in.readInt();
+  if (magic != FeatureWriterBinary.MAGIC) throw new IOException("Not a binary feature file");
+  int version = in.readInt();
+  if (version != FeatureWriterBinary.VERSION) throw new IOException("Unsupported feature file version " + version);
+  relationName = in.readUTF();
+  int numAtts = in.readInt();
+  names = new String[numAtts];
+  types = new byte[numAtts];
+  nominalValues = new String[numAtts][];
+  for (int i = 0; i < numAtts; i++) {
+    names[i] = in.readUTF();
+    types[i] = in.readByte();
+    if (types[i] == FeatureWriterBinary.NOMINAL) {
+      String[] vals = new String[in.readInt()];
+      for (int j = 0; j < vals.length; j++) {
+        vals[j] = in.readUTF();
+      }
+      nominalValues[i] = vals;
+    }
+  }
+  rowValues = new double[numAtts];
+  rowStrings = new String[numAtts];
+}
+
+public String getRelationName()
+{
+  return relationName;
+}
+
+public int numAttributes()
+{
+  return names.length;
+}
+
+public String getAttributeName(int att)
+{
+  return names[att];
+}
+
+public byte getAttributeType(int att)
+{
+  return types[att];
+}
+
+/**
+ * @return the declared values of a nominal attribute, or null for other attributes
+ */
+public String[] getNominalValues(int att)
+{
+  return nominalValues[att];
+}
+
+/**
+ * Read the next row
+ *
+ * @return false when there are no more rows
+ */
+public boolean next()
+    throws IOException
+{
+  byte tag;
+  try {
+    tag = in.readByte();
+  }
+  catch (EOFException e) {
+    // a file that was not closed properly; keep the rows that made it
+    return false;
+  }
+  if (tag == FeatureWriterBinary.END) return false;
+  for (int i = 0; i < names.length; i++) {
+    switch (types[i]) {
+      case FeatureWriterBinary.NOMINAL:
+        int index = FeatureWriterBinary.isByteWidth(nominalValues[i].length) ? in.readByte() : in.readShort();
+        rowValues[i] = index < 0 ? Double.NaN : index;
+        break;
+      case FeatureWriterBinary.STRING:
+        rowStrings[i] = in.readBoolean() ? in.readUTF() : null;
+        rowValues[i] = rowStrings[i] == null ? Double.NaN : 0;
+        break;
+      default:
+        rowValues[i] = in.readFloat();
+    }
+  }
+  return true;
+}
+
+/**
+ * @return the value of an attribute in the current row: the value index for nominal attributes, the number for numeric
+ *         ones; NaN if the value is missing
+ */
+public double value(int att)
+{
+  return rowValues[att];
+}
+
+public boolean isMissing(int att)
+{
+  return Double.isNaN(rowValues[att]);
+}
+
+/**
+ * @return the value of a string attribute in the current row
+ */
+public String stringValue(int att)
+{
+  return rowStrings[att];
+}
+
+/**
+ * Print the schema as an ARFF header
+ */
+public void printArffHeader(PrintWriter out)
+{
+  out.println("@RELATION\t" + relationName);
+  out.println();
+  for (int i = 0; i < names.length; i++) {
+    out.print("@ATTRIBUTE\t" + names[i] + "\t");
+    if (types[i] == FeatureWriterBinary.NOMINAL) {
+      out.print("{");
+      String separator = "";
+      for (String val : nominalValues[i]) {
+        out.print(separator + val);
+        separator = ",";
+      }
+      out.println("}");
+    }
+    else if (types[i] == FeatureWriterBinary.STRING) {
+      out.println("STRING");
+    }
+    else {
+      out.println("NUMERIC");
+    }
+  }
+  out.println();
+  out.println("@DATA");
+}
+
+/**
+ * Print the remaining rows as ARFF data lines
+ */
+public void printArffData(PrintWriter out)
+    throws IOException
+{
+  while (next()) {
+    for (int i = 0; i < names.length; i++) {
+      if (i > 0) {
+        out.print(",");
+      }
+      if (isMissing(i)) {
+        out.print(FeatureWriterBinary.MISSING);
+      }
+      else if (types[i] == FeatureWriterBinary.NOMINAL) {
+        out.print(nominalValues[i][(int) rowValues[i]]);
+      }
+      else if (types[i] == FeatureWriterBinary.STRING) {
+        out.print("\"" + rowStrings[i] + "\"");
+      }
+      else {
+        float f = (float) rowValues[i];
+        if (f == (int) f) {
+          out.print((int) f);
+        }
+        else {
+          out.print(f);
+        }
+      }
+    }
+    out.println();
+  }
+}
+
+/**
+ * Convert a binary feature file to ARFF
+ */
+public static void toArff(File binaryFile, File arffFile)
+    throws IOException
+{
+  BinaryFeatureReader reader = new BinaryFeatureReader(new FileInputStream(binaryFile));
+  PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(arffFile)));
+  try {
+    reader.printArffHeader(out);
+    reader.printArffData(out);
+  }
+  finally {
+    out.close();
+    reader.close();
+  }
+}
+
+public void close()
+    throws IOException
+{
+  in.close();
+}
+
+}
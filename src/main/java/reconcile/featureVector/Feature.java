@@ -13,6 +13,8 @@ public abstract class Feature {
 
 protected String name;
 protected boolean ignore = false;
+// the index of this feature in array-backed feature vectors, assigned when the feature is created
+private int ordinal = -1;
 
 public Feature() {
   name = getClass().getSimpleName();
@@ -41,8 +43,8 @@ public String getValue(Annotation np1, Annotation np2, Document doc, Map<Feature
   String val = featVector.get(this);
   if (val == null) {
     val = produceValue(np1, np2, doc, featVector);
+    featVector.put(this, val);
   }
-  featVector.put(this, val);
   return val;
 }
 
@@ -51,6 +53,16 @@ public String getName()
   return name;
 }
 
+public int getOrdinal()
+{
+  return ordinal;
+}
+
+public void setOrdinal(int ordinal)
+{
+  this.ordinal = ordinal;
+}
+
 public boolean ignoreFeature()
 {
   return ignore;
@@ -0,0 +1,158 @@
+package reconcile.featureVector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The attribute columns a list of features turns into, laid out the same way the ARFF writers lay them out: with
+ * binarization every nominal feature with more than two values becomes one {0,1} column per value, a two valued one a
+ * single {0,1} column, and a two valued "class" feature stays as it is. Used by the writers and classifiers that work
+ * on column values rather than on ARFF text.
+ */
+public class FeatureColumns {
+
+public static final byte NUMERIC = 0;
+public static final byte NOMINAL = 1;
+public static final byte STRING = 2;
+
+public static final String MISSING = "?";
+
+private static final String[] BINARY = { "0", "1" };
+
+private Feature[] colFeature;
+private byte[] colType;
+private String[][] colValues;
+private String[] colName;
+/*
+ * For binarized nominal features, the index of the value the column indicates; -1 if the column holds the value index
+ * itself
+ */
+private int[] colIndicator;
+
+public FeatureColumns(List<Feature> featureList, boolean binarized) {
+  ArrayList<Feature> feats = new ArrayList<Feature>();
+  ArrayList<Byte> types = new ArrayList<Byte>();
+  ArrayList<String[]> values = new ArrayList<String[]>();
+  ArrayList<String> names = new ArrayList<String>();
+  ArrayList<Integer> indicators = new ArrayList<Integer>();
+  for (Feature f : featureList) {
+    if (f.isNominal()) {
+      String[] vals = ((NominalFeature) f).getValues();
+      boolean isClass = f.getName().equalsIgnoreCase("class") && vals.length == 2;
+      if (!binarized || isClass) {
+        feats.add(f);
+        types.add(NOMINAL);
+        values.add(vals);
+        names.add(f.getName());
+        indicators.add(-1);
+      }
+      else if (vals.length <= 2) {
+        feats.add(f);
+        types.add(NOMINAL);
+        values.add(BINARY);
+        names.add(f.getName());
+        indicators.add(0);
+      }
+      else {
+        for (int i = 0; i < vals.length; i++) {
+          feats.add(f);
+          types.add(NOMINAL);
+          values.add(BINARY);
+          names.add(f.getName() + "_" + vals[i]);
+          indicators.add(i);
+        }
+      }
+    }
+    else {
+      feats.add(f);
+      types.add(f.isString() ? STRING : NUMERIC);
+      values.add(null);
+      names.add(f.getName());
+      indicators.add(-1);
+    }
+  }
+  int n = feats.size();
+  colFeature = feats.toArray(new Feature[n]);
+  colValues = values.toArray(new String[n][]);
+  colName = names.toArray(new String[n]);
+  colType = new byte[n];
+  colIndicator = new int[n];
+  for (int i = 0; i < n; i++) {
+    colType[i] = types.get(i).byteValue();
+    colIndicator[i] = indicators.get(i).intValue();
+  }
+}
+
+public int numColumns()
+{
+  return colFeature.length;
+}
+
+public Feature getFeature(int col)
+{
+  return colFeature[col];
+}
+
+public String getName(int col)
+{
+  return colName[col];
+}
+
+public byte getType(int col)
+{
+  return colType[col];
+}
+
+/**
+ * @return the declared values of a nominal column, or null for other columns
+ */
+public String[] getValues(int col)
+{
+  return colValues[col];
+}
+
+/**
+ * @return the index of the value of a nominal column in {@link #getValues(int)}, or -1 if it is missing
+ */
+public int nominalValue(int col, Map<Feature, String> vals)
+{
+  int index = valueIndex(vals, colFeature[col]);
+  if (colIndicator[col] >= 0) return index == colIndicator[col] ? 1 : 0;
+  return index;
+}
+
+/**
+ * @return the value of a numeric column, or NaN if it is missing
+ */
+public double numericValue(int col, Map<Feature, String> vals)
+{
+  Feature f = colFeature[col];
+  if (vals instanceof FeatureVector) return ((FeatureVector) vals).getNumeric(f);
+  String s = vals.get(f);
+  if (s == null || MISSING.equals(s)) return Double.NaN;
+  return Double.parseDouble(s);
+}
+
+/**
+ * @return the value of a string column
+ */
+public String stringValue(int col, Map<Feature, String> vals)
+{
+  return vals.get(colFeature[col]);
+}
+
+private static int valueIndex(Map<Feature, String> vals, Feature f)
+{
+  if (vals instanceof FeatureVector) {
+    int index = ((FeatureVector) vals).getNominalIndex(f);
+    if (index >= 0) return index;
+  }
+  String s = vals.get(f);
+  if (s == null || MISSING.equals(s)) return -1;
+  int index = ((NominalFeature) f).getValueIndex(s);
+  if (index < 0) throw new RuntimeException("Value " + s + " of feature " + f.getName() + " is not declared");
+  return index;
+}
+
+}
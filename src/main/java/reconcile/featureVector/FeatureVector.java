@@ -0,0 +1,295 @@
+package reconcile.featureVector;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A reusable feature vector for one np pair, addressed by {@link Feature#getOrdinal()} instead of by hashing the
+ * feature. Values live in arrays that are allocated once and cleared with {@link #reset()} between pairs, so the pair
+ * loop does not allocate a map per instance. Nominal values are also kept as the index of the value in
+ * {@link NominalFeature#getValues()} and numeric values are parsed into a double the first time they are asked for.
+ * <p>
+ * The class implements <code>Map&lt;Feature,String&gt;</code> so that it can be handed to
+ * {@link Feature#produceValue(reconcile.data.Annotation, reconcile.data.Annotation, reconcile.data.Document, Map)}
+ * unchanged. Features without an ordinal are kept in a small overflow map. A vector is not thread safe; each worker
+ * uses its own.
+ */
+public class FeatureVector
+    extends AbstractMap<Feature, String> {
+
+private static final int INITIAL_CAPACITY = 128;
+
+private Feature[] keys;
+private String[] values;
+private int[] nominal;
+private double[] numeric;
+/*
+ * A slot is set in the current vector if its stamp equals the current generation, so a reset only bumps the generation
+ */
+private int[] stamp;
+private int[] numericStamp;
+private int generation = 1;
+private int size = 0;
+private HashMap<Feature, String> overflow = null;
+private EntrySet entrySet = null;
+
+public FeatureVector() {
+  this(INITIAL_CAPACITY);
+}
+
+public FeatureVector(int capacity) {
+  allocate(Math.max(1, capacity));
+}
+
+private void allocate(int capacity)
+{
+  keys = new Feature[capacity];
+  values = new String[capacity];
+  nominal = new int[capacity];
+  numeric = new double[capacity];
+  stamp = new int[capacity];
+  numericStamp = new int[capacity];
+}
+
+private void ensureCapacity(int ordinal)
+{
+  if (ordinal < keys.length) return;
+  int oldLen = keys.length;
+  Feature[] oldKeys = keys;
+  String[] oldValues = values;
+  int[] oldNominal = nominal;
+  double[] oldNumeric = numeric;
+  int[] oldStamp = stamp;
+  int[] oldNumericStamp = numericStamp;
+  allocate(Math.max(ordinal + 1, 2 * oldLen));
+  System.arraycopy(oldKeys, 0, keys, 0, oldLen);
+  System.arraycopy(oldValues, 0, values, 0, oldLen);
+  System.arraycopy(oldNominal, 0, nominal, 0, oldLen);
+  System.arraycopy(oldNumeric, 0, numeric, 0, oldLen);
+  System.arraycopy(oldStamp, 0, stamp, 0, oldLen);
+  System.arraycopy(oldNumericStamp, 0, numericStamp, 0, oldLen);
+}
+
+/**
+ * Clear all the values so that the vector can be filled for the next pair
+ */
+public void reset()
+{
+  if (generation == Integer.MAX_VALUE) {
+    Arrays.fill(stamp, 0);
+    Arrays.fill(numericStamp, 0);
+    generation = 0;
+  }
+  generation++;
+  size = 0;
+  if (overflow != null) {
+    overflow.clear();
+  }
+}
+
+private boolean isSet(int ordinal)
+{
+  return ordinal >= 0 && ordinal < stamp.length && stamp[ordinal] == generation;
+}
+
+public String get(Feature f)
+{
+  int ord = f.getOrdinal();
+  if (ord < 0) return overflow == null ? null : overflow.get(f);
+  return isSet(ord) ? values[ord] : null;
+}
+
+@Override
+public String get(Object key)
+{
+  return key instanceof Feature ? get((Feature) key) : null;
+}
+
+@Override
+public boolean containsKey(Object key)
+{
+  if (!(key instanceof Feature)) return false;
+  Feature f = (Feature) key;
+  int ord = f.getOrdinal();
+  if (ord < 0) return overflow != null && overflow.containsKey(f);
+  return isSet(ord);
+}
+
+@Override
+public String put(Feature f, String value)
+{
+  int ord = f.getOrdinal();
+  if (ord < 0) {
+    if (overflow == null) {
+      overflow = new HashMap<Feature, String>();
+    }
+    return overflow.put(f, value);
+  }
+  ensureCapacity(ord);
+  String old = null;
+  if (stamp[ord] == generation) {
+    old = values[ord];
+  }
+  else {
+    stamp[ord] = generation;
+    size++;
+  }
+  keys[ord] = f;
+  values[ord] = value;
+  nominal[ord] = f.isNominal() && value != null ? ((NominalFeature) f).getValueIndex(value) : -1;
+  numericStamp[ord] = 0;
+  return old;
+}
+
+@Override
+public String remove(Object key)
+{
+  if (!(key instanceof Feature)) return null;
+  Feature f = (Feature) key;
+  int ord = f.getOrdinal();
+  if (ord < 0) return overflow == null ? null : overflow.remove(f);
+  if (!isSet(ord)) return null;
+  stamp[ord] = 0;
+  size--;
+  return values[ord];
+}
+
+@Override
+public void clear()
+{
+  reset();
+}
+
+@Override
+public int size()
+{
+  return size + (overflow == null ? 0 : overflow.size());
+}
+
+/**
+ * @return the index of the value of a nominal feature in {@link NominalFeature#getValues()}, or -1 if the feature is
+ *         not set or its value is not one of the declared values
+ */
+public int getNominalIndex(Feature f)
+{
+  int ord = f.getOrdinal();
+  if (ord < 0) {
+    String val = get(f);
+    return val != null && f.isNominal() ? ((NominalFeature) f).getValueIndex(val) : -1;
+  }
+  return isSet(ord) ? nominal[ord] : -1;
+}
+
+/**
+ * @return the value of a numeric feature, or NaN if the feature is not set or its value is not a number
+ */
+public double getNumeric(Feature f)
+{
+  int ord = f.getOrdinal();
+  if (ord < 0) return parse(get(f));
+  if (!isSet(ord)) return Double.NaN;
+  if (numericStamp[ord] != generation) {
+    numeric[ord] = parse(values[ord]);
+    numericStamp[ord] = generation;
+  }
+  return numeric[ord];
+}
+
+private static double parse(String val)
+{
+  if (val == null) return Double.NaN;
+  try {
+    return Double.parseDouble(val);
+  }
+  catch (NumberFormatException e) {
+    return Double.NaN;
+  }
+}
+
+@Override
+public Set<Entry<Feature, String>> entrySet()
+{
+  if (entrySet == null) {
+    entrySet = new EntrySet();
+  }
+  return entrySet;
+}
+
+private class EntrySet
+    extends AbstractSet<Entry<Feature, String>> {
+
+@Override
+public Iterator<Entry<Feature, String>> iterator()
+{
+  return new EntryIterator();
+}
+
+@Override
+public int size()
+{
+  return FeatureVector.this.size();
+}
+}
+
+private class EntryIterator
+    implements Iterator<Entry<Feature, String>> {
+
+private int next = -1;
+private int last = -1;
+private Iterator<Entry<Feature, String>> overflowIter = null;
+
+EntryIterator() {
+  advance();
+}
+
+private void advance()
+{
+  next++;
+  while (next < stamp.length && stamp[next] != generation) {
+    next++;
+  }
+}
+
+public boolean hasNext()
+{
+  if (next < stamp.length) return true;
+  if (overflowIter == null && overflow != null) {
+    overflowIter = overflow.entrySet().iterator();
+  }
+  return overflowIter != null && overflowIter.hasNext();
+}
+
+public Entry<Feature, String> next()
+{
+  if (!hasNext()) throw new NoSuchElementException();
+  if (next < stamp.length) {
+    last = next;
+    advance();
+    return new SimpleEntry<Feature, String>(keys[last], values[last]);
+  }
+  last = -1;
+  return overflowIter.next();
+}
+
+public void remove()
+{
+  if (last >= 0) {
+    FeatureVector.this.remove(keys[last]);
+    last = -1;
+  }
+  else if (overflowIter != null) {
+    overflowIter.remove();
+  }
+  else {
+    throw new IllegalStateException();
+  }
+}
+}
+
+}
@@ -6,8 +6,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class FeatureWriter {
 
@@ -69,5 +69,5 @@ public void close()
 
 public abstract void printHeader();
 
-public abstract void printInstanceVector(HashMap<Feature, String> vals);
+public abstract void printInstanceVector(Map<Feature, String> vals);
 }
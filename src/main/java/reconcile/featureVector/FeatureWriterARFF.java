@@ -3,8 +3,8 @@ package reconcile.featureVector;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FeatureWriterARFF
     extends FeatureWriter {
@@ -96,7 +96,7 @@ public String printHeaderToString()
 }
 
 @Override
-public void printInstanceVector(HashMap<Feature, String> vals)
+public void printInstanceVector(Map<Feature, String> vals)
 {
   PrintWriter out = output;
   if (vals == null || vals.size() < 1) throw new RuntimeException("Empty feature value list");
@@ -125,7 +125,7 @@ public void printInstanceVector(HashMap<Feature, String> vals)
   out.flush();
 }
 
-public String printInstanceVectorToString(HashMap<Feature, String> vals)
+public String printInstanceVectorToString(Map<Feature, String> vals)
 {
   StringWriter res = new StringWriter();
   PrintWriter out = new PrintWriter(res);
@@ -6,6 +6,7 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FeatureWriterARFFBinarized
     extends FeatureWriter {
@@ -91,7 +92,7 @@ public String printHeaderToString()
 }
 
 @Override
-public void printInstanceVector(HashMap<Feature, String> vals)
+public void printInstanceVector(Map<Feature, String> vals)
 {
   PrintWriter out = output;
   if (vals == null || vals.size() < 1) throw new RuntimeException("Empty feature value list");
@@ -105,14 +106,15 @@ public void printInstanceVector(HashMap<Feature, String> vals)
     }
     else if (featureList.get(i).isNominal()) {
       ArrayList<String> nomValues = valueMap.get(featureList.get(i));
-      for (String nVal : nomValues) {
+      int index = nominalIndex(vals, f, s, nomValues);
+      for (int j = 0; j < nomValues.size(); j++) {
         if (first) {
           first = false;
         }
         else {
           out.print(",");
         }
-        if (s.equalsIgnoreCase(nVal)) {
+        if (j == index) {
           out.print("1");
         }
         else {
@@ -141,7 +143,20 @@ public void printInstanceVector(HashMap<Feature, String> vals)
   out.flush();
 }
 
-public String printInstanceVectorToString(HashMap<Feature, String> vals)
+/*
+ * The position of the feature's value among the binarized columns. An array-backed vector already knows the value
+ * ordinal; otherwise compare the strings.
+ */
+private static int nominalIndex(Map<Feature, String> vals, Feature f, String s, ArrayList<String> nomValues)
+{
+  if (vals instanceof FeatureVector) return ((FeatureVector) vals).getNominalIndex(f);
+  for (int j = 0; j < nomValues.size(); j++) {
+    if (s.equalsIgnoreCase(nomValues.get(j))) return j;
+  }
+  return -1;
+}
+
+public String printInstanceVectorToString(Map<Feature, String> vals)
 {
   StringWriter res = new StringWriter();
   PrintWriter out = new PrintWriter(res);
@@ -157,14 +172,15 @@ public String printInstanceVectorToString(HashMap<Feature, String> vals)
     }
     else if (featureList.get(i).isNominal()) {
       ArrayList<String> nomValues = valueMap.get(featureList.get(i));
-      for (String nVal : nomValues) {
+      int index = nominalIndex(vals, f, s, nomValues);
+      for (int j = 0; j < nomValues.size(); j++) {
         if (first) {
           first = false;
         }
         else {
           out.print(",");
         }
-        if (s.equalsIgnoreCase(nVal)) {
+        if (j == index) {
           out.print("1");
         }
         else {
@@ -0,0 +1,149 @@
+package reconcile.featureVector;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes feature vectors in a compact binary format instead of text ARFF. The file starts with the attribute schema
+ * (the same attributes the ARFF writers declare, binarized or not) followed by one fixed-width row per instance:
+ * nominal values are written as the index of the value (a byte when the attribute has fewer than 128 values, a short
+ * otherwise, -1 when missing), numeric values as floats (NaN when missing) and strings as UTF. Nothing has to be
+ * formatted on the way out or tokenized on the way back in; {@link BinaryFeatureReader} reads the files.
+ * <p>
+ * Layout: <code>MAGIC, VERSION, relation (UTF), numAttributes, {name (UTF), type, [numValues, values (UTF)...]}...,
+ * {ROW, values...}..., END</code>
+ */
+public class FeatureWriterBinary
+    extends FeatureWriter {
+
+/**
+ * The value of FEATURE_FORMAT that selects this format
+ */
+public static final String FORMAT = "bin";
+
+public static final int MAGIC = 0x52434656; // "RCFV"
+public static final int VERSION = 1;
+
+public static final byte NUMERIC = FeatureColumns.NUMERIC;
+public static final byte NOMINAL = FeatureColumns.NOMINAL;
+public static final byte STRING = FeatureColumns.STRING;
+
+public static final byte ROW = 1;
+public static final byte END = 0;
+
+public static final String MISSING = FeatureColumns.MISSING;
+
+private DataOutputStream out;
+private FeatureColumns columns;
+
+public FeatureWriterBinary(List<Feature> ftrs, OutputStream output, boolean binarized) {
+  super(ftrs);
+  this.out = new DataOutputStream(new BufferedOutputStream(output));
+  this.columns = new FeatureColumns(ftrs, binarized);
+}
+
+@Override
+public void printHeader()
+{
+  try {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeUTF("coref");
+    out.writeInt(columns.numColumns());
+    for (int i = 0; i < columns.numColumns(); i++) {
+      out.writeUTF(columns.getName(i));
+      out.writeByte(columns.getType(i));
+      if (columns.getType(i) == NOMINAL) {
+        String[] vals = columns.getValues(i);
+        out.writeInt(vals.length);
+        for (String v : vals) {
+          out.writeUTF(v);
+        }
+      }
+    }
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+@Override
+public void printInstanceVector(Map<Feature, String> vals)
+{
+  if (vals == null || vals.size() < 1) throw new RuntimeException("Empty feature value list");
+  try {
+    out.writeByte(ROW);
+    for (int i = 0; i < columns.numColumns(); i++) {
+      switch (columns.getType(i)) {
+        case NOMINAL:
+          int index = columns.nominalValue(i, vals);
+          if (isByteWidth(columns.getValues(i).length)) {
+            out.writeByte(index);
+          }
+          else {
+            out.writeShort(index);
+          }
+          break;
+        case STRING:
+          String s = columns.stringValue(i, vals);
+          out.writeBoolean(s != null);
+          if (s != null) {
+            out.writeUTF(s);
+          }
+          break;
+        default:
+          out.writeFloat((float) columns.numericValue(i, vals));
+      }
+    }
+  }
+  catch (IOException e) {
+    throw new RuntimeException(e);
+  }
+}
+
+@Override
+public void close()
+{
+  try {
+    out.writeByte(END);
+    out.close();
+  }
+  catch (IOException e) {
+    e.printStackTrace();
+  }
+}
+
+/**
+ * @return whether the values of a nominal attribute with this many values are written as bytes rather than shorts
+ */
+public static boolean isByteWidth(int numValues)
+{
+  return numValues < Byte.MAX_VALUE;
+}
+
+/**
+ * Check whether a stream holds a binary feature file. The stream must support mark/reset, and is left at its start.
+ */
+public static boolean isBinary(InputStream in)
+    throws IOException
+{
+  in.mark(4);
+  int magic = 0;
+  for (int i = 0; i < 4; i++) {
+    int b = in.read();
+    if (b < 0) {
+      in.reset();
+      return false;
+    }
+    magic = (magic << 8) | b;
+  }
+  in.reset();
+  return magic == MAGIC;
+}
+
+}
@@ -10,6 +10,21 @@ public boolean isNominal()
 
 public abstract String[] getValues();
 
+/**
+ * @return the index of the value in {@link #getValues()}, ignoring case, or -1 if it is not one of them
+ */
+public int getValueIndex(String value)
+{
+  String[] vals = getValues();
+  for (int i = 0; i < vals.length; i++) {
+    if (vals[i] == value) return i;
+  }
+  for (int i = 0; i < vals.length; i++) {
+    if (vals[i].equalsIgnoreCase(value)) return i;
+  }
+  return -1;
+}
+
 /*
  * A few basic feature values used throughout
  */
@@ -10,8 +10,11 @@ import reconcile.featureVector.Feature;
 import reconcile.featureVector.NominalFeature;
 import reconcile.features.FeatureUtils;
 import reconcile.features.FeatureUtils.NPSemTypeEnum;
+import reconcile.features.MentionInfo;
+import reconcile.features.MentionInfo.NameForm;
 import reconcile.features.properties.ContainsAcronym;
 import reconcile.features.properties.InfWords;
+import reconcile.features.properties.Mention;
 import reconcile.features.properties.NPSemanticType;
 import reconcile.features.properties.ProperNameType;
 import reconcile.features.properties.Property;
@@ -37,42 +40,7 @@ public String[] getValues()
 
 public static boolean isAcronym(String s1, String s2)
 {
-  boolean caps1 = FeatureUtils.isAllCaps(s1), caps2 = FeatureUtils.isAllCaps(s2);
-  if ((!caps1 && !caps2) || (caps1 && caps2)) return false;
-  String name, acr;
-  if (caps1) {
-    name = s2;
-    acr = s1;
-  }
-  else {
-    name = s1;
-    acr = s2;
-  }
-
-  acr = acr.replaceAll("\\.|\\s|\\&", "");
-  String[] words = FeatureUtils.getWords(name);
-  // Three posible versions of the name string
-  ArrayList<String> name1 = new ArrayList<String>(), name2 = new ArrayList<String>(), name3 = new ArrayList<String>();
-  // System.err.println(acr+" "+name);
-  for (String w : words) {
-    if (w.length() > 1) {
-      boolean inf = !FeatureUtils.isUninfWord(w);
-      // System.err.println(w);
-      boolean cap = FeatureUtils.isAllCaps(w.substring(0, 1));
-      boolean corpDes = FeatureUtils.isCorpDesign(w);
-      if (!corpDes && cap) {
-        name1.add(w);
-      }
-      if (cap) {
-        name2.add(w);
-      }
-      if (inf && cap && !corpDes) {
-        name3.add(w);
-      }
-    }
-  }
-  if (isAcronym(acr, name1) || isAcronym(acr, name2) || isAcronym(acr, name3)) return true;
-  return false;
+  return NameForm.isAcronym(new NameForm(s1), new NameForm(s2));
 }
 
 public static boolean isAcronym(String acr, ArrayList<String> name)
@@ -105,25 +73,30 @@ public String produceValue(Annotation np1, Annotation np2, Document doc, Map<Fea
   if (np1.overlaps(np2)) return INCOMPATIBLE;
   // if(AllFeatures.makeFeature("WordNetClass").getValue(np1, np2, annotations, text, featVector).equals(INCOMPATIBLE))
   // return INCOMPATIBLE;
-  if (FeatureUtils.isPronoun(np1, doc) || FeatureUtils.isPronoun(np2, doc)) return INCOMPATIBLE;
+  MentionInfo m1 = Mention.getValue(np1, doc);
+  MentionInfo m2 = Mention.getValue(np2, doc);
+  if (m1.isPronoun() || m2.isPronoun()) return INCOMPATIBLE;
   NPSemTypeEnum type1 = ProperNameType.getValue(np1, doc);
   NPSemTypeEnum type2 = ProperNameType.getValue(np2, doc);
   NPSemTypeEnum semType1 = NPSemanticType.getValue(np1, doc);
   NPSemTypeEnum semType2 = NPSemanticType.getValue(np2, doc);
 
-  String np1str = doc.getAnnotText(np1);
-  String np2str = doc.getAnnotText(np2);
+  String np1str = m1.getText();
+  String np2str = m2.getText();
   Annotation linkedPN2 = (Annotation) Property.LINKED_PROPER_NAME.getValueProp(np2, doc);
 
-  String[] words1 = doc.getWords(np1);
+  // the words come from the linked proper names, when there are some
+  MentionInfo w1 = m1;
   Annotation linkedPN1 = (Annotation) Property.LINKED_PROPER_NAME.getValueProp(np1, doc);
   if (linkedPN1 != null) {
-    words1 = doc.getWords(linkedPN1);
+    w1 = Mention.getValue(linkedPN1, doc);
   }
-  String[] words2 = doc.getWords(np2);
+  MentionInfo w2 = m2;
   if (linkedPN2 != null) {
-    words2 = doc.getWords(linkedPN2);
+    w2 = Mention.getValue(linkedPN2, doc);
   }
+  String[] words1 = w1.getWords();
+  String[] words2 = w2.getWords();
 
   // check for dates
   if (NPSemTypeEnum.DATE.equals(semType1) && NPSemTypeEnum.DATE.equals(semType2)) {
@@ -139,7 +112,7 @@ public String produceValue(Annotation np1, Annotation np2, Document doc, Map<Fea
 
   // check people
   if (NPSemTypeEnum.PERSON.equals(type1) || NPSemTypeEnum.PERSON.equals(type2)) {
-    if (!FeatureUtils.memberArray("and", words1) && !FeatureUtils.memberArray("and", words2)
+    if (!w1.containsAnd() && !w2.containsAnd()
         && words1[words1.length - 1].equalsIgnoreCase(words2[words2.length - 1])
         && !Constructor.createFeature("Gender").getValue(np1, np2, doc, featVector).equals(NominalFeature.INCOMPATIBLE)) {
       String[] infWords1 = InfWords.getValue(np1, doc);
@@ -161,11 +134,11 @@ public String produceValue(Annotation np1, Annotation np2, Document doc, Map<Fea
 
   if (ContainsAcronym.getValue(np1, doc) || ContainsAcronym.getValue(np2, doc)) {
     // test for acronyms
-    if (isAcronym(np1str, np2str)) return COMPATIBLE;
-    if (!FeatureUtils.memberArray("and", words1) && isAcronym(words1[words1.length - 1], np2str)) return COMPATIBLE;
-    if (!FeatureUtils.memberArray("and", words2) && isAcronym(np1str, words2[words2.length - 1])) return COMPATIBLE;
-    if (isAcronym(words1[words1.length - 1], words2[words2.length - 1]) && !FeatureUtils.memberArray("and", words1)
-        && !FeatureUtils.memberArray("and", words2)) return COMPATIBLE;
+    if (NameForm.isAcronym(m1.getTextForm(), m2.getTextForm())) return COMPATIBLE;
+    if (!w1.containsAnd() && NameForm.isAcronym(w1.getLastWordForm(), m2.getTextForm())) return COMPATIBLE;
+    if (!w2.containsAnd() && NameForm.isAcronym(m1.getTextForm(), w2.getLastWordForm())) return COMPATIBLE;
+    if (NameForm.isAcronym(w1.getLastWordForm(), w2.getLastWordForm()) && !w1.containsAnd() && !w2.containsAnd())
+      return COMPATIBLE;
   }
 
   if (FeatureUtils.NPSemTypeEnum.ORGANIZATION.equals(type1) && type1.equals(type2)) {
@@ -173,19 +146,21 @@ public String produceValue(Annotation np1, Annotation np2, Document doc, Map<Fea
     Annotation pn2 = (Annotation) np2.getProperty(Property.LINKED_PROPER_NAME);
     // if(pn1==null||pn2==null)
     // return INCOMPATIBLE;
-    String[] wds1 = doc.getWords(pn1);
-    String[] wds2 = doc.getWords(pn2);
+    MentionInfo p1 = Mention.getValue(pn1, doc);
+    MentionInfo p2 = Mention.getValue(pn2, doc);
+    String[] wds1 = p1.getWords();
+    String[] wds2 = p2.getWords();
     String[] inf1 = InfWords.getValue(np1, doc);
     String[] inf2 = InfWords.getValue(np2, doc);
     if (inf1 != null && inf1.length > 0 && FeatureUtils.equalsIgnoreCase(inf1, inf2)) return COMPATIBLE;
-    np1str = doc.getAnnotText(pn1);
-    np2str = doc.getAnnotText(pn2);
+    np1str = p1.getText();
+    np2str = p2.getText();
     if (ContainsAcronym.getValue(np1, doc) || ContainsAcronym.getValue(np2, doc)) {
-      if (isAcronym(np1str, np2str)) return COMPATIBLE;
-      if (isAcronym(words1[words1.length - 1], np2str) && !FeatureUtils.memberArray("and", words1)) return COMPATIBLE;
-      if (isAcronym(np1str, words2[words2.length - 1]) && !FeatureUtils.memberArray("and", words2)) return COMPATIBLE;
-      if (isAcronym(words1[words1.length - 1], words2[words2.length - 1]) && !FeatureUtils.memberArray("and", words1)
-          && !FeatureUtils.memberArray("and", words2)) return COMPATIBLE;
+      if (NameForm.isAcronym(p1.getTextForm(), p2.getTextForm())) return COMPATIBLE;
+      if (NameForm.isAcronym(w1.getLastWordForm(), p2.getTextForm()) && !w1.containsAnd()) return COMPATIBLE;
+      if (NameForm.isAcronym(p1.getTextForm(), w2.getLastWordForm()) && !w2.containsAnd()) return COMPATIBLE;
+      if (NameForm.isAcronym(w1.getLastWordForm(), w2.getLastWordForm()) && !w1.containsAnd() && !w2.containsAnd())
+        return COMPATIBLE;
       if ((startsWith(inf1, wds2) && !FeatureUtils.memberArray("and", wds2, inf1.length))
           || (startsWith(inf2, wds1) && !FeatureUtils.memberArray("and", wds1, inf2.length))) return COMPATIBLE;
     }
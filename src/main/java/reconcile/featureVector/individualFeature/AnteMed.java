@@ -9,6 +9,8 @@ import reconcile.data.Document;
 import reconcile.featureVector.Feature;
 import reconcile.featureVector.NumericFeature;
 import reconcile.features.FeatureUtils;
+import reconcile.features.MentionInfo;
+import reconcile.features.properties.Mention;
 
 
 /*
@@ -29,9 +31,9 @@ public AnteMed() {
 @Override
 public String produceValue(Annotation np1, Annotation np2, Document doc, Map<Feature, String> featVector)
 {
-  String s1 = doc.getAnnotString(np1);
-  String s2 = doc.getAnnotString(np2);
-  return nf.format(FeatureUtils.medMeasure(s2, s1));
+  MentionInfo m1 = Mention.getValue(np1, doc);
+  MentionInfo m2 = Mention.getValue(np2, doc);
+  return nf.format(FeatureUtils.medMeasure(m2.getStringLength(), m2.getLowerString(), m1.getLowerString()));
 }
 
 }
@@ -1,5 +1,6 @@
 package reconcile.featureVector.individualFeature;
 
+import java.util.List;
 import java.util.Map;
 
 import reconcile.Constructor;
@@ -88,7 +89,7 @@ private boolean isPrednomHelper(Annotation np1, Annotation np2, AnnotationSet pa
   // find the VX child
 
   boolean isCop = false;
-  AnnotationSet children = SyntaxUtils.getChildren(node1, parParse);
+  List<Annotation> children = SyntaxUtils.getChildren(node1, parParse);
   for (Annotation a : children) {
     if (a.getType().equals("VX") && SyntaxUtils.isCopular(doc.getAnnotText(a))) {
       isCop = true;
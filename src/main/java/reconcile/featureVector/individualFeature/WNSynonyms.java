@@ -7,6 +7,7 @@ import reconcile.data.Annotation;
 import reconcile.data.Document;
 import reconcile.featureVector.Feature;
 import reconcile.featureVector.NominalFeature;
+import reconcile.features.WordNet;
 import reconcile.features.properties.HeadNoun;
 import reconcile.features.properties.Synsets;
 
@@ -38,13 +39,7 @@ public String produceValue(Annotation np1, Annotation np2, Document doc, Map<Fea
   Synset[] syn1 = Synsets.getValue(np1, doc);
   Synset[] syn2 = Synsets.getValue(np2, doc);
 
-  if (syn1 != null && syn2 != null) {
-    for (Synset s1 : syn1) {
-      for (Synset s2 : syn2) {
-        if (s1.equals(s2)) return COMPATIBLE;
-      }
-    }
-  }
+  if (syn1 != null && syn2 != null && WordNet.getInstance().shareSynset(syn1, syn2)) return COMPATIBLE;
   return INCOMPATIBLE;
 }
 }
@@ -0,0 +1,159 @@
+package reconcile.features;
+
+/**
+ * Levenshtein edit distance (unit cost insertions, deletions and substitutions, case sensitive). When the shorter string
+ * has at most 64 characters, the distance is computed with the bit-parallel algorithm of Myers (in Hyyro's formulation),
+ * which handles a whole column of the dynamic programming table per machine word operation. Longer strings fall back to
+ * the table, two rows at a time. Each thread keeps its own scratch buffers, so nothing is allocated per call once they
+ * have grown to the longest string seen.
+ * <p>
+ * The bounded variant stops as soon as the distance is known to be above a limit, for callers that only need to know
+ * whether two strings are within some distance of each other.
+ */
+public class EditDistance {
+
+private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+
+  @Override
+  protected Scratch initialValue()
+  {
+    return new Scratch();
+  }
+};
+
+private static class Scratch {
+
+/** Match masks of the pattern characters below 256, by character; the others are found by scanning the pattern */
+final long[] peq = new long[256];
+int[] prev = new int[64];
+int[] cur = new int[64];
+}
+
+/**
+ * @return the edit distance between the strings
+ */
+public static int distance(String s1, String s2)
+{
+  return distance(s1, s2, Integer.MAX_VALUE - 1);
+}
+
+/**
+ * @return the edit distance between the strings if it is at most max, otherwise max + 1
+ */
+public static int distance(String s1, String s2, int max)
+{
+  // the pattern is the shorter string
+  String p = s1, t = s2;
+  if (p.length() > t.length()) {
+    p = s2;
+    t = s1;
+  }
+  int m = p.length(), n = t.length();
+  if (max < 0) return max + 1;
+  if (n - m > max) return max + 1;
+  if (m == 0) return n;
+  int d = m <= 64 ? myers(p, t, max) : twoRows(p, t, max);
+  return Math.min(d, max + 1);
+}
+
+private static int myers(String p, String t, int max)
+{
+  int m = p.length(), n = t.length();
+  long[] peq = scratch.get().peq;
+  boolean wide = false;
+  for (int i = 0; i < m; i++) {
+    char c = p.charAt(i);
+    if (c < 256) {
+      peq[c] |= 1L << i;
+    }
+    else {
+      wide = true;
+    }
+  }
+
+  long pv = -1L, mv = 0L;
+  long last = 1L << (m - 1);
+  int score = m;
+  int result = -1;
+  for (int j = 0; j < n; j++) {
+    char c = t.charAt(j);
+    long eq = c < 256 ? peq[c] : wide ? wideMask(p, c) : 0L;
+    long xv = eq | mv;
+    long xh = (((eq & pv) + pv) ^ pv) | eq;
+    long ph = mv | ~(xh | pv);
+    long mh = pv & xh;
+    if ((ph & last) != 0) {
+      score++;
+    }
+    else if ((mh & last) != 0) {
+      score--;
+    }
+    // the first row of the table goes up by one in every column
+    ph = (ph << 1) | 1L;
+    mh = mh << 1;
+    pv = mh | ~(xv | ph);
+    mv = ph & xv;
+    // each of the remaining columns lowers the last row by at most one
+    if (score - (n - j - 1) > max) {
+      result = max + 1;
+      break;
+    }
+  }
+
+  for (int i = 0; i < m; i++) {
+    char c = p.charAt(i);
+    if (c < 256) {
+      peq[c] = 0L;
+    }
+  }
+  return result < 0 ? score : result;
+}
+
+private static long wideMask(String p, char c)
+{
+  long mask = 0L;
+  for (int i = 0; i < p.length(); i++) {
+    if (p.charAt(i) == c) {
+      mask |= 1L << i;
+    }
+  }
+  return mask;
+}
+
+private static int twoRows(String p, String t, int max)
+{
+  int m = p.length(), n = t.length();
+  Scratch s = scratch.get();
+  if (s.prev.length < m + 1) {
+    s.prev = new int[2 * m + 1];
+    s.cur = new int[2 * m + 1];
+  }
+  int[] prev = s.prev;
+  int[] cur = s.cur;
+
+  // rows run over the pattern, one row per character of the text
+  for (int i = 0; i <= m; i++) {
+    prev[i] = i;
+  }
+  for (int j = 1; j <= n; j++) {
+    char c = t.charAt(j - 1);
+    cur[0] = j;
+    int rowMin = j;
+    for (int i = 1; i <= m; i++) {
+      int cost = p.charAt(i - 1) == c ? 0 : 1;
+      int d = Math.min(Math.min(prev[i] + 1, cur[i - 1] + 1), prev[i - 1] + cost);
+      cur[i] = d;
+      if (d < rowMin) {
+        rowMin = d;
+      }
+    }
+    // the distance is never below the smallest entry of a row
+    if (rowMin > max) return max + 1;
+    int[] tmp = prev;
+    prev = cur;
+    cur = tmp;
+  }
+  return prev[m];
+}
+
+}
@@ -0,0 +1,171 @@
+package reconcile.features;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks {@link EditDistance} against the full table implementation FeatureUtils.MED used to have, then times both on
+ * random np-like strings.
+ * <p>
+ * The check is exhaustive over all pairs of strings of up to 6 characters from a 3 letter alphabet, and also covers
+ * random strings on both sides of the 64 character limit of the bit-parallel version, characters above 255, and the
+ * bounded variant for every limit up to the distance.
+ * <p>
+ * Usage: EditDistanceBenchmark [numStrings] [rounds]
+ */
+public class EditDistanceBenchmark {
+
+public static void main(String[] args)
+{
+  int numStrings = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+  int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+  check();
+
+  Random rand = new Random(42);
+  String[] strings = new String[numStrings];
+  for (int i = 0; i < numStrings; i++) {
+    strings[i] = randomNp(rand);
+  }
+  System.out.println(numStrings + " strings, " + (long) numStrings * (numStrings - 1) / 2 + " pairs");
+  for (int round = 0; round < rounds; round++) {
+    long sum1 = 0, sum2 = 0;
+    long st = System.nanoTime();
+    for (int i = 0; i < numStrings; i++) {
+      for (int j = 0; j < i; j++) {
+        sum1 += tableDistance(strings[i].toLowerCase(), strings[j].toLowerCase());
+      }
+    }
+    long tableTime = System.nanoTime() - st;
+    st = System.nanoTime();
+    for (int i = 0; i < numStrings; i++) {
+      for (int j = 0; j < i; j++) {
+        sum2 += EditDistance.distance(strings[i].toLowerCase(), strings[j].toLowerCase());
+      }
+    }
+    long newTime = System.nanoTime() - st;
+    if (sum1 != sum2) throw new RuntimeException("distances differ");
+    System.out.printf("round %d: table %.1f ms, bit-parallel %.1f ms (%.1fx)\n", round, tableTime / 1e6,
+        newTime / 1e6, tableTime / (double) newTime);
+  }
+}
+
+private static final String[] WORDS = { "the", "president", "of", "United", "States", "Mr.", "Smith", "company",
+    "International", "Business", "Machines", "Corp.", "he", "it", "their", "new", "chief", "executive", "officer",
+    "Lawrence", "Livermore", "National", "Laboratory", "a", "spokesman", "for", "IBM", "its" };
+
+private static String randomNp(Random rand)
+{
+  StringBuilder sb = new StringBuilder();
+  int len = 1 + rand.nextInt(rand.nextInt(10) == 0 ? 15 : 4);
+  for (int i = 0; i < len; i++) {
+    if (i > 0) {
+      sb.append(' ');
+    }
+    sb.append(WORDS[rand.nextInt(WORDS.length)]);
+  }
+  return sb.toString();
+}
+
+private static void check()
+{
+  long checks = 0;
+  // every pair of short strings
+  List<String> all = new ArrayList<String>();
+  all.add("");
+  for (int len = 1; len <= 6; len++) {
+    int num = (int) Math.pow(3, len);
+    for (int k = 0; k < num; k++) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0, x = k; i < len; i++, x /= 3) {
+        sb.append((char) ('a' + x % 3));
+      }
+      all.add(sb.toString());
+    }
+  }
+  for (String s1 : all) {
+    for (String s2 : all) {
+      checkPair(s1, s2);
+      checks++;
+    }
+  }
+
+  // longer strings, including some past the bit-parallel limit and some beyond Latin-1
+  Random rand = new Random(7);
+  char[] alphabet = { 'a', 'b', 'c', 'd', ' ', '\u00e9', '\u0416', '\u4e2d' };
+  for (int k = 0; k < 20000; k++) {
+    String s1 = randomString(rand, alphabet, rand.nextInt(k % 10 == 0 ? 150 : 70));
+    String s2 = rand.nextBoolean() ? mutate(rand, alphabet, s1) : randomString(rand, alphabet, rand.nextInt(150));
+    checkPair(s1, s2);
+    checks++;
+  }
+  System.out.println("Edit distance check passed: " + checks + " pairs");
+}
+
+private static void checkPair(String s1, String s2)
+{
+  int expected = tableDistance(s1, s2);
+  int d = EditDistance.distance(s1, s2);
+  if (d != expected) throw new RuntimeException("distance(" + s1 + ", " + s2 + ") = " + d + ", expected " + expected);
+  for (int max = 0; max <= expected + 1; max++) {
+    int bounded = EditDistance.distance(s1, s2, max);
+    if (bounded != Math.min(expected, max + 1))
+      throw new RuntimeException("distance(" + s1 + ", " + s2 + ", " + max + ") = " + bounded + ", expected "
+          + expected);
+  }
+}
+
+private static String randomString(Random rand, char[] alphabet, int len)
+{
+  StringBuilder sb = new StringBuilder();
+  for (int i = 0; i < len; i++) {
+    sb.append(alphabet[rand.nextInt(alphabet.length)]);
+  }
+  return sb.toString();
+}
+
+private static String mutate(Random rand, char[] alphabet, String s)
+{
+  StringBuilder sb = new StringBuilder(s);
+  for (int k = rand.nextInt(6); k > 0; k--) {
+    int op = rand.nextInt(3);
+    int pos = rand.nextInt(sb.length() + 1);
+    if (op == 0) {
+      sb.insert(pos, alphabet[rand.nextInt(alphabet.length)]);
+    }
+    else if (pos < sb.length()) {
+      if (op == 1) {
+        sb.deleteCharAt(pos);
+      }
+      else {
+        sb.setCharAt(pos, alphabet[rand.nextInt(alphabet.length)]);
+      }
+    }
+  }
+  return sb.toString();
+}
+
+/**
+ * The distance as FeatureUtils.MED computed it, on strings already in lower case
+ */
+private static int tableDistance(String s1, String s2)
+{
+  int m = s1.length(), n = s2.length();
+  int[][] d = new int[m + 1][n + 1];
+  for (int i = 0; i <= m; i++) {
+    d[i][0] = i;
+  }
+  for (int j = 1; j <= n; j++) {
+    d[0][j] = j;
+  }
+  for (int i = 1; i <= m; i++) {
+    for (int j = 1; j <= n; j++) {
+      int cost = s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1;
+      d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+    }
+  }
+  return d[m][n];
+}
+
+}
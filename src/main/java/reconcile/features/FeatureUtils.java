@@ -20,10 +20,7 @@ import net.didion.jwnl.JWNLException;
 import net.didion.jwnl.data.IndexWord;
 import net.didion.jwnl.data.POS;
 import net.didion.jwnl.data.PointerType;
-import net.didion.jwnl.data.PointerUtils;
 import net.didion.jwnl.data.Synset;
-import net.didion.jwnl.data.list.PointerTargetNode;
-import net.didion.jwnl.data.list.PointerTargetNodeList;
 import net.didion.jwnl.data.relationship.RelationshipFinder;
 import net.didion.jwnl.data.relationship.RelationshipList;
 import net.didion.jwnl.dictionary.Dictionary;
@@ -160,112 +157,22 @@ public static boolean sameParagraph(Annotation np1, Annotation np2, Document doc
 
 public static int isWNHypernym(Synset child, String parent)
 {
-  initializeWordNet();
-  PointerTargetNodeList dp;
-  if (child.getWord(0).getLemma().equalsIgnoreCase(parent)) return 0;
-  Synset cur = child;
-  int curDepth = 0;
-  try {
-    while ((dp = PointerUtils.getInstance().getDirectHypernyms(cur)) != null && !dp.isEmpty()) {
-      curDepth++;
-      // System.out.println("*****");
-      Object pt = dp.get(0);
-      PointerTargetNode ptn = (PointerTargetNode) pt;
-      // System.out.println(ptn.getSynset().getWords()[0].getLemma());
-      cur = ptn.getSynset();
-      // System.out.println(cur.getWord(0).getLemma());
-      if (cur.getWord(0).getLemma().equalsIgnoreCase(parent)) return curDepth;
-
-      // if (dp.size() > 1)
-      // throw new RuntimeException("More than 1 hypernym");
-
-    }
-  }
-  catch (Exception e) {
-    throw new RuntimeException(e);
-  }
-  return -1;
+  return WordNet.getInstance().getDepth(child, parent);
 }
 
 public static int isWNHypernym(Synset child, Synset parent)
 {
-  initializeWordNet();
-  if (child.equals(parent)) return 0;
-  PointerTargetNodeList dp;
-  Synset cur = child;
-  int curDepth = 0;
-  try {
-    while ((dp = PointerUtils.getInstance().getDirectHypernyms(cur)) != null && !dp.isEmpty()) {
-      curDepth++;
-      // System.out.println("*****");
-      Object pt = dp.get(0);
-      PointerTargetNode ptn = (PointerTargetNode) pt;
-      // System.out.println(ptn.getSynset().getWords()[0].getLemma());
-      cur = ptn.getSynset();
-      if (cur.equals(parent)) return curDepth;
-
-      // if (dp.size() > 1)
-      // throw new RuntimeException("More than 1 hypernym");
-
-    }
-  }
-  catch (Exception e) {
-    throw new RuntimeException(e);
-  }
-  return -1;
+  return WordNet.getInstance().getDepth(child, parent);
 }
 
 public static int isWNHypernym(Synset child, Synset parent, int depth)
 {
-  initializeWordNet();
-  PointerTargetNodeList dp;
-  if (child.equals(parent)) return 0;
-  Synset cur = child;
-  int curDepth = 0;
-  try {
-    while ((dp = PointerUtils.getInstance().getDirectHypernyms(cur)) != null && !dp.isEmpty() && curDepth < depth) {
-      curDepth++;
-      // if (dp.size() > 1)
-      // throw new RuntimeException("More than 1 hypernym");
-
-      Object pt = dp.get(0);
-      PointerTargetNode ptn = (PointerTargetNode) pt;
-      cur = ptn.getSynset();
-      if (cur.equals(parent)) return curDepth;
-    }
-
-  }
-  catch (Exception e) {
-    throw new RuntimeException(e);
-  }
-  return -1;
+  return WordNet.getInstance().getDepth(child, parent, depth);
 }
 
 public static int getDistance(Synset s1, Synset s2, int max)
 {
-  initializeWordNet();
-  PointerTargetNodeList dp;
-  if (s1.equals(s2)) return 0;
-
-  Synset cur = s2;
-  int depth = 0, depth2 = isWNHypernym(s1, cur, max);
-  if (depth2 >= 0) return depth2;
-  try {
-    while ((dp = PointerUtils.getInstance().getDirectHypernyms(cur)) != null && !dp.isEmpty() && depth < max) {
-      depth++;
-      Object pt = dp.get(0);
-      PointerTargetNode ptn = (PointerTargetNode) pt;
-
-      cur = ptn.getSynset();
-      // System.out.println(cur);
-      if ((depth2 = isWNHypernym(s1, cur, max)) >= 0) return depth + depth2 < max ? depth + depth2 : max;
-    }
-
-  }
-  catch (Exception e) {
-    throw new RuntimeException(e);
-  }
-  return max;
+  return WordNet.getInstance().getDistance(s1, s2, max);
 }
 
 public static boolean isCorpDesign(String s)
@@ -635,47 +542,29 @@ public static String[] getWords(String textSpan)
 
 public static int MED(String s1, String s2)
 {
+  return editDistance(s1.toLowerCase(), s2.toLowerCase());
+}
 
-  s1 = s1.toLowerCase();
-  s2 = s2.toLowerCase();
-  int m = s1.length(), n = s2.length();
-
-  // d is a table with m+1 rows and n+1 columns
-  int[][] d = new int[m + 1][n + 1];
-
-  for (int i = 0; i <= m; i++) {
-    d[i][0] = i;
-  }
-
-  for (int j = 1; j <= n; j++) {
-    d[0][j] = j;
-  }
-
-  int cost;
-
-  for (int i = 1; i <= m; i++) {
-    for (int j = 1; j <= n; j++) {
-
-      cost = 1;
-
-      if (s1.charAt(i - 1) == s2.charAt(j - 1)) {
-        cost = 0;
-      }
-
-      d[i][j] = min(d[i - 1][j] + 1, // deletion
-          d[i][j - 1] + 1, // insertion
-          d[i - 1][j - 1] + cost); // substitution
-    }
-  }
-
-  return d[m][n];
+/**
+ * @return the edit distance between two strings, case sensitive (see EditDistance)
+ */
+public static int editDistance(String s1, String s2)
+{
+  return EditDistance.distance(s1, s2);
 }
 
 public static double medMeasure(String s1, String s2)
 {
+  return medMeasure(s1.length(), s1.toLowerCase(), s2.toLowerCase());
+}
 
-  int m = s1.length();
-  double MED = MED(s1, s2);
+/**
+ * The same as medMeasure(s1, s2), given the length of s1 and both strings already in lower case (see MentionInfo)
+ */
+public static double medMeasure(int m, String lower1, String lower2)
+{
+
+  double MED = editDistance(lower1, lower2);
   double result = 0;
 
   if (m != 0) {
@@ -818,25 +707,12 @@ public static int getWNSense(Annotation np1, Annotation np2, Document doc)
 
 public static int getWNSense(Synset[] synset1, Synset[] synset2)
 {
+  WordNet wn = WordNet.getInstance();
   for (Synset element : synset1) {
+    // the highest hypernym
+    Synset top = wn.getRoot(element);
     for (int j = 0; j < synset2.length && j < NumericFeature.WN_SENSE_MAX; j++) {
-      try {
-        // get the highest hypernym
-        PointerTargetNodeList dp;
-        Synset cur = element;
-        while ((dp = PointerUtils.getInstance().getDirectHypernyms(cur)) != null && !dp.isEmpty()) {
-          Object pt = dp.get(0);
-          PointerTargetNode ptn = (PointerTargetNode) pt;
-          cur = ptn.getSynset();
-        }
-        // System.err.println("top level parent: "+cur.getWord(0).getLemma()+" "+isWNHypernym(synset2[j],
-        // cur)+" "+cur.equals(synset2[j]));
-        if (isWNHypernym(synset2[j], cur) >= 0) // System.out.println(synset2[j]+" *** "+cur+" *** "+synset1[i]);
-          return (j + 1);
-      }
-      catch (Exception e) {
-        throw new RuntimeException(e);
-      }
+      if (wn.getDepth(synset2[j], top) >= 0) return (j + 1);
     }
   }
 
@@ -853,16 +729,11 @@ public static boolean isSubclass(Annotation np1, Annotation np2, Document doc)
 
 public static boolean isSubclass(Synset[] synset1, Synset[] synset2)
 {
+  WordNet wn = WordNet.getInstance();
   for (int i = 0; i < synset1.length && i < NumericFeature.WN_MAX; i++) {
     for (Synset element : synset2) {
-
-      try {
-        // is the one synset hypernym of the other?
-        if (isWNHypernym(synset1[i], element) > 0 || isWNHypernym(element, synset1[i]) > 0) return true;
-      }
-      catch (Exception e) {
-        throw new RuntimeException(e);
-      }
+      // is the one synset hypernym of the other?
+      if (wn.getDepth(synset1[i], element) > 0 || wn.getDepth(element, synset1[i]) > 0) return true;
     }
   }
 
@@ -0,0 +1,194 @@
+package reconcile.features;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import reconcile.data.Annotation;
+import reconcile.data.Document;
+import reconcile.features.FeatureUtils.PRTypeEnum;
+import reconcile.features.properties.Pronoun;
+
+/**
+ * The facts about the text of a single np that the pairwise features keep asking for: its words, its lower case form
+ * and the forms the acronym test compares. They are computed once per np (see
+ * {@link reconcile.features.properties.Mention}) instead of once per pair the np is in.
+ */
+public class MentionInfo {
+
+/**
+ * A string as {@link reconcile.featureVector.individualFeature.Alias#isAcronym(String, String)} sees it: either an
+ * acronym (all capitals), or a name and the initials of its three candidate word lists
+ */
+public static class NameForm {
+
+private final boolean allCaps;
+
+/** The acronym without dots and ampersands, if all caps */
+private final String acronym;
+
+/** The initials of the capitalized words; without corporate designators; and without those or uninformative words */
+private final String[] initials;
+
+public NameForm(String s) {
+  allCaps = FeatureUtils.isAllCaps(s);
+  if (allCaps) {
+    acronym = s.replaceAll("\\.|\\s|\\&", "");
+    initials = null;
+  }
+  else {
+    acronym = null;
+    StringBuilder name1 = new StringBuilder(), name2 = new StringBuilder(), name3 = new StringBuilder();
+    for (String w : FeatureUtils.getWords(s)) {
+      if (w.length() > 1) {
+        boolean inf = !FeatureUtils.isUninfWord(w);
+        boolean cap = FeatureUtils.isAllCaps(w.substring(0, 1));
+        boolean corpDes = FeatureUtils.isCorpDesign(w);
+        if (!corpDes && cap) {
+          name1.append(w.charAt(0));
+        }
+        if (cap) {
+          name2.append(w.charAt(0));
+        }
+        if (inf && cap && !corpDes) {
+          name3.append(w.charAt(0));
+        }
+      }
+    }
+    initials = new String[] { name1.toString(), name2.toString(), name3.toString() };
+  }
+}
+
+/**
+ * @return the strings, in lower case, that the other side of an acronym test has to match: the acronym itself, or the
+ *         initials of the name. Two forms are acronyms of each other exactly when one of them is all caps and they
+ *         share a key.
+ */
+public List<String> getAcronymKeys()
+{
+  List<String> keys = new ArrayList<String>();
+  if (allCaps) {
+    if (acronym.length() > 1) {
+      keys.add(acronym.toLowerCase());
+    }
+  }
+  else {
+    for (String init : initials) {
+      if (init.length() > 1 && !keys.contains(init.toLowerCase())) {
+        keys.add(init.toLowerCase());
+      }
+    }
+  }
+  return keys;
+}
+
+public boolean isAllCaps()
+{
+  return allCaps;
+}
+
+/**
+ * @return whether one of the strings is an acronym of the other
+ */
+public static boolean isAcronym(NameForm f1, NameForm f2)
+{
+  if (f1.allCaps == f2.allCaps) return false;
+  NameForm acr = f1.allCaps ? f1 : f2;
+  NameForm name = f1.allCaps ? f2 : f1;
+  if (acr.acronym.length() <= 1) return false;
+  for (String init : name.initials) {
+    if (acr.acronym.equalsIgnoreCase(init)) return true;
+  }
+  return false;
+}
+}
+
+private final String text;
+private final String[] words;
+private final String lowerString;
+private final int stringLength;
+private final boolean containsAnd;
+private final PRTypeEnum pronounType;
+private final NameForm textForm;
+private final NameForm lastWordForm;
+
+public MentionInfo(Annotation np, Document doc) {
+  text = doc.getAnnotText(np);
+  words = doc.getWords(np);
+  String str = doc.getAnnotString(np);
+  stringLength = str.length();
+  lowerString = str.toLowerCase();
+  containsAnd = FeatureUtils.memberArray("and", words);
+  pronounType = Pronoun.getValue(np, doc);
+  textForm = new NameForm(text);
+  lastWordForm = new NameForm(getLastWord());
+}
+
+/**
+ * @return the text of the np, as Document.getAnnotText gives it
+ */
+public String getText()
+{
+  return text;
+}
+
+public String[] getWords()
+{
+  return words;
+}
+
+public String getLastWord()
+{
+  return words[words.length - 1];
+}
+
+/**
+ * @return the span of the np, as Document.getAnnotString gives it, in lower case
+ */
+public String getLowerString()
+{
+  return lowerString;
+}
+
+/**
+ * @return the length of the span of the np, before it was lower cased
+ */
+public int getStringLength()
+{
+  return stringLength;
+}
+
+/**
+ * @return whether "and" is one of the words (ignoring case)
+ */
+public boolean containsAnd()
+{
+  return containsAnd;
+}
+
+public PRTypeEnum getPronounType()
+{
+  return pronounType;
+}
+
+public boolean isPronoun()
+{
+  return !PRTypeEnum.NONE.equals(pronounType);
+}
+
+/**
+ * @return the text as the acronym test sees it
+ */
+public NameForm getTextForm()
+{
+  return textForm;
+}
+
+/**
+ * @return the last word as the acronym test sees it
+ */
+public NameForm getLastWordForm()
+{
+  return lastWordForm;
+}
+
+}
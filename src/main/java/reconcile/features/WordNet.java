@@ -0,0 +1,315 @@
+package reconcile.features;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.PointerUtils;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.data.list.PointerTargetNode;
+import net.didion.jwnl.data.list.PointerTargetNodeList;
+import net.didion.jwnl.dictionary.Dictionary;
+import reconcile.general.Utils;
+
+/**
+ * Thread safe access to WordNet for the features. JWNL keeps one dictionary per process, read through shared file
+ * handles, so every dictionary lookup is made under one lock. What the features ask for over and over, the senses of a
+ * head noun and the hypernym chain of a synset, is kept in bounded LRU caches (keyed by synset offset for the chains),
+ * and the depth, distance and common ancestor queries are answered from the cached chains without touching the
+ * dictionary.
+ * <p>
+ * As in the code this replaces, the hypernym chain of a synset follows the first direct hypernym of each synset up to
+ * a root; its first element is the synset itself.
+ */
+public class WordNet {
+
+public static final int DEFAULT_CACHE_SIZE = 50000;
+
+/**
+ * Guards against cycles in a broken dictionary
+ */
+private static final int MAX_CHAIN_LENGTH = 100;
+
+private static WordNet instance;
+
+/**
+ * @return the WordNet service, initializing WordNet if needed. The cache size is set by WORDNET_CACHE_SIZE.
+ */
+public static synchronized WordNet getInstance()
+{
+  if (instance == null) {
+    Dictionary dictionary = FeatureUtils.initializeWordNet();
+    int cacheSize = Utils.isConfigured() ? Utils.getConfig().getInt("WORDNET_CACHE_SIZE", DEFAULT_CACHE_SIZE)
+        : DEFAULT_CACHE_SIZE;
+    instance = new WordNet(dictionary, cacheSize);
+  }
+  return instance;
+}
+
+private final Dictionary dictionary;
+private final Map<Long, HypernymChain> chains;
+private final Map<String, Synset[]> senses;
+
+WordNet(Dictionary dictionary, int cacheSize) {
+  this.dictionary = dictionary;
+  chains = Collections.synchronizedMap(new LruCache<Long, HypernymChain>(cacheSize));
+  senses = Collections.synchronizedMap(new LruCache<String, Synset[]>(cacheSize));
+}
+
+/**
+ * The noun senses of a word: the index word of the word as given or, failing that, of its base form. The returned
+ * array is shared and must not be changed.
+ *
+ * @param plural
+ *          whether the word was tagged as a plural noun, in which case its base form is looked up by morphological
+ *          processing first
+ */
+public Synset[] getNounSenses(String word, boolean plural)
+{
+  String key = plural ? word + "\tNNS" : word;
+  Synset[] result = senses.get(key);
+  if (result == null) {
+    try {
+      synchronized (dictionary) {
+        IndexWord w = null;
+        if (plural) {
+          w = dictionary.getIndexWord(POS.NOUN, word);
+          if (w == null) {
+            w = dictionary.getMorphologicalProcessor().lookupBaseForm(POS.NOUN, word);
+          }
+        }
+        if (w == null) {
+          w = dictionary.getIndexWord(POS.NOUN, word);
+        }
+        if (w == null) {
+          w = dictionary.lookupIndexWord(POS.NOUN, word);
+        }
+        result = w == null ? new Synset[0] : w.getSenses();
+      }
+    }
+    catch (JWNLException e) {
+      throw new RuntimeException(e);
+    }
+    senses.put(key, result);
+  }
+  return result;
+}
+
+/**
+ * @return the hypernym chain of a synset
+ */
+public HypernymChain getHypernymChain(Synset synset)
+{
+  Long key = key(synset);
+  HypernymChain chain = chains.get(key);
+  if (chain != null) return chain;
+
+  // walk up until a synset whose chain is known
+  Synset[] walk = new Synset[MAX_CHAIN_LENGTH];
+  HypernymChain known = null;
+  int length = 0;
+  Synset cur = synset;
+  try {
+    synchronized (dictionary) {
+      while (cur != null && length < MAX_CHAIN_LENGTH) {
+        if (length > 0 && (known = chains.get(key(cur))) != null) {
+          break;
+        }
+        walk[length++] = cur;
+        PointerTargetNodeList dp = PointerUtils.getInstance().getDirectHypernyms(cur);
+        cur = dp == null || dp.isEmpty() ? null : ((PointerTargetNode) dp.get(0)).getSynset();
+      }
+    }
+  }
+  catch (JWNLException e) {
+    throw new RuntimeException(e);
+  }
+
+  // cache the chains of all the synsets on the way, from the top down
+  for (int i = length - 1; i >= 0; i--) {
+    known = new HypernymChain(walk[i], known);
+    chains.put(key(walk[i]), known);
+  }
+  return known;
+}
+
+/**
+ * @return how many hypernym links up from child the ancestor is (0 if they are the same synset), or -1 if it is not an
+ *         ancestor
+ */
+public int getDepth(Synset child, Synset ancestor)
+{
+  return getHypernymChain(child).indexOf(ancestor);
+}
+
+/**
+ * @return how many hypernym links up from child the ancestor is, or -1 if it is not an ancestor within the given depth
+ */
+public int getDepth(Synset child, Synset ancestor, int maxDepth)
+{
+  int depth = getDepth(child, ancestor);
+  return depth <= maxDepth ? depth : -1;
+}
+
+/**
+ * @return how many hypernym links up from child the first synset whose first word is the given lemma is (ignoring
+ *         case), or -1 if there is none
+ */
+public int getDepth(Synset child, String lemma)
+{
+  return getHypernymChain(child).indexOfLemma(lemma);
+}
+
+/**
+ * @return the lowest synset on the hypernym chains of both synsets, or null if they have no common ancestor
+ */
+public Synset getCommonAncestor(Synset s1, Synset s2)
+{
+  HypernymChain chain1 = getHypernymChain(s1);
+  HypernymChain chain2 = getHypernymChain(s2);
+  for (int i = 0; i < chain2.size(); i++) {
+    if (chain1.indexOf(chain2.keys[i]) >= 0) return chain2.get(i);
+  }
+  return null;
+}
+
+/**
+ * The length of the path between two synsets through the first common ancestor on the hypernym chain of s2, where
+ * neither half of the path may be longer than max.
+ *
+ * @return the distance, or max if it is longer or the synsets are not connected
+ */
+public int getDistance(Synset s1, Synset s2, int max)
+{
+  HypernymChain chain1 = getHypernymChain(s1);
+  HypernymChain chain2 = getHypernymChain(s2);
+  for (int depth = 0; depth < chain2.size() && depth <= max; depth++) {
+    int depth1 = chain1.indexOf(chain2.keys[depth]);
+    if (depth1 >= 0 && depth1 <= max) return depth + depth1 < max ? depth + depth1 : max;
+  }
+  return max;
+}
+
+/**
+ * @return the top of the hypernym chain of a synset
+ */
+public Synset getRoot(Synset synset)
+{
+  HypernymChain chain = getHypernymChain(synset);
+  return chain.get(chain.size() - 1);
+}
+
+/**
+ * @return whether the two arrays have a synset in common
+ */
+public boolean shareSynset(Synset[] syn1, Synset[] syn2)
+{
+  for (Synset s1 : syn1) {
+    long k1 = key(s1);
+    for (Synset s2 : syn2) {
+      if (k1 == key(s2)) return true;
+    }
+  }
+  return false;
+}
+
+/**
+ * The cache key of a synset: its offset in the data file of its part of speech
+ */
+static long key(Synset synset)
+{
+  POS pos = synset.getPOS();
+  int p = POS.NOUN.equals(pos) ? 0 : POS.VERB.equals(pos) ? 1 : POS.ADJECTIVE.equals(pos) ? 2 : 3;
+  return (synset.getOffset() << 2) | p;
+}
+
+/**
+ * A synset followed by its chain of first hypernyms
+ */
+public static class HypernymChain {
+
+private final Synset[] synsets;
+private final long[] keys;
+private final String[] lemmas;
+
+HypernymChain(Synset synset, HypernymChain parent) {
+  int n = parent == null ? 1 : parent.size() + 1;
+  synsets = new Synset[n];
+  keys = new long[n];
+  lemmas = new String[n];
+  synsets[0] = synset;
+  keys[0] = key(synset);
+  lemmas[0] = synset.getWord(0).getLemma();
+  if (parent != null) {
+    System.arraycopy(parent.synsets, 0, synsets, 1, n - 1);
+    System.arraycopy(parent.keys, 0, keys, 1, n - 1);
+    System.arraycopy(parent.lemmas, 0, lemmas, 1, n - 1);
+  }
+}
+
+public int size()
+{
+  return synsets.length;
+}
+
+/**
+ * @return the synset the given number of hypernym links up the chain
+ */
+public Synset get(int depth)
+{
+  return synsets[depth];
+}
+
+/**
+ * @return the depth of a synset in the chain, or -1
+ */
+public int indexOf(Synset synset)
+{
+  return indexOf(key(synset));
+}
+
+int indexOf(long key)
+{
+  for (int i = 0; i < keys.length; i++) {
+    if (keys[i] == key) return i;
+  }
+  return -1;
+}
+
+/**
+ * @return the depth of the first synset in the chain whose first word is the given lemma (ignoring case), or -1
+ */
+public int indexOfLemma(String lemma)
+{
+  for (int i = 0; i < lemmas.length; i++) {
+    if (lemmas[i].equalsIgnoreCase(lemma)) return i;
+  }
+  return -1;
+}
+
+}
+
+private static class LruCache<K, V>
+    extends LinkedHashMap<K, V> {
+
+private static final long serialVersionUID = 1L;
+
+private final int capacity;
+
+LruCache(int capacity) {
+  super(16, 0.75f, true);
+  this.capacity = capacity;
+}
+
+@Override
+protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+{
+  return size() > capacity;
+}
+
+}
+
+}
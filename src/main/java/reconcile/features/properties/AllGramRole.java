@@ -9,13 +9,10 @@ import reconcile.general.Constants;
 public class AllGramRole
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new AllGramRole(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new AllGramRole(true, true);
-  }
   return ref;
 }
 
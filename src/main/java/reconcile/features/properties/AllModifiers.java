@@ -13,13 +13,10 @@ import reconcile.general.Constants;
 public class AllModifiers
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new AllModifiers(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new AllModifiers(true, true);
-  }
   return ref;
 }
 
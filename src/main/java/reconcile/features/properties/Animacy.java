@@ -11,13 +11,10 @@ import reconcile.features.FeatureUtils.NPSemTypeEnum;
 public class Animacy
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Animacy(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Animacy(true, true);
-  }
   return ref;
 }
 
@@ -11,13 +11,10 @@ import reconcile.general.Constants;
 public class ClosestCompliment
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new ClosestCompliment(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new ClosestCompliment(true, true);
-  }
   return ref;
 }
 
@@ -10,13 +10,10 @@ import reconcile.general.Constants;
 public class Conjunction
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Conjunction(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Conjunction(true, true);
-  }
   return ref;
 }
 
@@ -8,13 +8,10 @@ import reconcile.features.FeatureUtils;
 public class ContainsAcronym
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new ContainsAcronym(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new ContainsAcronym(true, true);
-  }
   return ref;
 }
 
@@ -9,13 +9,10 @@ import reconcile.general.Constants;
 public class ContainsProperName
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new ContainsProperName(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new ContainsProperName(true, true);
-  }
   return ref;
 }
 
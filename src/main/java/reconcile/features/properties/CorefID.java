@@ -15,13 +15,10 @@ public class CorefID
     extends Property {
 
 private int MAX_ID;
-private static Property ref = null;
+private static final Property ref = new CorefID(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new CorefID(true, true);
-  }
   return ref;
 }
 
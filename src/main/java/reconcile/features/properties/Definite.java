@@ -6,13 +6,10 @@ import reconcile.data.Document;
 public class Definite
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Definite(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Definite(true, true);
-  }
   return ref;
 }
 
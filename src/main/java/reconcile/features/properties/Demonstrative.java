@@ -8,13 +8,10 @@ import reconcile.features.FeatureUtils;
 public class Demonstrative
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Demonstrative(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Demonstrative(true, true);
-  }
   return ref;
 }
 
@@ -10,13 +10,10 @@ import reconcile.general.SyntaxUtils;
 public class Embedded
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Embedded(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Embedded(true, true);
-  }
   return ref;
 }
 
@@ -10,13 +10,10 @@ import reconcile.features.FeatureUtils.NPSemTypeEnum;
 public class Gender
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Gender(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Gender(true, true);
-  }
   return ref;
 }
 
@@ -11,13 +11,10 @@ import reconcile.general.SyntaxUtils;
 public class GramRole
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new GramRole(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new GramRole(true, true);
-  }
   return ref;
 }
 
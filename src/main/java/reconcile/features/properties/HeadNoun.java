@@ -17,13 +17,10 @@ public class HeadNoun
 
 String[] nounPOS = { "NN", "NNS", "NNP", "NNPS" };
 String[] npTypes = { "NN", "NNS", "NNP", "NNPS", "NP" };
-private static Property ref = null;
+private static final Property ref = new HeadNoun(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new HeadNoun(true, true);
-  }
   return ref;
 }
 
@@ -21,13 +21,10 @@ import reconcile.general.Utils;
 public class InQuote
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new InQuote(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new InQuote(true, true);
-  }
   return ref;
 }
 
@@ -10,13 +10,10 @@ import reconcile.features.FeatureUtils;
 public class InfWords
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new InfWords(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new InfWords(false, true);
-  }
   return ref;
 }
 
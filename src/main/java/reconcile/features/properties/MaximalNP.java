@@ -9,13 +9,10 @@ import reconcile.general.Constants;
 public class MaximalNP
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new MaximalNP(true, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new MaximalNP(true, true);
-  }
   return ref;
 }
 
@@ -0,0 +1,46 @@
+package reconcile.features.properties;
+
+import reconcile.data.Annotation;
+import reconcile.data.Document;
+import reconcile.features.MentionInfo;
+
+
+/*
+ * The per-np record of text facts the pairwise features read (see MentionInfo)
+ */
+public class Mention
+    extends Property {
+
+private static final Property ref = new Mention(false, true);
+
+public static Property getInstance()
+{
+  return ref;
+}
+
+public static MentionInfo getValue(Annotation np, Document doc)
+{
+  return (MentionInfo) getInstance().getValueProp(np, doc);
+}
+
+/**
+ * Compute the records of all the nps of a document, so the pair loop only looks them up
+ */
+public static void precompute(Annotation[] nps, Document doc)
+{
+  for (Annotation np : nps) {
+    getValue(np, doc);
+  }
+}
+
+private Mention(boolean whole, boolean cached) {
+  super(whole, cached);
+}
+
+@Override
+public Object produceValue(Annotation np, Document doc)
+{
+  return new MentionInfo(np, doc);
+}
+
+}
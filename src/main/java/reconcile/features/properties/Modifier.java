@@ -13,13 +13,10 @@ import reconcile.general.Constants;
 public class Modifier
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Modifier(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Modifier(false, true);
-  }
   return ref;
 }
 
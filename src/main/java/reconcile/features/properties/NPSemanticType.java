@@ -14,13 +14,10 @@ import reconcile.general.CustomDate;
 public class NPSemanticType
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new NPSemanticType(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new NPSemanticType(false, true);
-  }
   return ref;
 }
 
@@ -15,13 +15,10 @@ import reconcile.general.SyntaxUtils;
 public class Number
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Number(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Number(false, true);
-  }
   return ref;
 }
 
@@ -9,13 +9,10 @@ import reconcile.general.Constants;
 public class ParNum
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new ParNum(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new ParNum(false, true);
-  }
   return ref;
 }
 
@@ -9,13 +9,10 @@ import reconcile.features.FeatureUtils.PRTypeEnum;
 public class Pronoun
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Pronoun(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Pronoun(false, true);
-  }
   return ref;
 }
 
@@ -8,13 +8,10 @@ import reconcile.features.FeatureUtils.NPSemTypeEnum;
 public class ProperName
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new ProperName(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new ProperName(false, true);
-  }
   return ref;
 }
 
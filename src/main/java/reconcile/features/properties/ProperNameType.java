@@ -11,13 +11,10 @@ import reconcile.general.Constants;
 public class ProperNameType
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new ProperNameType(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new ProperNameType(false, true);
-  }
   return ref;
 }
 
@@ -9,13 +9,10 @@ import reconcile.general.Constants;
 public class ProperNoun
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new ProperNoun(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new ProperNoun(false, true);
-  }
   return ref;
 }
 
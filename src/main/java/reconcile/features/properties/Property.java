@@ -1,28 +1,78 @@
 package reconcile.features.properties;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import reconcile.data.Annotation;
 import reconcile.data.Document;
+import reconcile.general.Metrics;
 
 /*
  * A simple class used to save some attributes of properties of single nps
+ * 
+ * Every property instance is given a dense integer slot when it is created (the properties are singletons created when
+ * their class is loaded). Annotations store the cached property values in an array indexed by that slot.
  */
 public abstract class Property {
 
+/*
+ * These have to be initialized before any of the static properties below
+ */
+private static final AtomicInteger nextSlot = new AtomicInteger(0);
+private static volatile Property[] registry = new Property[0];
+
 String name;
 boolean whole;
 boolean cached;
+private final int slot;
 public static final Property AUTHOR = new EmptyProperty("Author", true, true);
 
 protected Property() {
   this.name = getClass().getSimpleName();
   whole = false;
   this.cached = true;
+  slot = register(this);
 }
 
 public Property(boolean annotateWhole, boolean cached) {
   this.name = getClass().getSimpleName();
   whole = annotateWhole;
   this.cached = cached;
+  slot = register(this);
+}
+
+private static synchronized int register(Property p)
+{
+  int s = nextSlot.getAndIncrement();
+  Property[] reg = new Property[s + 1];
+  System.arraycopy(registry, 0, reg, 0, registry.length);
+  reg[s] = p;
+  registry = reg;
+  return s;
+}
+
+/**
+ * @return the index of this property in the per-annotation value array
+ */
+public final int getSlot()
+{
+  return slot;
+}
+
+/**
+ * @return the number of slots handed out so far
+ */
+public static int numSlots()
+{
+  return nextSlot.get();
+}
+
+/**
+ * @return the property that owns the given slot, or null if the slot has not been assigned
+ */
+public static Property forSlot(int s)
+{
+  Property[] reg = registry;
+  return s < reg.length ? reg[s] : null;
 }
 
 public boolean annotateWholeDocument()
@@ -39,13 +89,21 @@ public Object getValueProp(Annotation np, Document doc)
   if (cached) {
     Object result = np.getProperty(this);
     if (result == null) {
-      result = produceValue(np, doc);
+      result = produceTimedValue(np, doc);
       np.setProperty(this, result);
     }
     return result;
   }
   else
-    return produceValue(np, doc);
+    return produceTimedValue(np, doc);
+}
+
+private Object produceTimedValue(Annotation np, Document doc)
+{
+  long stTime = Metrics.start();
+  Object result = produceValue(np, doc);
+  Metrics.stop(Metrics.PROPERTY, name, stTime);
+  return result;
 }
 
 abstract protected Object produceValue(Annotation np, Document doc);
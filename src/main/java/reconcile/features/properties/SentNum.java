@@ -2,6 +2,7 @@ package reconcile.features.properties;
 
 import reconcile.data.Annotation;
 import reconcile.data.AnnotationSet;
+import reconcile.data.AnnotationVisitor;
 import reconcile.data.Document;
 import reconcile.general.Constants;
 
@@ -9,13 +10,10 @@ import reconcile.general.Constants;
 public class SentNum
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new SentNum(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new SentNum(false, true);
-  }
   return ref;
 }
 
@@ -35,11 +33,15 @@ public Object produceValue(Annotation np, Document doc)
   AnnotationSet sent = doc.getAnnotationSet(Constants.SENT);
   AnnotationSet nps = doc.getAnnotationSet(Constants.NP);
   for (Annotation s : sent) {
-    int num = Integer.parseInt(s.getAttribute("sentNum"));
-    AnnotationSet enclosed = nps.getOverlapping(s);
-    for (Annotation e : enclosed) {
-      e.setProperty(this, num);
-    }
+    final int num = Integer.parseInt(s.getAttribute("sentNum"));
+    nps.visitOverlapping(s, new AnnotationVisitor() {
+
+      public boolean visit(Annotation e)
+      {
+        e.setProperty(SentNum.this, num);
+        return true;
+      }
+    });
   }
   if (np.getProperty(this) == null) {
     AnnotationSet ov = sent.getOverlapping(np);
@@ -10,13 +10,10 @@ import reconcile.features.FeatureUtils;
 public class SoonWords
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new SoonWords(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new SoonWords(false, true);
-  }
   return ref;
 }
 
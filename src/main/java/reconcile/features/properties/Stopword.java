@@ -8,13 +8,10 @@ import reconcile.features.FeatureUtils;
 public class Stopword
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Stopword(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Stopword(false, true);
-  }
   return ref;
 }
 
@@ -6,13 +6,10 @@ import reconcile.data.Document;
 public class SubsumesNumber
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new SubsumesNumber(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new SubsumesNumber(false, true);
-  }
   return ref;
 }
 
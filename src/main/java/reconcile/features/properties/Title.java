@@ -8,13 +8,10 @@ import reconcile.features.FeatureUtils;
 public class Title
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new Title(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new Title(false, true);
-  }
   return ref;
 }
 
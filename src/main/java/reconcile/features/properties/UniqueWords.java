@@ -10,13 +10,10 @@ import reconcile.general.Constants;
 public class UniqueWords
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new UniqueWords(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new UniqueWords(false, true);
-  }
   return ref;
 }
 
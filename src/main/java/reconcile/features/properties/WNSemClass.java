@@ -10,13 +10,10 @@ import reconcile.features.FeatureUtils;
 public class WNSemClass
     extends Property {
 
-private static Property ref = null;
+private static final Property ref = new WNSemClass(false, true);
 
 public static Property getInstance()
 {
-  if (ref == null) {
-    ref = new WNSemClass(false, true);
-  }
   return ref;
 }
 
@@ -0,0 +1,266 @@
+package reconcile.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import reconcile.data.Annotation;
+import reconcile.data.Document;
+import reconcile.features.FeatureUtils;
+import reconcile.features.FeatureUtils.NPSemTypeEnum;
+import reconcile.features.FeatureUtils.PersonPronounTypeEnum;
+import reconcile.features.MentionInfo;
+import reconcile.features.properties.CorefID;
+import reconcile.features.properties.HeadNoun;
+import reconcile.features.properties.Mention;
+import reconcile.features.properties.ProperName;
+import reconcile.features.properties.ProperNameType;
+import reconcile.features.properties.SentNum;
+import reconcile.general.Utils;
+
+/*
+ * Generates only the pairs whose nps could plausibly corefer, instead of all of them. Every np is put in blocks by its
+ * head noun, its proper name type, its pronoun person and number, and the acronyms it could be or stand for; an np is
+ * paired with the earlier nps that share a block with it, and with every earlier np within a window of nps and of
+ * sentences. The blocks are built once per document and the pairs of each np are found when the pairs of the previous
+ * one have been used up, so the pairs are never all in memory at once.
+ *
+ * The pairs come in the order AllPairs gives them (the last np first, and its antecedents from the closest back). When
+ * training, the share of the coreferent pairs of the key that were generated is printed for every document.
+ */
+public class BlockedPairs
+    extends PairGenerator {
+
+/*
+ * Config keys for the windows: every np is paired with the given number of nps before it, and with all the nps in the
+ * given number of sentences before it (and its own sentence)
+ */
+public static final String MENTION_WINDOW = "BLOCKING_MENTION_WINDOW";
+public static final String SENTENCE_WINDOW = "BLOCKING_SENTENCE_WINDOW";
+
+private int mentionWindow;
+private int sentenceWindow;
+
+private int[] sentNums;
+/** The blocks of each np, and the position of the np in each of them */
+private List<List<List<Integer>>> blocks;
+private int[][] blockPos;
+
+/** The np whose pairs are being generated, and its antecedents, closest first */
+private int j;
+private int[] antecedents;
+private int numAntecedents;
+private int next;
+/** mark[i] == j if np i is already an antecedent of np j */
+private int[] mark;
+
+private long numPairs;
+private int numCoref, numCorefPairs;
+private Integer[] corefIDs;
+
+public BlockedPairs() {
+  mentionWindow = Utils.getConfig().getInt(MENTION_WINDOW, 5);
+  sentenceWindow = Utils.getConfig().getInt(SENTENCE_WINDOW, 1);
+}
+
+@Override
+public void initialize(Annotation[] nps, Document doc, boolean training)
+{
+  super.initialize(nps, doc, training);
+  int n = nps.length;
+  sentNums = new int[n];
+  blocks = new ArrayList<List<List<Integer>>>(n);
+  blockPos = new int[n][];
+  Map<String, List<Integer>> index = new HashMap<String, List<Integer>>();
+  for (int i = 0; i < n; i++) {
+    sentNums[i] = SentNum.getValue(nps[i], doc);
+    List<String> keys = new ArrayList<String>();
+    List<String> lookups = new ArrayList<String>();
+    getKeys(nps[i], keys, lookups);
+    for (String key : keys) {
+      getBlock(index, key).add(i);
+    }
+    List<List<Integer>> npBlocks = new ArrayList<List<Integer>>(lookups.size());
+    blocks.add(npBlocks);
+    blockPos[i] = new int[lookups.size()];
+    for (int k = 0; k < lookups.size(); k++) {
+      List<Integer> block = getBlock(index, lookups.get(k));
+      npBlocks.add(block);
+      // the nps before this one that are in the block
+      blockPos[i][k] = block.size() - (keys.contains(lookups.get(k)) ? 1 : 0);
+    }
+  }
+
+  antecedents = new int[n];
+  mark = new int[n];
+  Arrays.fill(mark, -1);
+  numAntecedents = 0;
+  next = 0;
+  j = n;
+  numPairs = 0;
+  numCorefPairs = 0;
+  corefIDs = null;
+  if (training) {
+    countCoreferentPairs();
+  }
+  advance();
+}
+
+private static List<Integer> getBlock(Map<String, List<Integer>> index, String key)
+{
+  List<Integer> block = index.get(key);
+  if (block == null) {
+    block = new ArrayList<Integer>();
+    index.put(key, block);
+  }
+  return block;
+}
+
+/**
+ * The blocks an np is put in, and the blocks its antecedents are looked for in
+ */
+private void getKeys(Annotation np, List<String> keys, List<String> lookups)
+{
+  MentionInfo info = Mention.getValue(np, doc);
+  if (info.isPronoun()) {
+    String text = info.getText();
+    PersonPronounTypeEnum person = FeatureUtils.getPronounPerson(text);
+    keys.add("pro:" + person + ":" + FeatureUtils.getPronounCount(text));
+    if (person == PersonPronounTypeEnum.FIRST || person == PersonPronounTypeEnum.SECOND) {
+      // the speaker or the addressee: another such pronoun or a person
+      keys.add("speaker");
+    }
+  }
+  else {
+    Annotation head = HeadNoun.getValue(np, doc);
+    if (head != null) {
+      keys.add("head:" + doc.getAnnotString(head).toLowerCase());
+    }
+    if (ProperName.getValue(np, doc)) {
+      NPSemTypeEnum type = ProperNameType.getValue(np, doc);
+      keys.add("pn:" + type);
+      if (type == NPSemTypeEnum.PERSON) {
+        keys.add("speaker");
+      }
+    }
+  }
+  lookups.addAll(keys);
+
+  // acronyms, as the Alias feature tests them: of the whole text and of the last word
+  addAcronymKeys(info.getTextForm(), keys, lookups);
+  if (!info.containsAnd()) {
+    addAcronymKeys(info.getLastWordForm(), keys, lookups);
+  }
+}
+
+private static void addAcronymKeys(MentionInfo.NameForm form, List<String> keys, List<String> lookups)
+{
+  for (String key : form.getAcronymKeys()) {
+    String acr = "acr:" + key, name = "name:" + key;
+    addNew(form.isAllCaps() ? acr : name, keys);
+    addNew(form.isAllCaps() ? name : acr, lookups);
+  }
+}
+
+private static void addNew(String key, List<String> keys)
+{
+  if (!keys.contains(key)) {
+    keys.add(key);
+  }
+}
+
+/**
+ * Move on to the next np that has antecedents
+ */
+private void advance()
+{
+  while (next == numAntecedents && j > 0) {
+    j--;
+    findAntecedents();
+  }
+  if (next == numAntecedents && training) {
+    printRecall();
+  }
+}
+
+private void findAntecedents()
+{
+  numAntecedents = 0;
+  next = 0;
+  for (int i = j - 1; i >= 0 && (j - i <= mentionWindow || sentNums[j] - sentNums[i] <= sentenceWindow); i--) {
+    addAntecedent(i);
+  }
+  List<List<Integer>> npBlocks = blocks.get(j);
+  for (int k = 0; k < npBlocks.size(); k++) {
+    List<Integer> block = npBlocks.get(k);
+    for (int p = 0; p < blockPos[j][k]; p++) {
+      addAntecedent(block.get(p));
+    }
+  }
+  // closest first
+  Arrays.sort(antecedents, 0, numAntecedents);
+  for (int a = 0, b = numAntecedents - 1; a < b; a++, b--) {
+    int tmp = antecedents[a];
+    antecedents[a] = antecedents[b];
+    antecedents[b] = tmp;
+  }
+}
+
+private void addAntecedent(int i)
+{
+  if (mark[i] != j) {
+    mark[i] = j;
+    antecedents[numAntecedents++] = i;
+  }
+}
+
+@Override
+public boolean hasNext()
+{
+  return next < numAntecedents;
+}
+
+@Override
+public Annotation[] nextPair()
+{
+  if (!hasNext()) return null;
+  int i = antecedents[next++];
+  numPairs++;
+  if (corefIDs != null && corefIDs[i] >= 0 && corefIDs[i].equals(corefIDs[j])) {
+    numCorefPairs++;
+  }
+  Annotation[] pair = new Annotation[] { nps[i], nps[j] };
+  if (next == numAntecedents) {
+    advance();
+  }
+  return pair;
+}
+
+private void countCoreferentPairs()
+{
+  corefIDs = new Integer[nps.length];
+  Map<Integer, Integer> clusterSizes = new HashMap<Integer, Integer>();
+  for (int i = 0; i < nps.length; i++) {
+    corefIDs[i] = CorefID.getValue(nps[i], doc);
+    if (corefIDs[i] >= 0) {
+      Integer size = clusterSizes.get(corefIDs[i]);
+      clusterSizes.put(corefIDs[i], size == null ? 1 : size + 1);
+    }
+  }
+  numCoref = 0;
+  for (int size : clusterSizes.values()) {
+    numCoref += size * (size - 1) / 2;
+  }
+}
+
+private void printRecall()
+{
+  long all = (long) nps.length * (nps.length - 1) / 2;
+  System.out.printf("Blocked pairs: %d of %d pairs (%.1f%%), %d of %d coreferent pairs (%.1f%%)\n", numPairs, all,
+      all == 0 ? 100.0 : 100.0 * numPairs / all, numCorefPairs, numCoref, numCoref == 0 ? 100.0 : 100.0
+          * numCorefPairs / numCoref);
+}
+
+}
@@ -0,0 +1,123 @@
+package reconcile.general;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe histogram of latencies in nanoseconds with a fixed relative precision, in the style of an HDR
+ * histogram: every power of two is split into 16 equal buckets, so recorded values are kept to within 1/16 of their
+ * size whatever their magnitude. Recording is a few array and atomic updates and never allocates.
+ */
+public class LatencyHistogram {
+
+private static final int SUB_BITS = 4;
+private static final int SUB_BUCKETS = 1 << SUB_BITS;
+private static final int NUM_BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+private final AtomicLong count = new AtomicLong();
+private final AtomicLong total = new AtomicLong();
+private final AtomicLong max = new AtomicLong();
+
+/**
+ * Record one latency; negative values count as 0
+ */
+public void record(long nanos)
+{
+  if (nanos < 0) {
+    nanos = 0;
+  }
+  counts.incrementAndGet(bucket(nanos));
+  count.incrementAndGet();
+  total.addAndGet(nanos);
+  long m;
+  while (nanos > (m = max.get())) {
+    if (max.compareAndSet(m, nanos)) {
+      break;
+    }
+  }
+}
+
+private static int bucket(long value)
+{
+  if (value < SUB_BUCKETS) return (int) value;
+  int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BITS;
+  int top = (int) (value >>> shift);
+  return SUB_BUCKETS * (shift + 1) + (top - SUB_BUCKETS);
+}
+
+/**
+ * @return the largest value that falls in a bucket
+ */
+private static long bucketHigh(int bucket)
+{
+  if (bucket < SUB_BUCKETS) return bucket;
+  int shift = bucket / SUB_BUCKETS - 1;
+  long top = SUB_BUCKETS + bucket % SUB_BUCKETS;
+  return ((top + 1) << shift) - 1;
+}
+
+public long getCount()
+{
+  return count.get();
+}
+
+/**
+ * @return the sum of all recorded latencies
+ */
+public long getTotal()
+{
+  return total.get();
+}
+
+public long getMax()
+{
+  return max.get();
+}
+
+public double getMean()
+{
+  long c = count.get();
+  return c == 0 ? 0 : total.get() / (double) c;
+}
+
+/**
+ * @param percentile
+ *          between 0 and 100
+ * @return the latency at or below which the given percentage of the recorded latencies fall, to within the precision
+ *         of the histogram
+ */
+public long getPercentile(double percentile)
+{
+  long c = count.get();
+  if (c == 0) return 0;
+  long rank = Math.max(1, (long) Math.ceil(percentile / 100 * c));
+  long seen = 0;
+  for (int i = 0; i < NUM_BUCKETS; i++) {
+    seen += counts.get(i);
+    if (seen >= rank) return Math.min(bucketHigh(i), max.get());
+  }
+  return max.get();
+}
+
+/**
+ * Clear all the recorded latencies
+ */
+public void reset()
+{
+  for (int i = 0; i < NUM_BUCKETS; i++) {
+    counts.set(i, 0);
+  }
+  count.set(0);
+  total.set(0);
+  max.set(0);
+}
+
+@Override
+public String toString()
+{
+  return "count=" + getCount() + " total=" + getTotal() + "ns p50=" + getPercentile(50) + "ns p99="
+      + getPercentile(99) + "ns max=" + getMax() + "ns";
+}
+
+}
@@ -0,0 +1,246 @@
+package reconcile.general;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide latency metrics: one {@link LatencyHistogram} per timed component, grouped by category (features,
+ * properties, annotators, classifiers and clusterers, and the evictions and reloads of the annotation sets of documents,
+ * whose counts are the numbers of evictions and reloads). Turned on with the METRICS config option; when it is off
+ * {@link #start()} and {@link #stop(String, String, long)} only read a flag, so the timing calls can stay in the code.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * long st = Metrics.start();
+ * ... timed work ...
+ * Metrics.stop(Metrics.FEATURE, feat.getName(), st);
+ * </pre>
+ *
+ * Property times include the time of the properties they compute on the way.
+ */
+public class Metrics {
+
+public static final String FEATURE = "feature";
+public static final String PROPERTY = "property";
+public static final String ANNOTATOR = "annotator";
+public static final String CLASSIFIER = "classifier";
+public static final String CLUSTERER = "clusterer";
+public static final String ANNOTATION_SET = "annotation_set";
+
+/**
+ * What {@link #start()} returns when metrics are off
+ */
+public static final long NOT_TIMED = Long.MIN_VALUE;
+
+private static final int[] PERCENTILES = { 50, 90, 99 };
+
+private static volatile boolean enabled = false;
+
+private static final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> histograms = new ConcurrentHashMap<String, ConcurrentMap<String, LatencyHistogram>>();
+
+public static boolean isEnabled()
+{
+  return enabled;
+}
+
+public static void setEnabled(boolean on)
+{
+  enabled = on;
+}
+
+/**
+ * @return the start time to hand to {@link #stop(String, String, long)}, or NOT_TIMED if metrics are off
+ */
+public static long start()
+{
+  return enabled ? System.nanoTime() : NOT_TIMED;
+}
+
+/**
+ * Record the time since start for the named component
+ */
+public static void stop(String category, String name, long start)
+{
+  if (start == NOT_TIMED) return;
+  getHistogram(category, name).record(System.nanoTime() - start);
+}
+
+/**
+ * Record a latency for the named component
+ */
+public static void record(String category, String name, long nanos)
+{
+  if (!enabled) return;
+  getHistogram(category, name).record(nanos);
+}
+
+/**
+ * @return the histogram of the named component, created if there is none yet
+ */
+public static LatencyHistogram getHistogram(String category, String name)
+{
+  ConcurrentMap<String, LatencyHistogram> cat = histograms.get(category);
+  if (cat == null) {
+    histograms.putIfAbsent(category, new ConcurrentHashMap<String, LatencyHistogram>());
+    cat = histograms.get(category);
+  }
+  LatencyHistogram h = cat.get(name);
+  if (h == null) {
+    cat.putIfAbsent(name, new LatencyHistogram());
+    h = cat.get(name);
+  }
+  return h;
+}
+
+/**
+ * @return the histograms of a category by component name, in name order
+ */
+public static Map<String, LatencyHistogram> getHistograms(String category)
+{
+  Map<String, LatencyHistogram> cat = histograms.get(category);
+  return cat == null ? new TreeMap<String, LatencyHistogram>() : new TreeMap<String, LatencyHistogram>(cat);
+}
+
+/**
+ * @return all the histograms by category and component name
+ */
+public static Map<String, Map<String, LatencyHistogram>> getHistograms()
+{
+  Map<String, Map<String, LatencyHistogram>> result = new TreeMap<String, Map<String, LatencyHistogram>>();
+  for (String category : histograms.keySet()) {
+    result.put(category, getHistograms(category));
+  }
+  return result;
+}
+
+/**
+ * Forget everything recorded for a category
+ */
+public static void reset(String category)
+{
+  histograms.remove(category);
+}
+
+/**
+ * Forget everything recorded so far
+ */
+public static void reset()
+{
+  histograms.clear();
+}
+
+/**
+ * Write a report of all the histograms; CSV if the file name ends in .csv, JSON otherwise
+ */
+public static void writeReport(File file)
+    throws IOException
+{
+  PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+  try {
+    if (file.getName().toLowerCase().endsWith(".csv")) {
+      writeCsv(out);
+    }
+    else {
+      writeJson(out);
+    }
+  }
+  finally {
+    out.close();
+  }
+}
+
+/**
+ * Write the histograms as one CSV line per component. Times are in nanoseconds.
+ */
+public static void writeCsv(Writer writer)
+{
+  PrintWriter out = new PrintWriter(writer);
+  out.print("category,name,count,total_ns,mean_ns");
+  for (int p : PERCENTILES) {
+    out.print(",p" + p + "_ns");
+  }
+  out.println(",max_ns");
+  Map<String, Map<String, LatencyHistogram>> all = getHistograms();
+  for (String category : all.keySet()) {
+    Map<String, LatencyHistogram> cat = all.get(category);
+    for (String name : cat.keySet()) {
+      LatencyHistogram h = cat.get(name);
+      out.print(csv(category) + "," + csv(name) + "," + h.getCount() + "," + h.getTotal() + ","
+          + Math.round(h.getMean()));
+      for (int p : PERCENTILES) {
+        out.print("," + h.getPercentile(p));
+      }
+      out.println("," + h.getMax());
+    }
+  }
+  out.flush();
+}
+
+/**
+ * Write the histograms as a JSON object of categories, each an object of components. Times are in nanoseconds.
+ */
+public static void writeJson(Writer writer)
+{
+  PrintWriter out = new PrintWriter(writer);
+  out.println("{");
+  Map<String, Map<String, LatencyHistogram>> all = getHistograms();
+  String catSeparator = "";
+  for (String category : all.keySet()) {
+    out.print(catSeparator);
+    out.println("  " + json(category) + ": {");
+    Map<String, LatencyHistogram> cat = all.get(category);
+    String separator = "";
+    for (String name : cat.keySet()) {
+      LatencyHistogram h = cat.get(name);
+      out.print(separator);
+      out.print("    " + json(name) + ": {\"count\": " + h.getCount() + ", \"total_ns\": " + h.getTotal()
+          + ", \"mean_ns\": " + Math.round(h.getMean()));
+      for (int p : PERCENTILES) {
+        out.print(", \"p" + p + "_ns\": " + h.getPercentile(p));
+      }
+      out.print(", \"max_ns\": " + h.getMax() + "}");
+      separator = ",\n";
+    }
+    out.println();
+    out.print("  }");
+    catSeparator = ",\n";
+  }
+  out.println();
+  out.println("}");
+  out.flush();
+}
+
+private static String csv(String s)
+{
+  if (s.indexOf(',') < 0 && s.indexOf('"') < 0) return s;
+  return "\"" + s.replace("\"", "\"\"") + "\"";
+}
+
+private static String json(String s)
+{
+  StringBuilder sb = new StringBuilder("\"");
+  for (int i = 0; i < s.length(); i++) {
+    char c = s.charAt(i);
+    if (c == '"' || c == '\\') {
+      sb.append('\\').append(c);
+    }
+    else if (c < 0x20) {
+      sb.append(String.format("\\u%04x", (int) c));
+    }
+    else {
+      sb.append(c);
+    }
+  }
+  return sb.append('"').toString();
+}
+
+}
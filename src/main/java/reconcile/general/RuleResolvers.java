@@ -140,8 +140,11 @@ public static void ruleResolvePronouns(Document doc)
   ruleResolvePronouns(doc.getAnnotationSet(Constants.NP), doc);
 }
 
+/*
+ * The rule resolvers keep their clusters in static fields, so only one document can be resolved at a time.
+ */
 @SuppressWarnings("unchecked")
-public static void ruleResolvePronouns(AnnotationSet basenp, Document doc)
+public static synchronized void ruleResolvePronouns(AnnotationSet basenp, Document doc)
 {
   // System.out.println("Rule resolving ");
   // HashMap<Annotation, ArrayList<Annotation>> posessives = new HashMap<Annotation, ArrayList<Annotation>>();
@@ -183,7 +186,7 @@ public static void ruleResolve(Document doc)
 }
 
 @SuppressWarnings("unchecked")
-public static void ruleResolve(AnnotationSet basenp, Document doc)
+public static synchronized void ruleResolve(AnnotationSet basenp, Document doc)
 {
   // System.out.println("Rule resolving ");
   HashMap<Annotation, ArrayList<Annotation>> posessives = new HashMap<Annotation, ArrayList<Annotation>>();
@@ -4,10 +4,13 @@
 package reconcile.general;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import reconcile.data.Annotation;
 import reconcile.data.AnnotationSet;
+import reconcile.data.AnnotationVisitor;
+import reconcile.data.TreeIndex;
 import reconcile.features.FeatureUtils;
 
 
@@ -18,13 +21,25 @@ public class SyntaxUtils {
 
 private static String PARENT = "parent";
 private static String CHILD_IDS = "CHILD_IDS";
+private static String GOV_ID = "GOV_ID";
 public static String[] NPType = { "NP", "NX" };
 
+/*
+ * The parent, children and governor queries are answered from the tree index of the set (see
+ * AnnotationSet.getTreeIndex) when the annotation is in the set, and from the annotation's own features otherwise.
+ */
+
 public static Annotation getParent(Annotation parseAnnot, AnnotationSet parse)
 {
   // if(parseAnnot==null)
   // throw new RuntimeException("NULUUUUU");
   // System.err.print("Annot: "+parseAnnot);
+  TreeIndex tree = parse.getTreeIndex(PARENT);
+  int node = tree.indexOf(parseAnnot);
+  if (node >= 0) {
+    int par = tree.getParent(node);
+    return par < 0 ? null : tree.get(par);
+  }
   String parentStr = parseAnnot.getAttribute(PARENT);
   if (parentStr == null) return null;
   int par = Integer.parseInt(parentStr);
@@ -34,8 +49,14 @@ public static Annotation getParent(Annotation parseAnnot, AnnotationSet parse)
     return parse.get(par);
 }
 
-public static AnnotationSet getChildren(Annotation parseAnnot, AnnotationSet parse)
+/**
+ * @return the children of a parse node in offset order; read only when the node is in the tree index of the parse
+ */
+public static List<Annotation> getChildren(Annotation parseAnnot, AnnotationSet parse)
 {
+  TreeIndex tree = parse.getTreeIndex(PARENT);
+  int node = tree.indexOf(parseAnnot);
+  if (node >= 0) return tree.getChildren(node);
   AnnotationSet result = new AnnotationSet("children");
   String childString = parseAnnot.getAttribute(CHILD_IDS);
   if (childString != null) {
@@ -45,11 +66,15 @@ public static AnnotationSet getChildren(Annotation parseAnnot, AnnotationSet par
       result.add(parse.get(id));
     }
   }
-  return result;
+  return result.getOrderedAnnots();
 }
 
 public static List<Annotation> getOrderedChildren(Annotation parseAnnot, AnnotationSet parse)
 {
+  TreeIndex tree = parse.getTreeIndex(PARENT);
+  int node = tree.indexOf(parseAnnot);
+  if (node >= 0) return tree.getChildren(node);
+
   AnnotationSet contained = parse.getContained(parseAnnot);
   AnnotationSet children = new AnnotationSet("children");
 
@@ -64,9 +89,15 @@ public static List<Annotation> getOrderedChildren(Annotation parseAnnot, Annotat
 
 public static Annotation getGov(Annotation depAnnot, AnnotationSet dep)
 {
+  TreeIndex tree = dep.getTreeIndex(GOV_ID);
+  int node = tree.indexOf(depAnnot);
+  if (node >= 0) {
+    int gov = tree.getParent(node);
+    return gov < 0 ? null : tree.get(gov);
+  }
   // System.err.print("Annot: "+parseAnnot);
   // String[] span = ((String)depAnnot.getAttribute("GOV")).split("\\,");
-  String govId = depAnnot.getAttribute("GOV_ID");
+  String govId = depAnnot.getAttribute(GOV_ID);
   if (govId == null) return null;
   int id = Integer.parseInt(govId);
   if (id < 0) return null;
@@ -89,11 +120,30 @@ public static Annotation getGovPosNode(Annotation depAnnot, AnnotationSet parse)
   return res;
 }
 
+/*
+ * The parse node at the span of the governor of a dependency node, as getGovPosNode(depAnnot, parse), without decoding
+ * the GOV feature when the governor is in the dependency set (GOV holds the span of the annotation GOV_ID names)
+ */
+private static Annotation getGovPosNode(Annotation depAnnot, AnnotationSet dep, AnnotationSet parse)
+{
+  Annotation gov = getGov(depAnnot, dep);
+  if (gov == null) return getGovPosNode(depAnnot, parse);
+  return getNode(gov.getStartOffset(), gov.getEndOffset(), parse);
+}
+
 public static Annotation getPosNode(int start, int end, AnnotationSet pos)
 {
   // System.err.print("Annot: "+parseAnnot);
-  Annotation res = pos.getContained(start, end).getFirst();
-  return res;
+  final Annotation[] res = { null };
+  pos.visitContained(start, end, new AnnotationVisitor() {
+
+    public boolean visit(Annotation a)
+    {
+      res[0] = a;
+      return false;
+    }
+  });
+  return res[0];
 }
 
 public static boolean areSiblings(Annotation an1, Annotation an2, AnnotationSet parse)
@@ -151,17 +201,30 @@ public static Annotation getNode(Annotation an, AnnotationSet parse)
 
 public static Annotation getNode(int start, int end, AnnotationSet parse)
 {
-  AnnotationSet p = parse.getContained(start, end);
-  int largest = 0;
-  Annotation max = null;
-  for (Annotation r : p) {
-    if ((r.getEndOffset() - r.getStartOffset() >= largest)) {
-      largest = r.getEndOffset() - r.getStartOffset();
-      max = r;
+  return getLargestContained(start, end, parse);
+}
+
+/*
+ * Get the largest node within start..end; the last one in offset order if there is a tie
+ */
+private static Annotation getLargestContained(int start, int end, AnnotationSet parse)
+{
+  final Annotation[] max = { null };
+  parse.visitContained(start, end, new AnnotationVisitor() {
+
+    int largest = 0;
+
+    public boolean visit(Annotation r)
+    {
+      if ((r.getEndOffset() - r.getStartOffset() >= largest)) {
+        largest = r.getEndOffset() - r.getStartOffset();
+        max[0] = r;
+      }
+      return true;
     }
-  }
+  });
 
-  return max;
+  return max[0];
 }
 
 public static Annotation getHighestNode(Annotation an, AnnotationSet parse)
@@ -172,15 +235,7 @@ public static Annotation getHighestNode(Annotation an, AnnotationSet parse)
 
 public static Annotation getHighestNode(int start, int end, AnnotationSet parse)
 {
-  AnnotationSet p = parse.getContained(start, end);
-  int largest = 0;
-  Annotation max = null;
-  for (Annotation r : p) {
-    if ((r.getEndOffset() - r.getStartOffset() >= largest)) {
-      largest = r.getEndOffset() - r.getStartOffset();
-      max = r;
-    }
-  }
+  Annotation max = getLargestContained(start, end, parse);
   if (max == null) return null;
   Annotation parent = getParent(max, parse);
   while (parent != null && parent.covered(start, end)) {
@@ -194,19 +249,24 @@ public static Annotation getHighestNode(int start, int end, AnnotationSet parse)
 /*
  * Get the smallest node fully containing an annotation
  */
-public static Annotation getSmallestContainingNode(int start, int end, AnnotationSet parse)
+public static Annotation getSmallestContainingNode(final int start, final int end, AnnotationSet parse)
 {
-  AnnotationSet p = parse.getOverlapping(start, end);
-  int smallest = Integer.MAX_VALUE;
-  Annotation min = null;
-  for (Annotation r : p) {
-    if (r.covers(start, end) && (r.getEndOffset() - r.getStartOffset() <= smallest)) {
-      smallest = r.getEndOffset() - r.getStartOffset();
-      min = r;
+  final Annotation[] min = { null };
+  parse.visitOverlapping(start, end, new AnnotationVisitor() {
+
+    int smallest = Integer.MAX_VALUE;
+
+    public boolean visit(Annotation r)
+    {
+      if (r.covers(start, end) && (r.getEndOffset() - r.getStartOffset() <= smallest)) {
+        smallest = r.getEndOffset() - r.getStartOffset();
+        min[0] = r;
+      }
+      return true;
     }
-  }
+  });
 
-  return min;
+  return min[0];
 }
 
 public static Annotation getSmallestContainingNode(Annotation a, AnnotationSet parse)
@@ -407,26 +467,84 @@ public static boolean isMainClause(Annotation an, AnnotationSet parse)
 public static Annotation getDepNode(Annotation an, AnnotationSet dep)
 {
   if (an == null || dep == null) return null;
-  AnnotationSet p = dep.getContained(an);
-
-  return p.getLast();
+  // the last annotation within the span
+  final Annotation[] last = { null };
+  dep.visitContained(an, new AnnotationVisitor() {
+
+    public boolean visit(Annotation a)
+    {
+      last[0] = a;
+      return true;
+    }
+  });
+  return last[0];
 }
 
+/**
+ * @return the parse nodes at the spans of the dependency nodes on the path from the first head up to the lowest common
+ *         governor and down to the second head, or an empty list if the heads are not connected
+ */
 public static ArrayList<Annotation> getDepPath(Annotation head1, Annotation head2, AnnotationSet dep,
     AnnotationSet parse)
 {
   // get the dependency path between the two annotations
-  ArrayList<Annotation> result = new ArrayList<Annotation>();
   Annotation node1 = getDepNode(head1, dep);
   Annotation node2 = getDepNode(head2, dep);
   if (node1 == null || node2 == null) // System.err.println("No parse node found for "+an1);
-    return result;
+    return new ArrayList<Annotation>();
+  TreeIndex tree = dep.getTreeIndex(GOV_ID);
+  ArrayList<Annotation> path = getDepPath(tree, tree.indexOf(node1), tree.indexOf(node2), parse);
+  return path != null ? path : getDepPathByChains(node1, node2, dep, parse);
+}
+
+/*
+ * The path between two nodes of the dependency tree index, through their lowest common ancestor. Null when the index
+ * can not answer as the governor chains would: a node is not in the index or on a cycle, the root of a node has a
+ * governor span (GOV) the index does not link, or a dependency node has no parse node.
+ */
+private static ArrayList<Annotation> getDepPath(TreeIndex tree, int node1, int node2, AnnotationSet parse)
+{
+  if (node1 < 0 || node2 < 0 || tree.getDepth(node1) < 0 || tree.getDepth(node2) < 0) return null;
+  if (tree.get(root(tree, node1)).getAttribute("GOV") != null) return null;
+  if (tree.get(root(tree, node2)).getAttribute("GOV") != null) return null;
+  int ancestor = tree.getCommonAncestor(node1, node2);
+  if (ancestor < 0) return new ArrayList<Annotation>();
+
+  int up = tree.getDepth(node1) - tree.getDepth(ancestor);
+  int down = tree.getDepth(node2) - tree.getDepth(ancestor);
+  Annotation[] path = new Annotation[up + down + 1];
+  for (int i = 0, cur = node1; i <= up; i++, cur = tree.getParent(cur)) {
+    path[i] = getNode(tree.get(cur).getStartOffset(), tree.get(cur).getEndOffset(), parse);
+    if (path[i] == null) return null;
+  }
+  for (int i = path.length - 1, cur = node2; i > up; i--, cur = tree.getParent(cur)) {
+    path[i] = getNode(tree.get(cur).getStartOffset(), tree.get(cur).getEndOffset(), parse);
+    if (path[i] == null) return null;
+  }
+  return new ArrayList<Annotation>(Arrays.asList(path));
+}
+
+private static int root(TreeIndex tree, int node)
+{
+  while (tree.getParent(node) >= 0) {
+    node = tree.getParent(node);
+  }
+  return node;
+}
+
+/*
+ * getDepPath following the governors of the nodes one at a time, for the nodes the tree index can not answer for
+ */
+private static ArrayList<Annotation> getDepPathByChains(Annotation node1, Annotation node2, AnnotationSet dep,
+    AnnotationSet parse)
+{
+  ArrayList<Annotation> result = new ArrayList<Annotation>();
   // go to the top level on the second annotation
   ArrayList<Annotation> dep2 = new ArrayList<Annotation>();
   Annotation cur = node2;
   dep2.add(getNode(cur.getStartOffset(), cur.getEndOffset(), parse));
   while (cur != null) {
-    Annotation p = getGovPosNode(cur, parse);
+    Annotation p = getGovPosNode(cur, dep, parse);
     if (dep2.contains(p) || p == null) {
       break;
     }
@@ -451,7 +569,7 @@ public static ArrayList<Annotation> getDepPath(Annotation head1, Annotation head
     else {
       if (dep1.contains(p)) return result;
       dep1.add(p);
-      p = getGovPosNode(cur1, parse);
+      p = getGovPosNode(cur1, dep, parse);
       cur1 = getGov(cur1, dep);
     }
   }
@@ -4,9 +4,7 @@
 
 package reconcile.scorers;
 
-import java.util.Iterator;
 import java.util.List;
-import java.util.TreeMap;
 
 import com.google.common.collect.Lists;
 
@@ -40,56 +38,7 @@ public static double bCubedScore(LeanDocument key, LeanDocument response)
   if (DEBUG) {
     System.err.println("Scoring document " + key.getID());
   }
-
-  double totalRecall = 0;
-  // Calculate the total recall, treating key as the gold standard.
-  // The error is calculated with respect to each NP entity; since this
-  // is for single document coreference, there is no need to check pairs
-  // of entities that do not come from the same document (wrt ID).
-  // The basic idea is to iterate over the equivalence classes (chains) in
-  // a gold standard document and for each one, see how well the
-  // response's document has kept elements of the equivalence class together.
-
-  // Hack -- there is a problem when the document contains only 1 np
-  // just skip those documents
-
-  Iterator<TreeMap<Integer, Integer>> goldChains = key.chainIterator();
-
-  while (goldChains.hasNext()) {
-    TreeMap<Integer, Integer> keyChain = goldChains.next();
-    Iterator<Integer> nouns = keyChain.keySet().iterator();
-    while (nouns.hasNext()) {
-      Integer entity = nouns.next();
-      Integer twin = key.getMatch(entity);
-      int numIntersect = 1;
-      if (twin != null) {
-        // Get the chain in the response for twin.
-        TreeMap<Integer, Integer> responseChain = response.getChain(response.getClusterNum(twin));
-        if (responseChain == null) {
-          System.out.println("Key:\n" + key + "\n*************************\nResponse:\n" + response);
-          throw new RuntimeException("null response for " + entity + " twin " + twin);
-        }
-        // Get the intersection of the key's chain and
-        // the response's chain.
-        // TreeMap correct = intersect(keyChain, responseChain);
-        numIntersect = numIntersect(key, keyChain, response, responseChain);
-        if (numIntersect == 0) throw new RuntimeException("NumIntersect=0");
-        // Calculate the recall with respect to the entity.
-        // double recall = (double)correct.size() / (double)keyChain.size();
-      }
-      double recall = numIntersect / (double) keyChain.size();
-      // Add to the total recall so that each entity is given
-      // equal weight.
-
-      // System.err.println(numIntersect+"/"+keyChain.size()+"="+recall+"("+totalRecall+")");
-      totalRecall += recall;
-
-    }
-  }
-
-  // double numNPs = key.numNounPhrases();
-
-  return totalRecall; // numNPs == 0?0:totalRecall / numNPs;
+  return new ContingencyTable(key, response).bCubed();
 }
 
 /**
@@ -108,12 +57,12 @@ public static double bCubedScore(LeanDocument key, LeanDocument response)
 public double[][] scoreRaw(DocumentPair doc, boolean printIndividualFiles)
 {
   double[][] result = newRawScoreArray();
-  double precision = bCubedScore(doc.getResponse(), doc.getKey());
+  double precision = doc.getResponseTable().bCubed();
 
   result[0][PRECISION] = precision;
   result[1][PRECISION] = doc.getResponse().numNounPhrases();
 
-  double recall = bCubedScore(doc.getKey(), doc.getResponse());
+  double recall = doc.getKeyTable().bCubed();
 
   // if(precision!=recall)
   // throw new RuntimeException("Precision "+precision+", Recall "+recall);
@@ -0,0 +1,33 @@
+package reconcile.scorers;
+
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+/*
+ * The mention based CEAF (phi3): two chains are as similar as the number of nps they share, so the scores are the
+ * shares of the nps of the response and of the key that are in aligned chains.
+ */
+public class CEAFMentionScore
+    extends CEAFScore {
+
+@Override
+protected boolean isMentionBased()
+{
+  return true;
+}
+
+@Override
+public double[] score(Iterable<DocumentPair> docs, boolean printIndividualFiles)
+{
+  return (new CEAFMentionScore()).macroAverage(docs, printIndividualFiles);
+}
+
+@Override
+public double[] score(DocumentPair doc, boolean printIndividualFiles)
+{
+  List<DocumentPair> docs = Lists.newArrayList(doc);
+  return score(docs, printIndividualFiles);
+}
+
+}
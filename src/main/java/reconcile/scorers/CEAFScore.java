@@ -4,13 +4,7 @@
 
 package reconcile.scorers;
 
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
-import java.util.TreeMap;
-
-import reconcile.assignment.AssignmentProblem;
-import reconcile.assignment.HungarianAlgorithm;
 
 import com.google.common.collect.Lists;
 
@@ -33,61 +27,43 @@ public class CEAFScore
  *          mapping from document ID (as a java.lang.Long) to a {@link LeanDocument}.
  * @param key
  *          The gold standard for the scoring. Use the same organization as response.
- * @return Krippendorff's alpha for the response.
+ * @return the total similarity of the best alignment of the key chains with the response chains
  */
 public static double scoreHelper(LeanDocument key, LeanDocument response)
 {
   if (DEBUG) {
     System.out.println("Scoring document " + key.getID());
   }
-  // Get the set of unique clusters
-  // System.err.println(key.numChains()+" -- "+response.numChains());
-  int size = key.numChains();
-  size = size >= response.numChains() ? size : response.numChains();
-  if (size == 0) return 0;
-  double[][] scores = new double[size][size];
-  double max = maxDistance(key.numNounPhrases());
-  for (double[] score : scores) {
-    Arrays.fill(score, max);
-  }
-  Iterator<TreeMap<Integer, Integer>> resChains = response.chainIterator();
-  int i = 0, j = 0;
-  while (resChains.hasNext()) {
-    TreeMap<Integer, Integer> resChain = resChains.next();
-    Iterator<TreeMap<Integer, Integer>> keyChains = key.chainIterator();
-    j = 0;
-    while (keyChains.hasNext()) {
-      TreeMap<Integer, Integer> keyChain = keyChains.next();
-      scores[j][i] = max - distance(key, keyChain, response, resChain);
-      j++;
-    }
-    i++;
-  }
+  if (key.equals(response)) return selfSimilarity(key, false);
+  return new ContingencyTable(key, response).ceaf(false);
+}
 
-  if (DEBUG) {
-    System.out.println("Scores");
-    printArray(scores);
-  }
-  AssignmentProblem ap = new AssignmentProblem(scores);
-  int[][] solution = ap.solve(new HungarianAlgorithm());
-  double cost = 0;
-  for (i = 0; i < solution.length; i++) {
-    if (solution[i][0] >= 0) {
-      cost += max - scores[solution[i][0]][i];
-    }
-  }
-  if (Double.isNaN(cost)) throw new RuntimeException(key.toString());
-  return cost;
+/**
+ * @return the similarity of a document with itself: every chain aligned with itself
+ */
+private static double selfSimilarity(LeanDocument doc, boolean mentionBased)
+{
+  return mentionBased ? doc.numNounPhrases() : doc.numChains();
+}
+
+/**
+ * @return whether the similarity of two chains is the number of nps they share (CEAF phi3) rather than that over their
+ *         mean size (phi4)
+ */
+protected boolean isMentionBased()
+{
+  return false;
 }
 
 @Override
 public double[][] scoreRaw(DocumentPair doc, boolean printIndividualFiles)
 {
   LeanDocument key = doc.getKey(), response = doc.getResponse();
+  boolean mentionBased = isMentionBased();
   double[][] result = newRawScoreArray();
-  double score = scoreHelper(key, response);
-  double keyScore = scoreHelper(key, key);
-  double resScore = scoreHelper(response, response);
+  double score = doc.getKeyTable().ceaf(mentionBased);
+  double keyScore = selfSimilarity(key, mentionBased);
+  double resScore = selfSimilarity(response, mentionBased);
   result[0][PRECISION] = score;
   result[0][RECALL] = score;
   result[1][PRECISION] = resScore;
@@ -98,26 +74,6 @@ public double[][] scoreRaw(DocumentPair doc, boolean printIndividualFiles)
   return result;
 }
 
-private static double distance(LeanDocument key, TreeMap<Integer, Integer> keyChain, LeanDocument response,
-    TreeMap<Integer, Integer> resChain)
-{
-  int numIntersect;
-  if (!key.equals(response)) {
-    numIntersect = numIntersect(key, keyChain, response, resChain);
-  }
-  else {
-    numIntersect = keyChain.size();
-  }
-  return 2 * numIntersect / (double) (keyChain.size() + resChain.size());
-  // return numIntersect;
-}
-
-private static double maxDistance(int numItems)
-{
-  return 1;
-  // return numItems;
-}
-
 @Override
 public double[] score(Iterable<DocumentPair> docs, boolean printIndividualFiles)
 {
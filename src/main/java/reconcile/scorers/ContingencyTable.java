@@ -0,0 +1,235 @@
+package reconcile.scorers;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import reconcile.assignment.SparseAssignment;
+
+/**
+ * The contingency table of the chains of one document against the chains of another: for each pair of chains, the
+ * number of nps of the first chain whose match is in the second, which is what
+ * {@link Scorer#numIntersect(LeanDocument, TreeMap, LeanDocument, TreeMap)} counts. The table is built in one pass over
+ * the nps and only the cells that are not empty are kept, so the scores computed from it cost about the number of nps
+ * instead of the number of pairs of chains.
+ *
+ * The matches are taken from the document of the rows, so the recall side of a score uses the table of the key against
+ * the response and the precision side the table of the response against the key (see
+ * {@link DocumentPair#getKeyTable()}). The rows come in the order of {@link LeanDocument#chainIterator()} and the
+ * nps of a row in increasing order, the order the scorers used to go through them in.
+ */
+public class ContingencyTable {
+
+/* the column of an np that has no match, and of one whose match is not in the other document */
+private static final int UNMATCHED = -1;
+private static final int MISSING = -2;
+
+private final int[] rowSizes;
+private final int[] colSizes;
+
+/* the columns of the cells of each row that are not empty, increasing, and their counts */
+private final int[][] cellCols;
+private final int[][] cellCounts;
+
+/* the column of each np of each row, and the count of its cell */
+private final int[][] npCols;
+private final int[][] npCounts;
+
+/* the first np whose match is not in the other document, for the error message */
+private Integer missingNp, missingMatch;
+
+public ContingencyTable(LeanDocument rows, LeanDocument cols) {
+  Map<Integer, Integer> colIndex = new HashMap<Integer, Integer>();
+  colSizes = new int[cols.numChains()];
+  int c = 0;
+  for (Map.Entry<Integer, TreeMap<Integer, Integer>> chain : cols.clusters.entrySet()) {
+    colIndex.put(chain.getKey(), c);
+    colSizes[c++] = chain.getValue().size();
+  }
+
+  int numRows = rows.numChains();
+  rowSizes = new int[numRows];
+  cellCols = new int[numRows][];
+  cellCounts = new int[numRows][];
+  npCols = new int[numRows][];
+  npCounts = new int[numRows][];
+  int[] counts = new int[colSizes.length];
+  int[] touched = new int[colSizes.length];
+  Iterator<TreeMap<Integer, Integer>> chains = rows.chainIterator();
+  for (int r = 0; chains.hasNext(); r++) {
+    TreeMap<Integer, Integer> chain = chains.next();
+    rowSizes[r] = chain.size();
+    int[] nc = new int[chain.size()];
+    int numTouched = 0, k = 0;
+    for (Integer np : chain.keySet()) {
+      Integer match = rows.getMatch(np);
+      int col = UNMATCHED;
+      if (match != null) {
+        Integer cluster = cols.getClusterNum(match);
+        if (cluster == null) {
+          col = MISSING;
+          if (missingNp == null) {
+            missingNp = np;
+            missingMatch = match;
+          }
+        }
+        else {
+          col = colIndex.get(cluster);
+          if (counts[col]++ == 0) {
+            touched[numTouched++] = col;
+          }
+        }
+      }
+      nc[k++] = col;
+    }
+
+    int[] ncCounts = new int[nc.length];
+    for (k = 0; k < nc.length; k++) {
+      ncCounts[k] = nc[k] >= 0 ? counts[nc[k]] : 0;
+    }
+    Arrays.sort(touched, 0, numTouched);
+    cellCols[r] = new int[numTouched];
+    cellCounts[r] = new int[numTouched];
+    for (int t = 0; t < numTouched; t++) {
+      cellCols[r][t] = touched[t];
+      cellCounts[r][t] = counts[touched[t]];
+      counts[touched[t]] = 0;
+    }
+    npCols[r] = nc;
+    npCounts[r] = ncCounts;
+  }
+}
+
+public int numRows()
+{
+  return rowSizes.length;
+}
+
+public int numCols()
+{
+  return colSizes.length;
+}
+
+public int rowSize(int row)
+{
+  return rowSizes[row];
+}
+
+public int colSize(int col)
+{
+  return colSizes[col];
+}
+
+/**
+ * @return the columns of the cells of the row that are not empty, in increasing order
+ */
+public int[] cellCols(int row)
+{
+  return cellCols[row];
+}
+
+/**
+ * @return the counts of the cells of the row that are not empty, in the order of {@link #cellCols(int)}
+ */
+public int[] cellCounts(int row)
+{
+  return cellCounts[row];
+}
+
+/**
+ * @return the number of nps of the row that are matched into the other document
+ */
+public int numMatched(int row)
+{
+  int sum = 0;
+  for (int count : cellCounts[row]) {
+    sum += count;
+  }
+  return sum;
+}
+
+/**
+ * The MUC recall of the columns with respect to the rows: every row of more than one np counts its size less the
+ * number of parts the columns split it into, where every np without a match is a part of its own.
+ *
+ * @return the numerator and the denominator
+ */
+public int[] muc()
+{
+  int num = 0, denum = 0;
+  for (int r = 0; r < rowSizes.length; r++) {
+    if (rowSizes[r] > 1) {
+      int parts = cellCols[r].length;
+      boolean missing = false;
+      for (int col : npCols[r]) {
+        if (col == UNMATCHED) {
+          parts++;
+        }
+        else if (col == MISSING) {
+          missing = true;
+        }
+      }
+      // as in numIntersect, the nps matched outside the other document make up one part between them
+      if (missing) {
+        parts++;
+      }
+      num += rowSizes[r] - parts;
+      denum += rowSizes[r] - 1;
+    }
+  }
+  return new int[] { num, denum };
+}
+
+/**
+ * The B-cubed recall of the columns with respect to the rows, summed over the nps of the rows: the share of the np's
+ * row that is in the np's column; 1 / the size of the row for an np without a match.
+ */
+public double bCubed()
+{
+  double total = 0;
+  for (int r = 0; r < rowSizes.length; r++) {
+    for (int k = 0; k < npCols[r].length; k++) {
+      if (npCols[r][k] == MISSING)
+        throw new RuntimeException("null response for " + missingNp + " twin " + missingMatch);
+      int numIntersect = npCols[r][k] == UNMATCHED ? 1 : npCounts[r][k];
+      total += numIntersect / (double) rowSizes[r];
+    }
+  }
+  return total;
+}
+
+/**
+ * The CEAF similarity of the rows and the columns: the largest total similarity of a one to one alignment of the
+ * chains. The similarity of two chains is the number of nps they share (phi3, mention based) or twice that over the
+ * sum of their sizes (phi4, entity based). Chains that share no nps add nothing to an alignment, so only the cells that
+ * are not empty are given to {@link SparseAssignment}.
+ */
+public double ceaf(boolean mentionBased)
+{
+  int numRows = rowSizes.length;
+  double[][] sims = new double[numRows][];
+  for (int r = 0; r < numRows; r++) {
+    sims[r] = new double[cellCols[r].length];
+    for (int t = 0; t < cellCols[r].length; t++) {
+      sims[r][t] = similarity(r, cellCols[r][t], cellCounts[r][t], mentionBased);
+    }
+  }
+  int[] aligned = SparseAssignment.maxWeightMatching(numRows, colSizes.length, cellCols, sims);
+  double total = 0;
+  for (int r = 0; r < numRows; r++) {
+    if (aligned[r] >= 0) {
+      total += sims[r][Arrays.binarySearch(cellCols[r], aligned[r])];
+    }
+  }
+  return total;
+}
+
+private double similarity(int row, int col, int count, boolean mentionBased)
+{
+  if (mentionBased) return count;
+  return 2 * count / (double) (rowSizes[row] + colSizes[col]);
+}
+
+}
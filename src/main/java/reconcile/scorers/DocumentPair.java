@@ -20,6 +20,8 @@ public class DocumentPair {
 private LeanDocument key;
 private LeanDocument response;
 private String filename;
+/* the contingency tables, built the first time a scorer asks for them */
+private ContingencyTable keyTable, responseTable;
 
 public String getFilename()
 {
@@ -54,6 +56,8 @@ public void initialize(LeanDocument key, LeanDocument response, boolean setLiter
   this.response = response;
   response.setKey(false);
   this.filename = null;
+  keyTable = null;
+  responseTable = null;
   if (setLiteralMatch) {
     Iterator<Integer> keyIterator = key.npIterator();
     while (keyIterator.hasNext()) {
@@ -74,6 +78,8 @@ public LeanDocument getKey()
 public void setKey(LeanDocument key)
 {
   this.key = key;
+  keyTable = null;
+  responseTable = null;
 }
 
 public LeanDocument getResponse()
@@ -84,6 +90,30 @@ public LeanDocument getResponse()
 public void setResponse(LeanDocument response)
 {
   this.response = response;
+  keyTable = null;
+  responseTable = null;
+}
+
+/**
+ * @return the contingency table of the key chains against the response chains, for the recall side of the scores
+ */
+public ContingencyTable getKeyTable()
+{
+  if (keyTable == null) {
+    keyTable = new ContingencyTable(key, response);
+  }
+  return keyTable;
+}
+
+/**
+ * @return the contingency table of the response chains against the key chains, for the precision side of the scores
+ */
+public ContingencyTable getResponseTable()
+{
+  if (responseTable == null) {
+    responseTable = new ContingencyTable(response, key);
+  }
+  return responseTable;
 }
 
 public static DocumentPair makeFromMatchedAnnots(AnnotationSet keyAS, AnnotationSet responseAS)
@@ -38,30 +38,9 @@ public double[] score(boolean printIndividualFiles, Iterable<Document> files, St
     List<DocumentPair> docs = Lists.newArrayList();// DocumentPair[files.length];
 
     for (Document doc : files) {
-      AnnotationSet key = doc.getAnnotationSet(Constants.GS_NP);
-      key.setName("nps");
       // String responseName = FileStructure.getPath(file, fs.getClusterSubdir(), clusterName);
       AnnotationSet response = doc.getAnnotationSet(clusterName);
-      if (doc.getCannonicalAnnotationSetName(Constants.GS_NP).equals(doc.getCannonicalAnnotationSetName(Constants.NP))) {
-        // Case 1: key and response are the same set of CEs
-        Matcher.exactMatchAnnotationSets(key, response);
-      }
-      else {
-        // Need to read in all annotations and the text since some of them are used for matching
-
-        MatchStyleEnum matchStyle;
-        // Match automatic to gs nps
-        if (Utils.getConfig().getDataset().toLowerCase().startsWith("ace")) {
-          matchStyle = MatchStyleEnum.ACE;
-        }
-        else {
-          matchStyle = MatchStyleEnum.MUC;
-        }
-        // System.out.println(key);
-        Matcher.matchAnnotationSets(key, response, matchStyle, doc, false);
-      }
-
-      docs.add(DocumentPair.makeFromMatchedAnnots(key, response));
+      docs.add(matchResponse(doc, response));
     }
 
     return score(docs, printIndividualFiles);
@@ -71,6 +50,35 @@ public double[] score(boolean printIndividualFiles, Iterable<Document> files, St
   }
 }
 
+/**
+ * Match a response clustering of a document against its key, as the scorers expect it
+ */
+public static DocumentPair matchResponse(Document doc, AnnotationSet response)
+{
+  AnnotationSet key = doc.getAnnotationSet(Constants.GS_NP);
+  key.setName("nps");
+  if (doc.getCannonicalAnnotationSetName(Constants.GS_NP).equals(doc.getCannonicalAnnotationSetName(Constants.NP))) {
+    // Case 1: key and response are the same set of CEs
+    Matcher.exactMatchAnnotationSets(key, response);
+  }
+  else {
+    // Need to read in all annotations and the text since some of them are used for matching
+
+    MatchStyleEnum matchStyle;
+    // Match automatic to gs nps
+    if (Utils.getConfig().getDataset().toLowerCase().startsWith("ace")) {
+      matchStyle = MatchStyleEnum.ACE;
+    }
+    else {
+      matchStyle = MatchStyleEnum.MUC;
+    }
+    // System.out.println(key);
+    Matcher.matchAnnotationSets(key, response, matchStyle, doc, false);
+  }
+
+  return DocumentPair.makeFromMatchedAnnots(key, response);
+}
+
 public double[] scoreInternal(DocumentPair doc, boolean printIndividualFiles)
 {
   double[][] sc = scoreRaw(doc, printIndividualFiles);
@@ -4,10 +4,8 @@
 
 package reconcile.scorers;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.TreeMap;
+import java.util.HashSet;
+import java.util.Set;
 
 /*
  * BCubed Metric for measuring noun-phrase coreference resolution.
@@ -24,6 +22,12 @@ public static final double INTERSECT = .25;
 /**
  * Calculates Krippendorff's alpha
  * 
+ * The clusters are the key chains and the response chains that are not the same as a key chain. Every np of the key
+ * that is matched into the response is a coincidence of its key chain and its response chain; two clusters are as far
+ * apart as {@link #alphaDistance(int, int, int)} says if they are a key chain and a response chain, and disjoint
+ * otherwise. Only the pairs of chains that share nps are looked at: they are the cells of the contingency tables of the
+ * document that are not empty.
+ * 
  * @param response
  *          The coreference chains in the response. Should be organized by document such that response contains a
  *          mapping from document ID (as a java.lang.Long) to a {@link LeanDocument}.
@@ -31,102 +35,68 @@ public static final double INTERSECT = .25;
  *          The gold standard for the scoring. Use the same organization as response.
  * @return Krippendorff's alpha for the response.
  */
-@SuppressWarnings("unchecked")
 @Override
 public double[] score(DocumentPair doc, boolean printIndividualFiles)
 {
-  LeanDocument key = doc.getKey(), response = doc.getResponse();
+  LeanDocument key = doc.getKey();
   if (DEBUG) {
     System.err.println("Scoring document " + key.getID());
   }
-  // Get the set of unique clusters
-  HashMap<TreeMap<Integer, Integer>, Integer> clNumbers = new HashMap<TreeMap<Integer, Integer>, Integer>();
-  ArrayList<TreeMap<Integer, Integer>> sets = new ArrayList<TreeMap<Integer, Integer>>();
-  Iterator<TreeMap<Integer, Integer>> keyChains = key.chainIterator();
-  while (keyChains.hasNext()) {
-    TreeMap<Integer, Integer> keyChain = keyChains.next();
-    sets.add(keyChain);
-    clNumbers.put(keyChain, sets.size() - 1);
-  }
-  Iterator<TreeMap<Integer, Integer>> resChains = response.chainIterator();
-  while (resChains.hasNext()) {
-    TreeMap<Integer, Integer> resChain = resChains.next();
-    keyChains = key.chainIterator();
-    int index = -1;
-    while (keyChains.hasNext()) {
-      TreeMap<Integer, Integer> keyChain = keyChains.next();
-      if (same(response, resChain, keyChain)) {
-        index = sets.indexOf(keyChain);
-        break;
-      }
-    }
-
-    if (index < 0) {
-      sets.add(resChain);
-      clNumbers.put(resChain, sets.size() - 1);
-    }
-    else {
-      clNumbers.put(resChain, index);
-    }
-  }
+  ContingencyTable keyTable = doc.getKeyTable(), resTable = doc.getResponseTable();
+  int numKey = keyTable.numRows(), numRes = keyTable.numCols();
 
-  TreeMap<Integer, Integer>[] clusters = new TreeMap[sets.size()];
-  clusters = sets.toArray(clusters);
-
-  double[][] scores = new double[clusters.length][clusters.length];
-  int[][] num = new int[clusters.length][clusters.length];
-  keyChains = key.chainIterator();
-  while (keyChains.hasNext()) {
-    TreeMap<Integer, Integer> keyChain = keyChains.next();
-    Iterator<Integer> itemIter = keyChain.keySet().iterator();
-    while (itemIter.hasNext()) {
-      Integer item = itemIter.next();
-      // System.out.println("Item "+item+" "+key.getElChain(item)+"-"+response.getElChain(item));
-      int i = clNumbers.get(key.getElChain(item));
-      Integer match = key.getMatch(item);
-      if (match != null) {
-        int j = clNumbers.get(response.getElChain(match));
-        num[i][j]++;
-        num[j][i]++;
+  // the cluster of each response chain: the key chain it is the same as, or a cluster of its own
+  int[] resCluster = new int[numRes];
+  int numClusters = numKey;
+  for (int r = 0; r < numRes; r++) {
+    resCluster[r] = -1;
+    int[] cols = resTable.cellCols(r), counts = resTable.cellCounts(r);
+    for (int t = 0; t < cols.length && resCluster[r] < 0; t++) {
+      if (counts[t] == resTable.rowSize(r) && keyTable.rowSize(cols[t]) == resTable.rowSize(r)) {
+        resCluster[r] = cols[t];
       }
     }
+    if (resCluster[r] < 0) {
+      resCluster[r] = numClusters++;
+    }
   }
 
+  long[] sum = new long[numClusters];
+  int total = 0;
   double numerator = 0;
-  for (int i = 0; i < scores.length; i++) {
-    for (int j = i; j < scores.length; j++) {
-      scores[i][j] = alphaDistance(key, clusters[i], response, clusters[j]);// Math.pow(alphaDistance(clusters[i],
-                                                                            // clusters[j]),2);
-      // num[i][j]=numIntersect(clusters[i], clusters[j]);
-      // num[j][i]+=num[i][j];
-      numerator += scores[i][j] * num[i][j];
+  for (int k = 0; k < numKey; k++) {
+    int[] cols = keyTable.cellCols(k), counts = keyTable.cellCounts(k);
+    for (int t = 0; t < cols.length; t++) {
+      sum[k] += counts[t];
+      sum[resCluster[cols[t]]] += counts[t];
+      total += 2 * counts[t];
+      numerator += alphaDistance(counts[t], keyTable.rowSize(k), keyTable.colSize(cols[t])) * counts[t];
     }
   }
 
-  int total = 0;
-  int[] sum = new int[clusters.length];
-  for (int i = 0; i < scores.length; i++) {
-    for (int j = 0; j < scores.length; j++) {
-      sum[i] += num[i][j];
-      total += num[i][j];
-    }
+  // all the pairs of clusters as if they were disjoint, then the ones that share nps
+  long sumAll = 0, sumSquares = 0;
+  for (long s : sum) {
+    sumAll += s;
+    sumSquares += s * s;
   }
-  int denum = 0;
-  for (int i = 0; i < scores.length; i++) {
-    for (int j = i + 1; j < scores.length; j++) {
-      denum += sum[i] * sum[j] * scores[i][j];
+  long denum = (sumAll * sumAll - sumSquares) / 2;
+  Set<Long> seen = new HashSet<Long>();
+  for (int k = 0; k < numKey; k++) {
+    int[] cols = keyTable.cellCols(k), counts = keyTable.cellCounts(k);
+    for (int t = 0; t < cols.length; t++) {
+      int j = resCluster[cols[t]];
+      if (j == k || !seen.add((long) k * numClusters + j)) {
+        continue;
+      }
+      double distance = alphaDistance(counts[t], keyTable.rowSize(k), keyTable.colSize(cols[t]));
+      // truncated as it is added up, as the sum over all the pairs used to be
+      denum = (long) (denum - sum[k] * sum[j] + sum[k] * sum[j] * distance);
     }
   }
 
   if (DEBUG) {
-    System.out.println("Clusters");
-    printArray(clusters);
-    System.out.println("Numbers");
-    printArray(num);
-    System.out.println("-----------");
-    printArray(sum);
-    System.out.println("Scores");
-    printArray(scores);
+    System.out.println("Clusters " + numClusters + " Coincidences " + total);
     System.out.println("Numerator " + numerator + " Denum " + denum + "=" + ((numerator) / denum));
   }
   double[] result = new double[1];
@@ -143,19 +113,20 @@ public double[] score(DocumentPair doc, boolean printIndividualFiles)
   return result;
 }
 
-private static double alphaDistance(LeanDocument key, TreeMap<Integer, Integer> keyChain, LeanDocument response,
-    TreeMap<Integer, Integer> resChain)
+/**
+ * @return the distance of two clusters of the given sizes that share numIntersect nps
+ */
+private static double alphaDistance(int numIntersect, int size1, int size2)
 {
-  int numIntersect = numIntersect(key, keyChain, response, resChain);
   // Several cases
   // 1) the two clusters are the same
-  if (keyChain.size() == numIntersect && resChain.size() == numIntersect)
+  if (size1 == numIntersect && size2 == numIntersect)
     return SAME;
-  else if (keyChain.size() == numIntersect || resChain.size() == numIntersect)
+  else if (size1 == numIntersect || size2 == numIntersect)
     // 2) one cluster subsumes the other
-    return 1 - 2 * numIntersect / (double) (keyChain.size() + resChain.size());
+    return 1 - 2 * numIntersect / (double) (size1 + size2);
   else if (numIntersect > 1) // 3) intersection
-    return 1 - 2 * numIntersect / (double) (keyChain.size() + resChain.size());
+    return 1 - 2 * numIntersect / (double) (size1 + size2);
   else
     // disjunction
     return DISJOINT;
@@ -361,7 +361,7 @@ public static LeanDocument readDocument(String fn, boolean delete_singletons)
   return result;
 }
 
-public static long getNextId()
+public static synchronized long getNextId()
 {
   return nextId++;
 }
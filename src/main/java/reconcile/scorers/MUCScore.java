@@ -34,39 +34,14 @@ public MUCScore() {
  */
 public static int[] mucScore(LeanDocument key, LeanDocument response)
 {
-  // System.out.println("==========================================================");
-  // System.out.println("Key:\n"+key.toStringNoSing()+"\n*************************\nResponse:\n"+response.toStringNoSing());
-
-  Iterator<TreeMap<Integer, Integer>> goldChains = key.chainIterator();
-  // double mucRecall = 0.0;
-  int mucRecallNom = 0;
-  int mucRecallDenom = 0;
-  while (goldChains.hasNext()) {
-    TreeMap<Integer, Integer> keyChain = goldChains.next();
-    if (keyChain.size() > 1) {
-      int numInt = numIntersect(key, keyChain, response);
-
-      // int numMatched = getNumMatched(key, keyChain);
-      // if(numMatched>0){
-      // mucRecallNom += numMatched-numInt;
-      mucRecallNom += (keyChain.size() - numInt);
-      // mucRecallDenom += numMatched-1;
-      mucRecallDenom += keyChain.size() - 1;
-
-      // System.out.println(keyChain+"\n"+(keyChain.size() - numInt)+"/"+(keyChain.size()-1));
-      // }
-    }
-  }
-  int[] result = { mucRecallNom, mucRecallDenom };
-
-  return result;
+  return new ContingencyTable(key, response).muc();
 }
 
 @Override
 public double[][] scoreRaw(DocumentPair doc, boolean printIndividualFiles)
 {
-  int[] recall = mucScore(doc.getKey(), doc.getResponse());
-  int[] precision = mucScore(doc.getResponse(), doc.getKey());
+  int[] recall = doc.getKeyTable().muc();
+  int[] precision = doc.getResponseTable().muc();
 
   double[][] result = newRawScoreArray();
   result[0][PRECISION] = precision[0];
@@ -20,10 +20,14 @@ public enum MatchStyleEnum {
   MUC, ACE, UW
 }
 
-public static int numMatchedKey = 0;
-public static int totalKey = 0;
-public static int totalNPsMatched = 0;
-public static int doubleMatches = 0;
+/*
+ * Corpus level matching statistics. Documents may be matched on several threads at once, so the counters are only
+ * updated through addToCounters.
+ */
+public static volatile int numMatchedKey = 0;
+public static volatile int totalKey = 0;
+public static volatile int totalNPsMatched = 0;
+public static volatile int doubleMatches = 0;
 
 public static void exactMatchAnnotationSets(AnnotationSet gsNps, AnnotationSet nps)
 {
@@ -43,6 +47,7 @@ public static void matchAnnotationSets(AnnotationSet gsNps, AnnotationSet nps, M
 public static void matchAnnotationSets(AnnotationSet gsNps, AnnotationSet nps, MatchStyleEnum matchStyle, Document doc, boolean outputStats)
 {
   int numMatched = 0;
+  int numDoubleMatches = 0;
 
   /*
   for (Annotation a : gsNps) {
@@ -73,7 +78,7 @@ public static void matchAnnotationSets(AnnotationSet gsNps, AnnotationSet nps, M
     if (match != null) {
       numMatched++;
       if (matched.containsKey(match)) {
-        doubleMatches++;
+        numDoubleMatches++;
         Annotation oldMatch = matched.get(match);
 
         // Annotation newMatch = null;
@@ -115,11 +120,8 @@ public static void matchAnnotationSets(AnnotationSet gsNps, AnnotationSet nps, M
 
 
 
-  numMatchedKey += matched.size();
   int gsNpsSize = gsNps == null ? 0 : gsNps.size();
-
-  totalKey += gsNpsSize;
-  totalNPsMatched += numMatched;
+  addToCounters(matched.size(), gsNpsSize, numMatched, numDoubleMatches);
   if (outputStats) {
     System.out.println("Matched KEY: " + matched.size() + "/" + gsNpsSize + " CEs. RESPONSE: "
     		+numMatched + "/" + nps.size()+" CEs");
@@ -899,7 +901,15 @@ private static boolean coversAnnot(Annotation bigger, Annotation smaller, String
   return true;
 }
 
-public static void nullifyCounters()
+private static synchronized void addToCounters(int matchedKey, int key, int npsMatched, int doubles)
+{
+  numMatchedKey += matchedKey;
+  totalKey += key;
+  totalNPsMatched += npsMatched;
+  doubleMatches += doubles;
+}
+
+public static synchronized void nullifyCounters()
 {
   numMatchedKey = 0;
   totalKey = 0;
@@ -128,15 +128,29 @@ public void learn(File trainFeaturesFile, File modelName)
   learner.train(trainFeaturesFile, modelName, learnerOptions);
 }
 
+/**
+ * @return the file the model trained for a fold is kept in
+ */
+public File getFoldModelFile(int foldNum)
+{
+  return new File(Utils.getWorkDirectory() + Utils.SEPARATOR + modelName + ".fold" + foldNum);
+}
+
+/**
+ * Train the model of a fold, without validating it. The folds have their own feature and model files, so several
+ * folds can be trained at the same time, each by its own cross validator.
+ */
+public void trainFold(File trainVectorsFile, int foldNum)
+{
+  learn(trainVectorsFile, getFoldModelFile(foldNum));
+}
+
 public double[] runClassifier(Iterable<Document> testFilenames, String modelFN)
 {
   System.out.println("Classifying...");
   double min = Double.MAX_VALUE, max = Double.MIN_VALUE;
   for (Document doc : testFilenames) {
-    File featFN = doc.getFeatureFile();
-    File predictionFN = doc.getPredictionFile();
-    // System.out.println("Running on "+featFN+" output is "+predictionFN+" modelFN is "+modelFN);
-    double[] res = learner.test(featFN, predictionFN, modelFN, testerOptions);
+    double[] res = learner.test(doc, modelFN, testerOptions);
     if (res != null) {
       min = min < res[0] ? min : res[0];
       max = max > res[1] ? max : res[1];
@@ -0,0 +1,159 @@
+package reconcile.validation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import reconcile.CorpusExecutor;
+import reconcile.Constructor;
+import reconcile.clusterers.Clusterer;
+import reconcile.clusterers.ScoredEdges;
+import reconcile.clusterers.ThresholdClusterer;
+import reconcile.data.AnnotationSet;
+import reconcile.data.Document;
+import reconcile.general.Constants;
+import reconcile.scorers.DocumentPair;
+import reconcile.scorers.InternalScorer;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Scores a threshold clusterer on a set of validation documents at many thresholds, without writing and reading back a
+ * cluster file for every document at every threshold. The scored pairs of each document are read from its prediction
+ * file once and kept in memory. The documents are shared out among the workers, each with its own clusterer, and a
+ * worker clusters its document at all the thresholds asked for before moving on; the clusterings at each threshold are
+ * then scored together, in document order, so the scores are those of clustering and scoring the files one threshold
+ * at a time.
+ */
+public class ThresholdSweep {
+
+private List<Document> docs;
+private ScoredEdges[] edges;
+private String clustererName;
+private String[] clustOptions;
+private InternalScorer scorer;
+private int numWorkers;
+
+/** The clusterer of each worker */
+private ThreadLocal<ThresholdClusterer> clusterers = new ThreadLocal<ThresholdClusterer>() {
+
+  @Override
+  protected ThresholdClusterer initialValue()
+  {
+    return (ThresholdClusterer) Constructor.createClusterer(clustererName);
+  }
+};
+
+public ThresholdSweep(Iterable<Document> docs, String clustererName, String[] clustOptions, InternalScorer scorer,
+    int numWorkers) {
+  this.docs = Lists.newArrayList(docs);
+  this.clustererName = clustererName;
+  this.clustOptions = clustOptions;
+  this.scorer = scorer;
+  this.numWorkers = Math.max(1, numWorkers);
+  edges = new ScoredEdges[this.docs.size()];
+}
+
+/**
+ * @return the precision, recall and F of the clusterings at each of the thresholds
+ */
+public double[][] score(final double[] thresholds)
+{
+  final List<List<DocumentPair>> pairs = new ArrayList<List<DocumentPair>>();
+  for (int t = 0; t < thresholds.length; t++) {
+    pairs.add(new ArrayList<DocumentPair>(docs.size()));
+  }
+
+  CorpusExecutor executor = new CorpusExecutor(numWorkers);
+  executor.run(docs, new CorpusExecutor.DocumentTask<DocumentPair[]>() {
+
+    public DocumentPair[] run(Document doc, int docNum)
+    {
+      return cluster(doc, docNum, thresholds);
+    }
+  }, new CorpusExecutor.ResultHandler<DocumentPair[]>() {
+
+    public void handle(Document doc, int docNum, DocumentPair[] result, Throwable error)
+    {
+      if (error != null) throw new RuntimeException("Failed to cluster document " + doc.getDocumentId(), error);
+      for (int t = 0; t < thresholds.length; t++) {
+        pairs.get(t).add(result[t]);
+      }
+    }
+  });
+
+  double[][] scores = new double[thresholds.length][];
+  if (numWorkers == 1) {
+    for (int t = 0; t < thresholds.length; t++) {
+      scores[t] = scorer.score(pairs.get(t), false);
+    }
+    return scores;
+  }
+
+  ExecutorService pool = Executors.newFixedThreadPool(Math.min(numWorkers, thresholds.length));
+  try {
+    List<Future<double[]>> futures = Lists.newArrayList();
+    for (int t = 0; t < thresholds.length; t++) {
+      final List<DocumentPair> thresholdPairs = pairs.get(t);
+      futures.add(pool.submit(new Callable<double[]>() {
+
+        public double[] call()
+        {
+          return scorer.score(thresholdPairs, false);
+        }
+      }));
+    }
+    for (int t = 0; t < thresholds.length; t++) {
+      scores[t] = futures.get(t).get();
+    }
+    return scores;
+  }
+  catch (ExecutionException e) {
+    throw new RuntimeException(e.getCause());
+  }
+  catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+    throw new RuntimeException(e);
+  }
+  finally {
+    pool.shutdownNow();
+  }
+}
+
+/**
+ * Cluster one document at each of the thresholds and match every clustering against the key
+ */
+private DocumentPair[] cluster(Document doc, int docNum, double[] thresholds)
+{
+  if (edges[docNum] == null) {
+    ScoredEdges scores = new ScoredEdges();
+    Reader in = doc.getPredictionReader();
+    try {
+      Clusterer.readClusterFile(in, scores);
+    }
+    catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    // build the graph now, so that the clusterers only ever read it
+    scores.getGraph();
+    edges[docNum] = scores;
+  }
+
+  ThresholdClusterer clusterer = clusterers.get();
+  AnnotationSet ces = doc.getAnnotationSet(Constants.NP);
+  DocumentPair[] result = new DocumentPair[thresholds.length];
+  for (int t = 0; t < thresholds.length; t++) {
+    clusterer.setThreshold(thresholds[t]);
+    AnnotationSet response = clusterer.cluster(ces, edges[docNum], clustOptions);
+    result[t] = InternalScorer.matchResponse(doc, response == null ? ces : response);
+  }
+  return result;
+}
+
+}
@@ -7,12 +7,14 @@ package reconcile.validation;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import reconcile.Driver;
 import reconcile.SystemConfig;
 import reconcile.clusterers.ThresholdClusterer;
 import reconcile.data.Document;
-import reconcile.general.Utils;
+import reconcile.scorers.InternalScorer;
 import reconcile.scorers.Scorer;
 
 
@@ -30,6 +32,24 @@ int numFolds;
 private static int NUM_POINTS = 60;
 private static int NUM_INITIAL_POINTS = 25;
 
+/**
+ * Config key for the search of the second pass: "grid" tries NUM_POINTS thresholds evenly spaced around the best one
+ * of the first pass, "golden" narrows the same interval down by golden section search to the same resolution
+ */
+public static final String THRESHOLD_SEARCH = "THRESHOLD_SEARCH";
+
+/**
+ * Config key for the number of threads the validation documents are clustered and scored on
+ */
+public static final String VALIDATION_WORKERS = "VALIDATION_WORKERS";
+
+private static String SEARCH = "grid";
+private static int NUM_WORKERS = 1;
+private static final double GOLDEN = (Math.sqrt(5) - 1) / 2;
+
+/** The scored pairs of the validation documents of the current fold, when the scorer works in memory */
+private ThresholdSweep sweep;
+
 public ThresholdValidator() {
   super();
   if (clusterer instanceof ThresholdClusterer) {
@@ -47,7 +67,7 @@ public ThresholdValidator() {
 @Override
 public void classifyFoldInternal(Iterable<Document> testFilenames, int foldNum)
 {
-  File modelFN = new File(Utils.getWorkDirectory() + Utils.SEPARATOR + modelName + ".fold" + foldNum);
+  File modelFN = getFoldModelFile(foldNum);
   classifyFoldInternal(testFilenames, foldNum, modelFN.getAbsolutePath());
 }
 
@@ -73,9 +93,9 @@ public void classifyInternal(Iterable<Document> testFilenames, String modelFN)
 @Override
 public void trainAndValidateFoldInternal(Iterable<Document> validFilenames, File trainVectorsFile, int foldNum)
 {
-  File modelFilename = new File(Utils.getWorkDirectory() + "/" + cfg.getModelName() + ".fold" + foldNum);
+  File modelFilename = getFoldModelFile(foldNum);
   long time = Driver.startStage("fold_learn", "Training fold " + foldNum);
-  learn(trainVectorsFile, modelFilename);
+  trainFold(trainVectorsFile, foldNum);
   Driver.endStage("fold_learn", time);
 
   time = Driver.startStage("threshold_validate", "Validating fold " + foldNum);
@@ -90,6 +110,10 @@ public void validateFold(Iterable<Document> validFilenames, String modelFN)
 {
   double[] range = runClassifier(validFilenames, modelFN);
   double min = range[0], max = range[1];
+  sweep = null;
+  if (scorer instanceof InternalScorer) {
+    sweep = new ThresholdSweep(validFilenames, cfg.getClusterer(), clustOptions, (InternalScorer) scorer, NUM_WORKERS);
+  }
   // We do a coarse first pass first to narow down the interval that we
   // will examine
   double intervalRange = max - min;
@@ -107,7 +131,13 @@ public void validateFold(Iterable<Document> validFilenames, String modelFN)
   step = (max - min) / NUM_POINTS;
   File intermediateResultsFile = new File(cfg.getString("VALIDATE_OUTPUT_FILE", null));
   System.out.println("Examining interval [" + min + "," + max + "]");
-  maxs = examineInterval(min, max, step, validFilenames, intermediateResultsFile);
+  if ("golden".equalsIgnoreCase(SEARCH)) {
+    maxs = goldenSectionSearch(min, max, step, maxThreshold, maxScore, validFilenames, intermediateResultsFile);
+  }
+  else {
+    maxs = examineInterval(min, max, step, validFilenames, intermediateResultsFile);
+  }
+  sweep = null;
   threshold = maxs[0];
   maxScore = maxs[1];
   System.out.println("Max " + scorer.getName() + " of " + maxScore + " at threshold " + threshold);
@@ -138,10 +168,14 @@ private double[] examineInterval(double min, double max, double step, Iterable<D
     }
   }
   // System.out.println("Examining range ["+min+","+max+"]. Step is "+step);
+  List<Double> thresholds = new ArrayList<Double>();
   for (double th = min; th <= max; th += step) {
-    thClusterer.setThreshold(th);
-    cluster(validFilenames, "valid");
-    double[] score = scorer.score(true, validFilenames, "valid");
+    thresholds.add(th);
+  }
+  double[][] scores = scoreThresholds(thresholds, validFilenames);
+  for (int i = 0; i < scores.length; i++) {
+    double th = thresholds.get(i);
+    double[] score = scores[i];
 
     double scor = score[Scorer.F];
     // Scorer.printScore(scorer.getName(), score);
@@ -160,6 +194,95 @@ private double[] examineInterval(double min, double max, double step, Iterable<D
   return new double[] { maxThreshold, maxScore };
 }
 
+/**
+ * Look for the best threshold in [min, max] by golden section search, assuming the score has a single peak there.
+ * The interval is narrowed down until it is no wider than step.
+ * 
+ * @return the best threshold found and its score, which are those given if no threshold in the interval does better
+ */
+private double[] goldenSectionSearch(double min, double max, double step, double bestThreshold, double bestScore,
+    Iterable<Document> validFilenames, File outFilename)
+{
+  PrintStream outF = null;
+  if (outFilename != null) {
+    try {
+      outF = new PrintStream(outFilename);
+    }
+    catch (IOException ioe) {
+      throw new RuntimeException(ioe);
+    }
+  }
+  double[] best = { bestThreshold, bestScore };
+  double a = min, b = max;
+  double c = b - GOLDEN * (b - a), d = a + GOLDEN * (b - a);
+  double fc = examineThreshold(c, validFilenames, best, outF);
+  double fd = examineThreshold(d, validFilenames, best, outF);
+  while (b - a > step) {
+    if (fc >= fd) {
+      b = d;
+      d = c;
+      fd = fc;
+      c = b - GOLDEN * (b - a);
+      fc = examineThreshold(c, validFilenames, best, outF);
+    }
+    else {
+      a = c;
+      c = d;
+      fc = fd;
+      d = a + GOLDEN * (b - a);
+      fd = examineThreshold(d, validFilenames, best, outF);
+    }
+  }
+  if (outF != null) {
+    outF.flush();
+    outF.close();
+  }
+  return best;
+}
+
+/**
+ * Score a single threshold, keeping the best threshold and score seen in best
+ * 
+ * @return the F score at the threshold
+ */
+private double examineThreshold(double th, Iterable<Document> validFilenames, double[] best, PrintStream outF)
+{
+  List<Double> thresholds = new ArrayList<Double>();
+  thresholds.add(th);
+  double[] score = scoreThresholds(thresholds, validFilenames)[0];
+  double scor = score[Scorer.F];
+  if (scor > best[1]) {
+    best[0] = th;
+    best[1] = scor;
+  }
+  if (outF != null) {
+    outF.println(th + "," + score[Scorer.PRECISION] + "," + score[Scorer.RECALL] + "," + scor);
+  }
+  return scor;
+}
+
+/**
+ * @return the precision, recall and F of the clustering of the documents at each of the thresholds
+ */
+private double[][] scoreThresholds(List<Double> thresholds, Iterable<Document> validFilenames)
+{
+  double[][] scores = new double[thresholds.size()][];
+  if (sweep != null) {
+    double[] ths = new double[thresholds.size()];
+    for (int i = 0; i < ths.length; i++) {
+      ths[i] = thresholds.get(i);
+    }
+    return sweep.score(ths);
+  }
+  // scorers that work on the files: cluster and score one threshold at a time
+  for (int i = 0; i < scores.length; i++) {
+    thClusterer.setThreshold(thresholds.get(i));
+    cluster(validFilenames, "valid");
+    scores[i] = scorer.score(true, validFilenames, "valid");
+  }
+  return scores;
+}
+
 public static void setNumInitialPoints(int num_initial_points)
 {
   NUM_INITIAL_POINTS = num_initial_points;
@@ -175,6 +298,8 @@ public void configure(SystemConfig cfg)
 {
   NUM_INITIAL_POINTS = cfg.getInteger("NUM_INITIAL_POINTS", NUM_INITIAL_POINTS);
   NUM_POINTS = cfg.getInteger("NUM_POINTS", NUM_POINTS);
+  SEARCH = cfg.getString(THRESHOLD_SEARCH, SEARCH);
+  NUM_WORKERS = Math.max(1, cfg.getInteger(VALIDATION_WORKERS, NUM_WORKERS));
 }
 
 }
@@ -0,0 +1,105 @@
+/*
+ * AveragedWeights.java
+ */
+
+package reconcile.weka.classifiers.functions;
+
+import reconcile.weka.core.InstanceShort;
+
+/**
+ * The weight vector of a perceptron together with the running sum of the
+ * vectors it has been, for the averaged perceptron. Adding w to the sum after
+ * every instance costs the length of the vector; instead, each weight
+ * remembers how much the sum had been added to when it changed, so an update
+ * costs only the number of features the instance has that are not zero, and
+ * the sum is worked out when it is asked for:
+ * <pre>
+ *   sum = steps * w - u,   u[i] = sum over updates of (steps at the update) * (change of w[i])
+ * </pre>
+ * The weights themselves come out exactly as the dense updates give them;
+ * the sum is equal up to floating point rounding (and exactly equal when the
+ * updates are whole numbers).
+ */
+public class AveragedWeights {
+
+  /** The current weights */
+  private final double[] m_W;
+
+  /** The changes of the weights, times the steps when they were made */
+  private final double[] m_U;
+
+  /** The total of the multiples of w added to the sum so far */
+  private double m_Steps;
+
+  /**
+   * @param w the initial weights, which are used (not copied) as the current
+   * weights
+   */
+  public AveragedWeights(double[] w) {
+    m_W = w;
+    m_U = new double[w.length];
+    m_Steps = 0;
+  }
+
+  /**
+   * @return the current weights; they must only be changed through add()
+   */
+  public double[] getWeights() {
+    return m_W;
+  }
+
+  /**
+   * Adds delta times the features of the instance to the weights.
+   */
+  public void add(InstanceShort inst, double delta) {
+    int[] indices = inst.featureIndices();
+    double[] values = inst.featureValues();
+    for(int k = 0; k < indices.length; k++){
+      double change = delta * values[k];
+      m_W[indices[k]] = m_W[indices[k]] + change;
+      m_U[indices[k]] += m_Steps * change;
+    }
+  }
+
+  /**
+   * Adds the current weights, times mult, to the sum.
+   */
+  public void accumulate(double mult) {
+    m_Steps += mult;
+  }
+
+  /**
+   * @return the sum of the weights accumulated so far
+   */
+  public double[] getTotal() {
+    double[] total = new double[m_W.length];
+    for(int i = 0; i < total.length; i++)
+      total[i] = m_Steps * m_W[i] - m_U[i];
+    return total;
+  }
+
+  /**
+   * The inner product of the weights and the features of the instance, added
+   * up in the order of the attributes.
+   */
+  public static double innerProduct(double[] w, InstanceShort inst) {
+    if(w.length != inst.numAttributes())
+      throw new RuntimeException("Wrong number of attributes");
+    int[] indices = inst.featureIndices();
+    double[] values = inst.featureValues();
+    double result = 0;
+    for(int k = 0; k < indices.length; k++)
+      result += values[k] * w[indices[k]];
+    return result;
+  }
+
+  /**
+   * Adds delta times the features of the instance to w.
+   */
+  public static void addWeight(double[] w, InstanceShort inst, double delta) {
+    int[] indices = inst.featureIndices();
+    double[] values = inst.featureValues();
+    for(int k = 0; k < indices.length; k++)
+      w[indices[k]] = w[indices[k]] + delta * values[k];
+  }
+}
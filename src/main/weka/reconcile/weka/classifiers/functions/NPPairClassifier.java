@@ -251,8 +251,8 @@ public class NPPairClassifier {
 			return null;
 		InstanceShort first = data.instance(0);
 		//System.err.println(first);
-		int id1 = first.value(ID1);
-		int id2 = first.value(ID2);
+		int id1 = first.intValue(ID1);
+		int id2 = first.intValue(ID2);
 		int len = id1>id2?id1+1:id2+1;
 		ptrs = new int[len];
 		// initialize pointers so each item is in it's own set
@@ -263,8 +263,8 @@ public class NPPairClassifier {
 			// read all instances for a document
 			InstanceShort current = data.instance(i);
 			// System.out.println("Working on: "+current);
-			id1 = current.value(ID1);
-			id2 = current.value(ID2);
+			id1 = current.intValue(ID1);
+			id2 = current.intValue(ID2);
 
 			if (innerProduct(w, current) > THRESHOLD) {
 				union(id1, id2, ptrs);
@@ -284,8 +284,8 @@ public class NPPairClassifier {
 
 		for (int k = 0; k < data.numInstances(); k++) {
 			InstanceShort curPair = data.instance(k);
-			int curId1 = curPair.value(ID1);
-			int curId2 = curPair.value(ID2);
+			int curId1 = curPair.intValue(ID1);
+			int curId2 = curPair.intValue(ID2);
 			if (!result.contains(new Integer(curId1))) {
 				// System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
 				result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -368,8 +368,8 @@ public class NPPairClassifier {
 		if (data == null || data.numInstances() == 0)
 			return null;
 		InstanceShort first = data.instance(0);
-		int id1 = first.value(ID1);
-		int id2 = first.value(ID2);
+		int id1 = first.intValue(ID1);
+		int id2 = first.intValue(ID2);
 		int len = id1 + 1;
 		ptrs = new int[len];
 		// initialize pointers so each item is in it's own set
@@ -383,8 +383,8 @@ public class NPPairClassifier {
 			// read all instances for a document
 			InstanceShort current = data.instance(i);
 			// System.out.println("Working on: "+current);
-			id1 = current.value(ID1);
-			id2 = current.value(ID2);
+			id1 = current.intValue(ID1);
+			id2 = current.intValue(ID2);
 
 			if (current.value(Cl) == pos) {
 				union(id1, id2, ptrs);
@@ -392,8 +392,8 @@ public class NPPairClassifier {
 		}
 		for (int k = 0; k < data.numInstances(); k++) {
 			InstanceShort curPair = data.instance(k);
-			int curId1 = curPair.value(ID1);
-			int curId2 = curPair.value(ID2);
+			int curId1 = curPair.intValue(ID1);
+			int curId2 = curPair.intValue(ID2);
 			if (!result.contains(new Integer(curId1))) {
 				// System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
 				result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
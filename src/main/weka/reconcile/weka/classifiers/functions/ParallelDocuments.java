@@ -0,0 +1,106 @@
+/*
+ * ParallelDocuments.java
+ */
+
+package reconcile.weka.classifiers.functions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a piece of work for every document of a set on all the processors.
+ * The perceptrons use it to cluster the documents with a weight vector when
+ * they score it: each document only touches its own instances, so the
+ * documents can be done in any order, and the caller adds up the results in
+ * document order afterwards, which gives the same totals as doing them one
+ * after the other.
+ */
+public class ParallelDocuments {
+
+  /** The work to do for one document */
+  public interface Task {
+    void run(int doc) throws Exception;
+  }
+
+  private static int m_NumThreads = Runtime.getRuntime().availableProcessors();
+
+  private static ExecutorService m_Pool;
+
+  /**
+   * Sets the number of threads; 1 runs the documents on the calling thread.
+   */
+  public static synchronized void setNumThreads(int numThreads) {
+    m_NumThreads = Math.max(1, numThreads);
+    if(m_Pool != null){
+      m_Pool.shutdown();
+      m_Pool = null;
+    }
+  }
+
+  public static synchronized int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  private static synchronized ExecutorService getPool() {
+    if(m_Pool == null){
+      m_Pool = Executors.newFixedThreadPool(m_NumThreads, new ThreadFactory() {
+        private final AtomicInteger m_Count = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+          Thread t = new Thread(r, "document-" + m_Count.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+    }
+    return m_Pool;
+  }
+
+  /**
+   * Runs the task for documents 0 to numDocs - 1 and waits for all of them.
+   * The documents are handed out one at a time, so long ones don't hold up
+   * the rest.
+   */
+  public static void run(final int numDocs, final Task task) throws Exception {
+    int numThreads = Math.min(getNumThreads(), numDocs);
+    if(numThreads <= 1){
+      for(int d = 0; d < numDocs; d++)
+        task.run(d);
+      return;
+    }
+    final AtomicInteger next = new AtomicInteger();
+    ExecutorService pool = getPool();
+    List<Future<Object>> futures = new ArrayList<Future<Object>>();
+    for(int t = 0; t < numThreads; t++){
+      futures.add(pool.submit(new Callable<Object>() {
+        public Object call() throws Exception {
+          for(int d = next.getAndIncrement(); d < numDocs; d = next.getAndIncrement())
+            task.run(d);
+          return null;
+        }
+      }));
+    }
+    // wait for all of them, stopping the others at the first failure
+    Throwable error = null;
+    for(Future<Object> f : futures){
+      try{
+        f.get();
+      } catch(ExecutionException e){
+        if(error == null)
+          error = e.getCause();
+        next.set(numDocs);
+      }
+    }
+    if(error instanceof Exception)
+      throw (Exception)error;
+    if(error != null)
+      throw new RuntimeException(error);
+  }
+}
@@ -295,14 +295,26 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 		double mucTotalPrecision = 0, mucTotalRecall = 0;
 		int mucTotalRecallNum = 0, mucTotalPrecisionNum = 0, mucTotalRecallDenom = 0, mucTotalPrecisionDenom = 0;;
 		int numDocuments = insts.length;
+		// cluster the documents on all the processors; the scores are added up
+		// (and the mistakes printed) in document order below
+		final ModifiedInstancesShort[] docs = insts;
+		final double[] weights = w;
+		final UnionFind[] clusters = new UnionFind[insts.length];
+		final LeanDocument[] responses = new LeanDocument[insts.length];
+		ParallelDocuments.run(insts.length, new ParallelDocuments.Task() {
+			public void run(int d) {
+				clusters[d] = apply(weights, docs[d]);
+				responses[d] = makeDocument(docs[d], clusters[d]);
+			}
+		});
 		for(int d = 0; d < insts.length; d++){
 			ModifiedInstancesShort doc = insts[d];
 
 
 			LeanDocument tr = truth[d];
-			UnionFind ptrs = apply(w, doc);
+			UnionFind ptrs = clusters[d];
 			int[] pred = positiveIdentification(ptrs, doc, outputMistakes);
-			LeanDocument cDoc = makeDocument(doc, ptrs);
+			LeanDocument cDoc = responses[d];
 //			if(doc.instance(0).value(doc.m_DOCNO)==127){
 //			System.out.println(cDoc);
 //			System.out.println(tr);
@@ -455,20 +467,20 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 			}
 		}
 		//The weight vector, w
-		double[] w = new double[vecLen], totalW = new double[vecLen], averageW=new double[vecLen];
+		double[] w = new double[vecLen], averageW=new double[vecLen];
 		int totalUpdates = 0, totalPositive = 0, totalNegative=0;
 		if(m_Weights == null){
 			for(int i = 0; i < vecLen; i++)
-				totalW[i] = w[i] = 0;
+				w[i] = 0;
 		} else{
 			if(vecLen!=m_Weights.length)
 				throw new RuntimeException("Invalid initialization");
 			for(int i = 0; i < vecLen; i++){
-				totalW[i] = 0;
 				w[i] = m_Weights[i];
 			}
 			System.err.println("Loaded weight vector");
 		}
+		AveragedWeights avg = new AveragedWeights(w);
 		//Compute the perceptron weights
 		double delta = m_delta;
 		int numIterations = m_NumIterations;
@@ -489,8 +501,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 					boolean changed = false;
 					//System.err.println(inst.classValue()+":"+doc.m_Positive);
 					boolean positive = inst.classValue() == doc.m_Positive;
-					short id1 = inst.value(doc.m_ID1);
-					short id2 = inst.value(doc.m_ID2);
+					int id1 = inst.intValue(doc.m_ID1);
+					int id2 = inst.intValue(doc.m_ID2);
 					if(m_StandardUpdate){
 						//Just the traditional perceptron update
 						float exWeight = inst.weight();
@@ -509,11 +521,11 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 								 * positiveUpdates++; } totalUpdates++; addToArray(totalW, w); } }
 								 * else{
 								 */
-								addWeight(w, inst, m_PosWeight * delta);
+								avg.add(inst, m_PosWeight * delta);
 								positiveUpdates++;
 
 								totalUpdates++;
-								addToArray(totalW, w);
+								avg.accumulate(1);
 								inst.setWeight(inst.weight()+epsilon);
 
 							}else
@@ -522,10 +534,10 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 						} else{
 							if(!negPrediction){
 								changed = true;
-								subtractWeight(w, inst, delta);
+								avg.add(inst, -delta);
 								negativeUpdates++;
 								totalUpdates++;
-								addToArray(totalW, w);
+								avg.accumulate(1);
 
 								inst.setWeight(inst.weight()+epsilon);
 							}else
@@ -549,22 +561,22 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
                   addToArray(totalW, w);
                 }*/
 
-								addWeight(w, inst, m_PosWeight*delta);
+								avg.add(inst, m_PosWeight*delta);
 								clusterPtrs = apply(divideArray(w, totalUpdates), doc);
 								positiveUpdates++;
 
 								totalUpdates++;
-								addToArray(totalW, w);
+								avg.accumulate(1);
 							}
 						} else{
 							if(clusterPtrs.find(id1) == clusterPtrs.find(id2)){
 								if(inst.value(doc.m_Prediction) == doc.m_Positive){
 									//Update the weight vector to correct the mistake
 									if(m_StandardWeight){
-										subtractWeight(w, inst, delta);
+										avg.add(inst, -delta);
 										negativeUpdates++;
 										totalUpdates++;
-										addToArray(totalW, w);
+										avg.accumulate(1);
 										clusterPtrs = apply(divideArray(w, totalUpdates), doc);
 										changed = true;
 									} else{
@@ -572,20 +584,20 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 										if(m_NegUpdate1){
 											int updated = 0;
 											do{
-												subtractWeight(w, inst, delta);
+												avg.add(inst, -delta);
 												clusterPtrs = apply(divideArray(w, totalUpdates), doc);
 												negativeUpdates++;
 												totalUpdates++;
-												addToArray(totalW, w);
+												avg.accumulate(1);
 												changed = true;
 												updated++;
 											} while(updated < numItems && inst.value(doc.m_Prediction) == doc.m_Positive);
 										} else{
-											subtractWeight(w, inst, numItems * delta / m_NegWeight);
+											avg.add(inst, -(numItems * delta / m_NegWeight));
 											clusterPtrs = apply(divideArray(w, totalUpdates), doc);
 											negativeUpdates++;
 											totalUpdates++;
-											addToArray(totalW, w);
+											avg.accumulate(1);
 											changed = true;
 										}
 									}
@@ -596,11 +608,11 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 
 					if(!changed){
 						totalUpdates++;
-						addToArray(totalW, w);
+						avg.accumulate(1);
 					}
 				}
 			}
-			averageW = divideArray(totalW, totalUpdates);
+			averageW = divideArray(avg.getTotal(), totalUpdates);
 			if(m_FullOutput)
 				System.out.print("After iter " + iter + ": ");
 			else
@@ -685,25 +697,11 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 	}
 
 	public void addWeight(double[] w, InstanceShort inst, double delta) {
-		for(int j = 0; j < inst.numAttributes(); j++){
-			if(inst.attribute(j).isFeature()){
-				if(inst.attribute(j).isNominal())
-					w[j] = w[j] + delta * inst.value(j);
-				else
-					w[j] = w[j] + delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-			}
-		}
+		AveragedWeights.addWeight(w, inst, delta);
 	}
 
 	public void subtractWeight(double[] w, InstanceShort inst, double delta) {
-		for(int j = 0; j < inst.numAttributes(); j++){
-			if(inst.attribute(j).isFeature()){
-				if(inst.attribute(j).isNominal())
-					w[j] = w[j] - delta * inst.value(j);
-				else
-					w[j] = w[j] - delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-			}
-		}
+		AveragedWeights.addWeight(w, inst, -delta);
 	}
 
 	public double[] divideArray(double[] w, int divider) {
@@ -802,8 +800,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 		for(int i = 0; i < gold.numInstances(); i++){
 			InstanceShort ins = gold.instance(i);
 			//System.out.print(ins);
-			int id1 = ins.value(gold.m_ID1);
-			int id2 = ins.value(gold.m_ID2);
+			int id1 = ins.intValue(gold.m_ID1);
+			int id2 = ins.intValue(gold.m_ID2);
 			boolean positive = ins.classValue() == gold.m_Positive;
 			if(positive)
 				accurate[2]++;
@@ -812,7 +810,7 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 				if(positive)
 					accurate[0]++;
 				if(outputMistakes)
-					System.out.println(ins.value(gold.m_DOCNO)+":"+id1+"-"+id2+"Predicted +; true -");
+					System.out.println(ins.intValue(gold.m_DOCNO)+":"+id1+"-"+id2+"Predicted +; true -");
 				//System.out.println(id1+"-"+id2+"[+]");
 			}else if(positive && outputMistakes)
 				System.out.println(id1+"-"+id2+"Predicted -; true +");
@@ -999,19 +997,7 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 	}
 
 	private static double innerProduct(double[] w, InstanceShort i) {
-		if(w.length != i.numAttributes())
-			throw new RuntimeException("Wrong number of attributes");
-		double result = 0;
-		for(int j = 0; j < i.numAttributes(); j++){
-			if(i.attribute(j).isFeature()){
-				if(i.attribute(j).isNominal())
-					result += i.value(j) * w[j];
-				else
-					result += i.attribute(j).getOriginalValue(new Short(i.value(j))) * w[j];
-			}
-		}
-		//System.err.println("VAL="+result);
-		return result;
+		return AveragedWeights.innerProduct(w, i);
 	}
 
 	/**
@@ -2877,8 +2863,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 		if(data == null || data.numInstances() == 0)
 			return null;
 		InstanceShort first = data.instance(0);
-		int id1 = (int)first.value(ID1);
-		int id2 = (int)first.value(ID2);
+		int id1 = first.intValue(ID1);
+		int id2 = first.intValue(ID2);
 		int len = (id1>id2?id1:id2) + 1;
 		ptrs = new UnionFind(len);
 		
@@ -2887,8 +2873,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 			// read all instances for a document
 			InstanceShort current = data.instance(i);
 			// System.out.println("Working on: "+current);
-			id1 = (int)current.value(ID1);
-			id2 = (int)current.value(ID2);
+			id1 = current.intValue(ID1);
+			id2 = current.intValue(ID2);
 
 			if(innerProduct(w, current) > THRESHOLD){
 				ptrs.union(id1, id2);
@@ -2899,8 +2885,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 		}
 		/*
 		 * for(int k = 0; k < data.numInstances(); k++){ InstanceShort curPair =
-		 * data.instance(k); int curId1 = (int)curPair.value(ID1); int curId2 =
-		 * (int)curPair.value(ID2); if(!result.contains(new Integer(curId1))){
+		 * data.instance(k); int curId1 = curPair.intValue(ID1); int curId2 =
+		 * curPair.intValue(ID2); if(!result.contains(new Integer(curId1))){
 		 * //System.err.println("Add "+curId1+"-"+find(curId1,ptrs)); result.add(new
 		 * Integer(curId1),new Integer(find(curId1,ptrs))); }
 		 * if(!result.contains(new Integer(curId2))) result.add(new
@@ -2943,8 +2929,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 
 		for(int k = 0; k < data.numInstances(); k++){
 			InstanceShort curPair = data.instance(k);
-			int curId1 = (int)curPair.value(ID1);
-			int curId2 = (int)curPair.value(ID2);
+			int curId1 = curPair.intValue(ID1);
+			int curId2 = curPair.intValue(ID2);
 			if(!result.contains(new Integer(curId1))){
 				//System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
 				result.add(new Integer(curId1), new Integer(ptrs.find(curId1)));
@@ -3010,7 +2996,7 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 	public LeanDocument makeDocument(ModifiedInstancesShort data) {
 		if(data == null || data.numInstances() == 0)
 			return null;
-		LeanDocument result = new LeanDocument(data.instance(0).value(data.m_DOCNO));
+		LeanDocument result = new LeanDocument(data.instance(0).intValue(data.m_DOCNO));
 		AttributeShort DOCID = data.m_DOCNO;
 		//System.err.println("Working on document "+DOCID);
 		AttributeShort ID1 = data.m_ID1;
@@ -3023,8 +3009,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 			return null;
 		InstanceShort first = data.instance(0);
 		
-		int id1 = (int)first.value(ID1);
-		int id2 = (int)first.value(ID2);
+		int id1 = first.intValue(ID1);
+		int id2 = first.intValue(ID2);
 		int len = (id1>id2?id1:id2) + 1;
 		ptrs = new UnionFind(len);
 
@@ -3036,8 +3022,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 			// read all instances for a document
 			InstanceShort current = data.instance(i);
 			// System.out.println("Working on: "+current);
-			id1 = (int)current.value(ID1);
-			id2 = (int)current.value(ID2);
+			id1 = current.intValue(ID1);
+			id2 = current.intValue(ID2);
 
 			if(current.value(Cl) == pos){
 				ptrs.union(id1, id2);
@@ -3046,8 +3032,8 @@ public class PerceptronMargin extends Classifier implements OptionHandler{
 		
 		for(int k = 0; k < data.numInstances(); k++){
 			InstanceShort curPair = data.instance(k);
-			int curId1 = (int)curPair.value(ID1);
-			int curId2 = (int)curPair.value(ID2);
+			int curId1 = curPair.intValue(ID1);
+			int curId2 = curPair.intValue(ID2);
 			if(!result.contains(new Integer(curId1))){
 				//System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
 				result.add(new Integer(curId1), new Integer(ptrs.find(curId1)));
@@ -559,8 +559,8 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
     for(int i = 0; i < gold.numInstances(); i++){
       InstanceShort ins = gold.instance(i);
       //System.out.print(ins);
-      int id1 = ins.value(gold.m_ID1);
-      int id2 = ins.value(gold.m_ID2);
+      int id1 = ins.intValue(gold.m_ID1);
+      int id2 = ins.intValue(gold.m_ID2);
       boolean positive = ins.classValue() == gold.m_Positive;
       if(positive)
         accurate[2]++;
@@ -2638,8 +2638,8 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2650,8 +2650,8 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(innerProduct(w, current) > THRESHOLD){
         union(id1, id2, ptrs);
@@ -2662,8 +2662,8 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
     }
     /*
      * for(int k = 0; k < data.numInstances(); k++){ InstanceShort curPair =
-     * data.instance(k); int curId1 = (int)curPair.value(ID1); int curId2 =
-     * (int)curPair.value(ID2); if(!result.contains(new Integer(curId1))){
+     * data.instance(k); int curId1 = curPair.intValue(ID1); int curId2 =
+     * curPair.intValue(ID2); if(!result.contains(new Integer(curId1))){
      * //System.err.println("Add "+curId1+"-"+find(curId1,ptrs)); result.add(new
      * Integer(curId1),new Integer(find(curId1,ptrs))); }
      * if(!result.contains(new Integer(curId2))) result.add(new
@@ -2682,8 +2682,8 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
 
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -2725,7 +2725,7 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
   public static LeanDocument makeDocument(ModifiedInstancesShort data) {
     if(data == null || data.numInstances() == 0)
       return null;
-    LeanDocument result = new LeanDocument(data.instance(0).value(data.m_DOCNO));
+    LeanDocument result = new LeanDocument(data.instance(0).intValue(data.m_DOCNO));
     AttributeShort DOCID = data.m_DOCNO;
     AttributeShort ID1 = data.m_ID1;
     AttributeShort ID2 = data.m_ID2;
@@ -2736,8 +2736,8 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2751,8 +2751,8 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(current.value(Cl) == pos){
         union(id1, id2, ptrs);
@@ -2760,8 +2760,8 @@ public class PerceptronMarginGeneral extends Classifier implements OptionHandler
     }
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -286,12 +286,23 @@ public class StPerceptron extends Classifier implements OptionHandler{
     double mucTotalPrecision = 0, mucTotalRecall = 0;
     int mucTotalRecallNum = 0, mucTotalPrecisionNum = 0, mucTotalRecallDenom = 0, mucTotalPrecisionDenom = 0;;
     int numDocuments = insts.length;
+    // cluster the documents on all the processors; the scores are added up
+    // in document order below
+    final ModifiedInstancesShort[] docs = insts;
+    final double[] weights = w;
+    final int[][] preds = new int[insts.length][];
+    final LeanDocument[] responses = new LeanDocument[insts.length];
+    ParallelDocuments.run(insts.length, new ParallelDocuments.Task() {
+      public void run(int d) {
+        int[] ptrs = apply(weights, docs[d]);
+        preds[d] = positiveIdentification(ptrs, docs[d]);
+        responses[d] = makeDocument(docs[d], ptrs);
+      }
+    });
     for(int d = 0; d < insts.length; d++){
-      ModifiedInstancesShort doc = insts[d];
       LeanDocument tr = truth[d];
-      int[] ptrs = apply(w, doc);
-      int[] pred = positiveIdentification(ptrs, doc);
-      LeanDocument cDoc = makeDocument(doc, ptrs);
+      int[] pred = preds[d];
+      LeanDocument cDoc = responses[d];
       total += pred[0];
       totalPred += pred[1];
       totalInst += pred[2];
@@ -384,8 +395,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
       if(doc.numInstances()<1)
         continue;
       InstanceShort inst = doc.instance(0);
-      //short id1 = inst.value(doc.m_ID1);
-      int docLen = inst.value(doc.m_ID2);
+      //int id1 = inst.intValue(doc.m_ID1);
+      int docLen = inst.intValue(doc.m_ID2);
       boolean[] labeled = new boolean[docLen];
       for(int j=0;j<docLen;j++)
         if(random.nextDouble()<dataFraction){
@@ -397,8 +408,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
         }
       for(int j=0;j<doc.numInstances();j++){
         inst = doc.instance(j);
-        int id1 = inst.value(doc.m_ID1);
-        int id2 = inst.value(doc.m_ID2);
+        int id1 = inst.intValue(doc.m_ID1);
+        int id2 = inst.intValue(doc.m_ID2);
         if(!labeled[id1-1] || !labeled[id2-1])
           inst.setClassMissing();
       }
@@ -467,20 +478,20 @@ public class StPerceptron extends Classifier implements OptionHandler{
       }
     }
     //The weight vector, w
-    double[] w = new double[vecLen], totalW = new double[vecLen];
+    double[] w = new double[vecLen];
     int totalUpdates = 0;
     if(m_Weights == null){
       for(int i = 0; i < vecLen; i++)
-        totalW[i] = w[i] = 0;
+        w[i] = 0;
     } else{
       if(vecLen!=m_Weights.length)
         throw new RuntimeException("Invalid initialization");
       for(int i = 0; i < vecLen; i++){
-        totalW[i] = 0;
         w[i] = m_Weights[i];
       }
       System.err.println("Loaded weight vector");
     }
+    AveragedWeights avg = new AveragedWeights(w);
     //Compute the perceptron weights
     double delta = m_delta;
     int numIterations = m_NumIterations;
@@ -488,7 +499,6 @@ public class StPerceptron extends Classifier implements OptionHandler{
     int maxAccIter = 0, maxBCubbedIter = 0;
     for(int iter = 0; iter < numIterations; iter++){
       int positiveUpdates = 0, negativeUpdates = 0;
-      double[] iterW = new double[vecLen];
       for(int d = 0; d < insts.length; d++){
         //if(d%10==0)
         //  System.out.print(d+"...");
@@ -502,8 +512,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
           if(unlabeled)
             continue;
           boolean positive = inst.classValue() == doc.m_Positive;
-          short id1 = inst.value(doc.m_ID1);
-          short id2 = inst.value(doc.m_ID2);
+          int id1 = inst.intValue(doc.m_ID1);
+          int id2 = inst.intValue(doc.m_ID2);
           if(m_StandardUpdate){
             //Just the traditional perceptron update
             if(!unlabeled){
@@ -518,25 +528,20 @@ public class StPerceptron extends Classifier implements OptionHandler{
                    * positiveUpdates++; } totalUpdates++; addToArray(totalW, w); } }
                    * else{
                    */
-                  addWeight(w, inst, m_PosWeight * delta);
+                  avg.add(inst, m_PosWeight * delta);
                   positiveUpdates++;
 
                   totalUpdates++;
-                  double[] newW = w;
-                  if(positive)
-                    newW = multiplyArray(w,m_PosWeight);
-                  addToArray(totalW, newW);
-                  addToArray(iterW, newW);
+                  avg.accumulate(positive ? m_PosWeight : 1);
 
                 }
               } else{
                 if(posPrediction){
                   changed = true;
-                  subtractWeight(w, inst, delta);
+                  avg.add(inst, -delta);
                   negativeUpdates++;
                   totalUpdates++;
-                  addToArray(totalW, w);
-                  addToArray(iterW, w);
+                  avg.accumulate(1);
                 }
               }
             }
@@ -557,27 +562,22 @@ public class StPerceptron extends Classifier implements OptionHandler{
                   addToArray(totalW, w);
                 }*/
                 
-                addWeight(w, inst, m_PosWeight*delta);
+                avg.add(inst, m_PosWeight*delta);
                 clusterPtrs = apply(divideArray(w, totalUpdates), doc);
                 positiveUpdates++;
 
                 totalUpdates++;
-                double[] newW = w;
-                if(positive)
-                  newW = multiplyArray(w,m_PosWeight);
-                addToArray(totalW, newW);
-                addToArray(iterW, newW);
+                avg.accumulate(positive ? m_PosWeight : 1);
               }
             } else{
               if(find(id1, clusterPtrs) == find(id2, clusterPtrs)){
                 if(inst.value(doc.m_Prediction) == doc.m_Positive){
                   //Update the weight vector to correct the mistake
                   if(m_StandardWeight){
-                    subtractWeight(w, inst, delta);
+                    avg.add(inst, -delta);
                     negativeUpdates++;
                     totalUpdates++;
-                    addToArray(totalW, w);
-                    addToArray(iterW, w);
+                    avg.accumulate(1);
                     clusterPtrs = apply(divideArray(w, totalUpdates), doc);
                     changed = true;
                   } else{
@@ -585,22 +585,20 @@ public class StPerceptron extends Classifier implements OptionHandler{
                     if(m_NegUpdate1){
                       int updated = 0;
                       do{
-                        subtractWeight(w, inst, delta);
+                        avg.add(inst, -delta);
                         clusterPtrs = apply(divideArray(w, totalUpdates), doc);
                         negativeUpdates++;
                         totalUpdates++;
-                        addToArray(totalW, w);
-                        addToArray(iterW, w);
+                        avg.accumulate(1);
                         changed = true;
                         updated++;
                       } while(updated < numItems && inst.value(doc.m_Prediction) == doc.m_Positive);
                     } else{
-                      subtractWeight(w, inst, numItems * delta / m_NegWeight);
+                      avg.add(inst, -(numItems * delta / m_NegWeight));
                       clusterPtrs = apply(divideArray(w, totalUpdates), doc);
                       negativeUpdates++;
                       totalUpdates++;
-                      addToArray(totalW, w);
-                      addToArray(iterW, w);
+                      avg.accumulate(1);
                       changed = true;
                     }
                   }
@@ -611,15 +609,11 @@ public class StPerceptron extends Classifier implements OptionHandler{
 
           if(!changed){
             totalUpdates++;
-            double[] newW = w;
-            if(positive)
-              newW = multiplyArray(w,m_PosWeight);
-            addToArray(totalW, newW);
-            addToArray(iterW, newW);
+            avg.accumulate(positive ? m_PosWeight : 1);
           }
         }
       } 
-      double[] averageW = divideArray(totalW, totalUpdates);
+      double[] averageW = divideArray(avg.getTotal(), totalUpdates);
       if(m_FullOutput)
         System.out.print("After iter " + iter + ": ");
       else
@@ -649,7 +643,7 @@ public class StPerceptron extends Classifier implements OptionHandler{
       if(!m_FullOutput)
         System.out.println();
     }
-    totalW = divideArray(totalW, totalUpdates);
+    double[] totalW = divideArray(avg.getTotal(), totalUpdates);
     if(m_FullOutput){
       System.out.println("Max f1 " + nf.format(maxAcc) + " at iteration " + maxAccIter);
       System.out.println("Max B-cubed  " + nf.format(maxBCubbed) + " at iteration "
@@ -665,25 +659,11 @@ public class StPerceptron extends Classifier implements OptionHandler{
   }
 
   public void addWeight(double[] w, InstanceShort inst, double delta) {
-    for(int j = 0; j < inst.numAttributes(); j++){
-      if(inst.attribute(j).isFeature()){
-        if(inst.attribute(j).isNominal())
-          w[j] = w[j] + delta * inst.value(j);
-        else
-          w[j] = w[j] + delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-      }
-    }
+    AveragedWeights.addWeight(w, inst, delta);
   }
 
   public void subtractWeight(double[] w, InstanceShort inst, double delta) {
-    for(int j = 0; j < inst.numAttributes(); j++){
-      if(inst.attribute(j).isFeature()){
-        if(inst.attribute(j).isNominal())
-          w[j] = w[j] - delta * inst.value(j);
-        else
-          w[j] = w[j] - delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-      }
-    }
+    AveragedWeights.addWeight(w, inst, -delta);
   }
 
   public double[] divideArray(double[] w, int divider) {
@@ -738,8 +718,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
     for(int i = 0; i < gold.numInstances(); i++){
       InstanceShort ins = gold.instance(i);
       //System.out.print(ins);
-      int id1 = ins.value(gold.m_ID1);
-      int id2 = ins.value(gold.m_ID2);
+      int id1 = ins.intValue(gold.m_ID1);
+      int id2 = ins.intValue(gold.m_ID2);
       boolean positive = ins.classValue() == gold.m_Positive;
       if(positive)
         accurate[2]++;
@@ -932,19 +912,7 @@ public class StPerceptron extends Classifier implements OptionHandler{
   }
 
   private static double innerProduct(double[] w, InstanceShort i) {
-    if(w.length != i.numAttributes())
-      throw new RuntimeException("Wrong number of attributes");
-    double result = 0;
-    for(int j = 0; j < i.numAttributes(); j++){
-      if(i.attribute(j).isFeature()){
-        if(i.attribute(j).isNominal())
-          result += i.value(j) * w[j];
-        else
-          result += i.attribute(j).getOriginalValue(new Short(i.value(j))) * w[j];
-      }
-    }
-    //System.err.println("VAL="+result);
-    return result;
+    return AveragedWeights.innerProduct(w, i);
   }
 
   /**
@@ -2795,8 +2763,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id1 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2807,8 +2775,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(innerProduct(w, current) > THRESHOLD){
         union(id1, id2, ptrs);
@@ -2819,8 +2787,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
     }
     /*
      * for(int k = 0; k < data.numInstances(); k++){ InstanceShort curPair =
-     * data.instance(k); int curId1 = (int)curPair.value(ID1); int curId2 =
-     * (int)curPair.value(ID2); if(!result.contains(new Integer(curId1))){
+     * data.instance(k); int curId1 = curPair.intValue(ID1); int curId2 =
+     * curPair.intValue(ID2); if(!result.contains(new Integer(curId1))){
      * //System.err.println("Add "+curId1+"-"+find(curId1,ptrs)); result.add(new
      * Integer(curId1),new Integer(find(curId1,ptrs))); }
      * if(!result.contains(new Integer(curId2))) result.add(new
@@ -2839,8 +2807,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
 
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -2882,7 +2850,7 @@ public class StPerceptron extends Classifier implements OptionHandler{
   public static LeanDocument makeDocument(ModifiedInstancesShort data) {
     if(data == null || data.numInstances() == 0)
       return null;
-    LeanDocument result = new LeanDocument(data.instance(0).value(data.m_DOCNO));
+    LeanDocument result = new LeanDocument(data.instance(0).intValue(data.m_DOCNO));
     AttributeShort DOCID = data.m_DOCNO;
     AttributeShort ID1 = data.m_ID1;
     AttributeShort ID2 = data.m_ID2;
@@ -2893,8 +2861,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id1 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2908,8 +2876,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(current.value(Cl) == pos){
         union(id1, id2, ptrs);
@@ -2917,8 +2885,8 @@ public class StPerceptron extends Classifier implements OptionHandler{
     }
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -279,12 +279,23 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
     int totalInst = 0, totalPred = 0;
     int totalPrecision = 0, totalNumNPsPrecision = 0;
     int totalNumNPsRecall = 0, totalRecall = 0;
+    // cluster the documents on all the processors; the scores are added up
+    // in document order below
+    final ModifiedInstancesShort[] docs = insts;
+    final double[] weights = w;
+    final int[][] preds = new int[insts.length][];
+    final LeanDocument[] responses = new LeanDocument[insts.length];
+    ParallelDocuments.run(insts.length, new ParallelDocuments.Task() {
+      public void run(int d) {
+        int[] ptrs = apply(weights, docs[d]);
+        preds[d] = positiveIdentification(ptrs, docs[d]);
+        responses[d] = makeDocument(docs[d], ptrs);
+      }
+    });
     for(int d = 0; d < insts.length; d++){
-      ModifiedInstancesShort doc = insts[d];
       LeanDocument tr = truth[d];
-      int[] ptrs = apply(w, doc);
-      int[] pred = positiveIdentification(ptrs, doc);
-      LeanDocument cDoc = makeDocument(doc, ptrs);
+      int[] pred = preds[d];
+      LeanDocument cDoc = responses[d];
       total += pred[0];
       totalPred += pred[1];
       totalInst += pred[2];
@@ -386,8 +397,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
       for(int j=0; j<doc.numInstances(); j++){
         InstanceShort inst = doc.instance(j);
         
-        short id1 = inst.value(doc.m_ID1);
-        short id2 = inst.value(doc.m_ID2);
+        int id1 = inst.intValue(doc.m_ID1);
+        int id2 = inst.intValue(doc.m_ID2);
         items[i].add(new Integer(id1));
         items[i].add(new Integer(id2));
         if(index[i]==null){
@@ -550,25 +561,11 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
   }
 
   public void addWeight(double[] w, InstanceShort inst, double delta) {
-    for(int j = 0; j < inst.numAttributes(); j++){
-      if(inst.attribute(j).isFeature()){
-        if(inst.attribute(j).isNominal())
-          w[j] = w[j] + delta * inst.value(j);
-        else
-          w[j] = w[j] + delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-      }
-    }
+    AveragedWeights.addWeight(w, inst, delta);
   }
 
   public void subtractWeight(double[] w, InstanceShort inst, double delta) {
-    for(int j = 0; j < inst.numAttributes(); j++){
-      if(inst.attribute(j).isFeature()){
-        if(inst.attribute(j).isNominal())
-          w[j] = w[j] - delta * inst.value(j);
-        else
-          w[j] = w[j] - delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-      }
-    }
+    AveragedWeights.addWeight(w, inst, -delta);
   }
 
   public double[] divideArray(double[] w, int divider) {
@@ -612,8 +609,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
     for(int i = 0; i < gold.numInstances(); i++){
       InstanceShort ins = gold.instance(i);
       //System.out.print(ins);
-      int id1 = ins.value(gold.m_ID1);
-      int id2 = ins.value(gold.m_ID2);
+      int id1 = ins.intValue(gold.m_ID1);
+      int id2 = ins.intValue(gold.m_ID2);
       boolean positive = ins.classValue() == gold.m_Positive;
       if(positive)
         accurate[2]++;
@@ -806,19 +803,7 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
   }
 
   private static double innerProduct(double[] w, InstanceShort i) {
-    if(w.length != i.numAttributes())
-      throw new RuntimeException("Wrong number of attributes");
-    double result = 0;
-    for(int j = 0; j < i.numAttributes(); j++){
-      if(i.attribute(j).isFeature()){
-        if(i.attribute(j).isNominal())
-          result += i.value(j) * w[j];
-        else
-          result += i.attribute(j).getOriginalValue(new Short(i.value(j))) * w[j];
-      }
-    }
-    //System.err.println("VAL="+result);
-    return result;
+    return AveragedWeights.innerProduct(w, i);
   }
 
   /**
@@ -2654,8 +2639,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2666,8 +2651,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(innerProduct(w, current) > THRESHOLD){
         union(id1, id2, ptrs);
@@ -2678,8 +2663,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
     }
     /*
      * for(int k = 0; k < data.numInstances(); k++){ InstanceShort curPair =
-     * data.instance(k); int curId1 = (int)curPair.value(ID1); int curId2 =
-     * (int)curPair.value(ID2); if(!result.contains(new Integer(curId1))){
+     * data.instance(k); int curId1 = curPair.intValue(ID1); int curId2 =
+     * curPair.intValue(ID2); if(!result.contains(new Integer(curId1))){
      * //System.err.println("Add "+curId1+"-"+find(curId1,ptrs)); result.add(new
      * Integer(curId1),new Integer(find(curId1,ptrs))); }
      * if(!result.contains(new Integer(curId2))) result.add(new
@@ -2698,8 +2683,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
 
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -2741,7 +2726,7 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
   public static LeanDocument makeDocument(ModifiedInstancesShort data) {
     if(data == null || data.numInstances() == 0)
       return null;
-    LeanDocument result = new LeanDocument(data.instance(0).value(data.m_DOCNO));
+    LeanDocument result = new LeanDocument(data.instance(0).intValue(data.m_DOCNO));
     AttributeShort DOCID = data.m_DOCNO;
     AttributeShort ID1 = data.m_ID1;
     AttributeShort ID2 = data.m_ID2;
@@ -2752,8 +2737,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2767,8 +2752,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(current.value(Cl) == pos){
         union(id1, id2, ptrs);
@@ -2776,8 +2761,8 @@ public class StPerceptronItem extends Classifier implements OptionHandler{
     }
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
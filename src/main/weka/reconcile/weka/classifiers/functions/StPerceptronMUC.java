@@ -285,12 +285,23 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
     double mucTotalPrecision = 0, mucTotalRecall = 0;
     int mucTotalRecallNum = 0, mucTotalPrecisionNum = 0, mucTotalRecallDenom = 0, mucTotalPrecisionDenom = 0;;
     int numDocuments = insts.length;
+    // cluster the documents on all the processors; the scores are added up
+    // in document order below
+    final ModifiedInstancesShort[] docs = insts;
+    final double[] weights = w;
+    final int[][] preds = new int[insts.length][];
+    final LeanDocument[] responses = new LeanDocument[insts.length];
+    ParallelDocuments.run(insts.length, new ParallelDocuments.Task() {
+      public void run(int d) {
+        int[] ptrs = apply(weights, docs[d]);
+        preds[d] = positiveIdentification(ptrs, docs[d]);
+        responses[d] = makeDocument(docs[d], ptrs);
+      }
+    });
     for(int d = 0; d < insts.length; d++){
-      ModifiedInstancesShort doc = insts[d];
       LeanDocument tr = truth[d];
-      int[] ptrs = apply(w, doc);
-      int[] pred = positiveIdentification(ptrs, doc);
-      LeanDocument cDoc = makeDocument(doc, ptrs);
+      int[] pred = preds[d];
+      LeanDocument cDoc = responses[d];
       total += pred[0];
       totalPred += pred[1];
       totalInst += pred[2];
@@ -435,27 +446,27 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
       }
     }
     //The weight vector, w
-    double[] w = new double[vecLen], totalW = new double[vecLen];
+    double[] w = new double[vecLen];
     int totalUpdates = 0;
     if(m_Weights == null){
       for(int i = 0; i < vecLen; i++)
-        totalW[i] = w[i] = 0;
+        w[i] = 0;
     } else{
       if(vecLen!=m_Weights.length)
         throw new RuntimeException("Invalid initialization");
       for(int i = 0; i < vecLen; i++){
-        totalW[i] = 0;
         w[i] = m_Weights[i];
       }
       System.err.println("Loaded weight vector");
     }
+    AveragedWeights avg = new AveragedWeights(w);
     //Compute the perceptron weights
     double delta = m_delta;
     int numIterations = m_NumIterations;
     double maxAcc = 0, maxBCubbed = 0;
     int maxAccIter = 0, maxBCubbedIter = 0;
     for(int iter = 0; iter < numIterations; iter++){
-      double[] iterW = new double[vecLen];
+      double[] iterStart = avg.getTotal();
       int positiveUpdates = 0, negativeUpdates = 0;
       for(int d = 0; d < insts.length; d++){
         //if(d%10==0)
@@ -471,8 +482,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
           InstanceShort inst = doc.instance(i);
           boolean changed = false;
           boolean positive = inst.classValue() == doc.m_Positive;
-          short id1 = inst.value(doc.m_ID1);
-          short id2 = inst.value(doc.m_ID2);
+          int id1 = inst.intValue(doc.m_ID1);
+          int id2 = inst.intValue(doc.m_ID2);
           if(positive){
             //The gold standard says that this instance should be positive
             if(cDoc.getClusterNum(new Integer(id1)).intValue() != cDoc.getClusterNum(new Integer(id2)).intValue()){
@@ -496,7 +507,7 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
               double correction = computeCorection(p, r, 0, rCor, tr.numNounPhrases());
               if(m_Debug)
                 System.err.println(iter + ": " + id1 + "," + id2 + "\tpos: " + correction);
-              addWeight(w, inst, correction);
+              avg.add(inst, correction);
               positiveUpdates++;
               cDoc = applyAndSetUpMUC(doc, tr, w, muc);
             }
@@ -568,7 +579,7 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
                 double correction = computeCorection(p, r, pCor, 0, tr.numNounPhrases())/ (double)numCrossing;
                 if(m_Debug)
                   System.err.println(iter + ": " + id1 + "," + id2 + "\tneg: " + correction);
-                subtractWeight(w, inst, correction);
+                avg.add(inst, -correction);
                 negativeUpdates++;
                 cDoc = applyAndSetUpMUC(doc, tr, w, muc);
               }
@@ -583,14 +594,12 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
           double score = 2 * (prec * recall) / ((prec + recall));
           //double[] newW = w;
           //double[] newW = multiplyArray(w, score*score); (cfs39)
-          double[] newW = multiplyArray(w, score);
-          addToArray(iterW, newW);
-          addToArray(totalW, newW);
+          avg.accumulate(score);
 
         }
       }
       //double[] averageW = divideArray(totalW, totalUpdates);
-      double[] averageW = totalW;
+      double[] averageW = avg.getTotal();
       if(m_FullOutput)
         System.out.print("After iter " + iter + ": ");
       else
@@ -615,12 +624,15 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
           maxBCubbedIter = iter;
         }
         System.out.println();
+        double[] iterW = avg.getTotal();
+        for(int i = 0; i < vecLen; i++)
+          iterW[i] -= iterStart[i];
         evaluateClassifier(testInsts, iterW, testTruth);
       }
       if(!m_FullOutput)
         System.out.println();
     }
-    totalW = divideArray(totalW, totalUpdates);
+    double[] totalW = divideArray(avg.getTotal(), totalUpdates);
     if(m_FullOutput){
       System.out.println("Max f1 " + nf.format(maxAcc) + " at iteration " + maxAccIter);
       System.out.println("Max B-cubed  " + nf.format(maxBCubbed) + " at iteration "
@@ -653,33 +665,19 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
     int base = ((bigger-2)*(bigger-1))/2;
     int offset = base+smaller;
     InstanceShort result = doc.instance(doc.numInstances()-offset);
-    short id1new = result.value(doc.m_ID1);
-    short id2new = result.value(doc.m_ID2);
+    int id1new = result.intValue(doc.m_ID1);
+    int id2new = result.intValue(doc.m_ID2);
     if(smaller!=id1new || bigger!=id2new)
       throw new RuntimeException("Id mismatch "+smaller+" vs. "+id1new+" and "+bigger+" vs. "+id2new);
     return result;
   }
   
   public void addWeight(double[] w, InstanceShort inst, double delta) {
-    for(int j = 0; j < inst.numAttributes(); j++){
-      if(inst.attribute(j).isFeature()){
-        if(inst.attribute(j).isNominal())
-          w[j] = w[j] + delta * inst.value(j);
-        else
-          w[j] = w[j] + delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-      }
-    }
+    AveragedWeights.addWeight(w, inst, delta);
   }
 
   public void subtractWeight(double[] w, InstanceShort inst, double delta) {
-    for(int j = 0; j < inst.numAttributes(); j++){
-      if(inst.attribute(j).isFeature()){
-        if(inst.attribute(j).isNominal())
-          w[j] = w[j] - delta * inst.value(j);
-        else
-          w[j] = w[j] - delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-      }
-    }
+    AveragedWeights.addWeight(w, inst, -delta);
   }
 
   public double[] divideArray(double[] w, int divider) {
@@ -723,8 +721,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
     for(int i = 0; i < gold.numInstances(); i++){
       InstanceShort ins = gold.instance(i);
       //System.out.print(ins);
-      int id1 = ins.value(gold.m_ID1);
-      int id2 = ins.value(gold.m_ID2);
+      int id1 = ins.intValue(gold.m_ID1);
+      int id2 = ins.intValue(gold.m_ID2);
       boolean positive = ins.classValue() == gold.m_Positive;
       if(positive)
         accurate[2]++;
@@ -917,19 +915,7 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
   }
 
   private static double innerProduct(double[] w, InstanceShort i) {
-    if(w.length != i.numAttributes())
-      throw new RuntimeException("Wrong number of attributes");
-    double result = 0;
-    for(int j = 0; j < i.numAttributes(); j++){
-      if(i.attribute(j).isFeature()){
-        if(i.attribute(j).isNominal())
-          result += i.value(j) * w[j];
-        else
-          result += i.attribute(j).getOriginalValue(new Short(i.value(j))) * w[j];
-      }
-    }
-    //System.err.println("VAL="+result);
-    return result;
+    return AveragedWeights.innerProduct(w, i);
   }
 
   /**
@@ -2785,8 +2771,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2797,8 +2783,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(innerProduct(w, current) > THRESHOLD){
         union(id1, id2, ptrs);
@@ -2809,8 +2795,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
     }
     /*
      * for(int k = 0; k < data.numInstances(); k++){ InstanceShort curPair =
-     * data.instance(k); int curId1 = (int)curPair.value(ID1); int curId2 =
-     * (int)curPair.value(ID2); if(!result.contains(new Integer(curId1))){
+     * data.instance(k); int curId1 = curPair.intValue(ID1); int curId2 =
+     * curPair.intValue(ID2); if(!result.contains(new Integer(curId1))){
      * //System.err.println("Add "+curId1+"-"+find(curId1,ptrs)); result.add(new
      * Integer(curId1),new Integer(find(curId1,ptrs))); }
      * if(!result.contains(new Integer(curId2))) result.add(new
@@ -2829,8 +2815,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
 
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -2872,7 +2858,7 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
   public static LeanDocument makeDocument(ModifiedInstancesShort data) {
     if(data == null || data.numInstances() == 0)
       return null;
-    LeanDocument result = new LeanDocument(data.instance(0).value(data.m_DOCNO));
+    LeanDocument result = new LeanDocument(data.instance(0).intValue(data.m_DOCNO));
     AttributeShort DOCID = data.m_DOCNO;
     AttributeShort ID1 = data.m_ID1;
     AttributeShort ID2 = data.m_ID2;
@@ -2883,8 +2869,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2898,8 +2884,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(current.value(Cl) == pos){
         union(id1, id2, ptrs);
@@ -2907,8 +2893,8 @@ public class StPerceptronMUC extends Classifier implements OptionHandler{
     }
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -452,8 +452,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
           InstanceShort inst = doc.instance(i);
           boolean changed = false;
           boolean positive = inst.classValue() == doc.m_Positive;
-          short id1 = inst.value(doc.m_ID1);
-          short id2 = inst.value(doc.m_ID2);
+          int id1 = inst.intValue(doc.m_ID1);
+          int id2 = inst.intValue(doc.m_ID2);
           if(m_StandardUpdate){
             //Just the traditional perceptron update
             boolean posPrediction = innerProduct(w, inst) > THRESHOLD;
@@ -582,25 +582,11 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
   }
 
   public void addWeight(double[] w, InstanceShort inst, double delta) {
-    for(int j = 0; j < inst.numAttributes(); j++){
-      if(inst.attribute(j).isFeature()){
-        if(inst.attribute(j).isNominal())
-          w[j] = w[j] + delta * inst.value(j);
-        else
-          w[j] = w[j] + delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-      }
-    }
+    AveragedWeights.addWeight(w, inst, delta);
   }
 
   public void subtractWeight(double[] w, InstanceShort inst, double delta) {
-    for(int j = 0; j < inst.numAttributes(); j++){
-      if(inst.attribute(j).isFeature()){
-        if(inst.attribute(j).isNominal())
-          w[j] = w[j] - delta * inst.value(j);
-        else
-          w[j] = w[j] - delta * inst.attribute(j).getOriginalValue(new Short(inst.value(j)));
-      }
-    }
+    AveragedWeights.addWeight(w, inst, -delta);
   }
 
   public double[] divideArray(double[] w, int divider) {
@@ -644,8 +630,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
     for(int i = 0; i < gold.numInstances(); i++){
       InstanceShort ins = gold.instance(i);
       //System.out.print(ins);
-      int id1 = ins.value(gold.m_ID1);
-      int id2 = ins.value(gold.m_ID2);
+      int id1 = ins.intValue(gold.m_ID1);
+      int id2 = ins.intValue(gold.m_ID2);
       boolean positive = ins.classValue() == gold.m_Positive;
       if(positive)
         accurate[2]++;
@@ -793,19 +779,7 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
   }
 
   private static double innerProduct(double[] w, InstanceShort i) {
-    if(w.length != i.numAttributes())
-      throw new RuntimeException("Wrong number of attributes");
-    double result = 0;
-    for(int j = 0; j < i.numAttributes(); j++){
-      if(i.attribute(j).isFeature()){
-        if(i.attribute(j).isNominal())
-          result += i.value(j) * w[j];
-        else
-          result += i.attribute(j).getOriginalValue(new Short(i.value(j))) * w[j];
-      }
-    }
-    //System.err.println("VAL="+result);
-    return result;
+    return AveragedWeights.innerProduct(w, i);
   }
   
   private double prediction(InstanceShort i) {
@@ -2609,8 +2583,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2621,8 +2595,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
       //System.err.println(current);
       if(prediction(current) > THRESHOLD){
         union(id1, id2, ptrs);
@@ -2645,8 +2619,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2657,8 +2631,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(innerProduct(w, current) > THRESHOLD){
         union(id1, id2, ptrs);
@@ -2669,8 +2643,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
     }
     /*
      * for(int k = 0; k < data.numInstances(); k++){ InstanceShort curPair =
-     * data.instance(k); int curId1 = (int)curPair.value(ID1); int curId2 =
-     * (int)curPair.value(ID2); if(!result.contains(new Integer(curId1))){
+     * data.instance(k); int curId1 = curPair.intValue(ID1); int curId2 =
+     * curPair.intValue(ID2); if(!result.contains(new Integer(curId1))){
      * //System.err.println("Add "+curId1+"-"+find(curId1,ptrs)); result.add(new
      * Integer(curId1),new Integer(find(curId1,ptrs))); }
      * if(!result.contains(new Integer(curId2))) result.add(new
@@ -2689,8 +2663,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
 
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -2732,7 +2706,7 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
   public static LeanDocument makeDocument(ModifiedInstancesShort data) {
     if(data == null || data.numInstances() == 0)
       return null;
-    LeanDocument result = new LeanDocument(data.instance(0).value(data.m_DOCNO));
+    LeanDocument result = new LeanDocument(data.instance(0).intValue(data.m_DOCNO));
     AttributeShort DOCID = data.m_DOCNO;
     AttributeShort ID1 = data.m_ID1;
     AttributeShort ID2 = data.m_ID2;
@@ -2743,8 +2717,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
     if(data == null || data.numInstances() == 0)
       return null;
     InstanceShort first = data.instance(0);
-    int id1 = (int)first.value(ID1);
-    int id2 = (int)first.value(ID2);
+    int id1 = first.intValue(ID1);
+    int id2 = first.intValue(ID2);
     int len = id2 + 1;
     ptrs = new int[len];
     // initialize pointers so each item is in it's own set
@@ -2758,8 +2732,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
       // read all instances for a document
       InstanceShort current = data.instance(i);
       // System.out.println("Working on: "+current);
-      id1 = (int)current.value(ID1);
-      id2 = (int)current.value(ID2);
+      id1 = current.intValue(ID1);
+      id2 = current.intValue(ID2);
 
       if(current.value(Cl) == pos){
         union(id1, id2, ptrs);
@@ -2767,8 +2741,8 @@ public class StVotedPerceptron extends Classifier implements OptionHandler{
     }
     for(int k = 0; k < data.numInstances(); k++){
       InstanceShort curPair = data.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       if(!result.contains(new Integer(curId1))){
         //System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
         result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
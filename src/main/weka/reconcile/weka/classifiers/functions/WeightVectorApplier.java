@@ -263,8 +263,8 @@ public class WeightVectorApplier {
 			return null;
 		InstanceShort first = data.instance(0);
 		//System.err.println(first);
-		int id1 = first.value(ID1);
-		int id2 = first.value(ID2);
+		int id1 = first.intValue(ID1);
+		int id2 = first.intValue(ID2);
 		int len = id1>id2?id1+1:id2+1;
 		ptrs = new int[len];
 		// initialize pointers so each item is in it's own set
@@ -275,8 +275,8 @@ public class WeightVectorApplier {
 			// read all instances for a document
 			InstanceShort current = data.instance(i);
 			// System.out.println("Working on: "+current);
-			id1 = current.value(ID1);
-			id2 = current.value(ID2);
+			id1 = current.intValue(ID1);
+			id2 = current.intValue(ID2);
 
 			if (innerProduct(w, current) > THRESHOLD) {
 				union(id1, id2, ptrs);
@@ -307,8 +307,8 @@ public class WeightVectorApplier {
 
 		for (int k = 0; k < data.numInstances(); k++) {
 			InstanceShort curPair = data.instance(k);
-			int curId1 = curPair.value(ID1);
-			int curId2 = curPair.value(ID2);
+			int curId1 = curPair.intValue(ID1);
+			int curId2 = curPair.intValue(ID2);
 			if (!result.contains(new Integer(curId1))) {
 				// System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
 				result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
@@ -389,7 +389,7 @@ public class WeightVectorApplier {
 	public static LeanDocument makeDocument(ModifiedInstancesShort data) {
 		if (data == null || data.numInstances() == 0)
 			return null;
-		LeanDocument result = new LeanDocument(data.instance(0).value(
+		LeanDocument result = new LeanDocument(data.instance(0).intValue(
 				data.m_DOCNO));
 		AttributeShort DOCID = data.m_DOCNO;
 		AttributeShort ID1 = data.m_ID1;
@@ -401,8 +401,8 @@ public class WeightVectorApplier {
 		if (data == null || data.numInstances() == 0)
 			return null;
 		InstanceShort first = data.instance(0);
-		int id1 = first.value(ID1);
-		int id2 = first.value(ID2);
+		int id1 = first.intValue(ID1);
+		int id2 = first.intValue(ID2);
 		int len = id1 + 1;
 		ptrs = new int[len];
 		// initialize pointers so each item is in it's own set
@@ -416,8 +416,8 @@ public class WeightVectorApplier {
 			// read all instances for a document
 			InstanceShort current = data.instance(i);
 			// System.out.println("Working on: "+current);
-			id1 = current.value(ID1);
-			id2 = current.value(ID2);
+			id1 = current.intValue(ID1);
+			id2 = current.intValue(ID2);
 
 			if (current.value(Cl) == pos) {
 				union(id1, id2, ptrs);
@@ -425,8 +425,8 @@ public class WeightVectorApplier {
 		}
 		for (int k = 0; k < data.numInstances(); k++) {
 			InstanceShort curPair = data.instance(k);
-			int curId1 = curPair.value(ID1);
-			int curId2 = curPair.value(ID2);
+			int curId1 = curPair.intValue(ID1);
+			int curId2 = curPair.intValue(ID2);
 			if (!result.contains(new Integer(curId1))) {
 				// System.err.println("Add "+curId1+"-"+find(curId1,ptrs));
 				result.add(new Integer(curId1), new Integer(find(curId1, ptrs)));
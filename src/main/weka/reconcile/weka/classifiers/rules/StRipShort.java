@@ -3629,9 +3629,9 @@ public class StRipShort implements OptionHandler, AdditionalMeasureProducer,
       // read all instances for a document
       InstanceShort current = result.instance(i);
       // System.out.println("Working on: "+current);
-      int currentDoc = (int)current.value(DOCID);
-      int id1 = (int)current.value(ID1);
-      int id2 = (int)current.value(ID2);
+      int currentDoc = current.intValue(DOCID);
+      int id1 = current.intValue(ID1);
+      int id2 = current.intValue(ID2);
       boolean cl = (int)current.value(CLASS) == positive;
       short cov;
       boolean notCovered;
@@ -3642,8 +3642,8 @@ public class StRipShort implements OptionHandler, AdditionalMeasureProducer,
         // class value.
         for(int k = start; k < i; k++){
           InstanceShort curPair = result.instance(k);
-          int curId1 = (int)curPair.value(ID1);
-          int curId2 = (int)curPair.value(ID2);
+          int curId1 = curPair.intValue(ID1);
+          int curId2 = curPair.intValue(ID2);
           cov = curPair.value(covered);
           notCovered = cov != positive;
           notCovered = notCovered && otherClass;
@@ -3680,8 +3680,8 @@ public class StRipShort implements OptionHandler, AdditionalMeasureProducer,
     }
     for(int k = start; k < result.numInstances(); k++){
       InstanceShort curPair = result.instance(k);
-      int curId1 = (int)curPair.value(ID1);
-      int curId2 = (int)curPair.value(ID2);
+      int curId1 = curPair.intValue(ID1);
+      int curId2 = curPair.intValue(ID2);
       short cov = curPair.value(covered);
       boolean notCovered = cov != positive;
       notCovered = notCovered && otherClass;
@@ -594,11 +594,35 @@ public class AttributeShort implements Copyable, Serializable {
   }
   
   public boolean notRestricted(){
-    if(m_Name.equalsIgnoreCase("DOCNUM")||m_Name.equalsIgnoreCase("ID1")||m_Name.equalsIgnoreCase("ID2"))
+    if(identifierSlot() >= 0)
       return false;
     return true;
     
   }
+
+  /** The number of identifier attributes an instance can have. */
+  public static final int NUM_IDENTIFIERS = 3;
+
+  /**
+   * Returns the slot of an identifier attribute -- the document number
+   * (DocNo or DOCNUM) and the ids of the two nps of a pair (ID1 and ID2) --
+   * in the full width values of an instance, or -1 for any other
+   * attribute. Identifiers are stored as they are rather than through
+   * the table of values of a numeric attribute, and are read with
+   * InstanceShort.intValue(), since a corpus can have more documents and
+   * a document more nps than a short can count.
+   *
+   * @return the slot of the identifier, or -1
+   */
+  public int identifierSlot(){
+    if(m_Name.equalsIgnoreCase("DOCNUM")||m_Name.equalsIgnoreCase("DocNo"))
+      return 0;
+    if(m_Name.equalsIgnoreCase("ID1"))
+      return 1;
+    if(m_Name.equalsIgnoreCase("ID2"))
+      return 2;
+    return -1;
+  }
   public boolean isFeature(){
     if(m_Name.equalsIgnoreCase("DOCNUM")||m_Name.equalsIgnoreCase("ID1")||m_Name.equalsIgnoreCase("ID2"))
       return false;
@@ -79,9 +79,24 @@ public class InstanceShort implements Copyable, Serializable {
   /** The instance's attribute values. */
   protected /*@spec_public non_null@*/ short[] m_AttValues;
 
+  /**
+   * The values of the identifier attributes at full width, by
+   * AttributeShort.identifierSlot(); null if the instance has none.
+   * The short values of those attributes are truncated.
+   */
+  protected int[] m_IdValues;
+
   /** The instance's weight. */
   protected float m_Weight;
 
+  /**
+   * The indices and values of the features that are not zero, as the
+   * linear classifiers use them (see featureIndices()). Built when first
+   * asked for and dropped when a feature value changes.
+   */
+  protected transient int[] m_FeatureIndices;
+  protected transient double[] m_FeatureValues;
+
   /**
    * Constructor that copies the attribute values and the weight from
    * the given instance. Reference to the dataset is set to null.
@@ -95,6 +110,7 @@ public class InstanceShort implements Copyable, Serializable {
   protected InstanceShort(/*@non_null@*/ InstanceShort instance) {
     
     m_AttValues = instance.m_AttValues;
+    m_IdValues = instance.m_IdValues;
     m_Weight = instance.m_Weight;
     m_Dataset = null;
   }
@@ -115,6 +131,23 @@ public class InstanceShort implements Copyable, Serializable {
     m_Dataset = null;
   }
 
+  /**
+   * Constructor that inititalizes instance variable with given
+   * values, including the full width values of the identifier
+   * attributes. Reference to the dataset is set to null.
+   *
+   * @param weight the instance's weight
+   * @param attValues a vector of attribute values 
+   * @param idValues the values of the identifier attributes, by
+   * AttributeShort.identifierSlot(), or null
+   */
+  //@ ensures m_Dataset == null;
+  public InstanceShort(float weight,  /*@non_null@*/ short[]attValues, int[] idValues){
+    
+    this(weight, attValues);
+    m_IdValues = idValues;
+  }
+
   /**
    * Constructor of an instance that sets weight to one, all values to
    * be missing, and the reference to the dataset to null. (ie. the instance
@@ -445,7 +478,7 @@ public class InstanceShort implements Copyable, Serializable {
     for (int j = 0; j < inst.numAttributes(); j++, m++) {
       newVals[m] = inst.value(j);
     }
-    return new InstanceShort(1, newVals);
+    return new InstanceShort(1, newVals, m_IdValues);
   }
 
   /**
@@ -513,6 +546,7 @@ public class InstanceShort implements Copyable, Serializable {
       throw new IllegalArgumentException("Unequal number of attributes!");
     }
     freshAttributeVector();
+    m_FeatureIndices = null;
     for (int i = 0; i < m_AttValues.length; i++) {
       if (isMissing(i)) {
 	m_AttValues[i] = array[i];
@@ -593,6 +627,7 @@ public class InstanceShort implements Copyable, Serializable {
   public final void setDataset(InstancesShort instances) {
     
     m_Dataset = instances;
+    m_FeatureIndices = null;
   }
 
   /**
@@ -631,8 +666,12 @@ public class InstanceShort implements Copyable, Serializable {
    */
   public void setValue(int attIndex, short value) {
     
+    if (m_AttValues[attIndex] == value) {
+      return;
+    }
     freshAttributeVector();
     m_AttValues[attIndex] = value;
+    featureChanged(attIndex);
   }
 
   /**
@@ -648,8 +687,83 @@ public class InstanceShort implements Copyable, Serializable {
    */
   public void setValueSparse(int indexOfIndex, short value) {
     
+    if (m_AttValues[indexOfIndex] == value) {
+      return;
+    }
     freshAttributeVector();
     m_AttValues[indexOfIndex] = value;
+    featureChanged(indexOfIndex);
+  }
+
+  /**
+   * Drops the feature values if the given attribute is a feature.
+   */
+  private void featureChanged(int attIndex) {
+
+    if (m_FeatureIndices != null && 
+        (m_Dataset == null || m_Dataset.attribute(attIndex).isFeature())) {
+      m_FeatureIndices = null;
+    }
+  }
+
+  /**
+   * Returns the indices of the features whose value is not zero, in
+   * increasing order. A linear classifier with weights w scores the
+   * instance with the sum of w[featureIndices()[k]] * featureValues()[k].
+   * The value of a nominal feature is its index; the value of a numeric
+   * one is its original value.
+   *
+   * @return the indices of the features that are not zero
+   * @exception UnassignedDatasetException if instance doesn't have access to a
+   * dataset
+   */
+  public int[] featureIndices() {
+
+    if (m_FeatureIndices == null) {
+      makeFeatures();
+    }
+    return m_FeatureIndices;
+  }
+
+  /**
+   * Returns the values of the features that are not zero, in the order
+   * of featureIndices().
+   *
+   * @return the values of the features that are not zero
+   */
+  public double[] featureValues() {
+
+    if (m_FeatureIndices == null) {
+      makeFeatures();
+    }
+    return m_FeatureValues;
+  }
+
+  private synchronized void makeFeatures() {
+
+    if (m_FeatureIndices != null) {
+      return;
+    }
+    int[] indices = new int[m_AttValues.length];
+    double[] values = new double[m_AttValues.length];
+    int n = 0;
+    for (int j = 0; j < m_AttValues.length; j++) {
+      AttributeShort att = attribute(j);
+      if (att.isFeature()) {
+        double v = att.isNominal() ? m_AttValues[j] : att.getOriginalValue(new Short(m_AttValues[j]));
+        if (v != 0) {
+          indices[n] = j;
+          values[n] = v;
+          n++;
+        }
+      }
+    }
+    int[] newIndices = new int[n];
+    double[] newValues = new double[n];
+    System.arraycopy(indices, 0, newIndices, 0, n);
+    System.arraycopy(values, 0, newValues, 0, n);
+    m_FeatureValues = newValues;
+    m_FeatureIndices = newIndices;
   }
 
   /**
@@ -932,6 +1046,23 @@ public class InstanceShort implements Copyable, Serializable {
     return value(att.index());
   }
 
+  /**
+   * Returns an instance's value for an identifier attribute (see
+   * AttributeShort.identifierSlot()) at full width, and its value for
+   * any other attribute.
+   *
+   * @param att the attribute
+   * @return the value as an int
+   */
+  public /*@pure@*/ int intValue(AttributeShort att) {
+
+    int slot = att.identifierSlot();
+    if (slot >= 0 && m_IdValues != null) {
+      return m_IdValues[slot];
+    }
+    return m_AttValues[att.index()];
+  }
+
   /**
    * Returns the instance's weight.
    *
@@ -960,6 +1091,7 @@ public class InstanceShort implements Copyable, Serializable {
 		       m_AttValues.length - (position + 1));
     }
     m_AttValues = newValues;
+    m_FeatureIndices = null;
   }
 
   /**
@@ -977,6 +1109,7 @@ public class InstanceShort implements Copyable, Serializable {
     System.arraycopy(m_AttValues, position, newValues, 
 		     position + 1, m_AttValues.length - position);
     m_AttValues = newValues;
+    m_FeatureIndices = null;
   }
 
   /**
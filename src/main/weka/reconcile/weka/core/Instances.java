@@ -33,6 +33,9 @@ import java.text.ParseException;
 import java.util.Enumeration;
 import java.util.Random;
 
+import reconcile.featureVector.BinaryFeatureReader;
+import reconcile.featureVector.FeatureWriterBinary;
+
 /**
  * Class for handling an ordered set of weighted instances. <p>
  *
@@ -136,6 +139,23 @@ public class Instances implements Serializable {
 		}
 		}
  
+  /**
+   * Reads a binary feature file (see FeatureWriterBinary), and
+   * assigns a weight of one to each instance. Lets the index of
+   * the class attribute be undefined (negative).
+   *
+   * @param reader the reader, positioned after the header
+   * @exception IOException if the file is not read successfully
+   */
+  public Instances(/*@non_null@*/BinaryFeatureReader reader) throws IOException {
+
+    readBinaryHeader(reader);
+    m_ClassIndex = -1;
+    m_Instances = new FastVector(1000);
+    while (getBinaryInstance(reader)) {};
+    compactify();
+  }
+ 
   /**
    * Reads the header of an ARFF file from a reader and 
    * reserves space for the given number of instances. Lets
@@ -1937,6 +1957,67 @@ public class Instances implements Serializable {
     m_IndicesBuffer = new int[numAttributes()];
   }
 
+  /**
+   * Creates the attributes declared in the header of a binary
+   * feature file.
+   *
+   * @param reader the binary feature reader
+   */
+  protected void readBinaryHeader(BinaryFeatureReader reader) {
+
+    m_RelationName = reader.getRelationName();
+    m_Attributes = new FastVector(reader.numAttributes());
+    for (int i = 0; i < reader.numAttributes(); i++) {
+      String name = reader.getAttributeName(i);
+      switch (reader.getAttributeType(i)) {
+      case FeatureWriterBinary.NOMINAL:
+        String[] vals = reader.getNominalValues(i);
+        FastVector attributeValues = new FastVector(vals.length);
+        for (String val : vals) {
+          attributeValues.addElement(val);
+        }
+        m_Attributes.addElement(new Attribute(name, attributeValues, i));
+        break;
+      case FeatureWriterBinary.STRING:
+        m_Attributes.addElement(new Attribute(name, (FastVector)null, i));
+        break;
+      default:
+        m_Attributes.addElement(new Attribute(name, i));
+      }
+    }
+    m_ValueBuffer = new double[numAttributes()];
+    m_IndicesBuffer = new int[numAttributes()];
+  }
+
+  /**
+   * Reads a single row of a binary feature file and appends it
+   * to the dataset.
+   *
+   * @param reader the binary feature reader
+   * @return false if end of file has been reached
+   * @exception IOException if the information is not read
+   * successfully
+   */
+  protected boolean getBinaryInstance(BinaryFeatureReader reader)
+       throws IOException {
+
+    if (!reader.next()) {
+      return false;
+    }
+    float[] instance = new float[numAttributes()];
+    for (int i = 0; i < numAttributes(); i++) {
+      if (reader.isMissing(i)) {
+        instance[i] = Instance.missingValue();
+      } else if (attribute(i).type() == Attribute.STRING) {
+        instance[i] = attribute(i).addStringValue(reader.stringValue(i));
+      } else {
+        instance[i] = (float)reader.value(i);
+      }
+    }
+    add(new Instance(1, instance));
+    return true;
+  }
+
   /**
    * Copies instances from one set to the end of another 
    * one.
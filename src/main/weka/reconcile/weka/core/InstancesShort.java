@@ -38,6 +38,9 @@ import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Random;
 
+import reconcile.featureVector.BinaryFeatureReader;
+import reconcile.featureVector.FeatureWriterBinary;
+
 //import com.sun.org.apache.bcel.internal.generic.StoreInstruction;
 
 /**
@@ -208,6 +211,26 @@ public class InstancesShort implements Serializable {
     }
   }
 
+  /**
+   * Reads a binary feature file (see FeatureWriterBinary), and assigns a
+   * weight of one to each instance. Lets the index of the class attribute be
+   * undefined (negative).
+   * 
+   * @param reader
+   *          the reader, positioned after the header
+   * @exception IOException
+   *              if the file is not read successfully
+   */
+  public InstancesShort(/* @non_null@ */BinaryFeatureReader reader) throws IOException {
+
+    readBinaryHeader(reader);
+    m_ClassIndex = -1;
+    m_Instances = new FastVector(1000);
+    while(getBinaryInstance(reader)){
+    }
+    compactify();
+  }
+
   /**
    * Reads the header of an ARFF file from a reader and reserves space for the
    * given number of instances. Lets the class index be undefined (negative).
@@ -616,6 +639,7 @@ public class InstancesShort implements Serializable {
         newInst.setValue(j,newVal);
         newInst.setWeight(inst.weight());
       }
+      newInst.m_IdValues = inst.m_IdValues;
       //System.err.println();
       result.add(newInst);
     }
@@ -643,6 +667,7 @@ public class InstancesShort implements Serializable {
        newInst.setValue(j,newVal);
        newInst.setWeight(inst.weight());
      }
+     newInst.m_IdValues = inst.m_IdValues;
      return newInst;
   }
 
@@ -2045,6 +2070,7 @@ public class InstancesShort implements Serializable {
         throws IOException {
 
       short[] instance = new short[numAttributes()];
+      int[] ids = newIdValues();
       short index;
 
       // Get values for all attributes.
@@ -2080,6 +2106,7 @@ public class InstancesShort implements Serializable {
             try{
               Double value = Double.valueOf(tokenizer.sval);
               instance[i] = attribute(i).storeTemp(value);
+              storeIdValue(ids, i, value);
             } catch(NumberFormatException e){
               errms(tokenizer, "number expected");
             }
@@ -2105,7 +2132,7 @@ public class InstancesShort implements Serializable {
       }
 
       // Add instance to dataset
-      add(new InstanceShort(1, instance));
+      add(new InstanceShort(1, instance, ids));
       return true;
     }
     
@@ -2121,6 +2148,7 @@ public class InstancesShort implements Serializable {
         throws IOException {
 
       short[] instance = new short[numAttributes()];
+      int[] ids = newIdValues();
       short index;
 
       // Get values for all attributes.
@@ -2154,6 +2182,7 @@ public class InstancesShort implements Serializable {
             try{
               Double value = Double.valueOf(tokenizer.sval);
               instance[i] = attribute(i).storeTemp(value);
+              storeIdValue(ids, i, value);
               attribute(i).storeCoresp(instance[i], value);
             } catch(NumberFormatException e){
               errms(tokenizer, "number expected");
@@ -2179,7 +2208,7 @@ public class InstancesShort implements Serializable {
         getLastToken(tokenizer, true);
       }
 
-      return new InstanceShort(1, instance);
+      return new InstanceShort(1, instance, ids);
     }
 
   /**
@@ -2381,6 +2410,110 @@ public class InstancesShort implements Serializable {
     return true;
   }
 
+  /**
+   * Creates the attributes declared in the header of a binary feature file.
+   * 
+   * @param reader
+   *          the binary feature reader
+   */
+  protected void readBinaryHeader(BinaryFeatureReader reader) {
+
+    m_RelationName = reader.getRelationName();
+    m_Attributes = new FastVector(reader.numAttributes());
+    for(int i = 0; i < reader.numAttributes(); i++){
+      String name = reader.getAttributeName(i);
+      switch(reader.getAttributeType(i)){
+      case FeatureWriterBinary.NOMINAL:
+        String[] vals = reader.getNominalValues(i);
+        FastVector attributeValues = new FastVector(vals.length);
+        for(String val : vals){
+          attributeValues.addElement(val);
+        }
+        m_Attributes.addElement(new AttributeShort(name, attributeValues, i));
+        break;
+      case FeatureWriterBinary.STRING:
+        m_Attributes.addElement(new AttributeShort(name, (FastVector)null, i));
+        break;
+      default:
+        m_Attributes.addElement(new AttributeShort(name, i));
+      }
+    }
+    m_ValueBuffer = new double[numAttributes()];
+    m_IndicesBuffer = new int[numAttributes()];
+  }
+
+  /**
+   * Reads a single row of a binary feature file and appends it to the dataset.
+   * 
+   * @param reader
+   *          the binary feature reader
+   * @return false if end of file has been reached
+   * @exception IOException
+   *              if the information is not read successfully
+   */
+  protected boolean getBinaryInstance(BinaryFeatureReader reader)
+      throws IOException {
+    if(!reader.next()){
+      return false;
+    }
+    short[] instance = new short[numAttributes()];
+    int[] ids = newIdValues();
+    for(int i = 0; i < numAttributes(); i++){
+      if(reader.isMissing(i)){
+        instance[i] = InstanceShort.missingValue();
+        continue;
+      }
+      switch(attribute(i).type()){
+      case AttributeShort.NOMINAL:
+        instance[i] = (short)reader.value(i);
+        break;
+      case AttributeShort.NUMERIC:
+        Double value = Double.valueOf(reader.value(i));
+        instance[i] = attribute(i).storeTemp(value);
+        storeIdValue(ids, i, value);
+        break;
+      default:
+        throw new RuntimeException("String attributes not yet implemented");
+      }
+    }
+    add(new InstanceShort(1, instance, ids));
+    return true;
+  }
+
+  /**
+   * Returns the array for the full width values of the identifier
+   * attributes of a new instance, or null if the dataset has none.
+   * 
+   * @return the array, or null
+   */
+  protected int[] newIdValues() {
+
+    for(int i = 0; i < numAttributes(); i++){
+      if(attribute(i).identifierSlot() >= 0){
+        return new int[AttributeShort.NUM_IDENTIFIERS];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Keeps the value of an identifier attribute at full width.
+   * 
+   * @param ids
+   *          the identifier values of the instance being read
+   * @param attIndex
+   *          the attribute
+   * @param value
+   *          the value read
+   */
+  protected void storeIdValue(int[] ids, int attIndex, Double value) {
+
+    int slot = attribute(attIndex).identifierSlot();
+    if(slot >= 0){
+      ids[slot] = value.intValue();
+    }
+  }
+
   /**
    * Copies instances from one set to the end of another one.
    * 
@@ -8,6 +8,8 @@ import java.io.IOException;
 import java.io.Reader;
 import java.util.Enumeration;
 
+import reconcile.featureVector.BinaryFeatureReader;
+
 
 /**
  * This class wraps around the Instances class. The problem is that
@@ -62,6 +64,15 @@ public class ModifiedInstancesShort extends InstancesShort{
 		setUpSources();
 	}
 	
+	/**
+	 * @param reader a binary feature file
+	 * @throws IOException
+	 */
+	public ModifiedInstancesShort(BinaryFeatureReader reader) throws IOException {
+		super(reader);
+		setUpSources();
+	}
+	
 	public ModifiedInstancesShort(String header) throws IOException {
 		super(header);
 	}
@@ -100,7 +111,7 @@ public class ModifiedInstancesShort extends InstancesShort{
 	  for(int i =0; i<all.numInstances(); i++){
 	    InstanceShort ins = all.instance(i);
 	    
-	    int  docNum = (int)ins.value(docnum);
+	    int  docNum = ins.intValue(docnum);
 	    if(currentDoc!=docNum){
 	      //Set up a new document
 	     // System.err.println("Addin doc "+docNum+" position "+index);
@@ -147,8 +158,8 @@ public class ModifiedInstancesShort extends InstancesShort{
 			boolean isSource = (source==null)||(ins.value(source)==sourceInd);
 			if(!isSource)
 				ins.setWeight(0);
-			int docNum = (int)ins.value(m_DOCNO);
-			int id = (int)ins.value(m_ID2);
+			int docNum = ins.intValue(m_DOCNO);
+			int id = ins.intValue(m_ID2);
 			if(docNum!=curDoc){
 				numDocs++;
 				curDoc = docNum;
@@ -256,7 +267,7 @@ public class ModifiedInstancesShort extends InstancesShort{
 		int curDoc = -1;
 		for(int i=0; i<numInstances();i++){
 			InstanceShort cur = instance(i);
-			int docNum = (int)cur.value(docID);
+			int docNum = cur.intValue(docID);
 			if(docNum!=curDoc){
 				documentNum++;
 				curDoc = docNum;
@@ -275,10 +286,10 @@ public class ModifiedInstancesShort extends InstancesShort{
 	public String printDocOrder(){
 		String result = "";
 		AttributeShort docID = attribute("DocNo");
-		short curDoc = -1;
+		int curDoc = -1;
 		for(int i=0; i<numInstances();i++){
 			InstanceShort cur = instance(i);
-			short docNum = cur.value(docID);
+			int docNum = cur.intValue(docID);
 			if(docNum!=curDoc){
 			  result+=docNum+", ";
 			  curDoc = docNum;
@@ -293,12 +304,12 @@ public class ModifiedInstancesShort extends InstancesShort{
 	 */
 	public int addDoc(InstancesShort data, int startIndex){
 		AttributeShort docID = attribute("DocNo");
-		short curDoc = -1;
+		int curDoc = -1;
 		boolean done = false;
 		int index = 0;
 		for(int i=startIndex; i<data.numInstances() && !done; i++){
 			InstanceShort cur = data.instance(i);
-			short docNum = cur.value(docID);
+			int docNum = cur.intValue(docID);
 			if(docNum!=curDoc){
 				if(curDoc==-1){
 					curDoc=docNum;
@@ -326,10 +337,12 @@ public class ModifiedInstancesShort extends InstancesShort{
    */
   public void add(/*@non_null@*/ InstanceShort instance) {
 		AttributeShort docID = attribute("DocNo");
-		short docNum = 0;
-		if(docID!=null)
-		  docNum = instance.value(docID);
-		m_NumDocuments = m_NumDocuments >= docNum+1?m_NumDocuments:docNum+1;
+		//the documents are contiguous; DocNo is the document's number in the corpus
+		if(docID!=null){
+		  int docNum = instance.intValue(docID);
+		  if(m_Instances.size()==0||((InstanceShort)m_Instances.lastElement()).intValue(docID)!=docNum)
+		    m_NumDocuments++;
+		}
 		instance.setDataset(this);
 		m_Instances.addElement(instance);
 	}